@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Chooses number of records requested in next streamed chunk, so chunks have roughly the target size in bytes.
+ * Size of a row is estimated from projected columns at first and then follows sizes of received chunks,
+ * so narrow projections get fewer round trips and wide ones don't hold too much memory per split.
+ * Chunks are also kept small enough to be scanned in about {@link #MAX_CHUNK_LATENCY_NANOS},
+ * judging by throughput of recent chunks, so a single slow chunk doesn't stall the driver.
+ * Not thread safe, used only by the thread scanning chunks.
+ */
+class HyenaChunkSizer
+{
+    static final long MIN_RECORDS_LIMIT = 1000;
+    static final long MAX_RECORDS_LIMIT = 10_000_000;
+    static final long MAX_CHUNK_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(2);
+    // weight of the latest chunk in smoothed row size and throughput
+    private static final double SMOOTHING = 0.5;
+
+    private final long targetChunkBytes;
+    private double bytesPerRow;
+    private double rowsPerNano = Double.NaN;
+
+    HyenaChunkSizer(long targetChunkBytes, double estimatedBytesPerRow)
+    {
+        checkArgument(targetChunkBytes > 0, "targetChunkBytes must be positive");
+        this.targetChunkBytes = targetChunkBytes;
+        this.bytesPerRow = Math.max(1, estimatedBytesPerRow);
+    }
+
+    void recordChunk(int rowCount, long sizeInBytes, long latencyNanos)
+    {
+        if (rowCount == 0) {
+            return;
+        }
+        bytesPerRow = smooth(bytesPerRow, Math.max(1, (double) sizeInBytes / rowCount));
+        if (latencyNanos > 0) {
+            rowsPerNano = smooth(rowsPerNano, (double) rowCount / latencyNanos);
+        }
+    }
+
+    long getRecordsLimit()
+    {
+        double limit = targetChunkBytes / bytesPerRow;
+        if (!Double.isNaN(rowsPerNano)) {
+            limit = Math.min(limit, rowsPerNano * MAX_CHUNK_LATENCY_NANOS);
+        }
+        return Math.max(MIN_RECORDS_LIMIT, Math.min(MAX_RECORDS_LIMIT, (long) limit));
+    }
+
+    private static double smooth(double previous, double current)
+    {
+        return Double.isNaN(previous) ? current : SMOOTHING * current + (1 - SMOOTHING) * previous;
+    }
+}
@@ -38,7 +38,7 @@ public class HyenaClientModule
         binder.bind(HyenaConnector.class).in(Scopes.SINGLETON);
         binder.bind(HyenaMetadata.class).in(Scopes.SINGLETON);
         binder.bind(HyenaSplitManager.class).in(Scopes.SINGLETON);
-        binder.bind(HyenaRecordSetProvider.class).in(Scopes.SINGLETON);
+        binder.bind(HyenaPageSourceProvider.class).in(Scopes.SINGLETON);
 
         configBinder(binder).bindConfig(HyenaConfig.class);
     }
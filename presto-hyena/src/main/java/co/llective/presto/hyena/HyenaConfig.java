@@ -32,6 +32,14 @@ public class HyenaConfig
     public static final String STREAMING_RECORDS_THRESHOLD = "streaming_records_threshold";
     public static final String STREAMING_RECORDS_THRESHOLD_DESC = "Number of records which hyena can add/subtract to/from limit number";
 
+    private Long streamingFirstChunkLimit = 10000L;
+    public static final String STREAMING_FIRST_CHUNK_LIMIT = "streaming_first_chunk_limit";
+    public static final String STREAMING_FIRST_CHUNK_LIMIT_DESC = "Numbers of records fetched in the first subscan, so queries needing few rows (e.g. with LIMIT) finish early (0 disables)";
+
+    private Long streamingTargetChunkBytes = 32L * 1024 * 1024;
+    public static final String STREAMING_TARGET_CHUNK_BYTES = "streaming_target_chunk_bytes";
+    public static final String STREAMING_TARGET_CHUNK_BYTES_DESC = "Approximate size of streamed chunks in bytes, number of records per subscan is adapted to it and replaces records limit (0 disables)";
+
     private Boolean splittingEnabled = true;
     public static final String SPLITTING_ENABLED = "splitting_enabled";
     public static final String SPLITTING_ENABLED_DESC = "Should use multiple splits while scanning";
@@ -44,6 +52,34 @@ public class HyenaConfig
     public static final String MIN_DB_TIMESTAMP = "min_db_timestamp_ns";
     public static final String MIN_DB_TIMESTAMP_DESC = "Lowest timestamp in database in nanoseconds (only used when someone gives no constraints on time in query)";
 
+    private Integer prefetchQueueDepth = 2;
+    public static final String PREFETCH_QUEUE_DEPTH = "prefetch_queue_depth";
+    public static final String PREFETCH_QUEUE_DEPTH_DESC = "Number of streamed chunks downloaded ahead of processing (0 disables prefetching)";
+
+    private Long rowsPerPartition = 1000000L;
+    public static final String ROWS_PER_PARTITION = "rows_per_partition";
+    public static final String ROWS_PER_PARTITION_DESC = "Approximate number of rows in one hyena partition (used for table statistics)";
+
+    private Long statisticsCacheTtlSeconds = 60L;
+    public static final String STATISTICS_CACHE_TTL = "statistics_cache_ttl_seconds";
+    public static final String STATISTICS_CACHE_TTL_DESC = "How long partition info used for table statistics is cached";
+
+    private Long catalogCacheTtlSeconds = 60L;
+    public static final String CATALOG_CACHE_TTL = "catalog_cache_ttl_seconds";
+    public static final String CATALOG_CACHE_TTL_DESC = "How often cached hyena catalog (table columns) is refreshed in background (0 fetches catalog on every metadata call)";
+
+    private Long maxScanFilters = 1000L;
+    public static final String MAX_SCAN_FILTERS = "max_scan_filters";
+    public static final String MAX_SCAN_FILTERS_DESC = "Maximal number of AND groups of filters pushed to hyena scan, wider predicates are simplified to value spans and filtered by presto";
+
+    private Integer connectionPoolSize = 16;
+    public static final String CONNECTION_POOL_SIZE = "connection_pool_size";
+    public static final String CONNECTION_POOL_SIZE_DESC = "Maximal number of connections to hyena used concurrently, calls wait for a free connection above it";
+
+    private Long connectionAcquireTimeoutSeconds = 60L;
+    public static final String CONNECTION_ACQUIRE_TIMEOUT = "connection_acquire_timeout_seconds";
+    public static final String CONNECTION_ACQUIRE_TIMEOUT_DESC = "How long a call waits for a free connection to hyena before it fails";
+
     public String getHyenaHost()
     {
         return hyenaHost;
@@ -64,6 +100,16 @@ public class HyenaConfig
         return streamingRecordsThreshold;
     }
 
+    public long getStreamingFirstChunkLimit()
+    {
+        return streamingFirstChunkLimit;
+    }
+
+    public long getStreamingTargetChunkBytes()
+    {
+        return streamingTargetChunkBytes;
+    }
+
     public boolean getSplittingEnabled()
     {
         return splittingEnabled;
@@ -79,6 +125,41 @@ public class HyenaConfig
         return minDbTimestampNs;
     }
 
+    public int getPrefetchQueueDepth()
+    {
+        return prefetchQueueDepth;
+    }
+
+    public long getRowsPerPartition()
+    {
+        return rowsPerPartition;
+    }
+
+    public long getStatisticsCacheTtlSeconds()
+    {
+        return statisticsCacheTtlSeconds;
+    }
+
+    public long getCatalogCacheTtlSeconds()
+    {
+        return catalogCacheTtlSeconds;
+    }
+
+    public long getMaxScanFilters()
+    {
+        return maxScanFilters;
+    }
+
+    public int getConnectionPoolSize()
+    {
+        return connectionPoolSize;
+    }
+
+    public long getConnectionAcquireTimeoutSeconds()
+    {
+        return connectionAcquireTimeoutSeconds;
+    }
+
     @Config("hyena.url")
     @ConfigDescription("Hyena host address")
     public HyenaConfig setHyenaHost(String hyenaHost)
@@ -111,6 +192,22 @@ public class HyenaConfig
         return this;
     }
 
+    @Config("hyena." + STREAMING_FIRST_CHUNK_LIMIT)
+    @ConfigDescription(STREAMING_FIRST_CHUNK_LIMIT_DESC)
+    public HyenaConfig setStreamingFirstChunkLimit(Long limit)
+    {
+        this.streamingFirstChunkLimit = limit;
+        return this;
+    }
+
+    @Config("hyena." + STREAMING_TARGET_CHUNK_BYTES)
+    @ConfigDescription(STREAMING_TARGET_CHUNK_BYTES_DESC)
+    public HyenaConfig setStreamingTargetChunkBytes(Long bytes)
+    {
+        this.streamingTargetChunkBytes = bytes;
+        return this;
+    }
+
     @Config("hyena." + SPLITTING_ENABLED)
     @ConfigDescription(SPLITTING_ENABLED_DESC)
     public HyenaConfig setSplittingEnabled(Boolean splittingEnabled)
@@ -134,4 +231,60 @@ public class HyenaConfig
         this.minDbTimestampNs = timestamp;
         return this;
     }
+
+    @Config("hyena." + PREFETCH_QUEUE_DEPTH)
+    @ConfigDescription(PREFETCH_QUEUE_DEPTH_DESC)
+    public HyenaConfig setPrefetchQueueDepth(Integer prefetchQueueDepth)
+    {
+        this.prefetchQueueDepth = prefetchQueueDepth;
+        return this;
+    }
+
+    @Config("hyena." + ROWS_PER_PARTITION)
+    @ConfigDescription(ROWS_PER_PARTITION_DESC)
+    public HyenaConfig setRowsPerPartition(Long rowsPerPartition)
+    {
+        this.rowsPerPartition = rowsPerPartition;
+        return this;
+    }
+
+    @Config("hyena." + STATISTICS_CACHE_TTL)
+    @ConfigDescription(STATISTICS_CACHE_TTL_DESC)
+    public HyenaConfig setStatisticsCacheTtlSeconds(Long statisticsCacheTtlSeconds)
+    {
+        this.statisticsCacheTtlSeconds = statisticsCacheTtlSeconds;
+        return this;
+    }
+
+    @Config("hyena." + CATALOG_CACHE_TTL)
+    @ConfigDescription(CATALOG_CACHE_TTL_DESC)
+    public HyenaConfig setCatalogCacheTtlSeconds(Long catalogCacheTtlSeconds)
+    {
+        this.catalogCacheTtlSeconds = catalogCacheTtlSeconds;
+        return this;
+    }
+
+    @Config("hyena." + MAX_SCAN_FILTERS)
+    @ConfigDescription(MAX_SCAN_FILTERS_DESC)
+    public HyenaConfig setMaxScanFilters(Long maxScanFilters)
+    {
+        this.maxScanFilters = maxScanFilters;
+        return this;
+    }
+
+    @Config("hyena." + CONNECTION_POOL_SIZE)
+    @ConfigDescription(CONNECTION_POOL_SIZE_DESC)
+    public HyenaConfig setConnectionPoolSize(Integer connectionPoolSize)
+    {
+        this.connectionPoolSize = connectionPoolSize;
+        return this;
+    }
+
+    @Config("hyena." + CONNECTION_ACQUIRE_TIMEOUT)
+    @ConfigDescription(CONNECTION_ACQUIRE_TIMEOUT_DESC)
+    public HyenaConfig setConnectionAcquireTimeoutSeconds(Long connectionAcquireTimeoutSeconds)
+    {
+        this.connectionAcquireTimeoutSeconds = connectionAcquireTimeoutSeconds;
+        return this;
+    }
 }
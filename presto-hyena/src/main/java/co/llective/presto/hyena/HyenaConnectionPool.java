@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.HyenaApi;
+import co.llective.hyena.api.ReplyException;
+import io.airlift.log.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded pool of hyena connections. Every call gets a connection for itself, so concurrent scans
+ * of different splits run in parallel instead of waiting for each other on a single connection.
+ * Connections are opened lazily, up to the pool size; above it calls wait for a free connection
+ * (at most the acquire timeout), which keeps hyena from being flooded by parallel requests.
+ * Connection is kept only after successful call or error reply of hyena. After any other failure or an interrupt
+ * its state is unknown, so it is dropped and a new one is opened by the next call.
+ */
+public class HyenaConnectionPool
+{
+    private static final Logger log = Logger.get(HyenaConnectionPool.class);
+
+    private final Supplier<HyenaApi> connectionFactory;
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    // most recently used connections are reused first, so unneeded ones stay idle
+    private final ConcurrentLinkedDeque<HyenaApi> idleConnections = new ConcurrentLinkedDeque<>();
+
+    private final AtomicLong openedConnections = new AtomicLong();
+    private final AtomicLong droppedConnections = new AtomicLong();
+
+    public HyenaConnectionPool(Supplier<HyenaApi> connectionFactory, int maxSize, long acquireTimeoutMs)
+    {
+        checkArgument(maxSize > 0, "maxSize must be positive");
+        this.connectionFactory = requireNonNull(connectionFactory, "connectionFactory is null");
+        this.permits = new Semaphore(maxSize, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    /**
+     * Runs given call with exclusively borrowed connection.
+     */
+    public <T> T execute(HyenaCall<T> call)
+            throws IOException, ReplyException
+    {
+        acquirePermit();
+        try {
+            HyenaApi connection = idleConnections.pollFirst();
+            if (connection == null) {
+                connection = openConnection();
+            }
+            T result;
+            try {
+                result = call.call(connection);
+            }
+            catch (ReplyException exc) {
+                // reply errors are sent by hyena over healthy connection
+                returnConnection(connection);
+                throw exc;
+            }
+            catch (IOException | RuntimeException | Error exc) {
+                // state of the connection is unknown (e.g. reply of failed request can still arrive), reconnect
+                dropConnection(exc);
+                throw exc;
+            }
+            returnConnection(connection);
+            return result;
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    private void acquirePermit()
+    {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Timed out waiting " + acquireTimeoutMs + "ms for free hyena connection");
+            }
+        }
+        catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for free hyena connection", exc);
+        }
+    }
+
+    private void returnConnection(HyenaApi connection)
+    {
+        // interrupted call (e.g. cancelled prefetch) may have left the request unsent or its reply unread
+        if (Thread.currentThread().isInterrupted()) {
+            dropConnection(new InterruptedException("Thread was interrupted"));
+            return;
+        }
+        idleConnections.offerFirst(connection);
+    }
+
+    private void dropConnection(Throwable cause)
+    {
+        droppedConnections.incrementAndGet();
+        log.warn("Dropping hyena connection after error: " + cause.getMessage());
+    }
+
+    private HyenaApi openConnection()
+    {
+        HyenaApi connection = connectionFactory.get();
+        openedConnections.incrementAndGet();
+        return connection;
+    }
+
+    public int getIdleConnections()
+    {
+        return idleConnections.size();
+    }
+
+    public long getOpenedConnections()
+    {
+        return openedConnections.get();
+    }
+
+    public long getDroppedConnections()
+    {
+        return droppedConnections.get();
+    }
+
+    @FunctionalInterface
+    public interface HyenaCall<T>
+    {
+        T call(HyenaApi connection)
+                throws IOException, ReplyException;
+    }
+}
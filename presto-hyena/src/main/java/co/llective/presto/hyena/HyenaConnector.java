@@ -15,7 +15,7 @@ package co.llective.presto.hyena;
 
 import com.facebook.presto.spi.connector.Connector;
 import com.facebook.presto.spi.connector.ConnectorMetadata;
-import com.facebook.presto.spi.connector.ConnectorRecordSetProvider;
+import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
 import com.facebook.presto.spi.connector.ConnectorSplitManager;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
 import com.facebook.presto.spi.session.PropertyMetadata;
@@ -39,7 +39,7 @@ public class HyenaConnector
     private final LifeCycleManager lifeCycleManager;
     private final HyenaMetadata metadata;
     private final HyenaSplitManager splitManager;
-    private final HyenaRecordSetProvider recordSetProvider;
+    private final HyenaPageSourceProvider pageSourceProvider;
     private final List<PropertyMetadata<?>> sessionProperties;
 
     @Inject
@@ -48,9 +48,9 @@ public class HyenaConnector
             HyenaMetadata metadata,
             HyenaSplitManager splitManager,
             HyenaConnectorSessionProperties hyenaSessionProperties,
-            HyenaRecordSetProvider recordSetProvider)
+            HyenaPageSourceProvider pageSourceProvider)
     {
-        this.recordSetProvider = recordSetProvider;
+        this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
         this.lifeCycleManager = requireNonNull(lifeCycleManager, "lifeCycleManager is null");
         this.metadata = requireNonNull(metadata, "metadata is null");
         this.splitManager = requireNonNull(splitManager, "splitManager is null");
@@ -83,9 +83,9 @@ public class HyenaConnector
     }
 
     @Override
-    public ConnectorRecordSetProvider getRecordSetProvider()
+    public ConnectorPageSourceProvider getPageSourceProvider()
     {
-        return recordSetProvider;
+        return pageSourceProvider;
     }
 
     @Override
@@ -13,6 +13,7 @@
  */
 package co.llective.presto.hyena;
 
+import co.llective.presto.hyena.util.RebindSafeMBeanServer;
 import com.facebook.presto.spi.ConnectorHandleResolver;
 import com.facebook.presto.spi.NodeManager;
 import com.facebook.presto.spi.connector.Connector;
@@ -20,9 +21,13 @@ import com.facebook.presto.spi.connector.ConnectorContext;
 import com.facebook.presto.spi.connector.ConnectorFactory;
 import com.google.inject.Injector;
 import io.airlift.bootstrap.Bootstrap;
+import org.weakref.jmx.guice.MBeanModule;
+
+import javax.management.MBeanServer;
 
 import java.util.Map;
 
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
 import static java.util.Objects.requireNonNull;
 
 public class HyenaConnectorFactory
@@ -47,7 +52,11 @@ public class HyenaConnectorFactory
 
         try {
             Bootstrap app = new Bootstrap(
-                    binder -> binder.bind(NodeManager.class).toInstance(context.getNodeManager()),
+                    new MBeanModule(),
+                    binder -> {
+                        binder.bind(NodeManager.class).toInstance(context.getNodeManager());
+                        binder.bind(MBeanServer.class).toInstance(new RebindSafeMBeanServer(getPlatformMBeanServer()));
+                    },
                     new HyenaModule(connectorId),
                     new HyenaClientModule(connectorId));
 
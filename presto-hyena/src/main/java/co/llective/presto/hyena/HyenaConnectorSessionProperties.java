@@ -12,14 +12,22 @@ import static co.llective.presto.hyena.HyenaConfig.MIN_DB_TIMESTAMP;
 import static co.llective.presto.hyena.HyenaConfig.MIN_DB_TIMESTAMP_DESC;
 import static co.llective.presto.hyena.HyenaConfig.NUMBER_OF_SPLITS;
 import static co.llective.presto.hyena.HyenaConfig.NUMBER_OF_SPLITS_DESC;
+import static co.llective.presto.hyena.HyenaConfig.PREFETCH_QUEUE_DEPTH;
+import static co.llective.presto.hyena.HyenaConfig.PREFETCH_QUEUE_DEPTH_DESC;
+import static co.llective.presto.hyena.HyenaConfig.ROWS_PER_PARTITION;
+import static co.llective.presto.hyena.HyenaConfig.ROWS_PER_PARTITION_DESC;
 import static co.llective.presto.hyena.HyenaConfig.SPLITTING_ENABLED;
 import static co.llective.presto.hyena.HyenaConfig.SPLITTING_ENABLED_DESC;
 import static co.llective.presto.hyena.HyenaConfig.STREAMING_ENABLED;
 import static co.llective.presto.hyena.HyenaConfig.STREAMING_ENABLED_DESC;
+import static co.llective.presto.hyena.HyenaConfig.STREAMING_FIRST_CHUNK_LIMIT;
+import static co.llective.presto.hyena.HyenaConfig.STREAMING_FIRST_CHUNK_LIMIT_DESC;
 import static co.llective.presto.hyena.HyenaConfig.STREAMING_RECORDS_LIMIT;
 import static co.llective.presto.hyena.HyenaConfig.STREAMING_RECORDS_LIMIT_DESC;
 import static co.llective.presto.hyena.HyenaConfig.STREAMING_RECORDS_THRESHOLD;
 import static co.llective.presto.hyena.HyenaConfig.STREAMING_RECORDS_THRESHOLD_DESC;
+import static co.llective.presto.hyena.HyenaConfig.STREAMING_TARGET_CHUNK_BYTES;
+import static co.llective.presto.hyena.HyenaConfig.STREAMING_TARGET_CHUNK_BYTES_DESC;
 import static com.facebook.presto.spi.session.PropertyMetadata.booleanSessionProperty;
 import static com.facebook.presto.spi.session.PropertyMetadata.integerSessionProperty;
 import static com.facebook.presto.spi.session.PropertyMetadata.longSessionProperty;
@@ -47,6 +55,16 @@ public class HyenaConnectorSessionProperties
                         STREAMING_RECORDS_THRESHOLD_DESC,
                         hyenaConfig.getStreamingRecordsThreshold(),
                         false),
+                longSessionProperty(
+                        STREAMING_FIRST_CHUNK_LIMIT,
+                        STREAMING_FIRST_CHUNK_LIMIT_DESC,
+                        hyenaConfig.getStreamingFirstChunkLimit(),
+                        false),
+                longSessionProperty(
+                        STREAMING_TARGET_CHUNK_BYTES,
+                        STREAMING_TARGET_CHUNK_BYTES_DESC,
+                        hyenaConfig.getStreamingTargetChunkBytes(),
+                        false),
                 booleanSessionProperty(
                         SPLITTING_ENABLED,
                         SPLITTING_ENABLED_DESC,
@@ -61,6 +79,16 @@ public class HyenaConnectorSessionProperties
                         MIN_DB_TIMESTAMP,
                         MIN_DB_TIMESTAMP_DESC,
                         hyenaConfig.getMinDbTimestampNs(),
+                        false),
+                integerSessionProperty(
+                        PREFETCH_QUEUE_DEPTH,
+                        PREFETCH_QUEUE_DEPTH_DESC,
+                        hyenaConfig.getPrefetchQueueDepth(),
+                        false),
+                longSessionProperty(
+                        ROWS_PER_PARTITION,
+                        ROWS_PER_PARTITION_DESC,
+                        hyenaConfig.getRowsPerPartition(),
                         false));
     }
 
@@ -84,6 +112,16 @@ public class HyenaConnectorSessionProperties
         return session.getProperty(STREAMING_RECORDS_THRESHOLD, Long.class);
     }
 
+    public static long getStreamingFirstChunkLimit(ConnectorSession session)
+    {
+        return session.getProperty(STREAMING_FIRST_CHUNK_LIMIT, Long.class);
+    }
+
+    public static long getStreamingTargetChunkBytes(ConnectorSession session)
+    {
+        return session.getProperty(STREAMING_TARGET_CHUNK_BYTES, Long.class);
+    }
+
     public static boolean getSplittingEnabled(ConnectorSession session)
     {
         return session.getProperty(SPLITTING_ENABLED, Boolean.class);
@@ -98,4 +136,14 @@ public class HyenaConnectorSessionProperties
     {
         return session.getProperty(MIN_DB_TIMESTAMP, Long.class);
     }
+
+    public static int getPrefetchQueueDepth(ConnectorSession session)
+    {
+        return session.getProperty(PREFETCH_QUEUE_DEPTH, Integer.class);
+    }
+
+    public static long getRowsPerPartition(ConnectorSession session)
+    {
+        return session.getProperty(ROWS_PER_PARTITION, Long.class);
+    }
 }
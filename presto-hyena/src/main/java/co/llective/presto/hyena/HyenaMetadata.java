@@ -26,6 +26,8 @@ import com.facebook.presto.spi.Constraint;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
 import com.facebook.presto.spi.connector.ConnectorMetadata;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.statistics.TableStatistics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
@@ -36,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
@@ -50,11 +53,15 @@ public class HyenaMetadata
     public static final String TIMESTAMP_COLUMN_NAME = "ts";
 
     private final HyenaTables hyenaTables;
+    private final HyenaStatisticsProvider statisticsProvider;
+    private final long maxScanFilters;
 
     @Inject
-    public HyenaMetadata(HyenaTables hyenaTables)
+    public HyenaMetadata(HyenaTables hyenaTables, HyenaStatisticsProvider statisticsProvider, HyenaConfig config)
     {
         this.hyenaTables = requireNonNull(hyenaTables, "hyenaTables is null");
+        this.statisticsProvider = requireNonNull(statisticsProvider, "statisticsProvider is null");
+        this.maxScanFilters = requireNonNull(config, "config is null").getMaxScanFilters();
     }
 
     @Override
@@ -87,8 +94,13 @@ public class HyenaMetadata
     public List<ConnectorTableLayoutResult> getTableLayouts(ConnectorSession session, ConnectorTableHandle table, Constraint<ColumnHandle> constraint, Optional<Set<ColumnHandle>> desiredColumns)
     {
         HyenaTableHandle tableHandle = (HyenaTableHandle) table;
-        ConnectorTableLayout layout = new ConnectorTableLayout(new HyenaTableLayoutHandle(tableHandle, constraint.getSummary()));
-        return ImmutableList.of(new ConnectorTableLayoutResult(layout, constraint.getSummary()));
+        HyenaPredicatesUtil.PushedPredicate predicate = new HyenaPredicatesUtil().pushDown(
+                constraint.getSummary().transform(HyenaColumnHandle.class::cast),
+                maxScanFilters);
+        ConnectorTableLayout layout = new ConnectorTableLayout(new HyenaTableLayoutHandle(
+                tableHandle,
+                predicate.getPushed().transform(ColumnHandle.class::cast)));
+        return ImmutableList.of(new ConnectorTableLayoutResult(layout, predicate.getUnenforced().transform(ColumnHandle.class::cast)));
     }
 
     @Override
@@ -98,6 +110,18 @@ public class HyenaMetadata
         return new ConnectorTableLayout(layout);
     }
 
+    @Override
+    public TableStatistics getTableStatistics(ConnectorSession session, ConnectorTableHandle table, Constraint<ColumnHandle> constraint)
+    {
+        HyenaTableHandle tableHandle = (HyenaTableHandle) table;
+        List<HyenaColumnHandle> columns = getColumnHandles(tableHandle).values().stream()
+                .map(HyenaColumnHandle.class::cast)
+                .collect(Collectors.toList());
+        TupleDomain<HyenaColumnHandle> predicate = constraint.getSummary()
+                .transform(HyenaColumnHandle.class::cast);
+        return statisticsProvider.getTableStatistics(session, columns, predicate);
+    }
+
     @Override
     public Map<String, ColumnHandle> getColumnHandles(ConnectorSession session, ConnectorTableHandle table)
     {
@@ -13,12 +13,18 @@
  */
 package co.llective.presto.hyena;
 
+import co.llective.presto.hyena.enrich.util.IpCacheExporter;
 import com.google.inject.Binder;
 import com.google.inject.Module;
+import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import org.weakref.jmx.MBeanExporter;
+
+import javax.inject.Singleton;
 
 import static io.airlift.configuration.ConfigBinder.configBinder;
 import static java.util.Objects.requireNonNull;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class HyenaModule
         implements Module
@@ -39,9 +45,19 @@ public class HyenaModule
         binder.bind(HyenaConnector.class).in(Scopes.SINGLETON);
         binder.bind(HyenaMetadata.class).in(Scopes.SINGLETON);
         binder.bind(HyenaSplitManager.class).in(Scopes.SINGLETON);
-        binder.bind(HyenaRecordSetProvider.class).in(Scopes.SINGLETON);
+        binder.bind(HyenaPageSourceProvider.class).in(Scopes.SINGLETON);
         binder.bind(HyenaHandleResolver.class).in(Scopes.SINGLETON);
 
         binder.bind(HyenaTables.class).in(Scopes.SINGLETON);
+        binder.bind(HyenaStatisticsProvider.class).in(Scopes.SINGLETON);
+        binder.bind(HyenaScanStats.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(HyenaScanStats.class).withGeneratedName();
+    }
+
+    @Provides
+    @Singleton
+    public IpCacheExporter createIpCacheExporter(MBeanExporter exporter)
+    {
+        return new IpCacheExporter(connectorId, exporter);
     }
 }
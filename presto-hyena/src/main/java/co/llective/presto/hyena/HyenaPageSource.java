@@ -0,0 +1,231 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.BlockType;
+import co.llective.hyena.api.ColumnValues;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.IntArrayBlock;
+import com.facebook.presto.spi.block.LongArrayBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.log.Logger;
+import io.airlift.slice.Slice;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Page source which converts whole chunks of hyena scan results into blocks.
+ * Scanning itself (building scan request, streaming chunks) is done by {@link HyenaRecordCursor}.
+ */
+public class HyenaPageSource
+        implements ConnectorPageSource
+{
+    private static final Logger log = Logger.get(HyenaPageSource.class);
+
+    private final HyenaRecordCursor cursor;
+    private final List<HyenaColumnHandle> columns;
+    private final Optional<HyenaScanStats> scanStats;
+    private boolean finished;
+
+    public HyenaPageSource(HyenaRecordCursor cursor, List<HyenaColumnHandle> columns)
+    {
+        this(cursor, columns, Optional.empty());
+    }
+
+    public HyenaPageSource(HyenaRecordCursor cursor, List<HyenaColumnHandle> columns, Optional<HyenaScanStats> scanStats)
+    {
+        this.cursor = requireNonNull(cursor, "cursor is null");
+        this.columns = requireNonNull(columns, "columns is null");
+        this.scanStats = requireNonNull(scanStats, "scanStats is null");
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return cursor.getCompletedBytes();
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return cursor.getReadTimeNanos();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    @Override
+    public Page getNextPage()
+    {
+        if (finished) {
+            return null;
+        }
+
+        if (!cursor.isChunkReady()) {
+            // next chunk is still being downloaded, driver will wait on isBlocked()
+            return null;
+        }
+
+        cursor.fetchChunk();
+        int rowCount = cursor.rowCount;
+        if (cursor.endOfScan.get()) {
+            finished = true;
+        }
+        if (rowCount == 0) {
+            return null;
+        }
+        cursor.prepareSliceMappings();
+
+        long buildStartNs = System.nanoTime();
+        Block[] blocks = new Block[columns.size()];
+        for (int field = 0; field < blocks.length; field++) {
+            blocks[field] = buildBlock(field, rowCount);
+        }
+        long buildNanos = System.nanoTime() - buildStartNs;
+        scanStats.ifPresent(stats -> stats.recordDeserialization(buildNanos));
+        log.debug("Built page of " + rowCount + " rows in " + buildNanos / 1000 + "us");
+        return new Page(rowCount, blocks);
+    }
+
+    @VisibleForTesting
+    Block buildBlock(int field, int rowCount)
+    {
+        Type type = columns.get(field).getColumnType();
+
+        // TODO: temporal workaround for not filled source_id by hyena (we only have one source now)
+        if (cursor.isSourceIdField(field)) {
+            return RunLengthEncodedBlock.create(type, 1L, rowCount);
+        }
+
+        ColumnValues values = cursor.getColumnValues(field);
+        if (type.getJavaType() == Slice.class) {
+            return buildSliceBlock(type, values, rowCount);
+        }
+        if (type.equals(INTEGER)) {
+            return buildIntBlock(values, rowCount);
+        }
+        return buildLongBlock(values, rowCount);
+    }
+
+    private static Block buildLongBlock(ColumnValues values, int rowCount)
+    {
+        long[] longs = new long[rowCount];
+        boolean[] nulls = new boolean[rowCount];
+        if (isDense(values.getType())) {
+            for (int position = 0; position < rowCount; position++) {
+                longs[position] = values.getLong(position);
+            }
+        }
+        else {
+            for (int position = 0; position < rowCount; position++) {
+                if (values.isNull(position)) {
+                    nulls[position] = true;
+                }
+                else {
+                    longs[position] = values.getLong(position);
+                }
+            }
+        }
+        return new LongArrayBlock(rowCount, nulls, longs);
+    }
+
+    private static Block buildIntBlock(ColumnValues values, int rowCount)
+    {
+        int[] ints = new int[rowCount];
+        boolean[] nulls = new boolean[rowCount];
+        if (isDense(values.getType())) {
+            for (int position = 0; position < rowCount; position++) {
+                ints[position] = (int) values.getLong(position);
+            }
+        }
+        else {
+            for (int position = 0; position < rowCount; position++) {
+                if (values.isNull(position)) {
+                    nulls[position] = true;
+                }
+                else {
+                    ints[position] = (int) values.getLong(position);
+                }
+            }
+        }
+        return new IntArrayBlock(rowCount, nulls, ints);
+    }
+
+    private static Block buildSliceBlock(Type type, ColumnValues values, int rowCount)
+    {
+        BlockBuilder builder = type.createBlockBuilder(null, rowCount);
+        for (int position = 0; position < rowCount; position++) {
+            if (values.isNull(position)) {
+                builder.appendNull();
+            }
+            else {
+                type.writeSlice(builder, values.getSlice(position));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Dense hyena blocks have value on every position so null checks can be skipped.
+     */
+    @VisibleForTesting
+    static boolean isDense(BlockType blockType)
+    {
+        switch (blockType) {
+            case I8Dense:
+            case I16Dense:
+            case I32Dense:
+            case I64Dense:
+            case U8Dense:
+            case U16Dense:
+            case U32Dense:
+            case U64Dense:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public CompletableFuture<?> isBlocked()
+    {
+        return cursor.isBlocked();
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return cursor.getSystemMemoryUsage();
+    }
+
+    @Override
+    public void close()
+    {
+        finished = true;
+        cursor.close();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.FixedPageSource;
+import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
+import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+public class HyenaPageSourceProvider
+        implements ConnectorPageSourceProvider
+{
+    private final HyenaSession hyenaSession;
+    private final HyenaScanStats scanStats;
+    private final long maxScanFilters;
+    private final ExecutorService prefetchExecutor = newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("hyena-prefetch-%s").setDaemon(true).build());
+
+    @Inject
+    public HyenaPageSourceProvider(HyenaSession session, HyenaScanStats scanStats, HyenaConfig config)
+    {
+        this.hyenaSession = requireNonNull(session, "hyenaSession is null");
+        this.scanStats = requireNonNull(scanStats, "scanStats is null");
+        this.maxScanFilters = requireNonNull(config, "config is null").getMaxScanFilters();
+    }
+
+    @Override
+    public ConnectorPageSource createPageSource(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorSplit split, List<ColumnHandle> columns)
+    {
+        return createPageSource(transactionHandle, session, split, columns, TupleDomain.all());
+    }
+
+    /**
+     * Dynamic filter is pushed to hyena scan together with the split predicate, so rows which can't
+     * match the build side of a join aren't even transferred. Presto still filters rows afterwards.
+     */
+    @Override
+    public ConnectorPageSource createPageSource(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorSplit split, List<ColumnHandle> columns, TupleDomain<ColumnHandle> dynamicFilter)
+    {
+        requireNonNull(split, "split is null");
+        requireNonNull(dynamicFilter, "dynamicFilter is null");
+        HyenaSplit hyenaSplit = (HyenaSplit) split;
+
+        TupleDomain<HyenaColumnHandle> predicate = hyenaSplit.getEffectivePredicate();
+        if (!dynamicFilter.isAll()) {
+            predicate = new HyenaPredicatesUtil()
+                    .pushDownDynamicFilter(predicate, dynamicFilter.transform(HyenaColumnHandle.class::cast), maxScanFilters);
+        }
+        if (predicate.isNone()) {
+            return new FixedPageSource(ImmutableList.of());
+        }
+
+        ImmutableList.Builder<HyenaColumnHandle> handles = ImmutableList.builder();
+        for (ColumnHandle handle : columns) {
+            handles.add((HyenaColumnHandle) handle);
+        }
+        List<HyenaColumnHandle> columnHandles = handles.build();
+
+        HyenaRecordCursor cursor = new HyenaRecordCursor(
+                hyenaSession,
+                session,
+                columnHandles,
+                predicate,
+                hyenaSplit.getTimeBoundaries());
+        cursor.recordStats(scanStats);
+        cursor.enableAdaptiveChunks(HyenaConnectorSessionProperties.getStreamingTargetChunkBytes(session));
+        cursor.limitFirstChunk(HyenaConnectorSessionProperties.getStreamingFirstChunkLimit(session));
+        int prefetchQueueDepth = HyenaConnectorSessionProperties.getPrefetchQueueDepth(session);
+        if (prefetchQueueDepth > 0) {
+            cursor.enablePrefetching(prefetchExecutor, prefetchQueueDepth);
+        }
+        return new HyenaPageSource(cursor, columnHandles, Optional.of(scanStats));
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        prefetchExecutor.shutdownNow();
+    }
+}
@@ -24,6 +24,11 @@ import co.llective.presto.hyena.types.U64BigIntOperators;
 import co.llective.presto.hyena.types.U64IntOperators;
 import co.llective.presto.hyena.types.U64Operators;
 import co.llective.presto.hyena.types.U64Type;
+import co.llective.presto.hyena.types.aggregation.U64ApproximateCountDistinctAggregation;
+import co.llective.presto.hyena.types.aggregation.U64AverageAggregation;
+import co.llective.presto.hyena.types.aggregation.U64MaxAggregation;
+import co.llective.presto.hyena.types.aggregation.U64MinAggregation;
+import co.llective.presto.hyena.types.aggregation.U64SumAggregation;
 import com.facebook.presto.spi.Plugin;
 import com.facebook.presto.spi.connector.ConnectorFactory;
 import com.facebook.presto.spi.type.Type;
@@ -55,6 +60,11 @@ public class HyenaPlugin
                 .add(U64Operators.class)
                 .add(U64BigIntOperators.class)
                 .add(U64IntOperators.class)
+                .add(U64SumAggregation.class)
+                .add(U64AverageAggregation.class)
+                .add(U64MinAggregation.class)
+                .add(U64MaxAggregation.class)
+                .add(U64ApproximateCountDistinctAggregation.class)
                 .add(UserNameFunction.class)
                 .add(GeoIpFunctions.class)
                 .add(IpToStringFunction.class)
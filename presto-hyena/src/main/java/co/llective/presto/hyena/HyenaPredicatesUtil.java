@@ -24,20 +24,32 @@ import com.facebook.presto.spi.predicate.Domain;
 import com.facebook.presto.spi.predicate.Marker;
 import com.facebook.presto.spi.predicate.Range;
 import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.primitives.UnsignedLong;
 import io.airlift.slice.Slice;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 
 public class HyenaPredicatesUtil
 {
+    // TODO: temporal workaround for not filled source_id by hyena, its filters are removed from scan requests
+    private static final String SOURCE_ID_COLUMN = "source_id";
+    private static final Set<FilterType> UNSIGNED_FILTER_TYPES = EnumSet.of(FilterType.U8, FilterType.U16, FilterType.U32, FilterType.U64);
+
     public HyenaPredicatesUtil()
     {}
 
@@ -88,6 +100,234 @@ public class HyenaPredicatesUtil
         return Optional.empty();
     }
 
+    /**
+     * Splits predicate into the part which is pushed to hyena scan and the part which still has to be checked by presto.
+     * Pushed domains are kept compact: adjacent integer values and ranges are merged into one range, and when
+     * filters would expand into more than {@code maxScanFilters} AND groups, domains with the most ranges are replaced
+     * by their spans, or dropped when the span can't be expressed by hyena filters. Domains which hyena filters
+     * can't express (e.g. allowing nulls) and domains of {@code source_id} column are not pushed at all.
+     * Only numeric domains pushed without simplification are reported as enforced.
+     */
+    public PushedPredicate pushDown(TupleDomain<HyenaColumnHandle> predicate, long maxScanFilters)
+    {
+        if (!predicate.getDomains().isPresent()) {
+            return new PushedPredicate(predicate, predicate);
+        }
+        Map<HyenaColumnHandle, Domain> domains = predicate.getDomains().get();
+        Map<HyenaColumnHandle, Domain> pushedDomains = new HashMap<>();
+        Set<HyenaColumnHandle> enforcedColumns = new HashSet<>();
+        for (Map.Entry<HyenaColumnHandle, Domain> entry : domains.entrySet()) {
+            HyenaColumnHandle column = entry.getKey();
+            Domain domain = entry.getValue();
+            if (isPushable(column, domain)) {
+                pushedDomains.put(column, mergeAdjacentRanges(column, domain));
+                if (isEnforceable(column, domain)) {
+                    enforcedColumns.add(column);
+                }
+            }
+        }
+
+        while (countAndGroups(pushedDomains.values(), maxScanFilters) > maxScanFilters) {
+            HyenaColumnHandle widestColumn = null;
+            int widestRangeCount = 1;
+            for (Map.Entry<HyenaColumnHandle, Domain> entry : pushedDomains.entrySet()) {
+                int rangeCount = entry.getValue().getValues().getRanges().getRangeCount();
+                if (rangeCount > widestRangeCount) {
+                    widestColumn = entry.getKey();
+                    widestRangeCount = rangeCount;
+                }
+            }
+            if (widestColumn == null) {
+                break;
+            }
+            Domain widestDomain = pushedDomains.remove(widestColumn);
+            getSpan(widestColumn, widestDomain).ifPresent(span -> pushedDomains.put(widestColumn, span));
+            enforcedColumns.remove(widestColumn);
+        }
+
+        return new PushedPredicate(
+                TupleDomain.withColumnDomains(pushedDomains),
+                TupleDomain.withColumnDomains(Maps.filterKeys(domains, column -> !enforcedColumns.contains(column))));
+    }
+
+    /**
+     * Adds dynamic filter domains to predicate already pushed for the split. The split predicate is never widened,
+     * as its domains may be reported as enforced. Dynamic filter domains are replaced by their spans, or dropped
+     * when even the span can't be expressed, when they don't fit into {@code maxScanFilters} AND groups, which is safe since presto filters probe rows
+     * with the dynamic filter anyway. String domains are not pushed, as pushed strings are treated as LIKE patterns.
+     */
+    public TupleDomain<HyenaColumnHandle> pushDownDynamicFilter(TupleDomain<HyenaColumnHandle> pushedPredicate, TupleDomain<HyenaColumnHandle> dynamicFilter, long maxScanFilters)
+    {
+        if (pushedPredicate.isNone() || dynamicFilter.isNone()) {
+            return TupleDomain.none();
+        }
+        Map<HyenaColumnHandle, Domain> pushedDomains = new HashMap<>(pushedPredicate.getDomains().get());
+        List<Map.Entry<HyenaColumnHandle, Domain>> dynamicDomains = dynamicFilter.getDomains().get().entrySet().stream()
+                .filter(entry -> entry.getKey().getColumnType().getJavaType() == long.class)
+                .sorted(Comparator.comparingInt(entry -> entry.getValue().getValues().getRanges().getRangeCount()))
+                .collect(Collectors.toList());
+
+        for (Map.Entry<HyenaColumnHandle, Domain> entry : dynamicDomains) {
+            HyenaColumnHandle column = entry.getKey();
+            Domain domain = entry.getValue();
+            Domain splitDomain = pushedDomains.get(column);
+            if (splitDomain != null) {
+                Domain intersection = splitDomain.intersect(domain);
+                if (intersection.isNone()) {
+                    return TupleDomain.none();
+                }
+                // intersection is narrower than split domain, so it is pushed only when it fits as it is
+                pushedDomains.put(column, mergeAdjacentRanges(column, intersection));
+                if (countAndGroups(pushedDomains.values(), maxScanFilters) > maxScanFilters) {
+                    pushedDomains.put(column, splitDomain);
+                }
+            }
+            else if (domain.isNone()) {
+                return TupleDomain.none();
+            }
+            else if (isPushable(column, domain)) {
+                pushedDomains.put(column, mergeAdjacentRanges(column, domain));
+                if (countAndGroups(pushedDomains.values(), maxScanFilters) > maxScanFilters) {
+                    pushedDomains.remove(column);
+                    getSpan(column, domain).ifPresent(span -> pushedDomains.put(column, span));
+                }
+            }
+        }
+        return TupleDomain.withColumnDomains(pushedDomains);
+    }
+
+    /**
+     * @return single range covering all values of the domain, if hyena filters can express it
+     */
+    private static Optional<Domain> getSpan(HyenaColumnHandle column, Domain domain)
+    {
+        // strings have no meaningful span for hyena filters, so they are left to presto altogether
+        if (column.getColumnType() == VARCHAR) {
+            return Optional.empty();
+        }
+        Range span = domain.getValues().getRanges().getSpan();
+        // u64 values over signed max are negative longs, such upper bound would be rewritten to a filter matching nothing
+        if (column.getColumnType() == U64Type.U_64_TYPE && isNegative(span.getHigh())) {
+            return Optional.empty();
+        }
+        return Optional.of(Domain.create(ValueSet.ofRanges(span), false));
+    }
+
+    private boolean isPushable(HyenaColumnHandle column, Domain domain)
+    {
+        if (column.getColumnName().equals(SOURCE_ID_COLUMN)) {
+            return false;
+        }
+        // hyena filters never match rows without value and there is nothing to filter when all values match
+        if (domain.isNullAllowed() || domain.getValues().isAll()) {
+            return false;
+        }
+        if (column.getColumnType() == VARCHAR) {
+            return domain.getValues().getRanges().getOrderedRanges().stream()
+                    .allMatch(range -> range.isSingleValue() || getPrefix(range).isPresent());
+        }
+        return column.getColumnType().getJavaType() == long.class;
+    }
+
+    private boolean isEnforceable(HyenaColumnHandle column, Domain domain)
+    {
+        // string domains carry LIKE patterns, those are always evaluated by presto as well
+        if (column.getColumnType().getJavaType() != long.class) {
+            return false;
+        }
+        if (!UNSIGNED_FILTER_TYPES.contains(column.getHyenaType().mapToFilterType())) {
+            return true;
+        }
+        // negative bounds (or u64 values over signed max) are rewritten to wider filters for unsigned columns
+        for (Range range : domain.getValues().getRanges().getOrderedRanges()) {
+            if (isNegative(range.getLow()) || isNegative(range.getHigh())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNegative(Marker marker)
+    {
+        return marker.getValueBlock().isPresent() && (Long) marker.getValue() < 0;
+    }
+
+    /**
+     * Merges ranges of integer domain which have no value between them, e.g. IN (1, 2, 3) becomes BETWEEN 1 AND 3.
+     */
+    private Domain mergeAdjacentRanges(HyenaColumnHandle column, Domain domain)
+    {
+        if (column.getColumnType().getJavaType() != long.class) {
+            return domain;
+        }
+        List<Range> ranges = domain.getValues().getRanges().getOrderedRanges();
+        List<Range> mergedRanges = new ArrayList<>(ranges.size());
+        for (Range range : ranges) {
+            int last = mergedRanges.size() - 1;
+            if (last >= 0 && areAdjacent(mergedRanges.get(last), range)) {
+                mergedRanges.set(last, new Range(mergedRanges.get(last).getLow(), range.getHigh()));
+            }
+            else {
+                mergedRanges.add(range);
+            }
+        }
+        if (mergedRanges.size() == ranges.size()) {
+            return domain;
+        }
+        return Domain.create(ValueSet.copyOfRanges(column.getColumnType(), mergedRanges), domain.isNullAllowed());
+    }
+
+    private static boolean areAdjacent(Range previous, Range next)
+    {
+        Marker high = previous.getHigh();
+        Marker low = next.getLow();
+        if (!high.getValueBlock().isPresent() || !low.getValueBlock().isPresent()) {
+            return false;
+        }
+        // ranges are ordered and disjoint, so closed bounds differing by one leave no value between them
+        long highValue = (Long) high.getValue() - (high.getBound() == Marker.Bound.BELOW ? 1 : 0);
+        long lowValue = (Long) low.getValue() + (low.getBound() == Marker.Bound.ABOVE ? 1 : 0);
+        return highValue + 1 == lowValue;
+    }
+
+    /**
+     * @return number of AND groups filters of given domains expand to, counting stops after exceeding the limit
+     */
+    private static long countAndGroups(Iterable<Domain> domains, long limit)
+    {
+        long count = 1;
+        for (Domain domain : domains) {
+            count *= domain.getValues().getRanges().getRangeCount();
+            if (count > limit) {
+                return count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * String range from prefix (inclusive) to prefix with its last byte incremented (exclusive)
+     * contains exactly strings starting with the prefix.
+     */
+    private static Optional<Slice> getPrefix(Range range)
+    {
+        Marker low = range.getLow();
+        Marker high = range.getHigh();
+        if (!low.getValueBlock().isPresent() || low.getBound() != Marker.Bound.EXACTLY
+                || !high.getValueBlock().isPresent() || high.getBound() != Marker.Bound.BELOW) {
+            return Optional.empty();
+        }
+        Slice prefix = (Slice) low.getValue();
+        Slice upper = (Slice) high.getValue();
+        int length = prefix.length();
+        if (length == 0 || upper.length() != length
+                || !prefix.slice(0, length - 1).equals(upper.slice(0, length - 1))
+                || upper.getUnsignedByte(length - 1) != prefix.getUnsignedByte(length - 1) + 1) {
+            return Optional.empty();
+        }
+        return Optional.of(prefix);
+    }
+
     /**
      * Method that transforms given {@link TupleDomain} into {@link ScanOrFilters}
      * Example:
@@ -155,6 +395,14 @@ public class HyenaPredicatesUtil
             ScanFilter singleFilter = createSingleFilter(column, ScanComparison.Eq, range.getSingleValue());
             andFilters.add(singleFilter);
         }
+        else if (column.getColumnType() == VARCHAR) {
+            // other string ranges can't be expressed with hyena filters
+            getPrefix(range).ifPresent(prefix -> andFilters.add(new ScanFilter(
+                    column.getOrdinalPosition(),
+                    ScanComparison.StartsWith,
+                    FilterType.String,
+                    prefix.toStringUtf8())));
+        }
         else {
             Marker high = range.getHigh();
             Marker low = range.getLow();
@@ -339,4 +587,32 @@ public class HyenaPredicatesUtil
                 column.getHyenaType().mapToFilterType(),
                 filterWithOperator.getLeft());
     }
+
+    public static class PushedPredicate
+    {
+        private final TupleDomain<HyenaColumnHandle> pushed;
+        private final TupleDomain<HyenaColumnHandle> unenforced;
+
+        PushedPredicate(TupleDomain<HyenaColumnHandle> pushed, TupleDomain<HyenaColumnHandle> unenforced)
+        {
+            this.pushed = pushed;
+            this.unenforced = unenforced;
+        }
+
+        /**
+         * @return predicate which should be converted to hyena scan filters
+         */
+        public TupleDomain<HyenaColumnHandle> getPushed()
+        {
+            return pushed;
+        }
+
+        /**
+         * @return predicate which is not guaranteed by hyena scan filters and has to be checked by presto
+         */
+        public TupleDomain<HyenaColumnHandle> getUnenforced()
+        {
+            return unenforced;
+        }
+    }
 }
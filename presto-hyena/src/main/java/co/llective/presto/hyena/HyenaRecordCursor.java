@@ -35,12 +35,14 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static com.facebook.presto.spi.ConnectorPageSource.NOT_BLOCKED;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
@@ -48,6 +50,8 @@ public class HyenaRecordCursor
         implements RecordCursor
 {
     private static final Logger log = Logger.get(HyenaRecordCursor.class);
+    private static final long TIMESTAMP_COLUMN_ID = 0L;
+    private static final int ESTIMATED_STRING_BYTES = 32;
 
     private final Long streamingLimit;
     private final Long streamingThreshold;
@@ -61,11 +65,23 @@ public class HyenaRecordCursor
     @VisibleForTesting int rowPosition = -1; // presto first advances next row and then fetch data
     @VisibleForTesting int rowCount;
 
-    private Map<Integer, ColumnValues> fieldsToColumns = new HashMap<>();
+    private final ColumnValues[] fieldsToColumns;
+    private final int sourceIdField;
+    private Optional<HyenaScanPrefetcher> prefetcher = Optional.empty();
+    private Optional<StreamConfig> fullStreamConfig = Optional.empty();
+    private Optional<HyenaScanStats> scanStats = Optional.empty();
+    private Optional<HyenaChunkSizer> chunkSizer = Optional.empty();
+
+    // updated by the thread scanning chunks, which is the prefetcher one when prefetching is enabled
+    private final AtomicLong completedBytes = new AtomicLong();
+    private final AtomicLong readTimeNanos = new AtomicLong();
+    // size of the current chunk when it is scanned without prefetching
+    private long currentChunkBytes;
 
     private long constructorStartMs;
     private long constructorFinishMs;
     private long iteratingStartNs;
+    private final long scanStartNs = System.nanoTime();
 
     public HyenaRecordCursor(HyenaSession hyenaSession, ConnectorSession connectorSession, List<HyenaColumnHandle> columns, TupleDomain<HyenaColumnHandle> predicate, Optional<TimeBoundaries> timeBoundaries)
     {
@@ -77,6 +93,8 @@ public class HyenaRecordCursor
         constructorStartMs = System.currentTimeMillis();
         this.hyenaSession = hyenaSession;
         this.columns = requireNonNull(columns, "columns is null");
+        this.fieldsToColumns = new ColumnValues[columns.size()];
+        this.sourceIdField = findSourceIdField(columns);
         this.streamingEnabled = HyenaConnectorSessionProperties.getStreamingEnabled(connectorSession);
         this.streamingLimit = HyenaConnectorSessionProperties.getStreamingRecordsLimit(connectorSession);
         this.streamingThreshold = HyenaConnectorSessionProperties.getStreamingRecordsThreshold(connectorSession);
@@ -91,6 +109,16 @@ public class HyenaRecordCursor
         constructorFinishMs = System.currentTimeMillis();
     }
 
+    private static int findSourceIdField(List<HyenaColumnHandle> columns)
+    {
+        for (int field = 0; field < columns.size(); field++) {
+            if (columns.get(field).getColumnName().equals("source_id")) {
+                return field;
+            }
+        }
+        return -1;
+    }
+
     private ScanRequest buildScanRequest(HyenaPredicatesUtil predicateHandler, List<HyenaColumnHandle> columns, TupleDomain<HyenaColumnHandle> predicate, Optional<TimeBoundaries> timeBoundaries)
     {
         ScanRequest req = new ScanRequest();
@@ -100,6 +128,11 @@ public class HyenaRecordCursor
         for (HyenaColumnHandle col : columns) {
             req.getProjection().add(col.getOrdinalPosition());
         }
+        if (columns.stream().allMatch(col -> col.getColumnName().equals("source_id"))) {
+            // count only scans (e.g. count(*)) still need one column from hyena to know number of rows,
+            // dense timestamp column is the cheapest one which is always filled
+            req.getProjection().add(TIMESTAMP_COLUMN_ID);
+        }
 
         if (timeBoundaries.isPresent()) {
             req.setMinTs(timeBoundaries.get().getStart());
@@ -147,6 +180,58 @@ public class HyenaRecordCursor
                 })));
     }
 
+    /**
+     * Enables downloading next chunks of the scan in the background while current one is processed.
+     * @param executor executor running the download
+     * @param queueDepth maximum number of chunks downloaded ahead
+     */
+    void enablePrefetching(ExecutorService executor, int queueDepth)
+    {
+        prefetcher = Optional.of(new HyenaScanPrefetcher(this::scanNextChunk, HyenaRecordCursor::getSizeInBytes, executor, queueDepth));
+    }
+
+    /**
+     * Enables recording of this scan in connector wide statistics.
+     */
+    void recordStats(HyenaScanStats stats)
+    {
+        scanStats = Optional.of(stats);
+    }
+
+    /**
+     * Makes streamed chunks follow given size in bytes instead of the configured records limit.
+     * Should be enabled before {@link #limitFirstChunk(long)}.
+     * @param targetChunkBytes approximate size of a chunk
+     */
+    void enableAdaptiveChunks(long targetChunkBytes)
+    {
+        if (!scanRequest.getScanConfig().isPresent() || targetChunkBytes <= 0) {
+            return;
+        }
+        HyenaChunkSizer sizer = new HyenaChunkSizer(targetChunkBytes, estimateBytesPerRow(columns));
+        chunkSizer = Optional.of(sizer);
+        scanRequest.setScanConfig(Optional.of(createStreamConfig(sizer.getRecordsLimit())));
+    }
+
+    private StreamConfig createStreamConfig(long limit)
+    {
+        return new StreamConfig(limit, Math.min(limit, streamingThreshold), Optional.empty());
+    }
+
+    /**
+     * Makes the first streamed chunk smaller, so queries which need only a few rows (e.g. with LIMIT)
+     * get them and close the cursor before hyena streams full chunks. Next chunks use the configured streaming limit.
+     * @param firstChunkLimit number of records requested in the first chunk
+     */
+    void limitFirstChunk(long firstChunkLimit)
+    {
+        if (!scanRequest.getScanConfig().isPresent() || firstChunkLimit <= 0 || firstChunkLimit >= scanRequest.getScanConfig().get().getLimit()) {
+            return;
+        }
+        fullStreamConfig = scanRequest.getScanConfig();
+        scanRequest.setScanConfig(Optional.of(createStreamConfig(firstChunkLimit)));
+    }
+
     /**
      * Fetches records from database.
      * If there are 0 records in next chunk it tries until there will be results or it is the end of the scan.
@@ -154,25 +239,84 @@ public class HyenaRecordCursor
     @VisibleForTesting void fetchRecordsFromDb()
     {
         do {
-            long scanStart = System.currentTimeMillis();
-            slicedResult = hyenaSession.scan(scanRequest);
-            long scanFinish = System.currentTimeMillis();
-            log.debug("Scan + deserialization time: " + (scanFinish - scanStart) + "ms");
-            rowCount = getRowCount(slicedResult);
-            log.debug("Received " + rowCount + " records");
-            endOfScan.set(!slicedResult.getStreamState().isPresent());
-            if (scanRequest.getScanConfig().isPresent() && slicedResult.getStreamState().isPresent()) {
-                scanRequest.getScanConfig().get().setStreamState(slicedResult.getStreamState());
-            }
+            fetchChunk();
         } while (rowCount == 0 && !endOfScan.get());
         prepareSliceMappings();
     }
 
+    /**
+     * Fetches single chunk of records from database. Chunk can contain 0 records.
+     */
+    @VisibleForTesting void fetchChunk()
+    {
+        long scanStart = System.currentTimeMillis();
+        if (prefetcher.isPresent()) {
+            slicedResult = prefetcher.get().take();
+        }
+        else {
+            slicedResult = scanNextChunk();
+            currentChunkBytes = getSizeInBytes(slicedResult);
+        }
+        long scanFinish = System.currentTimeMillis();
+        log.debug("Scan + deserialization time: " + (scanFinish - scanStart) + "ms");
+        rowCount = getRowCount(slicedResult);
+        scanStats.ifPresent(stats -> stats.recordRows(rowCount));
+        log.debug("Received " + rowCount + " records");
+        endOfScan.set(!slicedResult.getStreamState().isPresent());
+    }
+
+    /**
+     * Scans next chunk of records and moves stream state of the request forward.
+     * Called either by the cursor or by the prefetcher, never by both.
+     */
+    private ScanResult scanNextChunk()
+    {
+        long chunkStartNs = System.nanoTime();
+        ScanResult chunk = hyenaSession.scan(scanRequest);
+        long scanNanos = System.nanoTime() - chunkStartNs;
+        long chunkBytes = getSizeInBytes(chunk);
+        readTimeNanos.addAndGet(scanNanos);
+        completedBytes.addAndGet(chunkBytes);
+        scanStats.ifPresent(stats -> stats.recordChunk(scanNanos, chunkBytes));
+        if (fullStreamConfig.isPresent()) {
+            // limited first chunk is fetched, continue with configured limit
+            scanRequest.setScanConfig(fullStreamConfig);
+            fullStreamConfig = Optional.empty();
+        }
+        if (chunkSizer.isPresent()) {
+            chunkSizer.get().recordChunk(getRowCount(chunk), chunkBytes, scanNanos);
+            scanRequest.setScanConfig(Optional.of(createStreamConfig(chunkSizer.get().getRecordsLimit())));
+        }
+        if (scanRequest.getScanConfig().isPresent() && chunk.getStreamState().isPresent()) {
+            scanRequest.getScanConfig().get().setStreamState(chunk.getStreamState());
+        }
+        return chunk;
+    }
+
+    /**
+     * @return true if next chunk can be fetched without waiting for hyena
+     */
+    boolean isChunkReady()
+    {
+        return prefetcher.map(HyenaScanPrefetcher::isChunkReady).orElse(true);
+    }
+
+    CompletableFuture<?> isBlocked()
+    {
+        return prefetcher.<CompletableFuture<?>>map(HyenaScanPrefetcher::isBlocked).orElse(NOT_BLOCKED);
+    }
+
+    @VisibleForTesting
+    ScanRequest getScanRequest()
+    {
+        return scanRequest;
+    }
+
     @VisibleForTesting void prepareSliceMappings()
     {
         for (int field = 0; field < columns.size(); field++) {
             long columnId = columns.get(field).getOrdinalPosition();
-            fieldsToColumns.put(field, this.slicedResult.getColumnMap().get(columnId));
+            fieldsToColumns[field] = this.slicedResult.getColumnMap().get(columnId);
         }
     }
 
@@ -246,16 +390,91 @@ public class HyenaRecordCursor
                 .orElse(0);
     }
 
+    /**
+     * Estimates number of bytes hyena sent for given chunk, as the scan response doesn't carry its size.
+     * Numbers are counted with their width (and position for sparse blocks), strings with their length.
+     */
+    @VisibleForTesting
+    static long getSizeInBytes(ScanResult chunk)
+    {
+        long size = 0;
+        for (ColumnValues column : chunk.getColumnMap().values()) {
+            int count = column.getElementsCount();
+            if (column.getType() == BlockType.StringDense) {
+                for (int position = 0; position < count; position++) {
+                    if (!column.isNull(position)) {
+                        size += column.getSlice(position).length();
+                    }
+                }
+            }
+            else {
+                size += (long) count * getValueSize(column.getType());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Estimates size of a row with given columns before any chunk is received.
+     */
+    @VisibleForTesting
+    static double estimateBytesPerRow(List<HyenaColumnHandle> columns)
+    {
+        double size = 0;
+        for (HyenaColumnHandle column : columns) {
+            size += column.getHyenaType() == BlockType.StringDense ? ESTIMATED_STRING_BYTES : getValueSize(column.getHyenaType());
+        }
+        return size;
+    }
+
+    private static int getValueSize(BlockType type)
+    {
+        switch (type) {
+            case I8Dense:
+            case U8Dense:
+                return Byte.BYTES;
+            case I16Dense:
+            case U16Dense:
+                return Short.BYTES;
+            case I32Dense:
+            case U32Dense:
+                return Integer.BYTES;
+            case I64Dense:
+            case U64Dense:
+                return Long.BYTES;
+            case I8Sparse:
+            case U8Sparse:
+                return Byte.BYTES + Integer.BYTES;
+            case I16Sparse:
+            case U16Sparse:
+                return Short.BYTES + Integer.BYTES;
+            case I32Sparse:
+            case U32Sparse:
+                return Integer.BYTES + Integer.BYTES;
+            case I64Sparse:
+            case U64Sparse:
+                return Long.BYTES + Integer.BYTES;
+            default:
+                return 2 * Long.BYTES;
+        }
+    }
+
     @Override
     public long getCompletedBytes()
     {
-        return 0;
+        return completedBytes.get();
     }
 
     @Override
     public long getReadTimeNanos()
     {
-        return 0;
+        return readTimeNanos.get();
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return prefetcher.map(HyenaScanPrefetcher::getRetainedBytes).orElse(currentChunkBytes);
     }
 
     @Override
@@ -300,7 +519,7 @@ public class HyenaRecordCursor
     public long getLong(int field)
     {
         // TODO: temporal workaround for not filled source_id by hyena (we only have one source now)
-        if (columns.get(field).getColumnName().equals("source_id")) {
+        if (field == sourceIdField) {
             return 1L;
         }
 
@@ -340,9 +559,22 @@ public class HyenaRecordCursor
         return getColumn(field).isNull(rowPosition);
     }
 
+    /**
+     * Gets values of given field from the last fetched chunk.
+     */
+    ColumnValues getColumnValues(int field)
+    {
+        return getColumn(field);
+    }
+
+    boolean isSourceIdField(int field)
+    {
+        return field == sourceIdField;
+    }
+
     private ColumnValues getColumn(int field)
     {
-        ColumnValues column = fieldsToColumns.get(field);
+        ColumnValues column = fieldsToColumns[field];
         if (column == null) {
             throw new RuntimeException("Empty block holder");
         }
@@ -355,6 +587,9 @@ public class HyenaRecordCursor
         long closeTimeMs = System.currentTimeMillis();
         log.debug("Constructor time: " + (constructorFinishMs - constructorStartMs) + "ms");
         log.debug("Whole cursor job: " + (closeTimeMs - constructorStartMs) + "ms");
+        prefetcher.ifPresent(HyenaScanPrefetcher::close);
+        currentChunkBytes = 0;
+        scanStats.ifPresent(stats -> stats.recordScan(System.nanoTime() - scanStartNs));
         //TODO: cancel query in hyenaAPI (send abort request with requestID)
     }
 }
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.ScanResult;
+import io.airlift.log.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import static com.facebook.presto.spi.ConnectorPageSource.NOT_BLOCKED;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Streams chunks of a single hyena scan in the background.
+ * Next chunks are downloaded while the current one is processed, up to the queue depth.
+ * Chunks have to be fetched sequentially as every request carries stream state of the previous response,
+ * so the scanner is only called from the single background thread.
+ * Sizes of downloaded chunks which weren't released yet are tracked, so they can be reported as system memory.
+ */
+class HyenaScanPrefetcher
+{
+    private static final Logger log = Logger.get(HyenaScanPrefetcher.class);
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final Supplier<ScanResult> chunkScanner;
+    private final ToLongFunction<ScanResult> chunkSize;
+    private final ExecutorService executor;
+    private final BlockingQueue<QueuedChunk> chunks;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    // includes the chunk the producer waits with for space in the queue
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private volatile long currentChunkBytes;
+
+    private volatile boolean closed;
+    private volatile boolean producerFinished;
+    private Future<?> producer;
+    private CompletableFuture<?> chunkAvailable = CompletableFuture.completedFuture(null);
+
+    HyenaScanPrefetcher(Supplier<ScanResult> chunkScanner, ToLongFunction<ScanResult> chunkSize, ExecutorService executor, int queueDepth)
+    {
+        checkArgument(queueDepth > 0, "queueDepth must be positive");
+        this.chunkScanner = requireNonNull(chunkScanner, "chunkScanner is null");
+        this.chunkSize = requireNonNull(chunkSize, "chunkSize is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        this.chunks = new ArrayBlockingQueue<>(queueDepth);
+    }
+
+    synchronized void start()
+    {
+        if (producer == null && !closed) {
+            producer = executor.submit(this::fetchChunks);
+        }
+    }
+
+    private void fetchChunks()
+    {
+        try {
+            boolean endOfScan = false;
+            while (!closed && !endOfScan) {
+                ScanResult chunk = chunkScanner.get();
+                endOfScan = !chunk.getStreamState().isPresent();
+                long bytes = chunkSize.applyAsLong(chunk);
+                queuedBytes.addAndGet(bytes);
+                try {
+                    chunks.put(new QueuedChunk(chunk, bytes));
+                }
+                catch (InterruptedException e) {
+                    queuedBytes.addAndGet(-bytes);
+                    throw e;
+                }
+                signalChunkAvailable();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (Throwable t) {
+            if (!closed) {
+                log.error(t, "Error while prefetching hyena scan");
+                failure.set(t);
+            }
+        }
+        finally {
+            producerFinished = true;
+            signalChunkAvailable();
+        }
+    }
+
+    private synchronized void signalChunkAvailable()
+    {
+        chunkAvailable.complete(null);
+    }
+
+    /**
+     * @return true if {@link #take()} will not wait for the network
+     */
+    boolean isChunkReady()
+    {
+        start();
+        return !chunks.isEmpty() || failure.get() != null || producerFinished;
+    }
+
+    synchronized CompletableFuture<?> isBlocked()
+    {
+        if (isChunkReady()) {
+            return NOT_BLOCKED;
+        }
+        if (chunkAvailable.isDone()) {
+            chunkAvailable = new CompletableFuture<>();
+        }
+        return chunkAvailable;
+    }
+
+    /**
+     * Takes next chunk of the scan, waiting for it if it is not downloaded yet.
+     */
+    ScanResult take()
+    {
+        start();
+        try {
+            while (true) {
+                throwIfFailed();
+                QueuedChunk chunk = chunks.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (chunk != null) {
+                    queuedBytes.addAndGet(-chunk.bytes);
+                    // previous chunk is released by the consumer when it takes the next one
+                    currentChunkBytes = chunk.bytes;
+                    return chunk.chunk;
+                }
+                if (producerFinished && chunks.isEmpty()) {
+                    throwIfFailed();
+                    throw new IllegalStateException("Hyena scan has no more chunks");
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for hyena scan chunk", e);
+        }
+    }
+
+    /**
+     * @return bytes of chunks downloaded ahead of the consumer and of the chunk it processes
+     */
+    long getRetainedBytes()
+    {
+        if (closed) {
+            return 0;
+        }
+        return queuedBytes.get() + currentChunkBytes;
+    }
+
+    private void throwIfFailed()
+    {
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new RuntimeException("Error while scanning", t);
+        }
+    }
+
+    synchronized void close()
+    {
+        closed = true;
+        if (producer != null) {
+            producer.cancel(true);
+        }
+        chunks.clear();
+        queuedBytes.set(0);
+        currentChunkBytes = 0;
+    }
+
+    private static class QueuedChunk
+    {
+        private final ScanResult chunk;
+        private final long bytes;
+
+        QueuedChunk(ScanResult chunk, long bytes)
+        {
+            this.chunk = chunk;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import io.airlift.stats.DecayCounter;
+import io.airlift.stats.Distribution;
+import io.airlift.stats.TimeDistribution;
+import org.weakref.jmx.Managed;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.airlift.stats.ExponentialDecay.fiveMinutes;
+import static io.airlift.stats.ExponentialDecay.oneMinute;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Connector wide statistics of hyena scans, shared by all cursors of a connector.
+ * Chunk latency covers the whole {@link HyenaSession#scan} call (request, transfer and decoding of the response),
+ * deserialization time covers converting received chunks into presto blocks,
+ * so comparing them shows whether hyena or presto side of a scan is the bottleneck.
+ * Percentiles are decayed over last minutes, so they describe recent scans.
+ */
+public class HyenaScanStats
+{
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final DecayCounter rowsRate = new DecayCounter(oneMinute());
+    private final DecayCounter bytesRate = new DecayCounter(oneMinute());
+
+    private final Distribution chunkRows = new Distribution(fiveMinutes());
+    private final Distribution chunkBytes = new Distribution(fiveMinutes());
+    private final TimeDistribution chunkLatency = new TimeDistribution(fiveMinutes(), MILLISECONDS);
+    private final TimeDistribution scanLatency = new TimeDistribution(fiveMinutes(), MILLISECONDS);
+    private final TimeDistribution deserializationTime = new TimeDistribution(fiveMinutes(), MILLISECONDS);
+
+    /**
+     * Records single chunk received from hyena.
+     */
+    public void recordChunk(long latencyNanos, long sizeInBytes)
+    {
+        chunks.increment();
+        bytes.add(sizeInBytes);
+        bytesRate.add(sizeInBytes);
+        chunkBytes.add(sizeInBytes);
+        chunkLatency.add(latencyNanos);
+    }
+
+    /**
+     * Records number of rows in chunk which is going to be processed by presto.
+     */
+    public void recordRows(int rowCount)
+    {
+        rows.add(rowCount);
+        rowsRate.add(rowCount);
+        chunkRows.add(rowCount);
+    }
+
+    public void recordDeserialization(long nanos)
+    {
+        deserializationTime.add(nanos);
+    }
+
+    /**
+     * Records finished scan, from creation of the cursor till its close.
+     */
+    public void recordScan(long latencyNanos)
+    {
+        scans.increment();
+        scanLatency.add(latencyNanos);
+    }
+
+    @Managed
+    public long getScanCount()
+    {
+        return scans.sum();
+    }
+
+    @Managed
+    public long getChunkCount()
+    {
+        return chunks.sum();
+    }
+
+    @Managed
+    public long getRowCount()
+    {
+        return rows.sum();
+    }
+
+    @Managed
+    public long getCompletedBytes()
+    {
+        return bytes.sum();
+    }
+
+    @Managed
+    public double getRowsPerSecond()
+    {
+        return rowsRate.getRate();
+    }
+
+    @Managed
+    public double getBytesPerSecond()
+    {
+        return bytesRate.getRate();
+    }
+
+    @Managed
+    public long getChunkRowsP50()
+    {
+        return chunkRows.getP50();
+    }
+
+    @Managed
+    public long getChunkRowsP90()
+    {
+        return chunkRows.getP90();
+    }
+
+    @Managed
+    public long getChunkRowsMax()
+    {
+        return chunkRows.getMax();
+    }
+
+    @Managed
+    public long getChunkBytesP50()
+    {
+        return chunkBytes.getP50();
+    }
+
+    @Managed
+    public long getChunkBytesP90()
+    {
+        return chunkBytes.getP90();
+    }
+
+    @Managed
+    public long getChunkBytesMax()
+    {
+        return chunkBytes.getMax();
+    }
+
+    @Managed
+    public double getChunkLatencyP50Ms()
+    {
+        return chunkLatency.getP50();
+    }
+
+    @Managed
+    public double getChunkLatencyP90Ms()
+    {
+        return chunkLatency.getP90();
+    }
+
+    @Managed
+    public double getChunkLatencyP99Ms()
+    {
+        return chunkLatency.getP99();
+    }
+
+    @Managed
+    public double getScanLatencyP50Ms()
+    {
+        return scanLatency.getP50();
+    }
+
+    @Managed
+    public double getScanLatencyP90Ms()
+    {
+        return scanLatency.getP90();
+    }
+
+    @Managed
+    public double getScanLatencyP99Ms()
+    {
+        return scanLatency.getP99();
+    }
+
+    @Managed
+    public double getDeserializationTimeP50Ms()
+    {
+        return deserializationTime.getP50();
+    }
+
+    @Managed
+    public double getDeserializationTimeP90Ms()
+    {
+        return deserializationTime.getP90();
+    }
+
+    @Managed
+    public double getDeserializationTimeP99Ms()
+    {
+        return deserializationTime.getP99();
+    }
+}
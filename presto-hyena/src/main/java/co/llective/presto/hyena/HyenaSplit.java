@@ -30,27 +30,18 @@ import static java.util.Objects.requireNonNull;
 public class HyenaSplit
         implements ConnectorSplit
 {
-    private final HostAddress address;
     private final TupleDomain<HyenaColumnHandle> effectivePredicate;
     private final Optional<TimeBoundaries> timeBoundaries;
 
     @JsonCreator
     public HyenaSplit(
-            @JsonProperty("address") HostAddress address,
             @JsonProperty("effectivePredicate") TupleDomain<HyenaColumnHandle> effectivePredicate,
             @JsonProperty("timeBoundaries") Optional<TimeBoundaries> timeBoundaries)
     {
-        this.address = requireNonNull(address, "address is null");
         this.effectivePredicate = requireNonNull(effectivePredicate, "effectivePredicate is null");
         this.timeBoundaries = requireNonNull(timeBoundaries);
     }
 
-    @JsonProperty
-    public HostAddress getAddress()
-    {
-        return address;
-    }
-
     @JsonProperty
     public TupleDomain<HyenaColumnHandle> getEffectivePredicate()
     {
@@ -66,13 +57,14 @@ public class HyenaSplit
     @Override
     public boolean isRemotelyAccessible()
     {
-        return false;
+        // every worker connects to hyena on its own, so splits can be scheduled on any node
+        return true;
     }
 
     @Override
     public List<HostAddress> getAddresses()
     {
-        return ImmutableList.of(address);
+        return ImmutableList.of();
     }
 
     @Override
@@ -85,7 +77,7 @@ public class HyenaSplit
     public String toString()
     {
         return toStringHelper(this)
-                .add("address", address)
+                .add("timeBoundaries", timeBoundaries)
                 .toString();
     }
 }
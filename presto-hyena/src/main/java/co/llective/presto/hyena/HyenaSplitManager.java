@@ -13,14 +13,13 @@
  */
 package co.llective.presto.hyena;
 
+import co.llective.hyena.api.PartitionInfo;
 import co.llective.presto.hyena.util.TimeBoundaries;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplit;
 import com.facebook.presto.spi.ConnectorSplitSource;
 import com.facebook.presto.spi.ConnectorTableLayoutHandle;
 import com.facebook.presto.spi.FixedSplitSource;
-import com.facebook.presto.spi.Node;
-import com.facebook.presto.spi.NodeManager;
 import com.facebook.presto.spi.connector.ConnectorSplitManager;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
 import com.facebook.presto.spi.predicate.TupleDomain;
@@ -35,6 +34,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
@@ -44,7 +44,6 @@ public class HyenaSplitManager
 {
     private static final Logger log = Logger.get(HyenaSplitManager.class);
 
-    private final NodeManager nodeManager;
     private final HyenaSession hyenaSession;
 
     @VisibleForTesting long dbMinTimestamp;
@@ -52,11 +51,8 @@ public class HyenaSplitManager
     @VisibleForTesting int numberOfSplits;
 
     @Inject
-    public HyenaSplitManager(
-            NodeManager nodeManager,
-            HyenaSession session)
+    public HyenaSplitManager(HyenaSession session)
     {
-        this.nodeManager = requireNonNull(nodeManager, "nodeManager is null");
         this.hyenaSession = requireNonNull(session, "hyenaSession is null");
     }
 
@@ -76,26 +72,97 @@ public class HyenaSplitManager
         TupleDomain<HyenaColumnHandle> effectivePredicate = layoutHandle.getConstraint()
                 .transform(HyenaColumnHandle.class::cast);
 
-        Node currentNode = nodeManager.getCurrentNode();
-
         HyenaPredicatesUtil predicatesUtil = new HyenaPredicatesUtil();
         Optional<TimeBoundaries> timeRange = predicatesUtil.getTsConstraints(effectivePredicate);
-        List<ConnectorSplit> splits;
-        if (isSplittingEnabled && timeRange.isPresent()) {
-            List<TimeBoundaries> splitBoundaries = splitTimeBoundaries(timeRange.get());
-            splits = splitBoundaries.stream()
-                        .map(timeBoundaries -> new HyenaSplit(currentNode.getHostAndPort(), effectivePredicate, Optional.of(timeBoundaries)))
-                        .collect(Collectors.toList());
-            log.debug("Created " + splits.size() + " splits for query (" + splitBoundaries + ")");
+        Function<Optional<TimeBoundaries>, ConnectorSplit> splitFactory =
+                timeBoundaries -> new HyenaSplit(effectivePredicate, timeBoundaries);
+
+        if (!isSplittingEnabled) {
+            return new FixedSplitSource(Collections.singletonList(splitFactory.apply(Optional.empty())));
+        }
+
+        int splits = numberOfSplits;
+        long minTimestamp = dbMinTimestamp;
+        return new HyenaSplitSource(() -> computeSplitBoundaries(timeRange, splits, minTimestamp), splitFactory);
+    }
+
+    /**
+     * Computes time boundaries of splits. Boundaries are taken from hyena partitions when those are available,
+     * otherwise time range is divided into equal slices.
+     * Empty list means that the whole table should be scanned in one split.
+     */
+    @VisibleForTesting
+    List<TimeBoundaries> computeSplitBoundaries(Optional<TimeBoundaries> timeRange, int numberOfSplits, long dbMinTimestamp)
+    {
+        List<PartitionInfo> partitions;
+        try {
+            partitions = hyenaSession.getAvailablePartitions();
+        }
+        catch (RuntimeException e) {
+            log.warn(e, "Cannot fetch hyena partitions, falling back to equal time splits");
+            partitions = Collections.emptyList();
+        }
+
+        List<TimeBoundaries> splitBoundaries;
+        if (!partitions.isEmpty()) {
+            List<TimeBoundaries> partitionRanges = partitions.stream()
+                    .map(partition -> TimeBoundaries.of(partition.getMinTs(), partition.getMaxTs()))
+                    .collect(Collectors.toList());
+            splitBoundaries = splitByPartitions(timeRange.orElse(TimeBoundaries.of(null, null)), partitionRanges, numberOfSplits);
+        }
+        else if (timeRange.isPresent()) {
+            splitBoundaries = splitTimeBoundaries(timeRange.get(), numberOfSplits, dbMinTimestamp);
         }
         else {
-            splits = Collections.singletonList(new HyenaSplit(currentNode.getHostAndPort(), effectivePredicate, Optional.empty()));
+            splitBoundaries = Collections.emptyList();
+        }
+        log.debug("Created " + splitBoundaries.size() + " splits for query (" + splitBoundaries + ")");
+        return splitBoundaries;
+    }
+
+    /**
+     * Divides time range into splits containing similar number of hyena partitions.
+     * Partitions have bounded size so it balances number of scanned rows between splits,
+     * even if data is not uniformly spread in time.
+     * First and last split are extended to the time range edges (or to 0/max when range is open),
+     * so data added after catalog refresh is scanned as well.
+     */
+    @VisibleForTesting
+    static List<TimeBoundaries> splitByPartitions(TimeBoundaries timeRange, List<TimeBoundaries> partitionRanges, int numberOfSplits)
+    {
+        long start = timeRange.getStart() == null ? UnsignedLong.ZERO.longValue() : timeRange.getStart();
+        long end = timeRange.getEnd() == null ? UnsignedLong.MAX_VALUE.longValue() : timeRange.getEnd();
+
+        List<Long> partitionStarts = partitionRanges.stream()
+                .filter(partition -> Long.compareUnsigned(partition.getEnd(), start) >= 0 && Long.compareUnsigned(partition.getStart(), end) <= 0)
+                .map(TimeBoundaries::getStart)
+                .sorted(Long::compareUnsigned)
+                .collect(Collectors.toList());
+
+        if (partitionStarts.isEmpty()) {
+            return Collections.singletonList(TimeBoundaries.of(start, end));
         }
 
-        return new FixedSplitSource(splits);
+        int splitCount = Math.min(numberOfSplits, partitionStarts.size());
+        List<TimeBoundaries> splitBoundaries = new ArrayList<>();
+        long splitStart = start;
+        for (int i = 1; i < splitCount; i++) {
+            long cut = partitionStarts.get((int) ((long) i * partitionStarts.size() / splitCount));
+            if (Long.compareUnsigned(cut, splitStart) > 0 && Long.compareUnsigned(cut, end) < 0) {
+                splitBoundaries.add(TimeBoundaries.of(splitStart, cut));
+                splitStart = cut;
+            }
+        }
+        splitBoundaries.add(TimeBoundaries.of(splitStart, end));
+        return splitBoundaries;
     }
 
     @VisibleForTesting List<TimeBoundaries> splitTimeBoundaries(TimeBoundaries timeRange)
+    {
+        return splitTimeBoundaries(timeRange, numberOfSplits, dbMinTimestamp);
+    }
+
+    private List<TimeBoundaries> splitTimeBoundaries(TimeBoundaries timeRange, int numberOfSplits, long dbMinTimestamp)
     {
         Long min = timeRange.getStart();
         Long max = timeRange.getEnd();
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.presto.hyena.util.TimeBoundaries;
+import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.ConnectorSplitSource;
+import com.facebook.presto.spi.connector.ConnectorPartitionHandle;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Split source which computes split boundaries on the first request for splits,
+ * so fetching partitions from hyena does not delay planning, and hands splits out in batches.
+ */
+public class HyenaSplitSource
+        implements ConnectorSplitSource
+{
+    private final Supplier<List<TimeBoundaries>> boundariesSupplier;
+    private final Function<Optional<TimeBoundaries>, ConnectorSplit> splitFactory;
+    private Iterator<Optional<TimeBoundaries>> remainingBoundaries;
+
+    public HyenaSplitSource(Supplier<List<TimeBoundaries>> boundariesSupplier, Function<Optional<TimeBoundaries>, ConnectorSplit> splitFactory)
+    {
+        this.boundariesSupplier = requireNonNull(boundariesSupplier, "boundariesSupplier is null");
+        this.splitFactory = requireNonNull(splitFactory, "splitFactory is null");
+    }
+
+    @Override
+    public CompletableFuture<ConnectorSplitBatch> getNextBatch(ConnectorPartitionHandle partitionHandle, int maxSize)
+    {
+        checkArgument(partitionHandle.equals(NOT_PARTITIONED), "partitionHandle must be NOT_PARTITIONED");
+
+        if (remainingBoundaries == null) {
+            remainingBoundaries = initBoundaries();
+        }
+
+        ImmutableList.Builder<ConnectorSplit> splits = ImmutableList.builder();
+        for (int i = 0; i < maxSize && remainingBoundaries.hasNext(); i++) {
+            splits.add(splitFactory.apply(remainingBoundaries.next()));
+        }
+        return completedFuture(new ConnectorSplitBatch(splits.build(), isFinished()));
+    }
+
+    private Iterator<Optional<TimeBoundaries>> initBoundaries()
+    {
+        List<TimeBoundaries> boundaries = boundariesSupplier.get();
+        if (boundaries.isEmpty()) {
+            // no information for splitting, scan everything at once
+            return Collections.singletonList(Optional.<TimeBoundaries>empty()).iterator();
+        }
+        return boundaries.stream()
+                .map(Optional::of)
+                .iterator();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return remainingBoundaries != null && !remainingBoundaries.hasNext();
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
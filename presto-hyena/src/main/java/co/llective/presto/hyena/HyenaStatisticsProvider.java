@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.presto.hyena.util.TimeBoundaries;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.statistics.ColumnStatistics;
+import com.facebook.presto.spi.statistics.Estimate;
+import com.facebook.presto.spi.statistics.RangeColumnStatistics;
+import com.facebook.presto.spi.statistics.TableStatistics;
+import com.facebook.presto.spi.type.FixedWidthType;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
+import com.google.common.primitives.UnsignedLong;
+import io.airlift.log.Logger;
+
+import javax.inject.Inject;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.facebook.presto.spi.statistics.TableStatistics.EMPTY_STATISTICS;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Estimates table statistics for the cost based optimizer.
+ * Hyena does not keep column statistics, so the estimates are derived from partitions:
+ * partitions have bounded size, hence row count is proportional to the number of partitions
+ * overlapping with the time range of the query. Distinct values and value ranges are reported only where
+ * they are known from the data model (unique timestamps and constant source_id), otherwise they are unknown.
+ */
+public class HyenaStatisticsProvider
+{
+    private static final Logger log = Logger.get(HyenaStatisticsProvider.class);
+
+    private static final String TIMESTAMP_COLUMN = "timestamp";
+    private static final String SOURCE_ID_COLUMN = "source_id";
+
+    private final HyenaSession hyenaSession;
+    private final Supplier<List<TimeBoundaries>> partitionRanges;
+
+    @Inject
+    public HyenaStatisticsProvider(HyenaSession hyenaSession, HyenaConfig config)
+    {
+        this.hyenaSession = requireNonNull(hyenaSession, "hyenaSession is null");
+        long cacheTtlSeconds = config.getStatisticsCacheTtlSeconds();
+        if (cacheTtlSeconds > 0) {
+            this.partitionRanges = Suppliers.memoizeWithExpiration(this::fetchPartitionRanges, cacheTtlSeconds, TimeUnit.SECONDS)::get;
+        }
+        else {
+            this.partitionRanges = this::fetchPartitionRanges;
+        }
+    }
+
+    private List<TimeBoundaries> fetchPartitionRanges()
+    {
+        try {
+            return hyenaSession.getAvailablePartitions().stream()
+                    .map(partition -> TimeBoundaries.of(partition.getMinTs(), partition.getMaxTs()))
+                    .collect(Collectors.toList());
+        }
+        catch (RuntimeException e) {
+            log.warn(e, "Cannot fetch hyena partitions, table statistics will be unknown");
+            return Collections.emptyList();
+        }
+    }
+
+    public TableStatistics getTableStatistics(ConnectorSession session, Collection<HyenaColumnHandle> columns, TupleDomain<HyenaColumnHandle> constraint)
+    {
+        if (constraint.isNone()) {
+            return TableStatistics.builder()
+                    .setRowCount(Estimate.zeroValue())
+                    .build();
+        }
+
+        List<TimeBoundaries> partitions = partitionRanges.get();
+        if (partitions.isEmpty()) {
+            return EMPTY_STATISTICS;
+        }
+
+        Optional<TimeBoundaries> timeRange = new HyenaPredicatesUtil().getTsConstraints(constraint);
+        double rowCount = estimatePartitionsInRange(partitions, timeRange) * HyenaConnectorSessionProperties.getRowsPerPartition(session);
+
+        TableStatistics.Builder statistics = TableStatistics.builder()
+                .setRowCount(new Estimate(rowCount));
+        for (HyenaColumnHandle column : columns) {
+            statistics.setColumnStatistics(column, estimateColumnStatistics(column, rowCount));
+        }
+        return statistics.build();
+    }
+
+    /**
+     * Counts partitions overlapping with the time range.
+     * Partially covered partitions are counted proportionally, assuming rows are spread uniformly in time inside them.
+     */
+    @VisibleForTesting
+    static double estimatePartitionsInRange(List<TimeBoundaries> partitions, Optional<TimeBoundaries> timeRange)
+    {
+        if (!timeRange.isPresent()) {
+            return partitions.size();
+        }
+        double start = unsignedToDouble(timeRange.get().getStart());
+        double end = unsignedToDouble(timeRange.get().getEnd());
+
+        double coveredPartitions = 0;
+        for (TimeBoundaries partition : partitions) {
+            double partitionStart = unsignedToDouble(partition.getStart());
+            double partitionEnd = unsignedToDouble(partition.getEnd());
+            double overlapStart = Math.max(start, partitionStart);
+            double overlapEnd = Math.min(end, partitionEnd);
+            if (overlapStart > overlapEnd) {
+                continue;
+            }
+            coveredPartitions += (overlapEnd - overlapStart + 1) / (partitionEnd - partitionStart + 1);
+        }
+        return coveredPartitions;
+    }
+
+    private static double unsignedToDouble(long value)
+    {
+        return UnsignedLong.fromLongBits(value).doubleValue();
+    }
+
+    @VisibleForTesting
+    static ColumnStatistics estimateColumnStatistics(HyenaColumnHandle column, double rowCount)
+    {
+        // TODO: temporal workaround for not filled source_id by hyena (we only have one source now)
+        if (column.getColumnName().equals(SOURCE_ID_COLUMN)) {
+            return ColumnStatistics.builder()
+                    .setNullsFraction(Estimate.zeroValue())
+                    .addRange(range -> range
+                            .setFraction(new Estimate(1))
+                            .setDistinctValuesCount(new Estimate(1))
+                            .setLowValue(Optional.of(1L))
+                            .setHighValue(Optional.of(1L)))
+                    .build();
+        }
+
+        // bounds of block types are not bounds of the data, so low and high values are left unknown
+        boolean dense = HyenaPageSource.isDense(column.getHyenaType());
+        RangeColumnStatistics range = RangeColumnStatistics.builder()
+                .setFraction(dense ? new Estimate(1) : Estimate.unknownValue())
+                .setDistinctValuesCount(estimateDistinctValues(column, rowCount))
+                .setDataSize(estimateDataSize(column.getColumnType(), rowCount))
+                .build();
+
+        return ColumnStatistics.builder()
+                .setNullsFraction(dense ? Estimate.zeroValue() : Estimate.unknownValue())
+                .addRange(range)
+                .build();
+    }
+
+    private static Estimate estimateDistinctValues(HyenaColumnHandle column, double rowCount)
+    {
+        if (column.getColumnName().equals(TIMESTAMP_COLUMN)) {
+            // timestamps are in nanoseconds, so practically every row has a different one
+            return new Estimate(rowCount);
+        }
+        // width of the type says nothing about the data, claiming many distinct values would make
+        // the optimizer expect equality filters to be very selective
+        return Estimate.unknownValue();
+    }
+
+    private static Estimate estimateDataSize(Type type, double rowCount)
+    {
+        if (type instanceof FixedWidthType) {
+            return new Estimate(rowCount * ((FixedWidthType) type).getFixedSize());
+        }
+        return Estimate.unknownValue();
+    }
+}
@@ -18,41 +18,70 @@ import co.llective.hyena.api.Column;
 import co.llective.presto.hyena.types.U64Type;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.type.Type;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.log.Logger;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static co.llective.presto.hyena.HyenaMetadata.PRESTO_HYENA_SCHEMA;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.IntegerType.INTEGER;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.google.common.base.Preconditions.checkArgument;
-
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+
+/**
+ * Keeps hyena catalog (table columns) cached, so metadata calls done while planning a query
+ * don't need a round trip to hyena. Catalog is refreshed in background every configured TTL
+ * and replaced only when fetched columns differ from cached ones, bumping catalog version.
+ */
 public class HyenaTables
 {
-    private Map<SchemaTableName, List<HyenaColumnMetadata>> tableColumns;
+    private static final Logger log = Logger.get(HyenaTables.class);
+
     private final SchemaTableName schemaTableName;
     private final HyenaTableHandle tableHandle;
 
     private final HyenaSession hyenaSession;
+    private final long catalogCacheTtlSeconds;
+    private final Optional<ScheduledExecutorService> refreshExecutor;
+    private volatile CatalogSnapshot catalog;
 
     public static final String PRESTO_HYENA_TABLE_NAME = "cs";
 
     @Inject
-    public HyenaTables(HyenaSession hyenaSession)
+    public HyenaTables(HyenaSession hyenaSession, HyenaConfig config)
     {
-        this.hyenaSession = hyenaSession;
+        this.hyenaSession = requireNonNull(hyenaSession, "hyenaSession is null");
+        this.catalogCacheTtlSeconds = config.getCatalogCacheTtlSeconds();
 
         schemaTableName = getSchemaTableName();
 
-        tableColumns = fetchTableColumns(hyenaSession);
+        catalog = new CatalogSnapshot(0L, fetchTableColumns(hyenaSession));
 
         tableHandle = new HyenaTableHandle(schemaTableName);
+
+        if (catalogCacheTtlSeconds > 0) {
+            ScheduledExecutorService executor = newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("hyena-catalog-refresh-%s").setDaemon(true).build());
+            executor.scheduleWithFixedDelay(this::refreshInBackground, catalogCacheTtlSeconds, catalogCacheTtlSeconds, TimeUnit.SECONDS);
+            refreshExecutor = Optional.of(executor);
+        }
+        else {
+            refreshExecutor = Optional.empty();
+        }
     }
 
     private ImmutableMap<SchemaTableName, List<HyenaColumnMetadata>> fetchTableColumns(HyenaSession hyenaSession)
@@ -62,6 +91,43 @@ public class HyenaTables
         return tableColumnsBuilder.build();
     }
 
+    /**
+     * Fetches catalog from hyena and swaps cached one if it has changed.
+     */
+    @VisibleForTesting
+    void refreshCatalog()
+    {
+        Map<SchemaTableName, List<HyenaColumnMetadata>> tableColumns = fetchTableColumns(hyenaSession);
+        CatalogSnapshot current = catalog;
+        // ColumnMetadata equality covers column name, presto type and block type (kept as comment)
+        if (!current.getTableColumns().equals(tableColumns)) {
+            catalog = new CatalogSnapshot(current.getVersion() + 1, tableColumns);
+            log.info("Hyena catalog changed, version " + (current.getVersion() + 1));
+        }
+    }
+
+    private void refreshInBackground()
+    {
+        try {
+            refreshCatalog();
+        }
+        catch (RuntimeException e) {
+            log.warn(e, "Cannot refresh hyena catalog, using cached version " + catalog.getVersion());
+        }
+    }
+
+    @VisibleForTesting
+    long getCatalogVersion()
+    {
+        return catalog.getVersion();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        refreshExecutor.ifPresent(ScheduledExecutorService::shutdownNow);
+    }
+
     private static SchemaTableName getSchemaTableName()
     {
         return new SchemaTableName(PRESTO_HYENA_SCHEMA, PRESTO_HYENA_TABLE_NAME);
@@ -103,7 +169,7 @@ public class HyenaTables
 
     private List<HyenaColumnMetadata> tableColumns(List<Column> hyenaColumns)
     {
-        return hyenaColumns.stream().map(hyenaCol -> convertColumnMetadata(hyenaCol)).collect(Collectors.toList());
+        return hyenaColumns.stream().map(hyenaCol -> convertColumnMetadata(hyenaCol)).collect(toImmutableList());
     }
 
     public HyenaTableHandle getTable(SchemaTableName tableName)
@@ -118,8 +184,33 @@ public class HyenaTables
 
     public List<HyenaColumnMetadata> getColumns(HyenaTableHandle tableHandle)
     {
-        tableColumns = fetchTableColumns(hyenaSession);
+        if (catalogCacheTtlSeconds <= 0) {
+            refreshCatalog();
+        }
+        Map<SchemaTableName, List<HyenaColumnMetadata>> tableColumns = catalog.getTableColumns();
         checkArgument(tableColumns.containsKey(tableHandle.getSchemaTableName()), "Table %s not registered", tableHandle.getSchemaTableName());
         return tableColumns.get(tableHandle.getSchemaTableName());
     }
+
+    private static class CatalogSnapshot
+    {
+        private final long version;
+        private final Map<SchemaTableName, List<HyenaColumnMetadata>> tableColumns;
+
+        CatalogSnapshot(long version, Map<SchemaTableName, List<HyenaColumnMetadata>> tableColumns)
+        {
+            this.version = version;
+            this.tableColumns = tableColumns;
+        }
+
+        long getVersion()
+        {
+            return version;
+        }
+
+        Map<SchemaTableName, List<HyenaColumnMetadata>> getTableColumns()
+        {
+            return tableColumns;
+        }
+    }
 }
@@ -23,24 +23,33 @@ import co.llective.hyena.api.ScanResult;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class NativeHyenaSession
         implements HyenaSession
 {
-    private final HyenaApi hyenaApi;
+    private final HyenaConnectionPool connections;
 
     public NativeHyenaSession(HyenaConfig config)
     {
-        hyenaApi = (new HyenaApi.Builder())
-                .address(config.getHyenaHost())
-                .build();
+        this(new HyenaConnectionPool(
+                () -> (new HyenaApi.Builder())
+                        .address(config.getHyenaHost())
+                        .build(),
+                config.getConnectionPoolSize(),
+                TimeUnit.SECONDS.toMillis(config.getConnectionAcquireTimeoutSeconds())));
+    }
+
+    public NativeHyenaSession(HyenaConnectionPool connections)
+    {
+        this.connections = connections;
     }
 
     @Override
     public Catalog refreshCatalog()
     {
         try {
-            return hyenaApi.refreshCatalog();
+            return connections.execute(HyenaApi::refreshCatalog);
         }
         catch (IOException | ReplyException exc) {
             throw new RuntimeException("Error while refreshing catalog", exc);
@@ -63,7 +72,7 @@ public class NativeHyenaSession
     public ScanResult scan(ScanRequest req)
     {
         try {
-            return hyenaApi.scan(req);
+            return connections.execute(hyenaApi -> hyenaApi.scan(req));
         }
         catch (IOException | ReplyException exc) {
             throw new RuntimeException("Error while scanning", exc);
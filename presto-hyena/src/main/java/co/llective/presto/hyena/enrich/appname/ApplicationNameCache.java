@@ -1,7 +1,8 @@
 package co.llective.presto.hyena.enrich.appname;
 
+import co.llective.presto.hyena.enrich.util.IpCache;
 import co.llective.presto.hyena.enrich.util.IpUtil;
-import co.llective.presto.hyena.enrich.util.SoftCache;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import co.llective.presto.hyena.enrich.util.SubnetV4;
 import co.llective.presto.hyena.enrich.util.SubnetV6;
 import com.google.common.annotations.VisibleForTesting;
@@ -11,6 +12,7 @@ import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Executors;
@@ -22,21 +24,23 @@ public class ApplicationNameCache
     private static final Logger log = Logger.get(ApplicationNameCache.class);
     private static final ScheduledExecutorService SCHEDULED_THREAD = Executors.newSingleThreadScheduledExecutor();
     private static final int RELOAD_PERIOD_MIN = 5;
+    private static final int CACHE_SIZE = 1 << 18;
     @VisibleForTesting static final String UNKNOWN_NAME = ""; // empty string is marking ip in cache as not named
 
-    private Map<SubnetV4, String> ipv4Subnets = new LinkedHashMap<>();
-    private Map<SubnetV6, String> ipv6Subnets = new LinkedHashMap<>();
-    private String[] portNames = initPortNames();
-    private final SoftCache<String> cache = new SoftCache<>();
+    // rebuilt on every update and swapped at once, so readers always see complete data
+    private volatile AppNames appNames = new AppNames(new LinkedHashMap<>(), new LinkedHashMap<>(), initPortNames());
+    private final IpCache<String> cache = new IpCache<String>(CACHE_SIZE).exportStats("app_name");
 
     private ApplicationNameCache()
     {
         log.info("Scheduling local geoip enrichment updater. Reload period " + RELOAD_PERIOD_MIN + " minutes");
+        ApplicationNameFetcher fetcher = new ApplicationNameFetcher(this);
+        boolean snapshotLoaded = fetcher.loadSnapshot();
         SCHEDULED_THREAD.scheduleAtFixedRate(
-                new ApplicationNameFetcher(this),
-                0,
-                RELOAD_PERIOD_MIN,
-                TimeUnit.MINUTES);
+                fetcher,
+                SnapshotStore.getInitialFetchDelaySeconds(snapshotLoaded),
+                TimeUnit.MINUTES.toSeconds(RELOAD_PERIOD_MIN),
+                TimeUnit.SECONDS);
     }
 
     private static class LazyHolder
@@ -49,30 +53,27 @@ public class ApplicationNameCache
         return LazyHolder.INSTANCE;
     }
 
-    private String[] initPortNames()
+    private static String[] initPortNames()
     {
         return new String[49151]; // largest not ephemeral port number
     }
 
-    private void clear()
-    {
-        ipv4Subnets.clear();
-        ipv6Subnets.clear();
-        portNames = initPortNames();
-        cache.clear();
-    }
-
-    void populateEnrichedAppNames(EnrichedAppNames appNames)
+    void populateEnrichedAppNames(EnrichedAppNames enrichedAppNames)
     {
         log.info("Populate new app enrichment: " +
-                appNames.getNames().size() + " names and " +
-                appNames.getPorts().size() + " ports");
-        clear();
-        populateNames(appNames.getNames());
-        populatePortNames(appNames.getPorts());
+                enrichedAppNames.getNames().size() + " names and " +
+                enrichedAppNames.getPorts().size() + " ports");
+        Map<SubnetV4, String> ipv4Subnets = new LinkedHashMap<>();
+        Map<SubnetV6, String> ipv6Subnets = new LinkedHashMap<>();
+        populateNames(enrichedAppNames.getNames(), ipv4Subnets, ipv6Subnets);
+        String[] portNames = initPortNames();
+        populatePortNames(enrichedAppNames.getPorts(), portNames);
+
+        appNames = new AppNames(ipv4Subnets, ipv6Subnets, portNames);
+        cache.clear();
     }
 
-    private void populateNames(Map<String, String> names)
+    private static void populateNames(Map<String, String> names, Map<SubnetV4, String> ipv4Subnets, Map<SubnetV6, String> ipv6Subnets)
     {
         for (Map.Entry<String, String> entry : names.entrySet()) {
             String subnet = entry.getKey();
@@ -104,7 +105,7 @@ public class ApplicationNameCache
         }
     }
 
-    private void populatePortNames(Map<Integer, String> ports)
+    private static void populatePortNames(Map<Integer, String> ports, String[] portNames)
     {
         for (Map.Entry<Integer, String> entry : ports.entrySet()) {
             Integer port = entry.getKey();
@@ -115,33 +116,31 @@ public class ApplicationNameCache
 
     String getApplicationName(long ip1, long ip2, long port)
     {
-        String cacheValue = cache.get(ip1, ip2);
-        if (cacheValue != null) {
-            return cacheValue.equals(UNKNOWN_NAME) ? getPortName(port) : cacheValue;
-        }
+        String name = cache.get(ip1, ip2, this::findSubnetName);
+        return name.equals(UNKNOWN_NAME) ? getPortName(port) : name;
+    }
 
+    private String findSubnetName(long ip1, long ip2)
+    {
+        AppNames appNames = this.appNames;
         if (ip1 == IpUtil.WKP) {
-            for (Map.Entry<SubnetV4, String> entry : ipv4Subnets.entrySet()) {
+            for (Map.Entry<SubnetV4, String> entry : appNames.ipv4Subnets.entrySet()) {
                 SubnetV4 subnet = entry.getKey();
                 if ((subnet.getMask() & ip2) == subnet.getAddress()) {
-                    cache.put(ip1, ip2, entry.getValue());
                     return entry.getValue();
                 }
             }
         }
         else {
-            for (Map.Entry<SubnetV6, String> entry : ipv6Subnets.entrySet()) {
+            for (Map.Entry<SubnetV6, String> entry : appNames.ipv6Subnets.entrySet()) {
                 SubnetV6 subnet = entry.getKey();
                 if ((subnet.getMaskHighBits() & ip1) == subnet.getAddressHighBits()
                         && (subnet.getMaskLowBits() & ip2) == subnet.getAddressLowBits()) {
-                    cache.put(ip1, ip2, entry.getValue());
                     return entry.getValue();
                 }
             }
         }
-
-        cache.put(ip1, ip2, UNKNOWN_NAME);
-        return getPortName(port);
+        return UNKNOWN_NAME;
     }
 
     String getApplicationName(long ip1, long ip2)
@@ -151,11 +150,12 @@ public class ApplicationNameCache
 
     private String getPortName(long port)
     {
+        String[] portNames = appNames.portNames;
         return port > 0 && port < portNames.length ? portNames[(int) port] : null;
     }
 
     @VisibleForTesting
-    SoftCache<String> getCache()
+    IpCache<String> getCache()
     {
         return cache;
     }
@@ -163,6 +163,23 @@ public class ApplicationNameCache
     @VisibleForTesting
     public String[] getPortNames()
     {
-        return portNames;
+        return appNames.portNames;
+    }
+
+    /**
+     * Snapshot of application names, never modified after publishing.
+     */
+    private static class AppNames
+    {
+        final Map<SubnetV4, String> ipv4Subnets;
+        final Map<SubnetV6, String> ipv6Subnets;
+        final String[] portNames;
+
+        AppNames(Map<SubnetV4, String> ipv4Subnets, Map<SubnetV6, String> ipv6Subnets, String[] portNames)
+        {
+            this.ipv4Subnets = Collections.unmodifiableMap(ipv4Subnets);
+            this.ipv6Subnets = Collections.unmodifiableMap(ipv6Subnets);
+            this.portNames = portNames;
+        }
     }
 }
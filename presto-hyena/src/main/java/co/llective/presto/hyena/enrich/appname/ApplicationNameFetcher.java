@@ -3,6 +3,7 @@ package co.llective.presto.hyena.enrich.appname;
 import co.llective.presto.hyena.enrich.rest.RestClient;
 import co.llective.presto.hyena.enrich.rest.RestClientException;
 import co.llective.presto.hyena.enrich.username.CacheException;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import io.airlift.log.Logger;
@@ -18,32 +19,56 @@ public class ApplicationNameFetcher
     private static final String TOUCAN_ENDPOINT = "http://toucan:3000/config/";
     static final String TOUCAN_APP_GLOBAL_ENDPOINT = TOUCAN_ENDPOINT + "drill/app_enrichment_global";
     static final String TOUCAN_APP_USER_ENDPOINT = TOUCAN_ENDPOINT + "drill/app_enrichment_user";
+    static final String GLOBAL_SNAPSHOT_NAME = "app_names_global.json";
+    static final String USER_SNAPSHOT_NAME = "app_names_user.json";
 
     private final ApplicationNameCache cache;
     private final RestClient restClient;
     private final ObjectMapper objectMapper;
+    private final SnapshotStore snapshotStore;
 
     private int lastAppNameHashcode;
 
     @VisibleForTesting
-    ApplicationNameFetcher(ApplicationNameCache applicationNameCache, RestClient restClient, ObjectMapper objectMapper)
+    ApplicationNameFetcher(ApplicationNameCache applicationNameCache, RestClient restClient, ObjectMapper objectMapper, SnapshotStore snapshotStore)
     {
         this.cache = applicationNameCache;
         this.restClient = restClient;
         this.objectMapper = objectMapper;
+        this.snapshotStore = snapshotStore;
     }
 
     ApplicationNameFetcher(ApplicationNameCache applicationNameCache)
     {
-        this(applicationNameCache, new RestClient(), new ObjectMapper());
+        this(applicationNameCache, new RestClient(), new ObjectMapper(), SnapshotStore.getInstance());
+    }
+
+    /**
+     * Populates cache with data saved by the last successful fetches.
+     * @return true if snapshot of any endpoint was loaded
+     */
+    boolean loadSnapshot()
+    {
+        EnrichedAppNames[] enrichedAppNamesList = new EnrichedAppNames[] {
+                snapshotStore.read(USER_SNAPSHOT_NAME).map(this::parseAppNames).orElse(null),
+                snapshotStore.read(GLOBAL_SNAPSHOT_NAME).map(this::parseAppNames).orElse(null)
+        };
+        if (enrichedAppNamesList[0] == null && enrichedAppNamesList[1] == null) {
+            return false;
+        }
+
+        EnrichedAppNames mergedAppNames = mergeAppNames(enrichedAppNamesList);
+        lastAppNameHashcode = mergedAppNames.hashCode();
+        cache.populateEnrichedAppNames(mergedAppNames);
+        return true;
     }
 
     @Override
     public void run()
     {
         EnrichedAppNames[] enrichedAppNamesList = new EnrichedAppNames[] {
-                fetchAppNames(TOUCAN_APP_USER_ENDPOINT),
-                fetchAppNames(TOUCAN_APP_GLOBAL_ENDPOINT)
+                fetchAppNames(TOUCAN_APP_USER_ENDPOINT, USER_SNAPSHOT_NAME),
+                fetchAppNames(TOUCAN_APP_GLOBAL_ENDPOINT, GLOBAL_SNAPSHOT_NAME)
         };
 
         EnrichedAppNames mergedAppNames = mergeAppNames(enrichedAppNamesList);
@@ -58,11 +83,13 @@ public class ApplicationNameFetcher
         }
     }
 
-    private EnrichedAppNames fetchAppNames(String endpoint)
+    private EnrichedAppNames fetchAppNames(String endpoint, String snapshotName)
     {
         try {
             String appNamesJson = fetchAppNamesJson(endpoint);
-            return objectMapper.readValue(appNamesJson, EnrichedAppNames.class);
+            EnrichedAppNames appNames = objectMapper.readValue(appNamesJson, EnrichedAppNames.class);
+            snapshotStore.write(snapshotName, appNamesJson);
+            return appNames;
         }
         catch (CacheException | IOException exc) {
             log.error("Problem with application names value update " + exc.getMessage(), exc);
@@ -70,6 +97,17 @@ public class ApplicationNameFetcher
         }
     }
 
+    private EnrichedAppNames parseAppNames(String appNamesJson)
+    {
+        try {
+            return objectMapper.readValue(appNamesJson, EnrichedAppNames.class);
+        }
+        catch (IOException exc) {
+            log.warn(exc, "Application names snapshot couldn't be loaded");
+            return null;
+        }
+    }
+
     private String fetchAppNamesJson(String endpoint)
             throws CacheException
     {
@@ -3,6 +3,7 @@ package co.llective.presto.hyena.enrich.geoip;
 import co.llective.presto.hyena.enrich.rest.RestClient;
 import co.llective.presto.hyena.enrich.rest.RestClientException;
 import co.llective.presto.hyena.enrich.username.CacheException;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import io.airlift.log.Logger;
@@ -16,24 +17,46 @@ public class GeoIpFetcher
     private static final Logger log = Logger.get(GeoIpFetcher.class);
     //TODO: change this to /config/presto or /config/de when we will be dropping drill
     static final String TOUCAN_GEO_IP_ENDPOINT = "http://toucan:3000/config/drill/geoip_enrichment_user";
+    static final String SNAPSHOT_NAME = "geoip_local.json";
 
     private final GeoIpCache geoIpCache;
     private final RestClient restClient;
     private final ObjectMapper objectMapper;
+    private final SnapshotStore snapshotStore;
 
     private int lastLocalGeoIpHashcode;
 
     @VisibleForTesting
-    GeoIpFetcher(GeoIpCache geoIpCache, RestClient restClient, ObjectMapper objectMapper)
+    GeoIpFetcher(GeoIpCache geoIpCache, RestClient restClient, ObjectMapper objectMapper, SnapshotStore snapshotStore)
     {
         this.geoIpCache = geoIpCache;
         this.restClient = restClient;
         this.objectMapper = objectMapper;
+        this.snapshotStore = snapshotStore;
     }
 
     GeoIpFetcher(GeoIpCache geoIpCache)
     {
-        this(geoIpCache, new RestClient(), new ObjectMapper());
+        this(geoIpCache, new RestClient(), new ObjectMapper(), SnapshotStore.getInstance());
+    }
+
+    /**
+     * Populates cache with data saved by the last successful fetch.
+     * @return true if snapshot was loaded
+     */
+    boolean loadSnapshot()
+    {
+        return snapshotStore.read(SNAPSHOT_NAME).map(localGeoIpJson -> {
+            try {
+                geoIpCache.populateLocalGeoIp(deserializeResponseJson(localGeoIpJson));
+                lastLocalGeoIpHashcode = localGeoIpJson.hashCode();
+                return true;
+            }
+            catch (CacheException exc) {
+                log.warn(exc, "Local GeoIp snapshot couldn't be loaded");
+                return false;
+            }
+        }).orElse(false);
     }
 
     @Override
@@ -49,6 +72,7 @@ public class GeoIpFetcher
             List<LocalGeoIpEnrichment> geoIpEnrichments = deserializeResponseJson(localGeoIpJson);
             lastLocalGeoIpHashcode = responseHashcode;
             geoIpCache.populateLocalGeoIp(geoIpEnrichments);
+            snapshotStore.write(SNAPSHOT_NAME, localGeoIpJson);
         }
         catch (Exception exc) {
             log.error("Local GeoIp info from toucan couldn't be populated");
@@ -6,7 +6,6 @@ import com.facebook.presto.spi.function.SqlNullable;
 import com.facebook.presto.spi.function.SqlType;
 import com.facebook.presto.spi.type.StandardTypes;
 import io.airlift.slice.Slice;
-import io.airlift.slice.Slices;
 
 public class GeoIpFunctions
 {
@@ -22,8 +21,7 @@ public class GeoIpFunctions
             @SqlType(U_64) long ip1,
             @SqlType(U_64) long ip2)
     {
-        String city = geoIp.getCountry(ip1, ip2);
-        return city == null ? null : Slices.utf8Slice(city);
+        return geoIp.getCountry(ip1, ip2);
     }
 
     @ScalarFunction("geoip_city")
@@ -33,8 +31,7 @@ public class GeoIpFunctions
             @SqlType(U_64) long ip1,
             @SqlType(U_64) long ip2)
     {
-        String country = geoIp.getCity(ip1, ip2);
-        return country == null ? null : Slices.utf8Slice(country);
+        return geoIp.getCity(ip1, ip2);
     }
 
     @ScalarFunction("geoip_latitude")
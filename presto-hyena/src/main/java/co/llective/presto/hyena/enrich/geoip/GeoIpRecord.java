@@ -0,0 +1,118 @@
+package co.llective.presto.hyena.enrich.geoip;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import java.util.Objects;
+
+/**
+ * All geo attributes of an address, resolved with a single lookup.
+ * Names are kept already encoded, so cached records can be returned by functions as they are.
+ */
+final class GeoIpRecord
+{
+    private static final String LOCALE = "en";
+    // whole networks (and often many networks) point to the same MaxMind record,
+    // so addresses resolved to equal records share one instance in the cache
+    private static final Interner<GeoIpRecord> RECORDS = Interners.newWeakInterner();
+
+    private final Slice city;
+    private final Slice country;
+    private final Double latitude;
+    private final Double longitude;
+
+    GeoIpRecord(Slice city, Slice country, Double latitude, Double longitude)
+    {
+        this.city = city;
+        this.country = country;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    static GeoIpRecord fromLocal(LocalGeoIpEnrichment enrichment)
+    {
+        return new GeoIpRecord(
+                toSlice(enrichment.getCity()),
+                toSlice(enrichment.getCountry()),
+                enrichment.getLat(),
+                enrichment.getLon());
+    }
+
+    /**
+     * @param record raw record of GeoLite2 City database
+     * @return record with attributes found in given one or null if there is no record
+     */
+    static GeoIpRecord fromMaxMind(JsonNode record)
+    {
+        if (record == null) {
+            return null;
+        }
+        JsonNode location = record.path("location");
+        return RECORDS.intern(new GeoIpRecord(
+                name(record.path("city")),
+                name(record.path("country")),
+                number(location.path("latitude")),
+                number(location.path("longitude"))));
+    }
+
+    private static Slice name(JsonNode place)
+    {
+        JsonNode name = place.path("names").path(LOCALE);
+        return name.isTextual() ? Slices.utf8Slice(name.textValue()) : null;
+    }
+
+    private static Double number(JsonNode value)
+    {
+        return value.isNumber() ? value.doubleValue() : null;
+    }
+
+    private static Slice toSlice(String value)
+    {
+        return value == null ? null : Slices.utf8Slice(value);
+    }
+
+    Slice getCity()
+    {
+        return city;
+    }
+
+    Slice getCountry()
+    {
+        return country;
+    }
+
+    Double getLatitude()
+    {
+        return latitude;
+    }
+
+    Double getLongitude()
+    {
+        return longitude;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GeoIpRecord that = (GeoIpRecord) o;
+        return Objects.equals(city, that.city) &&
+                Objects.equals(country, that.country) &&
+                Objects.equals(latitude, that.latitude) &&
+                Objects.equals(longitude, that.longitude);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(city, country, latitude, longitude);
+    }
+}
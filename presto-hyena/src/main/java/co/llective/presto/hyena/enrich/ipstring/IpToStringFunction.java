@@ -1,5 +1,6 @@
 package co.llective.presto.hyena.enrich.ipstring;
 
+import co.llective.presto.hyena.enrich.util.IpCache;
 import co.llective.presto.hyena.enrich.util.IpUtil;
 import co.llective.presto.hyena.types.U64Type;
 import com.facebook.presto.spi.function.ScalarFunction;
@@ -13,15 +14,20 @@ import io.airlift.slice.Slices;
 public class IpToStringFunction
 {
     private static final String U_64 = U64Type.U_64_NAME;
+    private static final int CACHE_SIZE = 1 << 16;
     private IpToStringFunction() {}
 
+    // formatting of an address never changes, so encoded strings can be kept for all repeated addresses
+    private static final IpCache<Slice> ipStrings = new IpCache<Slice>(CACHE_SIZE).exportStats("ip_to_str");
+    private static final IpCache.IpValueLoader<Slice> ipStringLoader = (ip1, ip2) ->
+            Slices.utf8Slice(new IpUtil.IpPair(ip1, ip2).toString());
+
     @SqlType(StandardTypes.VARCHAR)
     @SqlNullable
     public static Slice ipToString(
             @SqlType(U_64) long ip1,
             @SqlType(U_64) long ip2)
     {
-        IpUtil.IpPair ip = new IpUtil.IpPair(ip1, ip2);
-        return Slices.utf8Slice(ip.toString());
+        return ipStrings.get(ip1, ip2, ipStringLoader);
     }
 }
@@ -6,7 +6,6 @@ import com.facebook.presto.spi.function.SqlNullable;
 import com.facebook.presto.spi.function.SqlType;
 import com.facebook.presto.spi.type.StandardTypes;
 import io.airlift.slice.Slice;
-import io.airlift.slice.Slices;
 
 @ScalarFunction("ip_name")
 public class IpNameFunction
@@ -22,7 +21,6 @@ public class IpNameFunction
             @SqlType(U_64) long ip1,
             @SqlType(U_64) long ip2)
     {
-        String name = topdiscoProvider.getIpName(ip1, ip2);
-        return name == null ? null : Slices.utf8Slice(name);
+        return topdiscoProvider.getIpNameSlice(ip1, ip2);
     }
 }
@@ -6,7 +6,6 @@ import com.facebook.presto.spi.function.SqlNullable;
 import com.facebook.presto.spi.function.SqlType;
 import com.facebook.presto.spi.type.StandardTypes;
 import io.airlift.slice.Slice;
-import io.airlift.slice.Slices;
 
 @ScalarFunction("router_name")
 public class RouterNameFunction
@@ -22,7 +21,6 @@ public class RouterNameFunction
             @SqlType(U_64) long ip1,
             @SqlType(U_64) long ip2)
     {
-        String routerName = topdiscoProvider.getRouterName(ip1, ip2);
-        return routerName == null ? null : Slices.utf8Slice(routerName);
+        return topdiscoProvider.getRouterNameSlice(ip1, ip2);
     }
 }
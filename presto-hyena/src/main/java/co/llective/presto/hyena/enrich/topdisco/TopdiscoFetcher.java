@@ -1,5 +1,6 @@
 package co.llective.presto.hyena.enrich.topdisco;
 
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
@@ -44,8 +45,10 @@ public class TopdiscoFetcher
             "             interfaces.col AS \"interfaces\"\n" +
             "      FROM ips,\n" +
             "           interfaces) r";
+    static final String SNAPSHOT_NAME = "topdisco.json";
     private final TopdiscoProvider topdiscoProvider;
     private final ObjectMapper objectMapper;
+    private final SnapshotStore snapshotStore;
     private int lastResponseHash;
 
     static {
@@ -60,14 +63,32 @@ public class TopdiscoFetcher
 
     TopdiscoFetcher(TopdiscoProvider topdiscoProvider)
     {
-        this(topdiscoProvider, new ObjectMapper());
+        this(topdiscoProvider, new ObjectMapper(), SnapshotStore.getInstance());
     }
 
     @VisibleForTesting
-    TopdiscoFetcher(TopdiscoProvider topdiscoProvider, ObjectMapper objectMapper)
+    TopdiscoFetcher(TopdiscoProvider topdiscoProvider, ObjectMapper objectMapper, SnapshotStore snapshotStore)
     {
         this.topdiscoProvider = topdiscoProvider;
         this.objectMapper = objectMapper;
+        this.snapshotStore = snapshotStore;
+    }
+
+    /**
+     * Populates provider with data saved by the last successful fetch.
+     * @return true if snapshot was loaded
+     */
+    boolean loadSnapshot()
+    {
+        return snapshotStore.read(SNAPSHOT_NAME).map(response -> {
+            TopdiscoEnrichment deserializedResponse = parseData(response);
+            if (deserializedResponse == null) {
+                return false;
+            }
+            topdiscoProvider.populateTopdiscoData(deserializedResponse);
+            lastResponseHash = response.hashCode();
+            return true;
+        }).orElse(false);
     }
 
     @Override
@@ -88,6 +109,7 @@ public class TopdiscoFetcher
             if (deserializedResponse != null) {
                 lastResponseHash = response.hashCode();
                 topdiscoProvider.populateTopdiscoData(deserializedResponse);
+                snapshotStore.write(SNAPSHOT_NAME, response);
             }
         }
         catch (Exception exc) {
@@ -1,39 +1,49 @@
 package co.llective.presto.hyena.enrich.topdisco;
 
+import co.llective.presto.hyena.enrich.util.IpCache;
+import co.llective.presto.hyena.enrich.util.IpMap;
 import co.llective.presto.hyena.enrich.util.IpUtil;
-import co.llective.presto.hyena.enrich.util.SoftCache;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.log.Logger;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
 
-import java.lang.ref.SoftReference;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 class TopdiscoProvider
 {
     private static final Logger log = Logger.get(TopdiscoProvider.class);
     private static final ScheduledExecutorService SCHEDULED_THREAD = Executors.newSingleThreadScheduledExecutor();
     private static final int RELOAD_PERIOD_MIN = 15;
-
-    private final Map<Long, String> ipv4Names = new HashMap<>();
-    private final Map<Long, Map<Long, String>> ipv6Names = new HashMap<>();
-    private final Map<Long, String> ipv4RouterNames = new HashMap<>();
-    private final Map<Long, Map<Long, String>> ipv6RouterNames = new HashMap<>();
-    private final Map<Long, Map<Integer, String>> ipv4InterfaceNames = new HashMap<>();
-    private final Map<Long, Map<Long, Map<Integer, String>>> ipv6InterfaceNames = new HashMap<>();
-    private final SoftCache<String> ipStrings = new SoftCache<>();
-    private SoftReference<Map<Integer, String>> interfaceNames = new SoftReference<>(null);
+    private static final int IP_STRINGS_CACHE_SIZE = 1 << 16;
+    private static final int NAME_SLICES_CACHE_SIZE = 1 << 16;
+    private static final String[] INTERFACE_STRINGS = IntStream.range(0, 1024).mapToObj(Integer::toString).toArray(String[]::new);
+
+    // rebuilt on every update and swapped at once, so readers always see complete data
+    private volatile TopdiscoData data = TopdiscoData.EMPTY;
+    private final IpCache<String> ipStrings = new IpCache<String>(IP_STRINGS_CACHE_SIZE).exportStats("ip_string");
+    // encoded results of functions, so every distinct address is resolved and encoded only once
+    private final IpCache<Slice> ipNameSlices = new IpCache<Slice>(NAME_SLICES_CACHE_SIZE).exportStats("ip_name");
+    private final IpCache<Slice> routerNameSlices = new IpCache<Slice>(NAME_SLICES_CACHE_SIZE).exportStats("router_name");
+    private final IpCache.IpValueLoader<Slice> ipNameLoader = (ip1, ip2) -> Slices.utf8Slice(getIpName(ip1, ip2));
+    private final IpCache.IpValueLoader<Slice> routerNameLoader = (ip1, ip2) -> Slices.utf8Slice(getRouterName(ip1, ip2));
 
     private TopdiscoProvider()
     {
         log.info("Scheduling topdisco enrichment data updated. Reload period " + RELOAD_PERIOD_MIN);
+        TopdiscoFetcher fetcher = new TopdiscoFetcher(this);
+        boolean snapshotLoaded = fetcher.loadSnapshot();
         SCHEDULED_THREAD.scheduleAtFixedRate(
-                new TopdiscoFetcher(this),
-                0,
-                RELOAD_PERIOD_MIN,
-                TimeUnit.MINUTES);
+                fetcher,
+                SnapshotStore.getInitialFetchDelaySeconds(snapshotLoaded),
+                TimeUnit.MINUTES.toSeconds(RELOAD_PERIOD_MIN),
+                TimeUnit.SECONDS);
     }
 
     private static class LazyHolder
@@ -46,16 +56,6 @@ class TopdiscoProvider
         return LazyHolder.INSTANCE;
     }
 
-    private void clear()
-    {
-        ipv4Names.clear();
-        ipv6Names.clear();
-        ipv4RouterNames.clear();
-        ipv6RouterNames.clear();
-        ipv4InterfaceNames.clear();
-        ipv6InterfaceNames.clear();
-    }
-
     void populateTopdiscoData(TopdiscoEnrichment deserializedResponse)
     {
         int ipsLength = deserializedResponse.getIps() == null ? 0 : deserializedResponse.getIps().size();
@@ -63,149 +63,135 @@ class TopdiscoProvider
         log.info("Updating topdisco ip enrichment with: " +
                 ipsLength + " ips and " + interfacesLength + " interfaces");
 
-        clear();
+        TopdiscoData.Builder builder = new TopdiscoData.Builder();
 
         if (deserializedResponse.getIps() != null) {
             for (TopdiscoEnrichment.Ip entity : deserializedResponse.getIps()) {
-                populateIpEntity(entity);
+                populateIpEntity(builder, entity);
             }
         }
 
         if (deserializedResponse.getInterfaces() != null) {
             for (TopdiscoEnrichment.Interface entity : deserializedResponse.getInterfaces()) {
-                populateInterfaceEntity(entity);
+                populateInterfaceEntity(builder, entity);
             }
         }
+
+        data = builder.build();
+
+        ipNameSlices.clear();
+        routerNameSlices.clear();
     }
 
-    private void populateIpEntity(TopdiscoEnrichment.Ip entity)
+    private void populateIpEntity(TopdiscoData.Builder builder, TopdiscoEnrichment.Ip entity)
     {
         IpUtil.IpPair ip = IpUtil.parseIp(entity.getIp());
         if (ip == null) {
             log.warn("Unknown ip from Topdisco ip enrichment received: " + entity.getIp());
             return;
         }
-        populateIpEntityName(entity, ip);
-        populateIpEntityRouterName(entity, ip);
-    }
-
-    private void populateIpEntityName(TopdiscoEnrichment.Ip entity, IpUtil.IpPair ip)
-    {
-        if (ip.isIp4()) {
-            ipv4Names.put(ip.getLowBits(), entity.getName());
-        }
-        else {
-            Map<Long, String> submap = ipv6Names.computeIfAbsent(ip.getHighBits(), k -> new HashMap<>());
-            submap.put(ip.getLowBits(), entity.getName());
-        }
-    }
-
-    private void populateIpEntityRouterName(TopdiscoEnrichment.Ip entity, IpUtil.IpPair ip)
-    {
-        // only entryType 0 (snmp from device table) and 1 (dns names) are taken
-        if (entity.getEntryType() >= 2) {
+        if (entity.getName() == null) {
+            // address is used as the name anyway
             return;
         }
-
-        if (ip.isIp4()) {
-            ipv4RouterNames.put(ip.getLowBits(), entity.getName());
-        }
-        else {
-            Map<Long, String> submap = ipv6RouterNames.computeIfAbsent(ip.getHighBits(), k -> new HashMap<>());
-            submap.put(ip.getLowBits(), entity.getName());
+        builder.ipNames.put(ip.getHighBits(), ip.getLowBits(), entity.getName());
+        // only entryType 0 (snmp from device table) and 1 (dns names) are taken
+        if (entity.getEntryType() < 2) {
+            builder.routerNames.put(ip.getHighBits(), ip.getLowBits(), entity.getName());
         }
     }
 
-    private void populateInterfaceEntity(TopdiscoEnrichment.Interface entity)
+    private void populateInterfaceEntity(TopdiscoData.Builder builder, TopdiscoEnrichment.Interface entity)
     {
         String port = entity.getPort();
         int index = entity.getIndex();
-        for (String ip : entity.getIps()) {
-            populateInterface(port, index, ip);
-        }
-    }
-
-    private void populateInterface(String port, int index, String ip)
-    {
-        IpUtil.IpPair ipPair = IpUtil.parseIp(ip);
-        if (ipPair == null) {
-            log.warn("Unknown ip from Topdisco ip enrichment received: " + ip);
+        if (port == null) {
             return;
         }
-
-        Map<Long, Map<Integer, String>> lowBitsMap;
-        if (ipPair.isIp4()) {
-            lowBitsMap = ipv4InterfaceNames;
-        }
-        else {
-            lowBitsMap = ipv6InterfaceNames.computeIfAbsent(ipPair.getHighBits(), k -> new HashMap<>());
+        for (String ip : entity.getIps()) {
+            IpUtil.IpPair ipPair = IpUtil.parseIp(ip);
+            if (ipPair == null) {
+                log.warn("Unknown ip from Topdisco ip enrichment received: " + ip);
+                continue;
+            }
+            builder.interfaceNames.computeIfAbsent(ipPair, k -> new HashMap<>()).put(index, port);
         }
-
-        Map<Integer, String> interfacesMap = lowBitsMap.computeIfAbsent(ipPair.getLowBits(), k -> new HashMap<>());
-        interfacesMap.put(index, port);
     }
 
     private String getIpStr(long ip1, long ip2)
     {
-        String str = ipStrings.get(ip1, ip2);
-        if (str == null) {
-            str = new IpUtil.IpPair(ip1, ip2).toString();
-            ipStrings.put(ip1, ip2, str);
-        }
-        return str;
+        return ipStrings.get(ip1, ip2, (high, low) -> new IpUtil.IpPair(high, low).toString());
     }
 
-    private String getInterfaceStr(int interfaceNumber)
+    private static String getInterfaceStr(int interfaceNumber)
     {
-        Map<Integer, String> ref = interfaceNames.get();
-        if (ref == null) {
-            ref = new HashMap<>();
-            interfaceNames = new SoftReference<>(ref);
-        }
-        String str = ref.get(interfaceNumber);
-        if (str == null) {
-            str = Integer.toString(interfaceNumber);
-            ref.put(interfaceNumber, str);
+        if (interfaceNumber >= 0 && interfaceNumber < INTERFACE_STRINGS.length) {
+            return INTERFACE_STRINGS[interfaceNumber];
         }
-        return str;
+        return Integer.toString(interfaceNumber);
     }
 
     String getRouterName(long ip1, long ip2)
     {
-        String name;
-        if (ip1 == IpUtil.WKP) {
-            name = ipv4RouterNames.get(ip2);
-        }
-        else {
-            Map<Long, String> submap = ipv6RouterNames.get(ip1);
-            name = submap == null ? null : submap.get(ip2);
-        }
+        String name = data.routerNames.get(ip1, ip2);
         return name == null ? getIpStr(ip1, ip2) : name;
     }
 
+    Slice getRouterNameSlice(long ip1, long ip2)
+    {
+        return routerNameSlices.get(ip1, ip2, routerNameLoader);
+    }
+
     String getInterfaceName(long ip1, long ip2, int interfaceNo)
     {
-        String name = null;
-        Map<Long, Map<Integer, String>> ip4Map = ip1 == IpUtil.WKP ? ipv4InterfaceNames : ipv6InterfaceNames.get(ip1);
-        if (ip4Map != null) {
-            Map<Integer, String> interfacesMap = ip4Map.get(ip2);
-            if (interfacesMap != null) {
-                name = interfacesMap.get(interfaceNo);
-            }
-        }
+        Map<Integer, String> interfacesMap = data.interfaceNames.get(ip1, ip2);
+        String name = interfacesMap == null ? null : interfacesMap.get(interfaceNo);
         return name == null ? getInterfaceStr(interfaceNo) : name;
     }
 
     String getIpName(long ip1, long ip2)
     {
-        String name;
-        if (ip1 == IpUtil.WKP) {
-            name = ipv4Names.get(ip2);
-        }
-        else {
-            Map<Long, String> submap = ipv6Names.get(ip1);
-            name = submap == null ? null : submap.get(ip2);
-        }
+        String name = data.ipNames.get(ip1, ip2);
         return name == null ? getIpStr(ip1, ip2) : name;
     }
+
+    Slice getIpNameSlice(long ip1, long ip2)
+    {
+        return ipNameSlices.get(ip1, ip2, ipNameLoader);
+    }
+
+    /**
+     * Immutable snapshot of topdisco enrichment data.
+     */
+    private static class TopdiscoData
+    {
+        static final TopdiscoData EMPTY = new Builder().build();
+
+        final IpMap<String> ipNames;
+        final IpMap<String> routerNames;
+        final IpMap<Map<Integer, String>> interfaceNames;
+
+        TopdiscoData(IpMap<String> ipNames, IpMap<String> routerNames, IpMap<Map<Integer, String>> interfaceNames)
+        {
+            this.ipNames = ipNames;
+            this.routerNames = routerNames;
+            this.interfaceNames = interfaceNames;
+        }
+
+        static class Builder
+        {
+            final IpMap.Builder<String> ipNames = IpMap.builder();
+            final IpMap.Builder<String> routerNames = IpMap.builder();
+            final Map<IpUtil.IpPair, Map<Integer, String>> interfaceNames = new HashMap<>();
+
+            TopdiscoData build()
+            {
+                IpMap.Builder<Map<Integer, String>> interfaces = IpMap.builder();
+                for (Map.Entry<IpUtil.IpPair, Map<Integer, String>> entry : interfaceNames.entrySet()) {
+                    interfaces.put(entry.getKey().getHighBits(), entry.getKey().getLowBits(), ImmutableMap.copyOf(entry.getValue()));
+                }
+                return new TopdiscoData(ipNames.build(), routerNames.build(), interfaces.build());
+            }
+        }
+    }
 }
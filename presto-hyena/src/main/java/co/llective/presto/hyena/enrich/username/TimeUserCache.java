@@ -1,21 +1,54 @@
 package co.llective.presto.hyena.enrich.username;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Longs;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Cache for time ranges and related to them user names.
+ * Ranges are kept in primitive arrays, user names are expected to be interned
+ * so the same user is shared between all of its ranges.
  */
 public class TimeUserCache
 {
+    private static final int INITIAL_CAPACITY = 4;
+
     /**
-     * Timestamps contain next timestamps. Corresponding index in users list contains username
+     * Timestamps contain next timestamps. Corresponding index in users array contains username
      * which match to time period started by matching timestamp.
      */
-    private final List<Long> timestamps = new ArrayList<>();
-    private final List<String> users = new ArrayList<>();
+    private long[] timestamps;
+    private String[] users;
+    private int size;
+
+    public TimeUserCache()
+    {
+        this(new long[INITIAL_CAPACITY], new String[INITIAL_CAPACITY], 0);
+    }
+
+    @VisibleForTesting
+    TimeUserCache(long[] timestamps, String[] users)
+    {
+        this(Arrays.copyOf(timestamps, timestamps.length), Arrays.copyOf(users, users.length), timestamps.length);
+        verifyLengthOfArrays(timestamps.length, users.length);
+    }
+
+    private TimeUserCache(long[] timestamps, String[] users, int size)
+    {
+        this.timestamps = timestamps;
+        this.users = users;
+        this.size = size;
+    }
+
+    /**
+     * @return independent copy of the cache, which can be modified without affecting this one
+     */
+    public TimeUserCache copy()
+    {
+        return new TimeUserCache(Arrays.copyOf(timestamps, size), Arrays.copyOf(users, size), size);
+    }
 
     /**
      * Gets user name for given timestamp.
@@ -26,14 +59,13 @@ public class TimeUserCache
      */
     public String getUser(long timestamp)
     {
-        if (timestamps.isEmpty()) {
+        if (size == 0) {
             return null;
         }
-        if (timestamp > timestamps.get(timestamps.size() - 1)) {
+        if (timestamp > timestamps[size - 1]) {
             return null;
         }
-        int index = timestampBisect(timestamp, 0, timestamps.size() - 1);
-        return users.get(index);
+        return users[timestampBisect(timestamp)];
     }
 
     /**
@@ -46,19 +78,19 @@ public class TimeUserCache
      */
     public void addNextUser(long startTs, long endTs, String userName)
     {
-        if (timestamps.isEmpty()) {
+        if (size == 0) {
             addNewRange(startTs, endTs, userName);
         }
         else {
-            int lastTsIndex = timestamps.size() - 1;
-            long lastTimestamp = timestamps.get(lastTsIndex);
+            int lastTsIndex = size - 1;
+            long lastTimestamp = timestamps[lastTsIndex];
             if (lastTimestamp < startTs) {
                 addNewRange(startTs, endTs, userName);
             }
             else if (lastTimestamp == startTs) {
                 addToExistingRange(endTs, userName, lastTsIndex);
             }
-            else if (lastTimestamp > startTs && startTs >= timestamps.get(lastTsIndex - 1)) {
+            else if (lastTimestamp > startTs && startTs >= timestamps[lastTsIndex - 1]) {
                 updateLastBucket(startTs, endTs, userName, lastTsIndex);
             }
             else {
@@ -66,85 +98,96 @@ public class TimeUserCache
                         "Cache entry is not the newest one. Cannot update cache.");
             }
         }
-        verifyLengthOfLists();
     }
 
     private void addToExistingRange(long endTs, String userName, int lastTsIndex)
     {
-        timestamps.add(endTs);
-        users.set(lastTsIndex, userName);
-        users.add(null);
+        users[lastTsIndex] = userName;
+        append(endTs, null);
     }
 
     private void updateLastBucket(long startTs, long endTs, String userName, int lastTsIndex)
     {
-        Long lastStartTs = timestamps.get(lastTsIndex - 1);
-        Long lastEndTs = timestamps.get(lastTsIndex);
+        long lastStartTs = timestamps[lastTsIndex - 1];
+        long lastEndTs = timestamps[lastTsIndex];
 
         if (lastStartTs < startTs) {
             // new start is last end now
-            timestamps.set(lastTsIndex, startTs);
+            timestamps[lastTsIndex] = startTs;
             lastEndTs = startTs;
         }
 
         if (lastEndTs < endTs) {
             // if last inserted timestamp is smaller then provided
             // then add next bucket
-            timestamps.add(endTs);
-            users.set(lastTsIndex, userName);
-            users.add(null);
+            users[lastTsIndex] = userName;
+            append(endTs, null);
         }
         else if (lastEndTs > endTs) {
             // if last inserted timestamp is bigger then provided then update entry (e.g. time
             // from future or constant added on the end of last entry)
-            timestamps.set(lastTsIndex, endTs);
-            users.set(lastTsIndex - 1, userName);
+            timestamps[lastTsIndex] = endTs;
+            users[lastTsIndex - 1] = userName;
         }
         else if (lastEndTs == endTs) {
             // if for some case bucket matches update name
-            users.set(lastTsIndex - 1, userName);
+            users[lastTsIndex - 1] = userName;
         }
     }
 
     private void addNewRange(long startTs, long endTs, String userName)
     {
-        timestamps.add(startTs);
-        users.add(userName);
-        timestamps.add(endTs);
-        users.add(null);
+        append(startTs, userName);
+        append(endTs, null);
     }
 
-    private void verifyLengthOfLists()
+    private void append(long timestamp, String userName)
     {
-        if (timestamps.size() != users.size()) {
-            throw new IllegalStateException("Cache lists are not consistent");
+        if (size == timestamps.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            users = Arrays.copyOf(users, capacity);
         }
+        timestamps[size] = timestamp;
+        users[size] = userName;
+        size++;
     }
 
-    private int timestampBisect(long timestamp, int minIndex, int maxIndex)
+    private static void verifyLengthOfArrays(int timestampsLength, int usersLength)
     {
-        if (maxIndex - minIndex <= 1) {
-            return minIndex;
+        if (timestampsLength != usersLength) {
+            throw new IllegalStateException("Cache lists are not consistent");
         }
+    }
 
-        int middleIndex = minIndex + (maxIndex - minIndex) / 2;
-        if (timestamps.get(middleIndex) > timestamp) {
-            return timestampBisect(timestamp, minIndex, middleIndex);
-        }
-        else {
-            return timestampBisect(timestamp, middleIndex, maxIndex);
+    /**
+     * @return index of the last timestamp not greater than given one (or of the first one, if all are greater)
+     */
+    private int timestampBisect(long timestamp)
+    {
+        int minIndex = 0;
+        int maxIndex = size - 1;
+        while (maxIndex - minIndex > 1) {
+            int middleIndex = minIndex + (maxIndex - minIndex) / 2;
+            if (timestamps[middleIndex] > timestamp) {
+                maxIndex = middleIndex;
+            }
+            else {
+                minIndex = middleIndex;
+            }
         }
+        return minIndex;
     }
 
     @VisibleForTesting
     List<Long> getTimestamps()
     {
-        return timestamps;
+        return Longs.asList(Arrays.copyOf(timestamps, size));
     }
 
     @VisibleForTesting
     List<String> getUsers()
     {
-        return users;
+        return Arrays.asList(Arrays.copyOf(users, size));
     }
 }
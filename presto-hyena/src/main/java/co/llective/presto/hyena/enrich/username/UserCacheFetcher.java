@@ -2,6 +2,7 @@ package co.llective.presto.hyena.enrich.username;
 
 import co.llective.presto.hyena.enrich.rest.RestClient;
 import co.llective.presto.hyena.enrich.rest.RestClientException;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import io.airlift.log.Logger;
@@ -14,47 +15,121 @@ public class UserCacheFetcher
 {
     private static final Logger log = Logger.get(UserCacheFetcher.class);
     private static final String DE_ENDPOINT = "http://data-enrichment:8888/ip-user";
+    static final String SNAPSHOT_NAME = "ip_user.json";
+    // incremental updates don't remove entries deleted in data enrichment, so whole data is reloaded from time to time
+    @VisibleForTesting static final int FULL_REFRESH_PERIOD_RUNS = 12;
 
     private final UserNameCache cache;
     private final RestClient restClient;
     private final ObjectMapper objectMapper;
+    private final SnapshotStore snapshotStore;
 
     private int lastUserCacheHashcode;
+    // start of the newest range in cache, next fetches ask only for ranges starting since then
+    private Long lastSyncTimestamp;
+    private int runsSinceFullRefresh;
 
     @VisibleForTesting
-    UserCacheFetcher(UserNameCache cache, RestClient restClient, ObjectMapper objectMapper)
+    UserCacheFetcher(UserNameCache cache, RestClient restClient, ObjectMapper objectMapper, SnapshotStore snapshotStore)
     {
         this.cache = cache;
         this.restClient = restClient;
         this.objectMapper = objectMapper;
+        this.snapshotStore = snapshotStore;
     }
 
     UserCacheFetcher(UserNameCache cache)
     {
-        this(cache, new RestClient(), new ObjectMapper());
+        this(cache, new RestClient(), new ObjectMapper(), SnapshotStore.getInstance());
+    }
+
+    /**
+     * Populates cache with data saved by the last successful full fetch.
+     * Following runs fetch only ranges newer than the ones in snapshot.
+     * @return true if snapshot was loaded
+     */
+    boolean loadSnapshot()
+    {
+        return snapshotStore.read(SNAPSHOT_NAME).map(enrichedJson -> {
+            try {
+                List<EnrichedUser> enrichedUsers = deserializeResponseJson(enrichedJson);
+                cache.populateEnrichedUsers(enrichedUsers);
+                lastUserCacheHashcode = enrichedJson.hashCode();
+                lastSyncTimestamp = getNewestStartTs(enrichedUsers, null);
+                return true;
+            }
+            catch (CacheException exc) {
+                log.warn(exc, "User enrichment snapshot couldn't be loaded");
+                return false;
+            }
+        }).orElse(false);
     }
 
     @Override
     public void run()
     {
         try {
-            //TODO: add logic for fetching only newest data (pass timestamp)
-            String enrichedJson = fetchEnrichedJson();
-            int enrichedHashcode = enrichedJson.hashCode();
-            if (enrichedHashcode == lastUserCacheHashcode) {
-                log.debug("No new data for enrichment");
-                return;
+            if (lastSyncTimestamp == null || runsSinceFullRefresh >= FULL_REFRESH_PERIOD_RUNS) {
+                refreshAll();
+            }
+            else {
+                refreshNewest();
             }
-            List<EnrichedUser> enrichedUsers = deserializeResponseJson(enrichedJson);
-            lastUserCacheHashcode = enrichedHashcode;
-            log.debug("Populating " + enrichedUsers.size() + " users into cache");
-            cache.populateEnrichedUsers(enrichedUsers);
         }
         catch (CacheException exc) {
             log.error("Cache couldn't be populated: %s", exc.getMessage());
         }
     }
 
+    private void refreshAll() throws CacheException
+    {
+        String enrichedJson = fetchEnrichedJson();
+        int enrichedHashcode = enrichedJson.hashCode();
+        runsSinceFullRefresh = 0;
+        if (enrichedHashcode == lastUserCacheHashcode) {
+            log.debug("No new data for enrichment");
+            return;
+        }
+        List<EnrichedUser> enrichedUsers = deserializeResponseJson(enrichedJson);
+        lastUserCacheHashcode = enrichedHashcode;
+        log.debug("Populating " + enrichedUsers.size() + " users into cache");
+        cache.populateEnrichedUsers(enrichedUsers);
+        lastSyncTimestamp = getNewestStartTs(enrichedUsers, null);
+        snapshotStore.write(SNAPSHOT_NAME, enrichedJson);
+    }
+
+    private void refreshNewest() throws CacheException
+    {
+        List<EnrichedUser> enrichedUsers = deserializeResponseJson(fetchEnrichedJson(lastSyncTimestamp));
+        runsSinceFullRefresh++;
+        if (enrichedUsers.isEmpty()) {
+            log.debug("No new data for enrichment");
+            return;
+        }
+        try {
+            log.debug("Updating cache with " + enrichedUsers.size() + " users");
+            cache.updateEnrichedUsers(enrichedUsers);
+            lastSyncTimestamp = getNewestStartTs(enrichedUsers, lastSyncTimestamp);
+            // cache content doesn't match any full response anymore
+            lastUserCacheHashcode = 0;
+        }
+        catch (IllegalArgumentException exc) {
+            lastSyncTimestamp = null;
+            throw new CacheException("Incremental update is inconsistent with cache, whole cache will be reloaded", exc);
+        }
+    }
+
+    private static Long getNewestStartTs(List<EnrichedUser> enrichedUsers, Long current)
+    {
+        Long newest = current;
+        for (EnrichedUser enrichedUser : enrichedUsers) {
+            if (newest == null || enrichedUser.getStartTs() > newest) {
+                newest = enrichedUser.getStartTs();
+            }
+        }
+        return newest;
+    }
+
     private String fetchEnrichedJson() throws CacheException
     {
         return fetchEnrichedJson(null);
@@ -96,4 +171,10 @@ public class UserCacheFetcher
     {
         return lastUserCacheHashcode;
     }
+
+    @VisibleForTesting
+    Long getLastSyncTimestamp()
+    {
+        return lastSyncTimestamp;
+    }
 }
@@ -1,6 +1,6 @@
 package co.llective.presto.hyena.enrich.username;
 
-import co.llective.presto.hyena.enrich.util.TimedIpCache;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import io.airlift.log.Logger;
 
 import java.util.Comparator;
@@ -15,16 +15,19 @@ class UserNameCache
     private static final ScheduledExecutorService SCHEDULED_THREAD = Executors.newSingleThreadScheduledExecutor();
     private static final int RELOAD_PERIOD_MIN = 5;
 
-    private TimedIpCache<String> userNameCache = new UserTimedIpCache();
+    // replaced only with fully populated cache, so readers never see it half filled
+    private volatile UserTimedIpCache userNameCache = new UserTimedIpCache();
 
     private UserNameCache()
     {
         log.info("Scheduling user name enrichment updater. Reload period " + RELOAD_PERIOD_MIN + " minutes");
+        UserCacheFetcher fetcher = new UserCacheFetcher(this);
+        boolean snapshotLoaded = fetcher.loadSnapshot();
         SCHEDULED_THREAD.scheduleAtFixedRate(
-                new UserCacheFetcher(this),
-                0,
-                RELOAD_PERIOD_MIN,
-                TimeUnit.MINUTES);
+                fetcher,
+                SnapshotStore.getInitialFetchDelaySeconds(snapshotLoaded),
+                TimeUnit.MINUTES.toSeconds(RELOAD_PERIOD_MIN),
+                TimeUnit.SECONDS);
     }
 
     private static class LazyHolder
@@ -39,11 +42,22 @@ class UserNameCache
 
     void populateEnrichedUsers(List<EnrichedUser> enrichedUsers)
     {
-        userNameCache = new UserTimedIpCache();
-        populateCache(userNameCache, enrichedUsers);
+        UserTimedIpCache newCache = new UserTimedIpCache();
+        populateCache(newCache, enrichedUsers);
+        userNameCache = newCache;
     }
 
-    private void populateCache(TimedIpCache<String> cache, List<EnrichedUser> enrichedUsers)
+    /**
+     * Applies ranges newer than the ones already cached.
+     * @throws IllegalArgumentException when ranges are older than cached ones, cache stays unchanged then
+     */
+    void updateEnrichedUsers(List<EnrichedUser> enrichedUsers)
+    {
+        enrichedUsers.sort(Comparator.comparing(EnrichedUser::getStartTs));
+        userNameCache.update(enrichedUsers);
+    }
+
+    private void populateCache(UserTimedIpCache cache, List<EnrichedUser> enrichedUsers)
     {
         // TODO: benchmark sorting
         enrichedUsers.sort(Comparator.comparing(EnrichedUser::getStartTs));
@@ -1,10 +1,15 @@
 package co.llective.presto.hyena.enrich.username;
 
+import co.llective.presto.hyena.enrich.util.IpUtil;
 import co.llective.presto.hyena.enrich.util.TimedIpCache;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Cache responsible for storing ip-user relations in time.
@@ -12,7 +17,10 @@ import java.util.Map;
 public class UserTimedIpCache
         implements TimedIpCache<String>
 {
-    private Map<Long, Map<Long, TimeUserCache>> cache = new HashMap<>();
+    // the same users appear in many ranges, so only one instance of every name is kept
+    private static final Interner<String> USER_NAMES = Interners.newWeakInterner();
+
+    private Map<Long, Map<Long, TimeUserCache>> cache = new ConcurrentHashMap<>();
 
     @Override
     public String get(long ip1, long ip2, long timestamp)
@@ -28,12 +36,48 @@ public class UserTimedIpCache
         return timedUserCache.getUser(timestamp);
     }
 
+    /**
+     * Adds range directly to the cache. Must not be used when cache is already read by other threads.
+     */
     @Override
     public void put(long ip1, long ip2, long startTs, long endTs, String userName)
     {
-        Map<Long, TimeUserCache> ip1Cache = cache.computeIfAbsent(ip1, k -> new HashMap<>());
+        Map<Long, TimeUserCache> ip1Cache = cache.computeIfAbsent(ip1, k -> new ConcurrentHashMap<>());
         TimeUserCache timedUserCache = ip1Cache.computeIfAbsent(ip2, k -> new TimeUserCache());
-        timedUserCache.addNextUser(startTs, endTs, userName);
+        timedUserCache.addNextUser(startTs, endTs, internUserName(userName));
+    }
+
+    /**
+     * Applies newer ranges to the cache which can be concurrently read.
+     * Histories of updated ips are modified on copies, which replace current ones only after all
+     * ranges were applied, so readers never observe partially updated history.
+     * @param enrichedUsers ranges sorted by start timestamp
+     * @throws IllegalArgumentException when some range is older than already cached ones (nothing is replaced then)
+     */
+    public void update(List<EnrichedUser> enrichedUsers)
+    {
+        Map<IpUtil.IpPair, TimeUserCache> updated = new HashMap<>();
+        for (EnrichedUser enrichedUser : enrichedUsers) {
+            IpUtil.IpPair ip = enrichedUser.getIp();
+            TimeUserCache timedUserCache = updated.computeIfAbsent(ip, k -> copyOrCreate(k.getHighBits(), k.getLowBits()));
+            timedUserCache.addNextUser(enrichedUser.getStartTs(), enrichedUser.getEndTs(), internUserName(enrichedUser.getUser()));
+        }
+        for (Map.Entry<IpUtil.IpPair, TimeUserCache> entry : updated.entrySet()) {
+            IpUtil.IpPair ip = entry.getKey();
+            cache.computeIfAbsent(ip.getHighBits(), k -> new ConcurrentHashMap<>()).put(ip.getLowBits(), entry.getValue());
+        }
+    }
+
+    private TimeUserCache copyOrCreate(long ip1, long ip2)
+    {
+        Map<Long, TimeUserCache> ip1Cache = cache.get(ip1);
+        TimeUserCache current = ip1Cache == null ? null : ip1Cache.get(ip2);
+        return current == null ? new TimeUserCache() : current.copy();
+    }
+
+    private static String internUserName(String userName)
+    {
+        return userName == null ? null : USER_NAMES.intern(userName);
     }
 
     @VisibleForTesting
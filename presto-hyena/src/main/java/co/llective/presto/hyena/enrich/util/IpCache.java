@@ -0,0 +1,242 @@
+package co.llective.presto.hyena.enrich.util;
+
+import org.weakref.jmx.Managed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Thread safe, size bounded cache of values for IP addresses, kept as two longs (ip1, ip2) without boxing.
+ * Entries are stored in fixed arrays organized as 4-way set associative cache: an address can only be
+ * placed in one of 4 slots of its set, and the least recently used one is replaced when the set is full.
+ * Sets are guarded by striped locks, so concurrent lookups of different addresses rarely contend.
+ * Null values are cached as well (e.g. for addresses without geo location).
+ */
+public class IpCache<T>
+{
+    private static final int WAYS = 4;
+    private static final int STRIPES = 64;
+    private static final Object NULL_VALUE = new Object();
+
+    private final int setMask;
+    private final long[] ip1s;
+    private final long[] ip2s;
+    private final Object[] values; // null marks empty slot
+    private final long[] lastAccess;
+    private final long[] stripeTicks = new long[STRIPES];
+    private final Object[] locks = new Object[STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong size = new AtomicLong();
+    // bumped by clear(), so values loaded before clearing are not put back to the cache
+    private volatile long generation;
+
+    public IpCache(int maximumSize)
+    {
+        checkArgument(maximumSize >= WAYS, "maximumSize must be at least %s", WAYS);
+        int sets = Integer.highestOneBit(maximumSize / WAYS);
+        this.setMask = sets - 1;
+        this.ip1s = new long[sets * WAYS];
+        this.ip2s = new long[sets * WAYS];
+        this.values = new Object[sets * WAYS];
+        this.lastAccess = new long[sets * WAYS];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Registers statistics of this cache to be exported by {@link IpCacheExporter} of every hyena connector.
+     */
+    public IpCache<T> exportStats(String name)
+    {
+        IpCacheExporter.register(name, this);
+        return this;
+    }
+
+    /**
+     * Gets cached value or computes it with the loader and caches the result (even null).
+     * Loader is called outside of locks, so the value can be computed more than once by concurrent threads.
+     */
+    public T get(long ip1, long ip2, IpValueLoader<T> loader)
+    {
+        Object value = find(ip1, ip2);
+        if (value != null) {
+            hits.increment();
+            return unwrap(value);
+        }
+        misses.increment();
+        long loadGeneration = generation;
+        T loaded = loader.load(ip1, ip2);
+        put(ip1, ip2, loaded, loadGeneration);
+        return loaded;
+    }
+
+    /**
+     * @return cached value or null if it is not cached or null is cached
+     */
+    public T get(long ip1, long ip2)
+    {
+        Object value = find(ip1, ip2);
+        return value == null ? null : unwrap(value);
+    }
+
+    public boolean containsKey(long ip1, long ip2)
+    {
+        return find(ip1, ip2) != null;
+    }
+
+    private Object find(long ip1, long ip2)
+    {
+        int set = setIndex(ip1, ip2);
+        int stripe = set & (STRIPES - 1);
+        int firstSlot = set * WAYS;
+        synchronized (locks[stripe]) {
+            for (int slot = firstSlot; slot < firstSlot + WAYS; slot++) {
+                if (values[slot] != null && ip1s[slot] == ip1 && ip2s[slot] == ip2) {
+                    lastAccess[slot] = ++stripeTicks[stripe];
+                    return values[slot];
+                }
+            }
+        }
+        return null;
+    }
+
+    public void put(long ip1, long ip2, T value)
+    {
+        put(ip1, ip2, value, -1);
+    }
+
+    /**
+     * @param expectedGeneration generation in which the value was loaded or -1 to put it unconditionally
+     */
+    private void put(long ip1, long ip2, T value, long expectedGeneration)
+    {
+        Object stored = value == null ? NULL_VALUE : value;
+        int set = setIndex(ip1, ip2);
+        int stripe = set & (STRIPES - 1);
+        int firstSlot = set * WAYS;
+        synchronized (locks[stripe]) {
+            // clear() bumps generation before clearing any set, so checking it under the lock is enough
+            if (expectedGeneration >= 0 && expectedGeneration != generation) {
+                return;
+            }
+            int victim = findSlotForPut(firstSlot, ip1, ip2);
+            if (values[victim] == null) {
+                size.incrementAndGet();
+            }
+            else if (ip1s[victim] != ip1 || ip2s[victim] != ip2) {
+                evictions.increment();
+            }
+            ip1s[victim] = ip1;
+            ip2s[victim] = ip2;
+            values[victim] = stored;
+            lastAccess[victim] = ++stripeTicks[stripe];
+        }
+    }
+
+    /**
+     * @return slot holding the same address, empty slot or least recently used one, in this order
+     */
+    private int findSlotForPut(int firstSlot, long ip1, long ip2)
+    {
+        int emptySlot = -1;
+        int leastRecentlyUsed = firstSlot;
+        for (int slot = firstSlot; slot < firstSlot + WAYS; slot++) {
+            if (values[slot] == null) {
+                if (emptySlot < 0) {
+                    emptySlot = slot;
+                }
+            }
+            else if (ip1s[slot] == ip1 && ip2s[slot] == ip2) {
+                return slot;
+            }
+            else if (lastAccess[slot] < lastAccess[leastRecentlyUsed]) {
+                leastRecentlyUsed = slot;
+            }
+        }
+        return emptySlot >= 0 ? emptySlot : leastRecentlyUsed;
+    }
+
+    public void clear()
+    {
+        synchronized (this) {
+            generation++;
+        }
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            synchronized (locks[stripe]) {
+                for (int set = stripe; set <= setMask; set += STRIPES) {
+                    for (int slot = set * WAYS; slot < set * WAYS + WAYS; slot++) {
+                        if (values[slot] != null) {
+                            values[slot] = null;
+                            size.decrementAndGet();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int setIndex(long ip1, long ip2)
+    {
+        long hash = ip1 * 0x9E3779B97F4A7C15L + ip2;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (int) hash & setMask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T unwrap(Object value)
+    {
+        return value == NULL_VALUE ? null : (T) value;
+    }
+
+    @Managed
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    @Managed
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    @Managed
+    public double getHitRate()
+    {
+        long hitCount = getHitCount();
+        long requests = hitCount + getMissCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Managed
+    public long getSize()
+    {
+        return size.get();
+    }
+
+    @Managed
+    public long getMaximumSize()
+    {
+        return values.length;
+    }
+
+    @FunctionalInterface
+    public interface IpValueLoader<T>
+    {
+        T load(long ip1, long ip2);
+    }
+}
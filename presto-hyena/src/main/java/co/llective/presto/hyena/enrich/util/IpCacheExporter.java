@@ -0,0 +1,84 @@
+package co.llective.presto.hyena.enrich.util;
+
+import io.airlift.log.Logger;
+import org.weakref.jmx.JmxException;
+import org.weakref.jmx.MBeanExporter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.ObjectName;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Exports statistics of named {@link IpCache}s through MBean exporter of a connector.
+ * Caches are held by enrichment functions, which are shared by all connectors of the plugin and created lazily,
+ * so they are registered here and exported by every started connector, including ones registered later.
+ */
+public class IpCacheExporter
+{
+    private static final Logger log = Logger.get(IpCacheExporter.class);
+    private static final String JMX_DOMAIN = "co.llective.presto.hyena.enrich";
+
+    private static final Map<String, IpCache<?>> caches = new ConcurrentHashMap<>();
+    private static final Set<IpCacheExporter> exporters = ConcurrentHashMap.newKeySet();
+
+    private final String connectorId;
+    private final MBeanExporter exporter;
+    private final Set<String> exportedNames = ConcurrentHashMap.newKeySet();
+
+    public IpCacheExporter(String connectorId, MBeanExporter exporter)
+    {
+        this.connectorId = requireNonNull(connectorId, "connectorId is null");
+        this.exporter = requireNonNull(exporter, "exporter is null");
+    }
+
+    static void register(String name, IpCache<?> cache)
+    {
+        caches.put(name, cache);
+        for (IpCacheExporter exporter : exporters) {
+            exporter.export(name, cache);
+        }
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        exporters.add(this);
+        caches.forEach(this::export);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        exporters.remove(this);
+        for (String objectName : exportedNames) {
+            try {
+                exporter.unexport(objectName);
+            }
+            catch (JmxException exc) {
+                log.warn(exc, "Couldn't unexport " + objectName);
+            }
+        }
+        exportedNames.clear();
+    }
+
+    private void export(String name, IpCache<?> cache)
+    {
+        String objectName = JMX_DOMAIN + ":type=IpCache,name=" + name + ",connector=" + ObjectName.quote(connectorId);
+        // cache can be registered while the connector is starting, so it may be seen twice
+        if (!exportedNames.add(objectName)) {
+            return;
+        }
+        try {
+            exporter.export(objectName, cache);
+        }
+        catch (JmxException exc) {
+            log.warn(exc, "Couldn't export stats of " + name + " cache");
+        }
+    }
+}
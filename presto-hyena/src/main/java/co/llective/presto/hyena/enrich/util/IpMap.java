@@ -0,0 +1,122 @@
+package co.llective.presto.hyena.enrich.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable map with IP addresses (two longs, ip1 and ip2) as keys, stored without boxing.
+ * Entries are kept in open addressing table with linear probing, which is never modified after
+ * {@link Builder#build()}, so one instance can be read by many threads without locking.
+ */
+public final class IpMap<T>
+{
+    private static final IpMap<?> EMPTY = new Builder<>().build();
+
+    private final int mask;
+    private final long[] ip1s;
+    private final long[] ip2s;
+    private final Object[] values; // null marks empty slot
+    private final int size;
+
+    private IpMap(long[] ip1s, long[] ip2s, Object[] values, int size)
+    {
+        this.mask = values.length - 1;
+        this.ip1s = ip1s;
+        this.ip2s = ip2s;
+        this.values = values;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> IpMap<T> empty()
+    {
+        return (IpMap<T>) EMPTY;
+    }
+
+    public static <T> Builder<T> builder()
+    {
+        return new Builder<>();
+    }
+
+    /**
+     * @return value for given address or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long ip1, long ip2)
+    {
+        for (int slot = slot(ip1, ip2, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (ip1s[slot] == ip1 && ip2s[slot] == ip2) {
+                return (T) values[slot];
+            }
+        }
+        return null;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    private static int slot(long ip1, long ip2, int mask)
+    {
+        long hash = ip1 * 0x9E3779B97F4A7C15L + ip2;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    public static class Builder<T>
+    {
+        private long[] ip1s = new long[16];
+        private long[] ip2s = new long[16];
+        private Object[] values = new Object[16];
+        private int count;
+
+        private Builder() {}
+
+        /**
+         * Adds entry, value of the same address added later replaces the earlier one.
+         */
+        public Builder<T> put(long ip1, long ip2, T value)
+        {
+            if (value == null) {
+                throw new NullPointerException("value is null");
+            }
+            if (count == values.length) {
+                int capacity = count * 2;
+                ip1s = Arrays.copyOf(ip1s, capacity);
+                ip2s = Arrays.copyOf(ip2s, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            ip1s[count] = ip1;
+            ip2s[count] = ip2;
+            values[count] = value;
+            count++;
+            return this;
+        }
+
+        public IpMap<T> build()
+        {
+            // load factor at most 0.5 keeps probe sequences short
+            int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+            int mask = capacity - 1;
+            long[] tableIp1s = new long[capacity];
+            long[] tableIp2s = new long[capacity];
+            Object[] tableValues = new Object[capacity];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                int slot = slot(ip1s[i], ip2s[i], mask);
+                while (tableValues[slot] != null && (tableIp1s[slot] != ip1s[i] || tableIp2s[slot] != ip2s[i])) {
+                    slot = (slot + 1) & mask;
+                }
+                if (tableValues[slot] == null) {
+                    size++;
+                }
+                tableIp1s[slot] = ip1s[i];
+                tableIp2s[slot] = ip2s[i];
+                tableValues[slot] = values[i];
+            }
+            return new IpMap<>(tableIp1s, tableIp2s, tableValues, size);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package co.llective.presto.hyena.enrich.util;
+
+import io.airlift.log.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Keeps the latest enrichment data fetched by a worker in local files, so after restart
+ * enrichments are available from the first query, before the first scheduled fetch finishes.
+ * Directory can be changed with {@value #DIRECTORY_PROPERTY} system property.
+ */
+public class SnapshotStore
+{
+    private static final Logger log = Logger.get(SnapshotStore.class);
+    public static final String DIRECTORY_PROPERTY = "hyena.enrichment.snapshot-dir";
+    // workers started together with loaded snapshots don't need to hit enrichment services at once
+    private static final long MAX_FETCH_DELAY_WITH_SNAPSHOT_SECONDS = 60;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory)
+    {
+        this.directory = directory;
+    }
+
+    private static class LazyHolder
+    {
+        static final SnapshotStore INSTANCE = new SnapshotStore(Paths.get(System.getProperty(
+                DIRECTORY_PROPERTY,
+                Paths.get(System.getProperty("java.io.tmpdir"), "presto-hyena-enrichment").toString())));
+    }
+
+    public static SnapshotStore getInstance()
+    {
+        return LazyHolder.INSTANCE;
+    }
+
+    /**
+     * @return content of the latest snapshot with given name or empty if there is none or it can't be read
+     */
+    public Optional<String> read(String name)
+    {
+        try {
+            return Optional.of(new String(Files.readAllBytes(directory.resolve(name)), UTF_8));
+        }
+        catch (NoSuchFileException exc) {
+            return Optional.empty();
+        }
+        catch (IOException exc) {
+            log.warn(exc, "Couldn't read enrichment snapshot " + name);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Replaces snapshot with given name. File is replaced atomically, so readers never see it partially written.
+     * Failures are only logged, as snapshot is just a startup optimization.
+     */
+    public void write(String name, String content)
+    {
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, name, ".tmp");
+            try {
+                Files.write(temporary, content.getBytes(UTF_8));
+                Files.move(temporary, directory.resolve(name), ATOMIC_MOVE, REPLACE_EXISTING);
+            }
+            finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        catch (IOException exc) {
+            log.warn(exc, "Couldn't write enrichment snapshot " + name);
+        }
+    }
+
+    /**
+     * @return delay of the first scheduled fetch, randomized when data was already loaded from snapshot
+     */
+    public static long getInitialFetchDelaySeconds(boolean snapshotLoaded)
+    {
+        return snapshotLoaded ? ThreadLocalRandom.current().nextLong(MAX_FETCH_DELAY_WITH_SNAPSHOT_SECONDS) : 0;
+    }
+}
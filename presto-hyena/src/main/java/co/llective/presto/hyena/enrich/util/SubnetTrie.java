@@ -0,0 +1,141 @@
+package co.llective.presto.hyena.enrich.util;
+
+import java.util.Arrays;
+
+import static co.llective.presto.hyena.enrich.util.IpUtil.WKP;
+
+/**
+ * Immutable binary trie of IP subnets doing longest prefix match lookups.
+ * IPv4 and IPv6 subnets are kept in separate trees, IPv4 addresses are recognized by {@link IpUtil#WKP} in higher bits.
+ * Nodes are stored in flat arrays which are never modified after {@link Builder#build()},
+ * so one instance can be read by many threads without locking.
+ */
+public final class SubnetTrie<T>
+{
+    private static final int V4_ROOT = 0;
+    private static final int V6_ROOT = 1;
+    // roots are never children of other nodes, so 0 marks missing child
+    private static final int NO_NODE = 0;
+
+    private static final SubnetTrie<?> EMPTY = new Builder<>().build();
+
+    private final int[] zeroChildren;
+    private final int[] oneChildren;
+    private final Object[] values;
+
+    private SubnetTrie(int[] zeroChildren, int[] oneChildren, Object[] values)
+    {
+        this.zeroChildren = zeroChildren;
+        this.oneChildren = oneChildren;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> SubnetTrie<T> empty()
+    {
+        return (SubnetTrie<T>) EMPTY;
+    }
+
+    public static <T> Builder<T> builder()
+    {
+        return new Builder<>();
+    }
+
+    /**
+     * Finds value of the most specific subnet containing given address.
+     * @return value or null if address does not belong to any subnet
+     */
+    @SuppressWarnings("unchecked")
+    public T lookup(long ip1, long ip2)
+    {
+        if (ip1 == WKP) {
+            return (T) find(V4_ROOT, ip2 << Integer.SIZE, 0L, Integer.SIZE);
+        }
+        return (T) find(V6_ROOT, ip1, ip2, 2 * Long.SIZE);
+    }
+
+    private Object find(int root, long highBits, long lowBits, int addressLength)
+    {
+        Object match = values[root];
+        int node = root;
+        for (int depth = 0; depth < addressLength; depth++) {
+            node = isBitSet(highBits, lowBits, depth) ? oneChildren[node] : zeroChildren[node];
+            if (node == NO_NODE) {
+                break;
+            }
+            if (values[node] != null) {
+                match = values[node];
+            }
+        }
+        return match;
+    }
+
+    private static boolean isBitSet(long highBits, long lowBits, int index)
+    {
+        if (index < Long.SIZE) {
+            return (highBits & (1L << (Long.SIZE - 1 - index))) != 0;
+        }
+        return (lowBits & (1L << (2 * Long.SIZE - 1 - index))) != 0;
+    }
+
+    public static class Builder<T>
+    {
+        private int[] zeroChildren = new int[16];
+        private int[] oneChildren = new int[16];
+        private Object[] values = new Object[16];
+        private int size = 2;
+
+        private Builder() {}
+
+        public Builder<T> add(SubnetV4 subnet, T value)
+        {
+            insert(V4_ROOT, subnet.getAddress() << Integer.SIZE, 0L, Long.bitCount(subnet.getMask()), value);
+            return this;
+        }
+
+        public Builder<T> add(SubnetV6 subnet, T value)
+        {
+            int prefixLength = Long.bitCount(subnet.getMaskHighBits()) + Long.bitCount(subnet.getMaskLowBits());
+            insert(V6_ROOT, subnet.getAddressHighBits(), subnet.getAddressLowBits(), prefixLength, value);
+            return this;
+        }
+
+        private void insert(int root, long highBits, long lowBits, int prefixLength, T value)
+        {
+            int node = root;
+            for (int depth = 0; depth < prefixLength; depth++) {
+                int[] children = isBitSet(highBits, lowBits, depth) ? oneChildren : zeroChildren;
+                if (children[node] == NO_NODE) {
+                    int child = newNode();
+                    // arrays could have been reallocated
+                    children = isBitSet(highBits, lowBits, depth) ? oneChildren : zeroChildren;
+                    children[node] = child;
+                }
+                node = children[node];
+            }
+            // first of duplicated subnets wins, same as in previous linear search
+            if (values[node] == null) {
+                values[node] = value;
+            }
+        }
+
+        private int newNode()
+        {
+            if (size == values.length) {
+                int capacity = size * 2;
+                zeroChildren = Arrays.copyOf(zeroChildren, capacity);
+                oneChildren = Arrays.copyOf(oneChildren, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            return size++;
+        }
+
+        public SubnetTrie<T> build()
+        {
+            return new SubnetTrie<>(
+                    Arrays.copyOf(zeroChildren, size),
+                    Arrays.copyOf(oneChildren, size),
+                    Arrays.copyOf(values, size));
+        }
+    }
+}
@@ -40,14 +40,14 @@ public final class U64Operators
     @SqlType(StandardTypes.BOOLEAN)
     public static boolean equal(@SqlType(U_64_NAME) long left, @SqlType(U_64_NAME) long right)
     {
-        return U_64_TYPE.compareUnsignedLongs(left, right) == 0;
+        return left == right;
     }
 
     @ScalarOperator(NOT_EQUAL)
     @SqlType(StandardTypes.BOOLEAN)
     public static boolean notEqual(@SqlType(U_64_NAME) long left, @SqlType(U_64_NAME) long right)
     {
-        return U_64_TYPE.compareUnsignedLongs(left, right) != 0;
+        return left != right;
     }
 
     @ScalarOperator(LESS_THAN)
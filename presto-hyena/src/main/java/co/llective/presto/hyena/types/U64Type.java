@@ -15,38 +15,20 @@ package co.llective.presto.hyena.types;
 
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.block.Block;
-import com.facebook.presto.spi.block.BlockBuilder;
-import com.facebook.presto.spi.type.AbstractFixedWidthType;
+import com.facebook.presto.spi.type.AbstractLongType;
 import com.facebook.presto.spi.type.TypeSignature;
 import com.google.common.primitives.UnsignedLong;
 
 public final class U64Type
-        extends AbstractFixedWidthType
+        extends AbstractLongType
 {
     public static final U64Type U_64_TYPE = new U64Type();
     public static final String U_64_NAME = "unsigned_long";
 
     private U64Type()
     {
-        super(TypeSignature.parseTypeSignature(U_64_NAME), long.class, 8);
-    }
-
-    @Override
-    public boolean isComparable()
-    {
-        return true;
-    }
-
-    @Override
-    public boolean isOrderable()
-    {
-        return true;
-    }
-
-    @Override
-    public boolean equalTo(Block leftBlock, int leftPosition, Block rightBlock, int rightPosition)
-    {
-        return compareTo(leftBlock, leftPosition, rightBlock, rightPosition) == 0;
+        // long representation (and so equality and hashing) is shared with bigint, only ordering differs
+        super(TypeSignature.parseTypeSignature(U_64_NAME));
     }
 
     @Override
@@ -59,7 +41,7 @@ public final class U64Type
 
     public int compareUnsignedLongs(long leftValue, long rightValue)
     {
-        return UnsignedLong.fromLongBits(leftValue).compareTo(UnsignedLong.fromLongBits(rightValue));
+        return Long.compareUnsigned(leftValue, rightValue);
     }
 
     public int compareToSignedLong(long u64Value, long signedValue)
@@ -287,12 +269,6 @@ public final class U64Type
         return Long.remainderUnsigned(u64, signedLong);
     }
 
-    @Override
-    public long hash(Block block, int position)
-    {
-        return block.hash(position, 0, getFixedSize());
-    }
-
     @Override
     public Object getObjectValue(ConnectorSession session, Block block, int position)
     {
@@ -301,29 +277,4 @@ public final class U64Type
         }
         return getLong(block, position);
     }
-
-    @Override
-    public void appendTo(Block block, int position, BlockBuilder blockBuilder)
-    {
-        if (block.isNull(position)) {
-            blockBuilder.appendNull();
-        }
-        else {
-            writeLong(blockBuilder, block.getLong(position, 0));
-        }
-    }
-
-    @Override
-    public long getLong(Block block, int position)
-    {
-        return block.getLong(position, 0);
-    }
-
-    @Override
-    public void writeLong(BlockBuilder blockBuilder, long value)
-    {
-        blockBuilder
-                .writeLong(value)
-                .closeEntry();
-    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.function.AggregationFunction;
+import com.facebook.presto.spi.function.AggregationState;
+import com.facebook.presto.spi.function.CombineFunction;
+import com.facebook.presto.spi.function.InputFunction;
+import com.facebook.presto.spi.function.OutputFunction;
+import com.facebook.presto.spi.function.SqlType;
+import com.facebook.presto.spi.type.StandardTypes;
+import io.airlift.stats.cardinality.HyperLogLog;
+
+import static co.llective.presto.hyena.types.U64Type.U_64_NAME;
+import static com.facebook.presto.spi.StandardErrorCode.INVALID_FUNCTION_ARGUMENT;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static java.lang.String.format;
+
+/**
+ * Same estimation as approx_distinct over bigint (values are hashed by their bits),
+ * without casting unsigned values first.
+ */
+@AggregationFunction("approx_distinct")
+public final class U64ApproximateCountDistinctAggregation
+{
+    private static final double DEFAULT_STANDARD_ERROR = 0.023;
+    private static final double LOWEST_MAX_STANDARD_ERROR = 0.0040625;
+    private static final double HIGHEST_MAX_STANDARD_ERROR = 0.26000;
+
+    private U64ApproximateCountDistinctAggregation() {}
+
+    @InputFunction
+    public static void input(@AggregationState U64HyperLogLogState state, @SqlType(U_64_NAME) long value)
+    {
+        input(state, value, DEFAULT_STANDARD_ERROR);
+    }
+
+    @InputFunction
+    public static void input(@AggregationState U64HyperLogLogState state, @SqlType(U_64_NAME) long value, @SqlType(StandardTypes.DOUBLE) double maxStandardError)
+    {
+        HyperLogLog hll = state.getHyperLogLog();
+        if (hll == null) {
+            hll = HyperLogLog.newInstance(standardErrorToBuckets(maxStandardError));
+            state.setHyperLogLog(hll);
+            state.addMemoryUsage(hll.estimatedInMemorySize());
+        }
+        state.addMemoryUsage(-hll.estimatedInMemorySize());
+        hll.add(value);
+        state.addMemoryUsage(hll.estimatedInMemorySize());
+    }
+
+    @CombineFunction
+    public static void combine(@AggregationState U64HyperLogLogState state, @AggregationState U64HyperLogLogState otherState)
+    {
+        HyperLogLog input = otherState.getHyperLogLog();
+        if (input == null) {
+            return;
+        }
+        HyperLogLog previous = state.getHyperLogLog();
+        if (previous == null) {
+            state.setHyperLogLog(input);
+            state.addMemoryUsage(input.estimatedInMemorySize());
+        }
+        else {
+            state.addMemoryUsage(-previous.estimatedInMemorySize());
+            previous.mergeWith(input);
+            state.addMemoryUsage(previous.estimatedInMemorySize());
+        }
+    }
+
+    @OutputFunction(StandardTypes.BIGINT)
+    public static void output(@AggregationState U64HyperLogLogState state, BlockBuilder out)
+    {
+        HyperLogLog hll = state.getHyperLogLog();
+        BIGINT.writeLong(out, hll == null ? 0 : hll.cardinality());
+    }
+
+    static int standardErrorToBuckets(double maxStandardError)
+    {
+        if (maxStandardError < LOWEST_MAX_STANDARD_ERROR || maxStandardError > HIGHEST_MAX_STANDARD_ERROR) {
+            throw new PrestoException(INVALID_FUNCTION_ARGUMENT, format(
+                    "Max standard error must be in [%s, %s]: %s",
+                    LOWEST_MAX_STANDARD_ERROR,
+                    HIGHEST_MAX_STANDARD_ERROR,
+                    maxStandardError));
+        }
+        int buckets = (int) Math.ceil(1.0816 / (maxStandardError * maxStandardError));
+        // number of buckets has to be a power of 2
+        return Integer.highestOneBit(buckets - 1) << 1;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.function.AggregationFunction;
+import com.facebook.presto.spi.function.AggregationState;
+import com.facebook.presto.spi.function.CombineFunction;
+import com.facebook.presto.spi.function.InputFunction;
+import com.facebook.presto.spi.function.OutputFunction;
+import com.facebook.presto.spi.function.SqlType;
+import com.facebook.presto.spi.type.StandardTypes;
+
+import static co.llective.presto.hyena.types.U64Type.U_64_NAME;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+
+@AggregationFunction("avg")
+public final class U64AverageAggregation
+{
+    private U64AverageAggregation() {}
+
+    @InputFunction
+    public static void input(@AggregationState U64SumState state, @SqlType(U_64_NAME) long value)
+    {
+        U64SumAggregation.add(state, 0, value, 1);
+    }
+
+    @CombineFunction
+    public static void combine(@AggregationState U64SumState state, @AggregationState U64SumState otherState)
+    {
+        U64SumAggregation.combine(state, otherState);
+    }
+
+    @OutputFunction(StandardTypes.DOUBLE)
+    public static void output(@AggregationState U64SumState state, BlockBuilder out)
+    {
+        long count = state.getCount();
+        if (count == 0) {
+            out.appendNull();
+        }
+        else {
+            DOUBLE.writeDouble(out, U64SumAggregation.toDouble(state.getHigh(), state.getLow()) / count);
+        }
+    }
+}
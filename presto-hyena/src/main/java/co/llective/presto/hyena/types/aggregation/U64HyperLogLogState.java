@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.spi.function.AccumulatorState;
+import com.facebook.presto.spi.function.AccumulatorStateMetadata;
+import io.airlift.stats.cardinality.HyperLogLog;
+
+@AccumulatorStateMetadata(stateSerializerClass = U64HyperLogLogStateSerializer.class, stateFactoryClass = U64HyperLogLogStateFactory.class)
+public interface U64HyperLogLogState
+        extends AccumulatorState
+{
+    HyperLogLog getHyperLogLog();
+
+    void setHyperLogLog(HyperLogLog value);
+
+    void addMemoryUsage(int value);
+}
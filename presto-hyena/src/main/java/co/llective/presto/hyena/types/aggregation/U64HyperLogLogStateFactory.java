@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.array.ObjectBigArray;
+import com.facebook.presto.spi.function.AccumulatorStateFactory;
+import com.facebook.presto.spi.function.GroupedAccumulatorState;
+import io.airlift.stats.cardinality.HyperLogLog;
+
+import static java.util.Objects.requireNonNull;
+
+public class U64HyperLogLogStateFactory
+        implements AccumulatorStateFactory<U64HyperLogLogState>
+{
+    @Override
+    public U64HyperLogLogState createSingleState()
+    {
+        return new SingleHyperLogLogState();
+    }
+
+    @Override
+    public Class<? extends U64HyperLogLogState> getSingleStateClass()
+    {
+        return SingleHyperLogLogState.class;
+    }
+
+    @Override
+    public U64HyperLogLogState createGroupedState()
+    {
+        return new GroupedHyperLogLogState();
+    }
+
+    @Override
+    public Class<? extends U64HyperLogLogState> getGroupedStateClass()
+    {
+        return GroupedHyperLogLogState.class;
+    }
+
+    public static class GroupedHyperLogLogState
+            implements GroupedAccumulatorState, U64HyperLogLogState
+    {
+        private final ObjectBigArray<HyperLogLog> hlls = new ObjectBigArray<>();
+        private long groupId;
+        private long size;
+
+        @Override
+        public void setGroupId(long groupId)
+        {
+            this.groupId = groupId;
+        }
+
+        @Override
+        public void ensureCapacity(long size)
+        {
+            hlls.ensureCapacity(size);
+        }
+
+        @Override
+        public HyperLogLog getHyperLogLog()
+        {
+            return hlls.get(groupId);
+        }
+
+        @Override
+        public void setHyperLogLog(HyperLogLog value)
+        {
+            requireNonNull(value, "value is null");
+            hlls.set(groupId, value);
+        }
+
+        @Override
+        public void addMemoryUsage(int value)
+        {
+            size += value;
+        }
+
+        @Override
+        public long getEstimatedSize()
+        {
+            return size + hlls.sizeOf();
+        }
+    }
+
+    public static class SingleHyperLogLogState
+            implements U64HyperLogLogState
+    {
+        private HyperLogLog hll;
+
+        @Override
+        public HyperLogLog getHyperLogLog()
+        {
+            return hll;
+        }
+
+        @Override
+        public void setHyperLogLog(HyperLogLog value)
+        {
+            hll = value;
+        }
+
+        @Override
+        public void addMemoryUsage(int value)
+        {
+            // noop
+        }
+
+        @Override
+        public long getEstimatedSize()
+        {
+            return hll == null ? 0 : hll.estimatedInMemorySize();
+        }
+    }
+}
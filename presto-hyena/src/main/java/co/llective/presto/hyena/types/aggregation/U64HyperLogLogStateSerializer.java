@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.function.AccumulatorStateSerializer;
+import com.facebook.presto.spi.type.Type;
+import io.airlift.stats.cardinality.HyperLogLog;
+
+import static com.facebook.presto.spi.type.HyperLogLogType.HYPER_LOG_LOG;
+
+public class U64HyperLogLogStateSerializer
+        implements AccumulatorStateSerializer<U64HyperLogLogState>
+{
+    @Override
+    public Type getSerializedType()
+    {
+        return HYPER_LOG_LOG;
+    }
+
+    @Override
+    public void serialize(U64HyperLogLogState state, BlockBuilder out)
+    {
+        if (state.getHyperLogLog() == null) {
+            out.appendNull();
+        }
+        else {
+            HYPER_LOG_LOG.writeSlice(out, state.getHyperLogLog().serialize());
+        }
+    }
+
+    @Override
+    public void deserialize(Block block, int index, U64HyperLogLogState state)
+    {
+        state.setHyperLogLog(HyperLogLog.newInstance(HYPER_LOG_LOG.getSlice(block, index)));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.function.AggregationFunction;
+import com.facebook.presto.spi.function.AggregationState;
+import com.facebook.presto.spi.function.CombineFunction;
+import com.facebook.presto.spi.function.InputFunction;
+import com.facebook.presto.spi.function.OutputFunction;
+import com.facebook.presto.spi.function.SqlType;
+
+import static co.llective.presto.hyena.types.U64Type.U_64_NAME;
+import static co.llective.presto.hyena.types.U64Type.U_64_TYPE;
+
+@AggregationFunction("max")
+public final class U64MaxAggregation
+{
+    private U64MaxAggregation() {}
+
+    @InputFunction
+    public static void input(@AggregationState U64State state, @SqlType(U_64_NAME) long value)
+    {
+        if (!state.isPresent() || Long.compareUnsigned(value, state.getValue()) > 0) {
+            state.setValue(value);
+            state.setPresent(true);
+        }
+    }
+
+    @CombineFunction
+    public static void combine(@AggregationState U64State state, @AggregationState U64State otherState)
+    {
+        if (otherState.isPresent()) {
+            input(state, otherState.getValue());
+        }
+    }
+
+    @OutputFunction(U_64_NAME)
+    public static void output(@AggregationState U64State state, BlockBuilder out)
+    {
+        if (state.isPresent()) {
+            U_64_TYPE.writeLong(out, state.getValue());
+        }
+        else {
+            out.appendNull();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.spi.function.AccumulatorState;
+
+/**
+ * Optional unsigned 64-bit value kept without boxing, grouped implementation is generated by Presto.
+ */
+public interface U64State
+        extends AccumulatorState
+{
+    long getValue();
+
+    void setValue(long value);
+
+    boolean isPresent();
+
+    void setPresent(boolean present);
+}
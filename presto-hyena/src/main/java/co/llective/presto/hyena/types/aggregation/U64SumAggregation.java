@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.function.AggregationFunction;
+import com.facebook.presto.spi.function.AggregationState;
+import com.facebook.presto.spi.function.CombineFunction;
+import com.facebook.presto.spi.function.InputFunction;
+import com.facebook.presto.spi.function.OutputFunction;
+import com.facebook.presto.spi.function.SqlType;
+import com.facebook.presto.spi.type.DecimalType;
+
+import java.math.BigInteger;
+
+import static co.llective.presto.hyena.types.U64Type.U_64_NAME;
+import static com.facebook.presto.spi.type.DecimalType.createDecimalType;
+import static com.facebook.presto.spi.type.Decimals.checkOverflow;
+import static com.facebook.presto.spi.type.Decimals.encodeUnscaledValue;
+
+/**
+ * Sum of unsigned values doesn't fit into 64 bits already for a few large values,
+ * so it is accumulated in 128 bits and returned as decimal.
+ */
+@AggregationFunction("sum")
+public final class U64SumAggregation
+{
+    private static final DecimalType OUTPUT_TYPE = createDecimalType(38, 0);
+
+    private U64SumAggregation() {}
+
+    @InputFunction
+    public static void input(@AggregationState U64SumState state, @SqlType(U_64_NAME) long value)
+    {
+        add(state, 0, value, 1);
+    }
+
+    @CombineFunction
+    public static void combine(@AggregationState U64SumState state, @AggregationState U64SumState otherState)
+    {
+        add(state, otherState.getHigh(), otherState.getLow(), otherState.getCount());
+    }
+
+    @OutputFunction("decimal(38,0)")
+    public static void output(@AggregationState U64SumState state, BlockBuilder out)
+    {
+        if (state.getCount() == 0) {
+            out.appendNull();
+            return;
+        }
+        BigInteger sum = toBigInteger(state.getHigh(), state.getLow());
+        checkOverflow(sum);
+        OUTPUT_TYPE.writeSlice(out, encodeUnscaledValue(sum));
+    }
+
+    static void add(U64SumState state, long high, long low, long count)
+    {
+        long sumLow = state.getLow() + low;
+        // carry when unsigned addition wrapped around
+        long carry = Long.compareUnsigned(sumLow, low) < 0 ? 1 : 0;
+        state.setLow(sumLow);
+        state.setHigh(state.getHigh() + high + carry);
+        state.setCount(state.getCount() + count);
+    }
+
+    static BigInteger toBigInteger(long high, long low)
+    {
+        BigInteger unsignedLow = BigInteger.valueOf(low & Long.MAX_VALUE);
+        if (low < 0) {
+            unsignedLow = unsignedLow.setBit(Long.SIZE - 1);
+        }
+        return BigInteger.valueOf(high).shiftLeft(Long.SIZE).or(unsignedLow);
+    }
+
+    static double toDouble(long high, long low)
+    {
+        // low half with the highest bit set is halved first (keeping the rounding bit), as in UnsignedLong.doubleValue()
+        double unsignedLow = low >= 0 ? low : ((low >>> 1) | (low & 1)) * 2.0;
+        return high * 0x1p64 + unsignedLow;
+    }
+}
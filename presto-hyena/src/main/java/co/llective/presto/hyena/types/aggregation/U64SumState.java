@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import com.facebook.presto.spi.function.AccumulatorState;
+
+/**
+ * Unsigned 128-bit sum (as two 64-bit halves) of unsigned 64-bit values and their count,
+ * so the sum never overflows while aggregating.
+ */
+public interface U64SumState
+        extends AccumulatorState
+{
+    long getHigh();
+
+    void setHigh(long high);
+
+    long getLow();
+
+    void setLow(long low);
+
+    long getCount();
+
+    void setCount(long count);
+}
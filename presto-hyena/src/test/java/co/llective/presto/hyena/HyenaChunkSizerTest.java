@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+
+public class HyenaChunkSizerTest
+{
+    @Test
+    public void startsWithEstimatedRowSize()
+    {
+        HyenaChunkSizer sizer = new HyenaChunkSizer(1_000_000, 10);
+
+        assertEquals(sizer.getRecordsLimit(), 100_000L);
+    }
+
+    @Test
+    public void followsSizeOfReceivedRows()
+    {
+        HyenaChunkSizer sizer = new HyenaChunkSizer(1_000_000, 10);
+
+        // chunks with 30 bytes per row, smoothed with the estimate to 20 and then 25 bytes per row
+        sizer.recordChunk(1000, 30_000, 1);
+        sizer.recordChunk(1000, 30_000, 1);
+
+        // throughput doesn't limit fast chunks
+        assertEquals(sizer.getRecordsLimit(), 40_000L);
+    }
+
+    @Test
+    public void keepsSlowChunksShort()
+    {
+        HyenaChunkSizer sizer = new HyenaChunkSizer(1_000_000_000, 10);
+
+        // 10k rows per second
+        sizer.recordChunk(10_000, 100_000, TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(sizer.getRecordsLimit(), 20_000L);
+    }
+
+    @Test
+    public void ignoresEmptyChunks()
+    {
+        HyenaChunkSizer sizer = new HyenaChunkSizer(1_000_000, 10);
+
+        sizer.recordChunk(0, 0, TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(sizer.getRecordsLimit(), 100_000L);
+    }
+
+    @Test
+    public void keepsLimitInBounds()
+    {
+        assertEquals(new HyenaChunkSizer(1, 100).getRecordsLimit(), HyenaChunkSizer.MIN_RECORDS_LIMIT);
+        assertEquals(new HyenaChunkSizer(Long.MAX_VALUE, 1).getRecordsLimit(), HyenaChunkSizer.MAX_RECORDS_LIMIT);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.HyenaApi;
+import co.llective.hyena.api.ReplyException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class HyenaConnectionPoolTest
+{
+    ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reusesIdleConnection()
+            throws Exception
+    {
+        HyenaConnectionPool pool = new HyenaConnectionPool(() -> mock(HyenaApi.class), 2, 1000);
+
+        HyenaApi first = pool.execute(connection -> connection);
+        HyenaApi second = pool.execute(connection -> connection);
+
+        assertSame(first, second);
+        assertEquals(pool.getOpenedConnections(), 1L);
+        assertEquals(pool.getIdleConnections(), 1);
+    }
+
+    @Test
+    public void runsConcurrentCallsOnSeparateConnections()
+            throws Exception
+    {
+        HyenaConnectionPool pool = new HyenaConnectionPool(() -> mock(HyenaApi.class), 2, 1000);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        Future<HyenaApi> first = executor.submit(() -> pool.execute(connection -> awaitOther(bothStarted, connection)));
+        Future<HyenaApi> second = executor.submit(() -> pool.execute(connection -> awaitOther(bothStarted, connection)));
+
+        assertNotSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(pool.getOpenedConnections(), 2L);
+    }
+
+    @Test
+    public void failsWhenNoConnectionFreedInTime()
+            throws Exception
+    {
+        HyenaConnectionPool pool = new HyenaConnectionPool(() -> mock(HyenaApi.class), 1, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocking = executor.submit(() -> pool.execute(connection -> {
+            started.countDown();
+            return await(release, connection);
+        }));
+        started.await();
+
+        try {
+            pool.execute(connection -> connection);
+            fail("Call should time out");
+        }
+        catch (RuntimeException exc) {
+            assertTrue(exc.getMessage().contains("Timed out"));
+        }
+        finally {
+            release.countDown();
+            blocking.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void dropsConnectionAfterIoError()
+            throws Exception
+    {
+        HyenaConnectionPool pool = new HyenaConnectionPool(() -> mock(HyenaApi.class), 1, 1000);
+        HyenaApi broken = pool.execute(connection -> connection);
+
+        try {
+            pool.execute(connection -> {
+                throw new IOException("connection reset");
+            });
+            fail("Call should fail");
+        }
+        catch (IOException expected) {
+            // connection is dropped
+        }
+
+        assertNotSame(pool.execute(connection -> connection), broken);
+        assertEquals(pool.getDroppedConnections(), 1L);
+        assertEquals(pool.getOpenedConnections(), 2L);
+    }
+
+    @Test
+    public void keepsConnectionAfterReplyError()
+            throws Exception
+    {
+        HyenaConnectionPool pool = new HyenaConnectionPool(() -> mock(HyenaApi.class), 1, 1000);
+        HyenaApi healthy = pool.execute(connection -> connection);
+
+        try {
+            pool.execute(connection -> {
+                throw new ReplyException("unknown column");
+            });
+            fail("Call should fail");
+        }
+        catch (ReplyException expected) {
+            // hyena replied, connection stays
+        }
+
+        assertSame(pool.execute(connection -> connection), healthy);
+        assertEquals(pool.getDroppedConnections(), 0L);
+    }
+
+    @Test
+    public void dropsConnectionAfterRuntimeError()
+            throws Exception
+    {
+        HyenaConnectionPool pool = new HyenaConnectionPool(() -> mock(HyenaApi.class), 1, 1000);
+        HyenaApi broken = pool.execute(connection -> connection);
+
+        try {
+            pool.execute(connection -> {
+                throw new IllegalStateException("unexpected reply");
+            });
+            fail("Call should fail");
+        }
+        catch (IllegalStateException expected) {
+            // connection is dropped
+        }
+
+        assertNotSame(pool.execute(connection -> connection), broken);
+        assertEquals(pool.getDroppedConnections(), 1L);
+    }
+
+    @Test
+    public void dropsConnectionOfInterruptedCall()
+            throws Exception
+    {
+        HyenaConnectionPool pool = new HyenaConnectionPool(() -> mock(HyenaApi.class), 1, 1000);
+        HyenaApi interrupted = executor.submit(() -> pool.execute(connection -> {
+            // cancelled prefetch interrupts the thread in the middle of a scan
+            Thread.currentThread().interrupt();
+            return connection;
+        })).get(5, TimeUnit.SECONDS);
+
+        assertNotSame(pool.execute(connection -> connection), interrupted);
+        assertEquals(pool.getDroppedConnections(), 1L);
+        assertEquals(pool.getOpenedConnections(), 2L);
+    }
+
+    /**
+     * Counts down given latch and waits (with connection borrowed) until it is released by other thread.
+     */
+    private static HyenaApi awaitOther(CountDownLatch latch, HyenaApi connection)
+            throws IOException
+    {
+        latch.countDown();
+        return await(latch, connection);
+    }
+
+    private static HyenaApi await(CountDownLatch latch, HyenaApi connection)
+            throws IOException
+    {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("latch wasn't released by other thread");
+            }
+        }
+        catch (InterruptedException exc) {
+            throw new IOException(exc);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.BlockType;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.testng.Assert.assertTrue;
+
+public class HyenaPageSourceProviderTest
+{
+    private final HyenaColumnHandle portColumn = new HyenaColumnHandle("port", INTEGER, BlockType.U16Dense, 1);
+
+    private HyenaSession session;
+    private ConnectorSession connectorSession;
+    private HyenaPageSourceProvider provider;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        session = mock(HyenaSession.class);
+        connectorSession = mock(ConnectorSession.class);
+        provider = new HyenaPageSourceProvider(session, new HyenaScanStats(), new HyenaConfig());
+    }
+
+    @Test
+    public void testDynamicFilterDisjointWithSplitPredicateSkipsScan()
+    {
+        HyenaSplit split = new HyenaSplit(
+                TupleDomain.withColumnDomains(ImmutableMap.of(portColumn, Domain.create(ValueSet.ofRanges(Range.range(INTEGER, 1L, true, 10L, true)), false))),
+                Optional.empty());
+        TupleDomain<ColumnHandle> dynamicFilter = TupleDomain.withColumnDomains(ImmutableMap.of(portColumn, Domain.multipleValues(INTEGER, ImmutableList.of(20L, 30L))));
+
+        ConnectorPageSource pageSource = provider.createPageSource(null, connectorSession, split, ImmutableList.of(portColumn), dynamicFilter);
+
+        assertTrue(pageSource.isFinished());
+        verifyZeroInteractions(session, connectorSession);
+    }
+
+    @Test
+    public void testEmptyDynamicFilterSkipsScan()
+    {
+        HyenaSplit split = new HyenaSplit(TupleDomain.all(), Optional.empty());
+
+        ConnectorPageSource pageSource = provider.createPageSource(null, connectorSession, split, ImmutableList.of(portColumn), TupleDomain.none());
+
+        assertTrue(pageSource.isFinished());
+        verifyZeroInteractions(session, connectorSession);
+    }
+}
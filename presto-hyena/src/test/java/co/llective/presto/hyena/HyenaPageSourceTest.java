@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.BlockType;
+import co.llective.hyena.api.ColumnValues;
+import co.llective.presto.hyena.types.U64Type;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.type.BigintType;
+import com.facebook.presto.spi.type.IntegerType;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static co.llective.presto.hyena.HyenaConfig.STREAMING_ENABLED;
+import static co.llective.presto.hyena.HyenaConfig.STREAMING_RECORDS_LIMIT;
+import static co.llective.presto.hyena.HyenaConfig.STREAMING_RECORDS_THRESHOLD;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class HyenaPageSourceTest
+{
+    public static class GetNextPage
+    {
+        HyenaRecordCursor cursor;
+        HyenaPageSource pageSource;
+
+        HyenaColumnHandle u64Column = new HyenaColumnHandle("packets", U64Type.U_64_TYPE, BlockType.U64Sparse, 0);
+        HyenaColumnHandle intColumn = new HyenaColumnHandle("port", IntegerType.INTEGER, BlockType.U16Dense, 1);
+        HyenaColumnHandle sourceIdColumn = new HyenaColumnHandle("source_id", IntegerType.INTEGER, BlockType.U16Dense, 2);
+
+        @BeforeMethod
+        public void setUp()
+        {
+            HyenaSession session = mock(HyenaSession.class);
+            ConnectorSession connectorSession = mock(ConnectorSession.class);
+            when(connectorSession.getProperty(same(STREAMING_ENABLED), any())).thenReturn(false);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_LIMIT), any())).thenReturn(10L);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_THRESHOLD), any())).thenReturn(10L);
+            List<HyenaColumnHandle> columns = Arrays.asList(u64Column, intColumn, sourceIdColumn);
+            cursor = spy(new HyenaRecordCursor(session, connectorSession, columns, TupleDomain.all(), Optional.empty()));
+            pageSource = new HyenaPageSource(cursor, columns);
+        }
+
+        private void returnChunk(int rowCount, boolean lastChunk)
+        {
+            doAnswer(invocation -> {
+                cursor.rowCount = rowCount;
+                cursor.endOfScan.set(lastChunk);
+                return null;
+            }).when(cursor).fetchChunk();
+            doNothing().when(cursor).prepareSliceMappings();
+        }
+
+        @Test
+        public void buildsBlocksWithNullsFromSparseColumn()
+        {
+            ColumnValues sparse = mock(ColumnValues.class);
+            when(sparse.getType()).thenReturn(BlockType.U64Sparse);
+            when(sparse.isNull(anyInt())).thenAnswer(invocation -> (int) invocation.getArgument(0) == 1);
+            when(sparse.getLong(anyInt())).thenAnswer(invocation -> (long) (int) invocation.getArgument(0));
+            ColumnValues dense = mock(ColumnValues.class);
+            when(dense.getType()).thenReturn(BlockType.U16Dense);
+            when(dense.getLong(anyInt())).thenReturn(80L);
+            doReturn(sparse).when(cursor).getColumnValues(0);
+            doReturn(dense).when(cursor).getColumnValues(1);
+            returnChunk(3, true);
+
+            Page page = pageSource.getNextPage();
+
+            assertEquals(page.getPositionCount(), 3);
+            Block u64Block = page.getBlock(0);
+            assertEquals(u64Block.getLong(0, 0), 0L);
+            assertTrue(u64Block.isNull(1));
+            assertEquals(u64Block.getLong(2, 0), 2L);
+            Block intBlock = page.getBlock(1);
+            assertFalse(intBlock.isNull(1));
+            assertEquals(intBlock.getInt(2, 0), 80);
+            assertTrue(page.getBlock(2) instanceof RunLengthEncodedBlock);
+            assertTrue(pageSource.isFinished());
+        }
+
+        @Test
+        public void buildsU64BlocksSupportedByU64Type()
+        {
+            ColumnValues dense = mock(ColumnValues.class);
+            when(dense.getType()).thenReturn(BlockType.U64Dense);
+            when(dense.getLong(anyInt())).thenReturn(-1L);
+            doReturn(dense).when(cursor).getColumnValues(0);
+            doReturn(dense).when(cursor).getColumnValues(1);
+            returnChunk(2, true);
+
+            Block u64Block = pageSource.getNextPage().getBlock(0);
+
+            // grouping, distinct and joins hash and compare values through the type
+            assertEquals(U64Type.U_64_TYPE.hash(u64Block, 0), BigintType.BIGINT.hash(u64Block, 0));
+            assertTrue(U64Type.U_64_TYPE.equalTo(u64Block, 0, u64Block, 1));
+            assertEquals(U64Type.U_64_TYPE.compareTo(u64Block, 0, u64Block, 1), 0);
+        }
+
+        @Test
+        public void returnsNullWhenChunkIsEmpty()
+        {
+            returnChunk(0, false);
+
+            assertNull(pageSource.getNextPage());
+            assertFalse(pageSource.isFinished());
+        }
+
+        @Test
+        public void finishesWhenLastChunkIsEmpty()
+        {
+            returnChunk(0, true);
+
+            assertNull(pageSource.getNextPage());
+            assertTrue(pageSource.isFinished());
+        }
+
+        @Test
+        public void doesNotFetchWhenChunkIsNotReady()
+        {
+            doReturn(false).when(cursor).isChunkReady();
+
+            assertNull(pageSource.getNextPage());
+            verify(cursor, never()).fetchChunk();
+            assertFalse(pageSource.isFinished());
+        }
+    }
+
+    public static class IsDense
+    {
+        @Test
+        public void recognizesDenseAndSparseBlocks()
+        {
+            assertTrue(HyenaPageSource.isDense(BlockType.U64Dense));
+            assertTrue(HyenaPageSource.isDense(BlockType.I8Dense));
+            assertFalse(HyenaPageSource.isDense(BlockType.U64Sparse));
+            assertFalse(HyenaPageSource.isDense(BlockType.StringDense));
+        }
+    }
+}
@@ -9,6 +9,8 @@ import com.facebook.presto.spi.predicate.Domain;
 import com.facebook.presto.spi.predicate.Range;
 import com.facebook.presto.spi.predicate.SortedRangeSet;
 import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.VarcharType;
 import com.google.common.primitives.UnsignedLong;
 import io.airlift.slice.Slices;
@@ -396,4 +398,263 @@ public class HyenaPredicatesUtilUnitTest
             assertEquals(filters.get(0).get(0).getValue(), "asd");
         }
     }
+
+    public static class PushDown
+    {
+        HyenaPredicatesUtil predicatesUtil = new HyenaPredicatesUtil();
+
+        HyenaColumnHandle bigintColumn = new HyenaColumnHandle("bigint", BigintType.BIGINT, BlockType.I64Dense, 0);
+        HyenaColumnHandle u32Column = new HyenaColumnHandle("u32", BigintType.BIGINT, BlockType.U32Dense, 1);
+        HyenaColumnHandle varcharColumn = new HyenaColumnHandle("varchar", VarcharType.VARCHAR, BlockType.StringDense, 2);
+        HyenaColumnHandle u64Column = new HyenaColumnHandle("u64", U64Type.U_64_TYPE, BlockType.U64Dense, 3);
+        HyenaColumnHandle sourceIdColumn = new HyenaColumnHandle("source_id", BigintType.BIGINT, BlockType.U32Dense, 4);
+
+        @Test
+        public void mergesAdjacentValuesAndEnforcesThem()
+        {
+            Domain domain = Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 2L, 3L, 5L));
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(bigintColumn, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 1000);
+
+            Domain expected = Domain.create(ValueSet.ofRanges(
+                    Range.range(BigintType.BIGINT, 1L, true, 3L, true),
+                    Range.equal(BigintType.BIGINT, 5L)), false);
+            assertEquals(pushed.getPushed().getDomains().get().get(bigintColumn), expected);
+            assertTrue(pushed.getUnenforced().isAll());
+        }
+
+        @Test
+        public void mergesRangeWithFollowingValue()
+        {
+            Domain domain = Domain.create(ValueSet.ofRanges(
+                    Range.range(BigintType.BIGINT, 1L, true, 10L, false),
+                    Range.equal(BigintType.BIGINT, 10L)), false);
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(bigintColumn, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 1000);
+
+            assertEquals(
+                    pushed.getPushed().getDomains().get().get(bigintColumn),
+                    Domain.create(ValueSet.ofRanges(Range.range(BigintType.BIGINT, 1L, true, 10L, true)), false));
+        }
+
+        @Test
+        public void replacesWidestDomainWithSpanOverLimit()
+        {
+            Map<HyenaColumnHandle, Domain> domainMap = new HashMap<>();
+            domainMap.put(bigintColumn, Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 10L, 20L)));
+            domainMap.put(u32Column, Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 5L)));
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(domainMap);
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 2);
+
+            Map<HyenaColumnHandle, Domain> pushedDomains = pushed.getPushed().getDomains().get();
+            assertEquals(
+                    pushedDomains.get(bigintColumn),
+                    Domain.create(ValueSet.ofRanges(Range.range(BigintType.BIGINT, 1L, true, 20L, true)), false));
+            assertEquals(pushedDomains.get(u32Column), domainMap.get(u32Column));
+            assertEquals(pushed.getUnenforced().getDomains().get(), Collections.singletonMap(bigintColumn, domainMap.get(bigintColumn)));
+            assertEquals(predicatesUtil.predicateToFilters(pushed.getPushed()).size(), 2);
+        }
+
+        @Test
+        public void dropsU64DomainWithSpanOverSignedMax()
+        {
+            Domain domain = Domain.multipleValues(U64Type.U_64_TYPE, Arrays.asList(1L, 5L, Long.MIN_VALUE + 1));
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(u64Column, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 2);
+
+            assertTrue(pushed.getPushed().isAll());
+            assertEquals(pushed.getUnenforced(), predicate);
+        }
+
+        @Test
+        public void spansU64DomainBelowSignedMax()
+        {
+            Domain domain = Domain.multipleValues(U64Type.U_64_TYPE, Arrays.asList(1L, 5L, 9L));
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(u64Column, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 2);
+
+            assertEquals(
+                    pushed.getPushed().getDomains().get().get(u64Column),
+                    Domain.create(ValueSet.ofRanges(Range.range(U64Type.U_64_TYPE, 1L, true, 9L, true)), false));
+            assertEquals(pushed.getUnenforced(), predicate);
+        }
+
+        @Test
+        public void doesNotPushSourceId()
+        {
+            Domain domain = Domain.singleValue(BigintType.BIGINT, 2L);
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(sourceIdColumn, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 1000);
+
+            assertTrue(pushed.getPushed().isAll());
+            assertEquals(pushed.getUnenforced(), predicate);
+        }
+
+        @Test
+        public void doesNotPushNullAllowingDomain()
+        {
+            Domain domain = Domain.create(ValueSet.of(BigintType.BIGINT, 1L), true);
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(bigintColumn, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 1000);
+
+            assertTrue(pushed.getPushed().isAll());
+            assertEquals(pushed.getUnenforced(), predicate);
+        }
+
+        @Test
+        public void negativeUnsignedBoundIsNotEnforced()
+        {
+            Domain domain = Domain.create(ValueSet.ofRanges(Range.greaterThan(BigintType.BIGINT, -5L)), false);
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(u32Column, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 1000);
+
+            assertEquals(pushed.getPushed(), predicate);
+            assertEquals(pushed.getUnenforced(), predicate);
+        }
+
+        @Test
+        public void pushesStringPrefixAsStartsWith()
+        {
+            Domain domain = Domain.create(ValueSet.ofRanges(Range.range(
+                    VarcharType.VARCHAR, Slices.utf8Slice("abc"), true, Slices.utf8Slice("abd"), false)), false);
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(varcharColumn, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 1000);
+            ScanOrFilters filters = predicatesUtil.predicateToFilters(pushed.getPushed());
+
+            assertEquals(filters.size(), 1);
+            assertEquals(filters.get(0).size(), 1);
+            assertEquals(filters.get(0).get(0).getColumn(), 2);
+            assertEquals(filters.get(0).get(0).getOp(), ScanComparison.StartsWith);
+            assertEquals(filters.get(0).get(0).getValue(), "abc");
+            assertEquals(pushed.getUnenforced(), predicate);
+        }
+
+        @Test
+        public void doesNotPushOtherStringRanges()
+        {
+            Domain domain = Domain.create(ValueSet.ofRanges(Range.greaterThan(VarcharType.VARCHAR, Slices.utf8Slice("abc"))), false);
+            TupleDomain<HyenaColumnHandle> predicate = TupleDomain.withColumnDomains(Collections.singletonMap(varcharColumn, domain));
+
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(predicate, 1000);
+
+            assertTrue(pushed.getPushed().isAll());
+            assertEquals(pushed.getUnenforced(), predicate);
+        }
+
+        @Test
+        public void noneStaysNone()
+        {
+            HyenaPredicatesUtil.PushedPredicate pushed = predicatesUtil.pushDown(TupleDomain.none(), 1000);
+
+            assertTrue(pushed.getPushed().isNone());
+            assertTrue(pushed.getUnenforced().isNone());
+        }
+    }
+
+    public static class PushDownDynamicFilter
+    {
+        HyenaPredicatesUtil predicatesUtil = new HyenaPredicatesUtil();
+
+        HyenaColumnHandle bigintColumn = new HyenaColumnHandle("bigint", BigintType.BIGINT, BlockType.I64Dense, 0);
+        HyenaColumnHandle u32Column = new HyenaColumnHandle("u32", BigintType.BIGINT, BlockType.U32Dense, 1);
+        HyenaColumnHandle varcharColumn = new HyenaColumnHandle("varchar", VarcharType.VARCHAR, BlockType.StringDense, 2);
+        HyenaColumnHandle u64Column = new HyenaColumnHandle("u64", U64Type.U_64_TYPE, BlockType.U64Dense, 3);
+
+        @Test
+        public void keepsSplitPredicateOverLimit()
+        {
+            Domain splitDomain = Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 10L, 20L));
+            TupleDomain<HyenaColumnHandle> splitPredicate = TupleDomain.withColumnDomains(Collections.singletonMap(bigintColumn, splitDomain));
+            TupleDomain<HyenaColumnHandle> dynamicFilter = TupleDomain.withColumnDomains(Collections.singletonMap(
+                    u32Column, Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 5L))));
+
+            TupleDomain<HyenaColumnHandle> pushed = predicatesUtil.pushDownDynamicFilter(splitPredicate, dynamicFilter, 4);
+
+            Map<HyenaColumnHandle, Domain> pushedDomains = pushed.getDomains().get();
+            assertEquals(pushedDomains.get(bigintColumn), splitDomain);
+            assertEquals(
+                    pushedDomains.get(u32Column),
+                    Domain.create(ValueSet.ofRanges(Range.range(BigintType.BIGINT, 1L, true, 5L, true)), false));
+            assertEquals(predicatesUtil.predicateToFilters(pushed).size(), 3);
+        }
+
+        @Test
+        public void keepsSplitDomainWhenIntersectionDoesNotFit()
+        {
+            Domain splitDomain = Domain.create(ValueSet.ofRanges(Range.range(BigintType.BIGINT, 0L, true, 100L, true)), false);
+            TupleDomain<HyenaColumnHandle> splitPredicate = TupleDomain.withColumnDomains(Collections.singletonMap(bigintColumn, splitDomain));
+            TupleDomain<HyenaColumnHandle> dynamicFilter = TupleDomain.withColumnDomains(Collections.singletonMap(
+                    bigintColumn, Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 10L, 200L))));
+
+            TupleDomain<HyenaColumnHandle> pushed = predicatesUtil.pushDownDynamicFilter(splitPredicate, dynamicFilter, 1);
+
+            assertEquals(pushed, splitPredicate);
+        }
+
+        @Test
+        public void narrowsSplitDomainWithIntersection()
+        {
+            Domain splitDomain = Domain.create(ValueSet.ofRanges(Range.range(BigintType.BIGINT, 0L, true, 100L, true)), false);
+            TupleDomain<HyenaColumnHandle> splitPredicate = TupleDomain.withColumnDomains(Collections.singletonMap(bigintColumn, splitDomain));
+            TupleDomain<HyenaColumnHandle> dynamicFilter = TupleDomain.withColumnDomains(Collections.singletonMap(
+                    bigintColumn, Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 10L, 200L))));
+
+            TupleDomain<HyenaColumnHandle> pushed = predicatesUtil.pushDownDynamicFilter(splitPredicate, dynamicFilter, 1000);
+
+            assertEquals(pushed.getDomains().get().get(bigintColumn), Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 10L)));
+        }
+
+        @Test
+        public void disjointDynamicFilterIsNone()
+        {
+            TupleDomain<HyenaColumnHandle> splitPredicate = TupleDomain.withColumnDomains(Collections.singletonMap(
+                    bigintColumn, Domain.multipleValues(BigintType.BIGINT, Arrays.asList(1L, 2L))));
+            TupleDomain<HyenaColumnHandle> dynamicFilter = TupleDomain.withColumnDomains(Collections.singletonMap(
+                    bigintColumn, Domain.multipleValues(BigintType.BIGINT, Arrays.asList(5L, 6L))));
+
+            assertTrue(predicatesUtil.pushDownDynamicFilter(splitPredicate, dynamicFilter, 1000).isNone());
+        }
+
+        @Test
+        public void dropsU64DynamicFilterWithSpanOverSignedMax()
+        {
+            TupleDomain<HyenaColumnHandle> dynamicFilter = TupleDomain.withColumnDomains(Collections.singletonMap(
+                    u64Column, Domain.multipleValues(U64Type.U_64_TYPE, Arrays.asList(1L, 5L, Long.MIN_VALUE, -1L))));
+
+            TupleDomain<HyenaColumnHandle> pushed = predicatesUtil.pushDownDynamicFilter(TupleDomain.all(), dynamicFilter, 2);
+
+            assertTrue(pushed.isAll());
+        }
+
+        @Test
+        public void spansU64DynamicFilterBelowSignedMax()
+        {
+            TupleDomain<HyenaColumnHandle> dynamicFilter = TupleDomain.withColumnDomains(Collections.singletonMap(
+                    u64Column, Domain.multipleValues(U64Type.U_64_TYPE, Arrays.asList(1L, 5L, 9L))));
+
+            TupleDomain<HyenaColumnHandle> pushed = predicatesUtil.pushDownDynamicFilter(TupleDomain.all(), dynamicFilter, 2);
+
+            assertEquals(
+                    pushed.getDomains().get().get(u64Column),
+                    Domain.create(ValueSet.ofRanges(Range.range(U64Type.U_64_TYPE, 1L, true, 9L, true)), false));
+        }
+
+        @Test
+        public void doesNotPushStringDynamicFilter()
+        {
+            TupleDomain<HyenaColumnHandle> dynamicFilter = TupleDomain.withColumnDomains(Collections.singletonMap(
+                    varcharColumn, Domain.singleValue(VarcharType.VARCHAR, Slices.utf8Slice("abc"))));
+
+            assertTrue(predicatesUtil.pushDownDynamicFilter(TupleDomain.all(), dynamicFilter, 1000).isAll());
+        }
+    }
 }
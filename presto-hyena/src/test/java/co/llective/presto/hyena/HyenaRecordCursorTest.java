@@ -18,6 +18,7 @@ import co.llective.hyena.api.ColumnValues;
 import co.llective.hyena.api.DenseNumberColumn;
 import co.llective.hyena.api.ScanResult;
 import co.llective.hyena.api.SparseNumberColumn;
+import co.llective.hyena.api.StreamConfig;
 import co.llective.hyena.api.StreamState;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.predicate.TupleDomain;
@@ -27,6 +28,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -36,6 +38,7 @@ import static co.llective.presto.hyena.HyenaConfig.STREAMING_ENABLED;
 import static co.llective.presto.hyena.HyenaConfig.STREAMING_RECORDS_LIMIT;
 import static co.llective.presto.hyena.HyenaConfig.STREAMING_RECORDS_THRESHOLD;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -47,6 +50,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 public class HyenaRecordCursorTest
@@ -244,6 +249,224 @@ public class HyenaRecordCursorTest
         }
     }
 
+    public static class LimitFirstChunk
+    {
+        HyenaSession session;
+        HyenaRecordCursor cursor;
+
+        HyenaColumnHandle column = new HyenaColumnHandle("colName", IntegerType.INTEGER, BlockType.I32Dense, 0);
+
+        @BeforeMethod
+        public void setUp()
+        {
+            session = mock(HyenaSession.class);
+            ConnectorSession connectorSession = mock(ConnectorSession.class);
+            when(connectorSession.getProperty(same(STREAMING_ENABLED), any())).thenReturn(true);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_LIMIT), any())).thenReturn(1000L);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_THRESHOLD), any())).thenReturn(1000L);
+            cursor = new HyenaRecordCursor(session, connectorSession, Collections.singletonList(column), TupleDomain.all(), Optional.empty());
+        }
+
+        @Test
+        public void usesConfiguredLimitAfterFirstChunk()
+        {
+            Optional<StreamConfig> fullConfig = cursor.getScanRequest().getScanConfig();
+            when(session.scan(any())).thenReturn(new ScanResult(Collections.emptyMap(), Optional.of(new StreamState(10))));
+
+            cursor.limitFirstChunk(10L);
+            assertNotSame(cursor.getScanRequest().getScanConfig(), fullConfig);
+
+            cursor.fetchChunk();
+            assertSame(cursor.getScanRequest().getScanConfig(), fullConfig);
+        }
+
+        @Test
+        public void ignoresLimitNotSmallerThanConfigured()
+        {
+            Optional<StreamConfig> fullConfig = cursor.getScanRequest().getScanConfig();
+
+            cursor.limitFirstChunk(1000L);
+            cursor.limitFirstChunk(0L);
+
+            assertSame(cursor.getScanRequest().getScanConfig(), fullConfig);
+        }
+    }
+
+    public static class AdaptiveChunks
+    {
+        HyenaSession session;
+        HyenaRecordCursor cursor;
+
+        HyenaColumnHandle column = new HyenaColumnHandle("colName", IntegerType.INTEGER, BlockType.I32Dense, 0);
+
+        @BeforeMethod
+        public void setUp()
+        {
+            session = mock(HyenaSession.class);
+            ConnectorSession connectorSession = mock(ConnectorSession.class);
+            when(connectorSession.getProperty(same(STREAMING_ENABLED), any())).thenReturn(true);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_LIMIT), any())).thenReturn(1000L);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_THRESHOLD), any())).thenReturn(1000L);
+            cursor = new HyenaRecordCursor(session, connectorSession, Collections.singletonList(column), TupleDomain.all(), Optional.empty());
+        }
+
+        @Test
+        public void sizesFirstChunkFromProjectedColumns()
+        {
+            cursor.enableAdaptiveChunks(400_000L);
+
+            StreamConfig config = cursor.getScanRequest().getScanConfig().get();
+            assertEquals(config.getLimit(), 100_000L);
+            assertEquals(config.getThreshold(), 1000L);
+        }
+
+        @Test
+        public void sizesNextChunksFromReceivedOnes()
+        {
+            Map<Long, ColumnValues> data = new HashMap<>();
+            data.put(0L, new DenseNumberColumn(BlockType.I32Dense, Slices.EMPTY_SLICE, 10_000));
+            data.put(1L, new DenseNumberColumn(BlockType.I32Dense, Slices.EMPTY_SLICE, 10_000));
+            when(session.scan(any())).thenReturn(new ScanResult(data, Optional.of(new StreamState(10))));
+
+            cursor.enableAdaptiveChunks(400_000L);
+            cursor.fetchChunk();
+
+            // 8 bytes per row smoothed with estimated 4
+            StreamConfig config = cursor.getScanRequest().getScanConfig().get();
+            assertEquals(config.getLimit(), 66_666L);
+            assertTrue(config.getStreamState().isPresent());
+        }
+
+        @Test
+        public void keepsFirstChunkLimitSmaller()
+        {
+            cursor.enableAdaptiveChunks(400_000L);
+            cursor.limitFirstChunk(10L);
+
+            assertEquals(cursor.getScanRequest().getScanConfig().get().getLimit(), 10L);
+        }
+
+        @Test
+        public void disabledWithoutTargetSize()
+        {
+            Optional<StreamConfig> config = cursor.getScanRequest().getScanConfig();
+
+            cursor.enableAdaptiveChunks(0L);
+
+            assertSame(cursor.getScanRequest().getScanConfig(), config);
+        }
+    }
+
+    public static class ScanMetrics
+    {
+        HyenaSession session;
+        HyenaRecordCursor cursor;
+        HyenaScanStats stats;
+
+        HyenaColumnHandle column = new HyenaColumnHandle("colName", IntegerType.INTEGER, BlockType.I32Dense, 0);
+
+        @BeforeMethod
+        public void setUp()
+        {
+            session = mock(HyenaSession.class);
+            ConnectorSession connectorSession = mock(ConnectorSession.class);
+            when(connectorSession.getProperty(same(STREAMING_ENABLED), any())).thenReturn(false);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_LIMIT), any())).thenReturn(10L);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_THRESHOLD), any())).thenReturn(10L);
+            cursor = new HyenaRecordCursor(session, connectorSession, Collections.singletonList(column), TupleDomain.all(), Optional.empty());
+            stats = new HyenaScanStats();
+            cursor.recordStats(stats);
+        }
+
+        @Test
+        public void accumulatesBytesAndReadTimeOfChunks()
+        {
+            Map<Long, ColumnValues> data = new HashMap<>();
+            data.put(0L, new DenseNumberColumn(BlockType.I32Dense, Slices.EMPTY_SLICE, 10));
+            when(session.scan(any())).thenReturn(new ScanResult(data, Optional.of(new StreamState(10))));
+
+            cursor.fetchChunk();
+            cursor.fetchChunk();
+
+            assertEquals(cursor.getCompletedBytes(), 80L);
+            assertTrue(cursor.getReadTimeNanos() > 0);
+            assertEquals(stats.getChunkCount(), 2L);
+            assertEquals(stats.getRowCount(), 20L);
+            assertEquals(stats.getCompletedBytes(), 80L);
+        }
+
+        @Test
+        public void recordsScanOnClose()
+        {
+            cursor.close();
+
+            assertEquals(stats.getScanCount(), 1L);
+        }
+
+        @Test
+        public void estimatesSizeOfColumns()
+        {
+            ColumnValues strings = mock(ColumnValues.class);
+            when(strings.getType()).thenReturn(BlockType.StringDense);
+            when(strings.getElementsCount()).thenReturn(3);
+            when(strings.isNull(anyInt())).thenAnswer(invocation -> (int) invocation.getArgument(0) == 1);
+            when(strings.getSlice(anyInt())).thenReturn(Slices.utf8Slice("abcd"));
+
+            Map<Long, ColumnValues> data = new HashMap<>();
+            data.put(0L, new DenseNumberColumn(BlockType.U16Dense, Slices.EMPTY_SLICE, 10));
+            data.put(1L, new SparseNumberColumn(BlockType.U64Sparse, Slices.EMPTY_SLICE, Slices.EMPTY_SLICE, 5));
+            data.put(2L, strings);
+
+            assertEquals(HyenaRecordCursor.getSizeInBytes(new ScanResult(data, Optional.empty())), 10 * 2 + 5 * 12 + 2 * 4);
+        }
+    }
+
+    public static class BuildScanRequest
+    {
+        ConnectorSession connectorSession;
+
+        HyenaColumnHandle sourceIdColumn = new HyenaColumnHandle("source_id", IntegerType.INTEGER, BlockType.U16Dense, 2);
+        HyenaColumnHandle portColumn = new HyenaColumnHandle("port", IntegerType.INTEGER, BlockType.U16Dense, 5);
+
+        @BeforeMethod
+        public void setUp()
+        {
+            connectorSession = mock(ConnectorSession.class);
+            when(connectorSession.getProperty(same(STREAMING_ENABLED), any())).thenReturn(false);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_LIMIT), any())).thenReturn(10L);
+            when(connectorSession.getProperty(same(STREAMING_RECORDS_THRESHOLD), any())).thenReturn(10L);
+        }
+
+        private HyenaRecordCursor createCursor(HyenaColumnHandle... columns)
+        {
+            return new HyenaRecordCursor(mock(HyenaSession.class), connectorSession, Arrays.asList(columns), TupleDomain.all(), Optional.empty());
+        }
+
+        @Test
+        public void projectsTimestampWhenNoColumnsRequested()
+        {
+            HyenaRecordCursor cursor = createCursor();
+
+            assertEquals(cursor.getScanRequest().getProjection(), Collections.singletonList(0L));
+        }
+
+        @Test
+        public void projectsTimestampWhenOnlySourceIdRequested()
+        {
+            HyenaRecordCursor cursor = createCursor(sourceIdColumn);
+
+            assertEquals(cursor.getScanRequest().getProjection(), Arrays.asList(2L, 0L));
+        }
+
+        @Test
+        public void projectsOnlyRequestedColumnsOtherwise()
+        {
+            HyenaRecordCursor cursor = createCursor(sourceIdColumn, portColumn);
+
+            assertEquals(cursor.getScanRequest().getProjection(), Arrays.asList(2L, 5L));
+        }
+    }
+
     public static class GetRowCount
     {
         HyenaRecordCursor cursor;
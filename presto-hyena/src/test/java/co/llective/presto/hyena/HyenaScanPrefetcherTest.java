@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.ScanRequest;
+import co.llective.hyena.api.ScanResult;
+import co.llective.hyena.api.StreamConfig;
+import co.llective.hyena.api.StreamState;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class HyenaScanPrefetcherTest
+{
+    HyenaSession session;
+    ScanRequest scanRequest;
+    ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        session = mock(HyenaSession.class);
+        scanRequest = new ScanRequest();
+        scanRequest.setScanConfig(Optional.of(new StreamConfig(10L, 10L, Optional.empty())));
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void returnsChunksInOrderUntilEndOfScan()
+    {
+        ScanResult first = new ScanResult(Collections.emptyMap(), Optional.of(new StreamState(10)));
+        ScanResult last = new ScanResult(Collections.emptyMap(), Optional.empty());
+        when(session.scan(any())).thenReturn(first).thenReturn(last);
+
+        HyenaScanPrefetcher prefetcher = new HyenaScanPrefetcher(() -> session.scan(scanRequest), HyenaRecordCursor::getSizeInBytes, executor, 1);
+
+        assertSame(prefetcher.take(), first);
+        assertSame(prefetcher.take(), last);
+        verify(session, times(2)).scan(any());
+    }
+
+    @Test
+    public void unblocksWhenChunkIsDownloaded()
+            throws Exception
+    {
+        ScanResult last = new ScanResult(Collections.emptyMap(), Optional.empty());
+        when(session.scan(any())).thenReturn(last);
+
+        HyenaScanPrefetcher prefetcher = new HyenaScanPrefetcher(() -> session.scan(scanRequest), HyenaRecordCursor::getSizeInBytes, executor, 2);
+        CompletableFuture<?> blocked = prefetcher.isBlocked();
+        blocked.get(10, TimeUnit.SECONDS);
+
+        assertTrue(prefetcher.isChunkReady());
+        assertSame(prefetcher.take(), last);
+    }
+
+    @Test
+    public void tracksBytesOfQueuedAndCurrentChunks()
+            throws Exception
+    {
+        ScanResult first = new ScanResult(Collections.emptyMap(), Optional.of(new StreamState(10)));
+        ScanResult second = new ScanResult(Collections.emptyMap(), Optional.of(new StreamState(20)));
+        ScanResult last = new ScanResult(Collections.emptyMap(), Optional.empty());
+        when(session.scan(any())).thenReturn(first).thenReturn(second).thenReturn(last);
+
+        HyenaScanPrefetcher prefetcher = new HyenaScanPrefetcher(() -> session.scan(scanRequest), chunk -> 100L, executor, 2);
+        assertEquals(prefetcher.getRetainedBytes(), 0);
+
+        assertSame(prefetcher.take(), first);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (prefetcher.getRetainedBytes() < 300 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // two chunks downloaded ahead and the one being processed
+        assertEquals(prefetcher.getRetainedBytes(), 300);
+
+        assertSame(prefetcher.take(), second);
+        assertEquals(prefetcher.getRetainedBytes(), 200);
+        assertSame(prefetcher.take(), last);
+        assertEquals(prefetcher.getRetainedBytes(), 100);
+
+        prefetcher.close();
+        assertEquals(prefetcher.getRetainedBytes(), 0);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void propagatesScanFailure()
+    {
+        when(session.scan(any())).thenThrow(new RuntimeException("Error while scanning"));
+
+        HyenaScanPrefetcher prefetcher = new HyenaScanPrefetcher(() -> session.scan(scanRequest), HyenaRecordCursor::getSizeInBytes, executor, 1);
+        prefetcher.take();
+    }
+}
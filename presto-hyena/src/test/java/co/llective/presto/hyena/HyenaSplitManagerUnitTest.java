@@ -1,12 +1,13 @@
 package co.llective.presto.hyena;
 
 import co.llective.presto.hyena.util.TimeBoundaries;
-import com.facebook.presto.spi.NodeManager;
 import com.google.common.primitives.UnsignedLong;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.Mockito.doReturn;
@@ -23,7 +24,7 @@ public class HyenaSplitManagerUnitTest
         @BeforeTest
         public void setUp()
         {
-            splitManager = spy(new HyenaSplitManager(mock(NodeManager.class), mock(HyenaSession.class)));
+            splitManager = spy(new HyenaSplitManager(mock(HyenaSession.class)));
         }
 
         @Test
@@ -126,4 +127,59 @@ public class HyenaSplitManagerUnitTest
             assertEquals(result, expectedBoundaries);
         }
     }
+
+    public static class SplitByPartitions
+    {
+        @Test
+        public void balancesPartitionsBetweenSplits()
+        {
+            List<TimeBoundaries> partitions = Arrays.asList(
+                    TimeBoundaries.of(0L, 10L),
+                    TimeBoundaries.of(10L, 20L),
+                    TimeBoundaries.of(500L, 510L),
+                    TimeBoundaries.of(510L, 520L));
+
+            List<TimeBoundaries> result = HyenaSplitManager.splitByPartitions(TimeBoundaries.of(0L, 1000L), partitions, 2);
+
+            assertEquals(result, Arrays.asList(TimeBoundaries.of(0L, 500L), TimeBoundaries.of(500L, 1000L)));
+        }
+
+        @Test
+        public void ignoresPartitionsOutsideOfTimeRange()
+        {
+            List<TimeBoundaries> partitions = Arrays.asList(
+                    TimeBoundaries.of(0L, 10L),
+                    TimeBoundaries.of(100L, 110L),
+                    TimeBoundaries.of(200L, 210L),
+                    TimeBoundaries.of(2000L, 2010L));
+
+            List<TimeBoundaries> result = HyenaSplitManager.splitByPartitions(TimeBoundaries.of(50L, 1000L), partitions, 5);
+
+            assertEquals(result, Arrays.asList(TimeBoundaries.of(50L, 200L), TimeBoundaries.of(200L, 1000L)));
+        }
+
+        @Test
+        public void extendsOpenRangeToTimestampLimits()
+        {
+            List<TimeBoundaries> partitions = Arrays.asList(
+                    TimeBoundaries.of(100L, 110L),
+                    TimeBoundaries.of(200L, 210L));
+
+            List<TimeBoundaries> result = HyenaSplitManager.splitByPartitions(TimeBoundaries.of(null, null), partitions, 2);
+
+            assertEquals(result, Arrays.asList(
+                    TimeBoundaries.of(0L, 200L),
+                    TimeBoundaries.of(200L, UnsignedLong.MAX_VALUE.longValue())));
+        }
+
+        @Test
+        public void returnsWholeRangeWhenNoPartitionMatches()
+        {
+            List<TimeBoundaries> partitions = Collections.singletonList(TimeBoundaries.of(2000L, 2010L));
+
+            List<TimeBoundaries> result = HyenaSplitManager.splitByPartitions(TimeBoundaries.of(0L, 1000L), partitions, 5);
+
+            assertEquals(result, Collections.singletonList(TimeBoundaries.of(0L, 1000L)));
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.BlockType;
+import co.llective.presto.hyena.types.U64Type;
+import co.llective.presto.hyena.util.TimeBoundaries;
+import com.facebook.presto.spi.statistics.ColumnStatistics;
+import com.facebook.presto.spi.statistics.RangeColumnStatistics;
+import com.facebook.presto.spi.type.BigintType;
+import com.facebook.presto.spi.type.IntegerType;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class HyenaStatisticsProviderTest
+{
+    public static class EstimatePartitionsInRange
+    {
+        List<TimeBoundaries> partitions = Arrays.asList(
+                TimeBoundaries.of(0L, 99L),
+                TimeBoundaries.of(100L, 199L),
+                TimeBoundaries.of(200L, 299L));
+
+        @Test
+        public void countsAllPartitionsWithoutTimeRange()
+        {
+            assertEquals(HyenaStatisticsProvider.estimatePartitionsInRange(partitions, Optional.empty()), 3.0);
+        }
+
+        @Test
+        public void countsPartiallyCoveredPartitionsProportionally()
+        {
+            double result = HyenaStatisticsProvider.estimatePartitionsInRange(partitions, Optional.of(TimeBoundaries.of(150L, 349L)));
+
+            assertEquals(result, 1.5);
+        }
+
+        @Test
+        public void ignoresPartitionsOutsideOfTimeRange()
+        {
+            double result = HyenaStatisticsProvider.estimatePartitionsInRange(partitions, Optional.of(TimeBoundaries.of(1000L, 2000L)));
+
+            assertEquals(result, 0.0);
+        }
+
+        @Test
+        public void handlesUnsignedOpenEnd()
+        {
+            double result = HyenaStatisticsProvider.estimatePartitionsInRange(partitions, Optional.of(TimeBoundaries.of(200L, -1L)));
+
+            assertEquals(result, 1.0);
+        }
+    }
+
+    public static class EstimateColumnStatistics
+    {
+        @Test
+        public void denseColumnHasNoNullsAndUnknownDistinctValues()
+        {
+            HyenaColumnHandle column = new HyenaColumnHandle("port", IntegerType.INTEGER, BlockType.U16Dense, 1);
+
+            ColumnStatistics statistics = HyenaStatisticsProvider.estimateColumnStatistics(column, 1_000_000);
+
+            assertEquals(statistics.getNullsFraction().getValue(), 0.0);
+            RangeColumnStatistics range = statistics.getOnlyRangeColumnStatistics();
+            assertTrue(range.getDistinctValuesCount().isValueUnknown());
+            assertFalse(range.getLowValue().isPresent());
+            assertFalse(range.getHighValue().isPresent());
+            assertEquals(range.getDataSize().getValue(), 4_000_000.0);
+        }
+
+        @Test
+        public void wideIntegerColumnIsNotReportedAsUnique()
+        {
+            HyenaColumnHandle column = new HyenaColumnHandle("bytes", BigintType.BIGINT, BlockType.U32Dense, 1);
+
+            ColumnStatistics statistics = HyenaStatisticsProvider.estimateColumnStatistics(column, 100);
+
+            assertTrue(statistics.getOnlyRangeColumnStatistics().getDistinctValuesCount().isValueUnknown());
+        }
+
+        @Test
+        public void sourceIdIsConstant()
+        {
+            HyenaColumnHandle column = new HyenaColumnHandle("source_id", BigintType.BIGINT, BlockType.U32Dense, 1);
+
+            RangeColumnStatistics range = HyenaStatisticsProvider.estimateColumnStatistics(column, 100).getOnlyRangeColumnStatistics();
+
+            assertEquals(range.getDistinctValuesCount().getValue(), 1.0);
+            assertEquals(range.getLowValue(), Optional.of(1L));
+            assertEquals(range.getHighValue(), Optional.of(1L));
+        }
+
+        @Test
+        public void sparseColumnHasUnknownNulls()
+        {
+            HyenaColumnHandle column = new HyenaColumnHandle("packets", U64Type.U_64_TYPE, BlockType.U64Sparse, 0);
+
+            ColumnStatistics statistics = HyenaStatisticsProvider.estimateColumnStatistics(column, 100);
+
+            assertTrue(statistics.getNullsFraction().isValueUnknown());
+            RangeColumnStatistics range = statistics.getOnlyRangeColumnStatistics();
+            assertTrue(range.getDistinctValuesCount().isValueUnknown());
+            assertFalse(range.getLowValue().isPresent());
+        }
+
+        @Test
+        public void timestampIsUnique()
+        {
+            HyenaColumnHandle column = new HyenaColumnHandle("timestamp", U64Type.U_64_TYPE, BlockType.U64Dense, 0);
+
+            ColumnStatistics statistics = HyenaStatisticsProvider.estimateColumnStatistics(column, 1234);
+
+            assertEquals(statistics.getOnlyRangeColumnStatistics().getDistinctValuesCount().getValue(), 1234.0);
+        }
+    }
+}
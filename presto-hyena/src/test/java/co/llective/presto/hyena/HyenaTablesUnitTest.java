@@ -0,0 +1,106 @@
+package co.llective.presto.hyena;
+
+import co.llective.hyena.api.BlockType;
+import co.llective.hyena.api.Column;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class HyenaTablesUnitTest
+{
+    public static class GetColumns
+    {
+        HyenaSession session;
+        List<Column> columns = Collections.singletonList(new Column(BlockType.U64Dense, 0, "timestamp"));
+        List<Column> changedColumns = Arrays.asList(
+                new Column(BlockType.U64Dense, 0, "timestamp"),
+                new Column(BlockType.U32Dense, 1, "source_id"));
+
+        @BeforeMethod
+        public void setUp()
+        {
+            session = mock(HyenaSession.class);
+            when(session.getAvailableColumns()).thenReturn(columns);
+        }
+
+        private HyenaTables createTables(long catalogCacheTtlSeconds)
+        {
+            return new HyenaTables(session, new HyenaConfig().setCatalogCacheTtlSeconds(catalogCacheTtlSeconds));
+        }
+
+        private List<HyenaColumnMetadata> getColumns(HyenaTables tables)
+        {
+            return tables.getColumns(tables.getTable(tables.getTables().get(0)));
+        }
+
+        @Test
+        public void usesCachedCatalog()
+        {
+            HyenaTables tables = createTables(3600);
+            try {
+                List<HyenaColumnMetadata> first = getColumns(tables);
+                List<HyenaColumnMetadata> second = getColumns(tables);
+
+                assertSame(first, second);
+                verify(session, times(1)).getAvailableColumns();
+            }
+            finally {
+                tables.shutdown();
+            }
+        }
+
+        @Test
+        public void keepsVersionWhenCatalogDidNotChange()
+        {
+            HyenaTables tables = createTables(3600);
+            try {
+                List<HyenaColumnMetadata> cached = getColumns(tables);
+
+                tables.refreshCatalog();
+
+                assertEquals(tables.getCatalogVersion(), 0L);
+                assertSame(getColumns(tables), cached);
+            }
+            finally {
+                tables.shutdown();
+            }
+        }
+
+        @Test
+        public void bumpsVersionWhenCatalogChanged()
+        {
+            HyenaTables tables = createTables(3600);
+            try {
+                when(session.getAvailableColumns()).thenReturn(changedColumns);
+
+                tables.refreshCatalog();
+
+                assertEquals(tables.getCatalogVersion(), 1L);
+                assertEquals(getColumns(tables).size(), 2);
+            }
+            finally {
+                tables.shutdown();
+            }
+        }
+
+        @Test
+        public void fetchesCatalogOnEveryCallWhenCacheDisabled()
+        {
+            HyenaTables tables = createTables(0);
+            when(session.getAvailableColumns()).thenReturn(changedColumns);
+
+            assertEquals(getColumns(tables).size(), 2);
+            verify(session, times(2)).getAvailableColumns();
+        }
+    }
+}
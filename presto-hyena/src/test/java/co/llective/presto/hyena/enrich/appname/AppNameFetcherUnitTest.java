@@ -2,6 +2,7 @@ package co.llective.presto.hyena.enrich.appname;
 
 import co.llective.presto.hyena.enrich.rest.RestClient;
 import co.llective.presto.hyena.enrich.rest.RestClientException;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -82,7 +83,7 @@ public class AppNameFetcherUnitTest
             when(objectMapperMock.readValue(globalToucanJson, EnrichedAppNames.class))
                     .thenReturn(deserializedGlobalJson);
 
-            fetcher = new ApplicationNameFetcher(cacheMock, restClientMock, objectMapperMock);
+            fetcher = new ApplicationNameFetcher(cacheMock, restClientMock, objectMapperMock, mock(SnapshotStore.class));
         }
 
         @Test
@@ -1,15 +1,13 @@
 package co.llective.presto.hyena.enrich.geoip;
 
+import co.llective.presto.hyena.enrich.util.IpCache;
 import co.llective.presto.hyena.enrich.util.IpUtil;
-import co.llective.presto.hyena.enrich.util.SoftCache;
-import co.llective.presto.hyena.enrich.util.SubnetV4;
-import co.llective.presto.hyena.enrich.util.SubnetV6;
+import co.llective.presto.hyena.enrich.util.SubnetTrie;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -33,24 +31,20 @@ public class GeoIpCacheUnitTest
                 throw new GeoIp2Exception("");
             }
         };
-        SoftCache<String> geoIpCache;
-        Map<SubnetV4, String> localIp4Provider;
-        Map<SubnetV6, String> localIp6Provider;
+        IpCache<String> geoIpCache;
+        SubnetTrie<LocalGeoIpEnrichment> localSubnets;
 
         @BeforeMethod
         public void setUp()
         {
             cache = GeoIpCache.getInstance();
 
-            localIp4Provider = new HashMap<>();
-            SubnetV4 subnetV4 = new SubnetV4(localIp4ProviderIp, 24);
-            localIp4Provider.put(subnetV4, localIp4ProviderIp);
+            localSubnets = GeoIpCache.buildLocalSubnets(Arrays.asList(
+                    new LocalGeoIpEnrichment(localIp4ProviderIp + "/24", localIp4ProviderIp, null, null, null)));
 
-            localIp6Provider = new HashMap<>();
-
-            geoIpCache = new SoftCache<>();
+            geoIpCache = new IpCache<>(16);
             IpUtil.IpPair ipPair = IpUtil.parseIp(cacheIp);
-            geoIpCache.getInnerMap(ipPair.getHighBits()).put(ipPair.getLowBits(), cacheIp);
+            geoIpCache.put(ipPair.getHighBits(), ipPair.getLowBits(), cacheIp);
         }
 
         @Test
@@ -62,8 +56,8 @@ public class GeoIpCacheUnitTest
                     ipPair.getLowBits(),
                     geoDbIpProvider,
                     geoIpCache,
-                    localIp4Provider,
-                    localIp6Provider);
+                    localSubnets,
+                    LocalGeoIpEnrichment::getCity);
 
             assertEquals(value, cacheIp);
         }
@@ -74,21 +68,21 @@ public class GeoIpCacheUnitTest
             IpUtil.IpPair ipPair = IpUtil.parseIp(localIp4ProviderIp);
 
             //assert that cache doesn't have entry before execution
-            assertFalse(geoIpCache.getInnerMap(ipPair.getHighBits()).containsKey(ipPair.getLowBits()));
+            assertFalse(geoIpCache.containsKey(ipPair.getHighBits(), ipPair.getLowBits()));
 
             String value = cache.getValue(
                     ipPair.getHighBits(),
                     ipPair.getLowBits(),
                     geoDbIpProvider,
                     geoIpCache,
-                    localIp4Provider,
-                    localIp6Provider);
+                    localSubnets,
+                    LocalGeoIpEnrichment::getCity);
 
             assertEquals(value, localIp4ProviderIp);
 
             //assert that cache had been populated with local ip
-            assertTrue(geoIpCache.getInnerMap(ipPair.getHighBits()).containsKey(ipPair.getLowBits()));
-            assertEquals(geoIpCache.getInnerMap(ipPair.getHighBits()).get(ipPair.getLowBits()), localIp4ProviderIp);
+            assertTrue(geoIpCache.containsKey(ipPair.getHighBits(), ipPair.getLowBits()));
+            assertEquals(geoIpCache.get(ipPair.getHighBits(), ipPair.getLowBits()), localIp4ProviderIp);
         }
 
         @Test
@@ -97,21 +91,21 @@ public class GeoIpCacheUnitTest
             IpUtil.IpPair ipPair = IpUtil.parseIp(geoDbIp);
 
             //assert that cache doesn't have entry before execution
-            assertFalse(geoIpCache.getInnerMap(ipPair.getHighBits()).containsKey(ipPair.getLowBits()));
+            assertFalse(geoIpCache.containsKey(ipPair.getHighBits(), ipPair.getLowBits()));
 
             String value = cache.getValue(
                     ipPair.getHighBits(),
                     ipPair.getLowBits(),
                     geoDbIpProvider,
                     geoIpCache,
-                    localIp4Provider,
-                    localIp6Provider);
+                    localSubnets,
+                    LocalGeoIpEnrichment::getCity);
 
             assertEquals(value, geoDbIp);
 
             //assert that cache had been populated with local ip
-            assertTrue(geoIpCache.getInnerMap(ipPair.getHighBits()).containsKey(ipPair.getLowBits()));
-            assertEquals(geoIpCache.getInnerMap(ipPair.getHighBits()).get(ipPair.getLowBits()), geoDbIp);
+            assertTrue(geoIpCache.containsKey(ipPair.getHighBits(), ipPair.getLowBits()));
+            assertEquals(geoIpCache.get(ipPair.getHighBits(), ipPair.getLowBits()), geoDbIp);
         }
 
         @Test
@@ -120,21 +114,45 @@ public class GeoIpCacheUnitTest
             IpUtil.IpPair ipPair = IpUtil.parseIp(nonExistingIp);
 
             //assert that cache doesn't have entry before execution
-            assertFalse(geoIpCache.getInnerMap(ipPair.getHighBits()).containsKey(ipPair.getLowBits()));
+            assertFalse(geoIpCache.containsKey(ipPair.getHighBits(), ipPair.getLowBits()));
 
             String value = cache.getValue(
                     ipPair.getHighBits(),
                     ipPair.getLowBits(),
                     geoDbIpProvider,
                     geoIpCache,
-                    localIp4Provider,
-                    localIp6Provider);
+                    localSubnets,
+                    LocalGeoIpEnrichment::getCity);
 
             assertNull(value);
 
             //assert that cache had been populated with local ip
-            assertTrue(geoIpCache.getInnerMap(ipPair.getHighBits()).containsKey(ipPair.getLowBits()));
-            assertNull(geoIpCache.getInnerMap(ipPair.getHighBits()).get(ipPair.getLowBits()));
+            assertTrue(geoIpCache.containsKey(ipPair.getHighBits(), ipPair.getLowBits()));
+            assertNull(geoIpCache.get(ipPair.getHighBits(), ipPair.getLowBits()));
+        }
+    }
+
+    public static class BuildLocalSubnets
+    {
+        LocalGeoIpEnrichment wideV4 = new LocalGeoIpEnrichment("10.0.0.0/8", "Wide", "PL", 1.0, 2.0);
+        LocalGeoIpEnrichment narrowV4 = new LocalGeoIpEnrichment("10.1.0.0/16", "Narrow", "PL", 3.0, 4.0);
+        LocalGeoIpEnrichment v6 = new LocalGeoIpEnrichment("2001:db8::/32", "Six", "DE", 5.0, 6.0);
+        LocalGeoIpEnrichment wrong = new LocalGeoIpEnrichment("not-an-ip/8", "Wrong", "XX", 0.0, 0.0);
+
+        @Test
+        public void matchesMostSpecificSubnetOfEachFamily()
+        {
+            SubnetTrie<LocalGeoIpEnrichment> subnets = GeoIpCache.buildLocalSubnets(Arrays.asList(wideV4, narrowV4, v6, wrong));
+
+            IpUtil.IpPair narrowIp = IpUtil.parseIp("10.1.2.3");
+            IpUtil.IpPair wideIp = IpUtil.parseIp("10.2.2.3");
+            IpUtil.IpPair v6Ip = IpUtil.parseIp("2001:db8:0:0:0:0:0:1");
+            IpUtil.IpPair otherIp = IpUtil.parseIp("11.1.2.3");
+
+            assertEquals(subnets.lookup(narrowIp.getHighBits(), narrowIp.getLowBits()), narrowV4);
+            assertEquals(subnets.lookup(wideIp.getHighBits(), wideIp.getLowBits()), wideV4);
+            assertEquals(subnets.lookup(v6Ip.getHighBits(), v6Ip.getLowBits()), v6);
+            assertNull(subnets.lookup(otherIp.getHighBits(), otherIp.getLowBits()));
         }
     }
 }
@@ -2,12 +2,14 @@ package co.llective.presto.hyena.enrich.geoip;
 
 import co.llective.presto.hyena.enrich.rest.RestClient;
 import co.llective.presto.hyena.enrich.rest.RestClientException;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
 
 import static co.llective.presto.hyena.enrich.geoip.GeoIpFetcher.TOUCAN_GEO_IP_ENDPOINT;
 import static org.mockito.ArgumentMatchers.any;
@@ -18,7 +20,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
 
 public class GeoIpFetcherUnitTest
 {
@@ -28,6 +32,7 @@ public class GeoIpFetcherUnitTest
         RestClient restClientMock;
         GeoIpCache cacheMock;
         ObjectMapper objectMapperMock;
+        SnapshotStore snapshotStoreMock;
 
         String resultJson = "asd";
         int resultJsonHashCode = resultJson.hashCode();
@@ -50,7 +55,9 @@ public class GeoIpFetcherUnitTest
             when(objectMapperMock.readValue(resultJson, LocalGeoIpEnrichment.LocalGeoIpEnrichments.class))
                     .thenReturn(deserializedResults);
 
-            fetcher = new GeoIpFetcher(cacheMock, restClientMock, objectMapperMock);
+            snapshotStoreMock = mock(SnapshotStore.class);
+
+            fetcher = new GeoIpFetcher(cacheMock, restClientMock, objectMapperMock, snapshotStoreMock);
         }
 
         @Test
@@ -126,5 +133,70 @@ public class GeoIpFetcherUnitTest
             //doesn't call cache
             verify(cacheMock, never()).populateLocalGeoIp(any());
         }
+
+        @Test
+        public void writesSnapshotWhenDataUpdated()
+        {
+            fetcher.run();
+
+            verify(snapshotStoreMock).write(GeoIpFetcher.SNAPSHOT_NAME, resultJson);
+        }
+
+        @Test
+        public void doesNotWriteSnapshotWhenSameDataReturned()
+        {
+            fetcher.setLastLocalGeoIpHashcode(resultJsonHashCode);
+
+            fetcher.run();
+
+            verify(snapshotStoreMock, never()).write(any(), any());
+        }
+    }
+
+    public static class LoadSnapshot
+    {
+        GeoIpFetcher fetcher;
+        GeoIpCache cacheMock;
+        SnapshotStore snapshotStoreMock;
+        ObjectMapper objectMapperMock;
+
+        String snapshotJson = "snapshot";
+        LocalGeoIpEnrichment.LocalGeoIpEnrichments deserializedResults =
+                new LocalGeoIpEnrichment.LocalGeoIpEnrichments(Collections.emptyList());
+
+        @BeforeMethod
+        public void setUp()
+                throws IOException
+        {
+            cacheMock = mock(GeoIpCache.class);
+            snapshotStoreMock = mock(SnapshotStore.class);
+            objectMapperMock = mock(ObjectMapper.class);
+            when(objectMapperMock.readValue(snapshotJson, LocalGeoIpEnrichment.LocalGeoIpEnrichments.class))
+                    .thenReturn(deserializedResults);
+
+            fetcher = new GeoIpFetcher(cacheMock, mock(RestClient.class), objectMapperMock, snapshotStoreMock);
+        }
+
+        @Test
+        public void populatesCacheFromSnapshot()
+        {
+            when(snapshotStoreMock.read(GeoIpFetcher.SNAPSHOT_NAME)).thenReturn(Optional.of(snapshotJson));
+
+            assertTrue(fetcher.loadSnapshot());
+
+            verify(cacheMock).populateLocalGeoIp(deserializedResults.getEnrichedGeoIps());
+            // the same response fetched later doesn't populate cache again
+            assertEquals(fetcher.getLastLocalGeoIpHashcode(), snapshotJson.hashCode());
+        }
+
+        @Test
+        public void doesNothingWithoutSnapshot()
+        {
+            when(snapshotStoreMock.read(GeoIpFetcher.SNAPSHOT_NAME)).thenReturn(Optional.empty());
+
+            assertFalse(fetcher.loadSnapshot());
+
+            verify(cacheMock, never()).populateLocalGeoIp(any());
+        }
     }
 }
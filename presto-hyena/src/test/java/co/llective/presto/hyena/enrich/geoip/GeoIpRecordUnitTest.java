@@ -0,0 +1,82 @@
+package co.llective.presto.hyena.enrich.geoip;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class GeoIpRecordUnitTest
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static class FromMaxMind
+    {
+        @Test
+        public void returnsNullWithoutRecord()
+        {
+            assertNull(GeoIpRecord.fromMaxMind(null));
+        }
+
+        @Test
+        public void readsAllAttributes()
+                throws IOException
+        {
+            GeoIpRecord record = GeoIpRecord.fromMaxMind(record(
+                    "{\"city\":{\"names\":{\"de\":\"Warschau\",\"en\":\"Warsaw\"}}," +
+                            "\"country\":{\"names\":{\"en\":\"Poland\"}}," +
+                            "\"location\":{\"latitude\":52.25,\"longitude\":21.0}}"));
+
+            assertEquals(record.getCity(), Slices.utf8Slice("Warsaw"));
+            assertEquals(record.getCountry(), Slices.utf8Slice("Poland"));
+            assertEquals(record.getLatitude(), 52.25);
+            assertEquals(record.getLongitude(), 21.0);
+        }
+
+        @Test
+        public void missingAttributesAreNull()
+                throws IOException
+        {
+            GeoIpRecord record = GeoIpRecord.fromMaxMind(record("{\"country\":{\"names\":{\"en\":\"Poland\"}}}"));
+
+            assertNull(record.getCity());
+            assertEquals(record.getCountry(), Slices.utf8Slice("Poland"));
+            assertNull(record.getLatitude());
+            assertNull(record.getLongitude());
+        }
+
+        @Test
+        public void equalRecordsShareInstance()
+                throws IOException
+        {
+            String json = "{\"city\":{\"names\":{\"en\":\"Gdansk\"}},\"location\":{\"latitude\":54.35,\"longitude\":18.65}}";
+
+            assertSame(GeoIpRecord.fromMaxMind(record(json)), GeoIpRecord.fromMaxMind(record(json)));
+        }
+
+        private JsonNode record(String json)
+                throws IOException
+        {
+            return MAPPER.readTree(json);
+        }
+    }
+
+    public static class FromLocal
+    {
+        @Test
+        public void readsAllAttributes()
+        {
+            GeoIpRecord record = GeoIpRecord.fromLocal(new LocalGeoIpEnrichment("10.0.0.0/8", "Berlin", "Germany", 13.4, 52.5));
+
+            assertEquals(record.getCity(), Slices.utf8Slice("Berlin"));
+            assertEquals(record.getCountry(), Slices.utf8Slice("Germany"));
+            assertEquals(record.getLatitude(), 52.5);
+            assertEquals(record.getLongitude(), 13.4);
+        }
+    }
+}
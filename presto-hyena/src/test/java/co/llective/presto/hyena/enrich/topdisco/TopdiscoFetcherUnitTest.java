@@ -1,5 +1,6 @@
 package co.llective.presto.hyena.enrich.topdisco;
 
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -45,7 +46,7 @@ public class TopdiscoFetcherUnitTest
             when(objectMapperMock.readValue(responseJson, TopdiscoEnrichment.class))
                     .thenReturn(deserializedResponse);
 
-            fetcher = spy(new TopdiscoFetcher(topdiscoProviderMock, objectMapperMock));
+            fetcher = spy(new TopdiscoFetcher(topdiscoProviderMock, objectMapperMock, mock(SnapshotStore.class)));
 
             doReturn(null).when(fetcher).fetchData();
         }
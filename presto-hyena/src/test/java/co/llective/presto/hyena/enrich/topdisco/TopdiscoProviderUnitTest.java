@@ -134,5 +134,20 @@ public class TopdiscoProviderUnitTest
             String actualName = getInterfaceName(IP4_1, INDEX_1);
             assertEquals(actualName, PORT_1);
         }
+
+        @Test
+        public void ipNameSliceIsRefreshedAfterPopulate()
+        {
+            String ip = "10.20.30.40";
+            IpUtil.IpPair ipPair = IpUtil.parseIp(ip);
+            provider.populateTopdiscoData(new TopdiscoEnrichment(
+                    Collections.singletonList(new TopdiscoEnrichment.Ip(ip, NAME_1, (short) 0)), null));
+            assertEquals(provider.getIpNameSlice(ipPair.getHighBits(), ipPair.getLowBits()).toStringUtf8(), NAME_1);
+
+            provider.populateTopdiscoData(new TopdiscoEnrichment(
+                    Collections.singletonList(new TopdiscoEnrichment.Ip(ip, NAME_2, (short) 0)), null));
+            assertEquals(provider.getIpNameSlice(ipPair.getHighBits(), ipPair.getLowBits()).toStringUtf8(), NAME_2);
+            assertEquals(provider.getRouterNameSlice(ipPair.getHighBits(), ipPair.getLowBits()).toStringUtf8(), NAME_2);
+        }
     }
 }
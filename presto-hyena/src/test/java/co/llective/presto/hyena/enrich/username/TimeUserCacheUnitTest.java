@@ -16,6 +16,13 @@ public class TimeUserCacheUnitTest
     static final String USER_1 = "user1";
     static final String USER_2 = "user2";
 
+    static TimeUserCache createPopulatedCache()
+    {
+        return new TimeUserCache(
+                new long[] {100L, 120L, 140L, 180L, 250L},
+                new String[] {USER_0, null, USER_1, USER_2, null});
+    }
+
     public static class GetUser
     {
         TimeUserCache timeUserCache;
@@ -34,12 +41,7 @@ public class TimeUserCacheUnitTest
 
         private void populateCache()
         {
-            List<Long> timestamps = timeUserCache.getTimestamps();
-            List<String> users = timeUserCache.getUsers();
-            timestamps.addAll(Arrays.asList(
-                    100L, 120L, 140L, 180L, 250L));
-            users.addAll(Arrays.asList(
-                    USER_0, null, USER_1, USER_2, null));
+            timeUserCache = createPopulatedCache();
         }
 
         @Test
@@ -62,6 +64,17 @@ public class TimeUserCacheUnitTest
             assertNull(actualUser);
         }
 
+        @Test
+        public void returnsUserOfLastRangeStartedBeforeTimestamp()
+        {
+            populateCache();
+
+            assertNull(timeUserCache.getUser(139L));
+            assertEquals(timeUserCache.getUser(140L), USER_1);
+            assertEquals(timeUserCache.getUser(179L), USER_1);
+            assertEquals(timeUserCache.getUser(200L), USER_2);
+        }
+
         @Test
         public void returnsNullUserForTimestampAfterLastAdded()
         {
@@ -96,10 +109,7 @@ public class TimeUserCacheUnitTest
 
         private void populateCache()
         {
-            getCacheTimestamps().addAll(Arrays.asList(
-                    100L, 120L, 140L, 180L, 250L));
-            getCacheUsers().addAll(Arrays.asList(
-                    USER_0, null, USER_1, USER_2, null));
+            timeUserCache = createPopulatedCache();
         }
 
         @Test
@@ -185,6 +195,20 @@ public class TimeUserCacheUnitTest
                     Arrays.asList(USER_0, null, USER_1, USER_2, null, NEW_USER, null),
                     getCacheUsers());
         }
+
+        @Test
+        public void doesNotModifyCopiedCache()
+        {
+            populateCache();
+            TimeUserCache copy = timeUserCache.copy();
+
+            copy.addNextUser(260L, 280L, NEW_USER);
+
+            assertEquals(
+                    Arrays.asList(100L, 120L, 140L, 180L, 250L),
+                    getCacheTimestamps());
+            assertEquals(copy.getUser(270L), NEW_USER);
+        }
     }
 
     private TimeUserCacheUnitTest() {}
@@ -2,15 +2,20 @@ package co.llective.presto.hyena.enrich.username;
 
 import co.llective.presto.hyena.enrich.rest.RestClient;
 import co.llective.presto.hyena.enrich.rest.RestClientException;
+import co.llective.presto.hyena.enrich.util.IpUtil;
+import co.llective.presto.hyena.enrich.util.SnapshotStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -18,6 +23,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
 
 public class UserCacheFetcherUnitTest
 {
@@ -45,7 +51,7 @@ public class UserCacheFetcherUnitTest
             when(objectMapperMock.readValue(resultJson, EnrichedUser.EnrichedUsers.class)).thenReturn(
                     new EnrichedUser.EnrichedUsers(Collections.emptyList()));
 
-            fetcher = new UserCacheFetcher(cacheMock, restClientMock, objectMapperMock);
+            fetcher = new UserCacheFetcher(cacheMock, restClientMock, objectMapperMock, mock(SnapshotStore.class));
         }
 
         @Test
@@ -121,4 +127,80 @@ public class UserCacheFetcherUnitTest
             verify(cacheMock, never()).populateEnrichedUsers(any());
         }
     }
+
+    public static class IncrementalRun
+    {
+        private static final String DE_ENDPOINT = "http://data-enrichment:8888/ip-user";
+        private static final IpUtil.IpPair IP = new IpUtil.IpPair(1L, 2L);
+
+        UserCacheFetcher fetcher;
+        RestClient restClientMock;
+        UserNameCache cacheMock;
+        ObjectMapper objectMapperMock;
+
+        String fullJson = "full";
+        String deltaJson = "delta";
+
+        @BeforeMethod
+        public void setUp()
+                throws RestClientException, IOException
+        {
+            restClientMock = mock(RestClient.class);
+            when(restClientMock.getJson(DE_ENDPOINT)).thenReturn(fullJson);
+            when(restClientMock.getJson(DE_ENDPOINT + "?ts_from=200")).thenReturn(deltaJson);
+
+            cacheMock = mock(UserNameCache.class);
+
+            objectMapperMock = mock(ObjectMapper.class);
+            when(objectMapperMock.readValue(fullJson, EnrichedUser.EnrichedUsers.class)).thenReturn(
+                    new EnrichedUser.EnrichedUsers(new ArrayList<>(Arrays.asList(
+                            new EnrichedUser(100L, 150L, IP, "first"),
+                            new EnrichedUser(200L, 250L, IP, "second")))));
+            when(objectMapperMock.readValue(deltaJson, EnrichedUser.EnrichedUsers.class)).thenReturn(
+                    new EnrichedUser.EnrichedUsers(new ArrayList<>(Collections.singletonList(
+                            new EnrichedUser(300L, 350L, IP, "third")))));
+
+            fetcher = new UserCacheFetcher(cacheMock, restClientMock, objectMapperMock, mock(SnapshotStore.class));
+        }
+
+        @Test
+        public void fetchesOnlyNewestEntriesAfterFullRefresh()
+                throws RestClientException
+        {
+            fetcher.run();
+            fetcher.run();
+
+            verify(restClientMock).getJson(DE_ENDPOINT + "?ts_from=200");
+            verify(cacheMock, times(1)).populateEnrichedUsers(any());
+            verify(cacheMock, times(1)).updateEnrichedUsers(any());
+            assertEquals(fetcher.getLastSyncTimestamp(), Long.valueOf(300L));
+        }
+
+        @Test
+        public void reloadsWholeCachePeriodically()
+                throws RestClientException
+        {
+            when(restClientMock.getJson(DE_ENDPOINT + "?ts_from=300")).thenReturn(deltaJson);
+
+            fetcher.run();
+            for (int i = 0; i < UserCacheFetcher.FULL_REFRESH_PERIOD_RUNS; i++) {
+                fetcher.run();
+            }
+            // full response hash was reset by incremental updates
+            fetcher.run();
+
+            verify(cacheMock, times(2)).populateEnrichedUsers(any());
+        }
+
+        @Test
+        public void reloadsWholeCacheWhenUpdateIsInconsistent()
+        {
+            doThrow(new IllegalArgumentException()).when(cacheMock).updateEnrichedUsers(any());
+
+            fetcher.run();
+            fetcher.run();
+
+            assertNull(fetcher.getLastSyncTimestamp());
+        }
+    }
 }
@@ -1,15 +1,21 @@
 package co.llective.presto.hyena.enrich.username;
 
+import co.llective.presto.hyena.enrich.util.IpUtil;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
 
 public class UserTimedIpCacheUnitTest
 {
@@ -58,4 +64,71 @@ public class UserTimedIpCacheUnitTest
             assertEquals(USER, result);
         }
     }
+
+    public static class Update
+    {
+        private static final IpUtil.IpPair IP = new IpUtil.IpPair(1L, 2L);
+        private static final IpUtil.IpPair OTHER_IP = new IpUtil.IpPair(1L, 3L);
+        private static final String USER = "someUser";
+        private static final String NEW_USER = "newUser";
+
+        private UserTimedIpCache userTimedIpCache;
+
+        @BeforeMethod
+        public void setUp()
+        {
+            userTimedIpCache = new UserTimedIpCache();
+            userTimedIpCache.put(IP.getHighBits(), IP.getLowBits(), 100L, 200L, USER);
+            userTimedIpCache.put(OTHER_IP.getHighBits(), OTHER_IP.getLowBits(), 100L, 200L, USER);
+        }
+
+        private TimeUserCache getTimeUserCache(IpUtil.IpPair ip)
+        {
+            return userTimedIpCache.getCache().get(ip.getHighBits()).get(ip.getLowBits());
+        }
+
+        @Test
+        public void replacesHistoryOnlyOfUpdatedIps()
+        {
+            TimeUserCache before = getTimeUserCache(IP);
+            TimeUserCache otherBefore = getTimeUserCache(OTHER_IP);
+
+            userTimedIpCache.update(Collections.singletonList(new EnrichedUser(300L, 400L, IP, NEW_USER)));
+
+            assertNotSame(getTimeUserCache(IP), before);
+            assertSame(getTimeUserCache(OTHER_IP), otherBefore);
+            assertEquals(userTimedIpCache.get(IP.getHighBits(), IP.getLowBits(), 150L), USER);
+            assertEquals(userTimedIpCache.get(IP.getHighBits(), IP.getLowBits(), 350L), NEW_USER);
+            // previous history is left untouched for readers still using it
+            assertNull(before.getUser(350L));
+        }
+
+        @Test
+        public void addsNewIps()
+        {
+            IpUtil.IpPair newIp = new IpUtil.IpPair(5L, 6L);
+
+            userTimedIpCache.update(Collections.singletonList(new EnrichedUser(300L, 400L, newIp, NEW_USER)));
+
+            assertEquals(userTimedIpCache.get(newIp.getHighBits(), newIp.getLowBits(), 350L), NEW_USER);
+        }
+
+        @Test
+        public void doesNotChangeCacheWhenUpdateIsInconsistent()
+        {
+            TimeUserCache before = getTimeUserCache(IP);
+
+            try {
+                userTimedIpCache.update(Arrays.asList(
+                        new EnrichedUser(300L, 400L, IP, NEW_USER),
+                        new EnrichedUser(50L, 60L, OTHER_IP, NEW_USER)));
+                fail("Update older than cached data should fail");
+            }
+            catch (IllegalArgumentException expected) {
+                // expected
+            }
+
+            assertSame(getTimeUserCache(IP), before);
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package co.llective.presto.hyena.enrich.util;
+
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.testing.TestingMBeanServer;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class IpCacheExporterUnitTest
+{
+    private static ObjectName objectName(String name, String connectorId)
+            throws Exception
+    {
+        return new ObjectName("co.llective.presto.hyena.enrich:type=IpCache,name=" + name + ",connector=" + ObjectName.quote(connectorId));
+    }
+
+    @Test
+    public void exportsCachesRegisteredBeforeAndAfterStart()
+            throws Exception
+    {
+        MBeanServer server = new TestingMBeanServer();
+        IpCacheExporter exporter = new IpCacheExporter("test", new MBeanExporter(server));
+        new IpCache<String>(16).exportStats("before_start");
+
+        exporter.start();
+        new IpCache<String>(16).exportStats("after_start");
+
+        assertTrue(server.isRegistered(objectName("before_start", "test")));
+        assertTrue(server.isRegistered(objectName("after_start", "test")));
+        assertEquals(server.getAttribute(objectName("after_start", "test"), "MaximumSize"), 16L);
+
+        exporter.stop();
+        new IpCache<String>(16).exportStats("after_stop");
+
+        assertFalse(server.isRegistered(objectName("before_start", "test")));
+        assertFalse(server.isRegistered(objectName("after_start", "test")));
+        assertFalse(server.isRegistered(objectName("after_stop", "test")));
+    }
+
+    @Test
+    public void exportsSharedCacheForEveryConnector()
+            throws Exception
+    {
+        MBeanServer server = new TestingMBeanServer();
+        IpCacheExporter first = new IpCacheExporter("first", new MBeanExporter(server));
+        IpCacheExporter second = new IpCacheExporter("second", new MBeanExporter(server));
+        new IpCache<String>(16).exportStats("shared");
+
+        first.start();
+        second.start();
+        first.stop();
+
+        assertFalse(server.isRegistered(objectName("shared", "first")));
+        assertTrue(server.isRegistered(objectName("shared", "second")));
+        second.stop();
+    }
+}
@@ -0,0 +1,121 @@
+package co.llective.presto.hyena.enrich.util;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class IpCacheUnitTest
+{
+    public static class Get
+    {
+        IpCache<String> cache;
+        AtomicInteger loads;
+
+        @BeforeMethod
+        public void setUp()
+        {
+            cache = new IpCache<>(16);
+            loads = new AtomicInteger();
+        }
+
+        private String load(long ip1, long ip2)
+        {
+            loads.incrementAndGet();
+            return ip2 % 2 == 0 ? ip1 + ":" + ip2 : null;
+        }
+
+        @Test
+        public void loadsValueOnlyOnce()
+        {
+            assertEquals(cache.get(1L, 2L, this::load), "1:2");
+            assertEquals(cache.get(1L, 2L, this::load), "1:2");
+
+            assertEquals(loads.get(), 1);
+            assertEquals(cache.getHitCount(), 1);
+            assertEquals(cache.getMissCount(), 1);
+        }
+
+        @Test
+        public void cachesNullValues()
+        {
+            assertNull(cache.get(1L, 3L, this::load));
+            assertNull(cache.get(1L, 3L, this::load));
+
+            assertEquals(loads.get(), 1);
+            assertTrue(cache.containsKey(1L, 3L));
+        }
+
+        @Test
+        public void distinguishesHighBits()
+        {
+            cache.put(1L, 2L, "first");
+            cache.put(2L, 2L, "second");
+
+            assertEquals(cache.get(1L, 2L), "first");
+            assertEquals(cache.get(2L, 2L), "second");
+        }
+
+        @Test
+        public void doesNotCacheValueLoadedBeforeClear()
+        {
+            String value = cache.get(1L, 2L, (ip1, ip2) -> {
+                cache.clear();
+                return load(ip1, ip2);
+            });
+
+            assertEquals(value, "1:2");
+            assertFalse(cache.containsKey(1L, 2L));
+            assertEquals(cache.getSize(), 0);
+
+            assertEquals(cache.get(1L, 2L, this::load), "1:2");
+            assertTrue(cache.containsKey(1L, 2L));
+        }
+    }
+
+    public static class Eviction
+    {
+        @Test
+        public void sizeDoesNotExceedMaximum()
+        {
+            IpCache<Long> cache = new IpCache<>(16);
+            for (long i = 0; i < 1000; i++) {
+                cache.put(0L, i, i);
+            }
+
+            assertEquals(cache.getMaximumSize(), 16);
+            assertEquals(cache.getSize(), 16);
+            assertEquals(cache.getEvictionCount(), 1000 - 16);
+        }
+
+        @Test
+        public void keepsRecentlyUsedEntry()
+        {
+            IpCache<Long> cache = new IpCache<>(4);
+            cache.put(0L, 0L, 0L);
+            for (long i = 1; i < 100; i++) {
+                cache.get(0L, 0L);
+                cache.put(0L, i, i);
+            }
+
+            assertEquals(cache.get(0L, 0L), Long.valueOf(0L));
+        }
+
+        @Test
+        public void clearRemovesEntries()
+        {
+            IpCache<Long> cache = new IpCache<>(16);
+            cache.put(1L, 1L, 1L);
+
+            cache.clear();
+
+            assertFalse(cache.containsKey(1L, 1L));
+            assertEquals(cache.getSize(), 0);
+        }
+    }
+}
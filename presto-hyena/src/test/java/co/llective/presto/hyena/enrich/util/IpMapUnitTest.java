@@ -0,0 +1,49 @@
+package co.llective.presto.hyena.enrich.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class IpMapUnitTest
+{
+    public static class Get
+    {
+        @Test
+        public void returnsNullForEmptyMap()
+        {
+            IpMap<String> map = IpMap.empty();
+
+            assertNull(map.get(0L, 0L));
+            assertEquals(map.size(), 0);
+        }
+
+        @Test
+        public void findsAllEntries()
+        {
+            IpMap.Builder<Long> builder = IpMap.builder();
+            for (long i = 0; i < 1000; i++) {
+                builder.put(i % 7, i, i);
+            }
+            IpMap<Long> map = builder.build();
+
+            assertEquals(map.size(), 1000);
+            for (long i = 0; i < 1000; i++) {
+                assertEquals(map.get(i % 7, i), Long.valueOf(i));
+            }
+            assertNull(map.get(1L, 0L));
+        }
+
+        @Test
+        public void laterValueReplacesEarlierOne()
+        {
+            IpMap<String> map = IpMap.<String>builder()
+                    .put(1L, 2L, "first")
+                    .put(1L, 2L, "second")
+                    .build();
+
+            assertEquals(map.get(1L, 2L), "second");
+            assertEquals(map.size(), 1);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package co.llective.presto.hyena.enrich.util;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static org.testng.Assert.assertEquals;
+
+public class SnapshotStoreUnitTest
+{
+    public static class ReadWrite
+    {
+        Path directory;
+        SnapshotStore store;
+
+        @BeforeMethod
+        public void setUp()
+                throws IOException
+        {
+            directory = Files.createTempDirectory("snapshots");
+            // store creates missing directory itself
+            store = new SnapshotStore(directory.resolve("nested"));
+        }
+
+        @AfterMethod
+        public void tearDown()
+                throws IOException
+        {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+
+        @Test
+        public void returnsEmptyWhenNothingWritten()
+        {
+            assertEquals(store.read("missing.json"), Optional.empty());
+        }
+
+        @Test
+        public void readsLastWrittenSnapshot()
+        {
+            store.write("data.json", "first");
+            store.write("data.json", "second ąę");
+
+            assertEquals(store.read("data.json"), Optional.of("second ąę"));
+        }
+    }
+}
@@ -13,6 +13,8 @@
  */
 package co.llective.presto.hyena.types;
 
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.LongArrayBlock;
 import com.google.common.primitives.UnsignedLong;
 import org.testng.annotations.Test;
 
@@ -378,4 +380,24 @@ public class U64TypeTest
             assertEquals(U64Type.U_64_TYPE.moduloSignedInt(u64, divisor), 1);
         }
     }
+
+    public static class Blocks
+    {
+        private final Block block = new LongArrayBlock(2, new boolean[2], new long[] {-1L, 1L});
+
+        @Test
+        public void hashMatchesHashCodeOperator()
+        {
+            assertEquals(U64Type.U_64_TYPE.hash(block, 0), U64Operators.hashCode(-1L));
+            assertEquals(U64Type.U_64_TYPE.hash(block, 1), U64Operators.hashCode(1L));
+        }
+
+        @Test
+        public void comparesPositionsAsUnsigned()
+        {
+            assertTrue(U64Type.U_64_TYPE.compareTo(block, 0, block, 1) > 0);
+            assertFalse(U64Type.U_64_TYPE.equalTo(block, 0, block, 1));
+            assertTrue(U64Type.U_64_TYPE.equalTo(block, 0, block, 0));
+        }
+    }
 }
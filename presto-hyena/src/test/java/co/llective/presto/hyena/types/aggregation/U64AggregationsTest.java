@@ -0,0 +1,219 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package co.llective.presto.hyena.types.aggregation;
+
+import co.llective.presto.hyena.HyenaPlugin;
+import com.facebook.presto.metadata.FunctionRegistry;
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.operator.GroupByIdBlock;
+import com.facebook.presto.operator.aggregation.Accumulator;
+import com.facebook.presto.operator.aggregation.GroupedAccumulator;
+import com.facebook.presto.operator.aggregation.InternalAggregationFunction;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.type.DecimalType;
+import com.facebook.presto.sql.tree.QualifiedName;
+import com.facebook.presto.type.TypeRegistry;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static co.llective.presto.hyena.types.U64Type.U_64_TYPE;
+import static com.facebook.presto.metadata.FunctionExtractor.extractFunctions;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DecimalType.createDecimalType;
+import static com.facebook.presto.spi.type.Decimals.readBigDecimal;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class U64AggregationsTest
+{
+    private static final long MAX_U64 = -1L;
+    private static final FunctionRegistry FUNCTIONS = createFunctionRegistry();
+
+    private static FunctionRegistry createFunctionRegistry()
+    {
+        MetadataManager metadata = MetadataManager.createTestMetadataManager();
+        ((TypeRegistry) metadata.getTypeManager()).addType(U_64_TYPE);
+        metadata.addFunctions(extractFunctions(new HyenaPlugin().getFunctions()));
+        return metadata.getFunctionRegistry();
+    }
+
+    private static InternalAggregationFunction getAggregation(String name)
+    {
+        Signature signature = FUNCTIONS.resolveFunction(QualifiedName.of(name), fromTypes(ImmutableList.of(U_64_TYPE)));
+        return FUNCTIONS.getAggregateFunctionImplementation(signature);
+    }
+
+    private static Page page(long... values)
+    {
+        BlockBuilder builder = U_64_TYPE.createBlockBuilder(null, values.length);
+        for (long value : values) {
+            U_64_TYPE.writeLong(builder, value);
+        }
+        return new Page(builder.build());
+    }
+
+    private static Block aggregate(String name, long... values)
+    {
+        Accumulator accumulator = getAggregation(name).bind(ImmutableList.of(0), Optional.empty()).createAccumulator();
+        accumulator.addInput(page(values));
+        BlockBuilder out = accumulator.getFinalType().createBlockBuilder(null, 1);
+        accumulator.evaluateFinal(out);
+        return out.build();
+    }
+
+    /**
+     * Aggregates every value in separate partial accumulator and combines their intermediate results.
+     */
+    private static Block aggregatePartially(String name, long... values)
+    {
+        InternalAggregationFunction aggregation = getAggregation(name);
+        Accumulator finalAccumulator = aggregation.bind(ImmutableList.of(0), Optional.empty()).createIntermediateAccumulator();
+        for (long value : values) {
+            Accumulator partial = aggregation.bind(ImmutableList.of(0), Optional.empty()).createAccumulator();
+            partial.addInput(page(value));
+            BlockBuilder intermediate = partial.getIntermediateType().createBlockBuilder(null, 1);
+            partial.evaluateIntermediate(intermediate);
+            finalAccumulator.addIntermediate(intermediate.build());
+        }
+        BlockBuilder out = finalAccumulator.getFinalType().createBlockBuilder(null, 1);
+        finalAccumulator.evaluateFinal(out);
+        return out.build();
+    }
+
+    public static class Resolution
+    {
+        @Test
+        public void resolvesNativeImplementations()
+        {
+            assertEquals(getAggregation("min").getParameterTypes(), ImmutableList.of(U_64_TYPE));
+            assertEquals(getAggregation("max").getFinalType(), U_64_TYPE);
+            assertEquals(getAggregation("sum").getFinalType(), createDecimalType(38, 0));
+            assertEquals(getAggregation("avg").getFinalType(), DOUBLE);
+            assertEquals(getAggregation("approx_distinct").getFinalType(), BIGINT);
+        }
+    }
+
+    public static class MinMax
+    {
+        @Test
+        public void comparesValuesAsUnsigned()
+        {
+            assertEquals(U_64_TYPE.getLong(aggregate("min", MAX_U64, 5L, 10L), 0), 5L);
+            assertEquals(U_64_TYPE.getLong(aggregate("max", 5L, MAX_U64, 10L), 0), MAX_U64);
+        }
+
+        @Test
+        public void combinesPartialResults()
+        {
+            assertEquals(U_64_TYPE.getLong(aggregatePartially("min", 7L, MAX_U64, 3L), 0), 3L);
+            assertEquals(U_64_TYPE.getLong(aggregatePartially("max", 7L, MAX_U64, 3L), 0), MAX_U64);
+        }
+
+        @Test
+        public void returnsNullWithoutValues()
+        {
+            assertTrue(aggregate("min").isNull(0));
+            assertTrue(aggregate("max").isNull(0));
+        }
+    }
+
+    public static class Sum
+    {
+        private static final DecimalType SUM_TYPE = createDecimalType(38, 0);
+
+        @Test
+        public void sumsSmallValues()
+        {
+            assertEquals(readBigDecimal(SUM_TYPE, aggregate("sum", 1L, 2L, 3L), 0), new BigDecimal(6));
+        }
+
+        @Test
+        public void overflowsIntoHighBits()
+        {
+            BigDecimal maxU64 = new BigDecimal("18446744073709551615");
+
+            assertEquals(
+                    readBigDecimal(SUM_TYPE, aggregate("sum", MAX_U64, MAX_U64, 2L), 0),
+                    maxU64.multiply(new BigDecimal(2)).add(new BigDecimal(2)));
+            assertEquals(
+                    readBigDecimal(SUM_TYPE, aggregatePartially("sum", MAX_U64, MAX_U64, MAX_U64), 0),
+                    maxU64.multiply(new BigDecimal(3)));
+        }
+
+        @Test
+        public void sumsEveryGroupSeparately()
+        {
+            GroupedAccumulator accumulator = getAggregation("sum").bind(ImmutableList.of(0), Optional.empty()).createGroupedAccumulator();
+            BlockBuilder groupIds = BIGINT.createBlockBuilder(null, 4);
+            for (long groupId : new long[] {0, 1, 0, 1}) {
+                BIGINT.writeLong(groupIds, groupId);
+            }
+            accumulator.addInput(new GroupByIdBlock(2, groupIds.build()), page(MAX_U64, 1L, 1L, 2L));
+
+            BlockBuilder out = SUM_TYPE.createBlockBuilder(null, 2);
+            accumulator.evaluateFinal(0, out);
+            accumulator.evaluateFinal(1, out);
+            Block result = out.build();
+
+            assertEquals(readBigDecimal(SUM_TYPE, result, 0), new BigDecimal("18446744073709551616"));
+            assertEquals(readBigDecimal(SUM_TYPE, result, 1), new BigDecimal(3));
+        }
+
+        @Test
+        public void returnsNullWithoutValues()
+        {
+            assertTrue(aggregate("sum").isNull(0));
+        }
+    }
+
+    public static class Average
+    {
+        @Test
+        public void averagesUnsignedValues()
+        {
+            assertEquals(DOUBLE.getDouble(aggregate("avg", 2L, 4L), 0), 3.0);
+            assertEquals(DOUBLE.getDouble(aggregatePartially("avg", MAX_U64, MAX_U64), 0), 0x1p64);
+        }
+
+        @Test
+        public void returnsNullWithoutValues()
+        {
+            assertTrue(aggregate("avg").isNull(0));
+        }
+    }
+
+    public static class ApproximateCountDistinct
+    {
+        @Test
+        public void countsDistinctValues()
+        {
+            assertEquals(BIGINT.getLong(aggregate("approx_distinct", 1L, MAX_U64, 1L, 2L, MAX_U64), 0), 3L);
+            assertEquals(BIGINT.getLong(aggregatePartially("approx_distinct", 1L, MAX_U64, 1L, 2L, MAX_U64), 0), 3L);
+        }
+
+        @Test
+        public void returnsZeroWithoutValues()
+        {
+            assertEquals(BIGINT.getLong(aggregate("approx_distinct"), 0), 0L);
+        }
+    }
+}
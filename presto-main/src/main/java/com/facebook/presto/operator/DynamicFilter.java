@@ -0,0 +1,402 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.LazyBlock;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.spi.type.StandardTypes;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Values of join keys found on the build side of a join. Probe side rows with any key outside of them
+ * can't match the build side, so they can be skipped by probe side scans.
+ * <p>
+ * Every key keeps up to {@code maxDistinctValues} distinct values and, for types with natural order of
+ * their stack representation, minimum and maximum value. Keys which can't be summarized, including
+ * all keys of types other than {@link #isSupportedType supported}, don't filter anything.
+ */
+@Immutable
+public final class DynamicFilter
+{
+    // types for which order of stack values is the order of SQL values
+    private static final Set<Type> RANGE_TYPES = ImmutableSet.of(BIGINT, INTEGER, SMALLINT, TINYINT, DATE, TIMESTAMP);
+    private static final Set<String> UNSUPPORTED_LONG_TYPES = ImmutableSet.of(StandardTypes.REAL, StandardTypes.TIMESTAMP_WITH_TIME_ZONE, StandardTypes.TIME_WITH_TIME_ZONE);
+
+    private final List<KeyFilter> keyFilters;
+
+    private DynamicFilter(List<KeyFilter> keyFilters)
+    {
+        this.keyFilters = ImmutableList.copyOf(requireNonNull(keyFilters, "keyFilters is null"));
+    }
+
+    /**
+     * @return whether values of given type can be collected
+     */
+    public static boolean isSupportedType(Type type)
+    {
+        // values of these types can be equal despite different stack representation
+        return type.getJavaType() == long.class && !UNSUPPORTED_LONG_TYPES.contains(type.getTypeSignature().getBase());
+    }
+
+    /**
+     * @param keyChannels channel of every key in build side pages
+     */
+    public static Builder builder(List<Type> keyTypes, List<Integer> keyChannels, int maxDistinctValues)
+    {
+        return new Builder(keyTypes, keyChannels, maxDistinctValues);
+    }
+
+    public int getKeyCount()
+    {
+        return keyFilters.size();
+    }
+
+    /**
+     * @return whether no probe row can match, because build side had no rows with non null keys
+     */
+    public boolean isNone()
+    {
+        return keyFilters.stream().anyMatch(KeyFilter::isNone);
+    }
+
+    /**
+     * @return whether no probe row can be skipped
+     */
+    public boolean isAll()
+    {
+        return keyFilters.stream().allMatch(KeyFilter::isAll);
+    }
+
+    /**
+     * @return values of given key which can match build side or empty if any value can
+     */
+    public Optional<Domain> getDomain(int key)
+    {
+        KeyFilter keyFilter = keyFilters.get(key);
+        if (keyFilter.isAll()) {
+            return Optional.empty();
+        }
+        return Optional.of(keyFilter.toDomain());
+    }
+
+    /**
+     * @param keyChannels channel of every key in the page or -1 if key is not present
+     * @return rows of given page which can match build side or null if there are none
+     */
+    @Nullable
+    public Page filter(Page page, int[] keyChannels)
+    {
+        checkArgument(keyChannels.length == keyFilters.size(), "expected %s key channels, got %s", keyFilters.size(), keyChannels.length);
+        int positionCount = page.getPositionCount();
+        int[] positions = new int[positionCount];
+        int retained = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (contains(page, keyChannels, position)) {
+                positions[retained++] = position;
+            }
+        }
+        if (retained == 0) {
+            return null;
+        }
+        if (retained == positionCount) {
+            return page;
+        }
+        Block[] blocks = new Block[page.getChannelCount()];
+        for (int channel = 0; channel < blocks.length; channel++) {
+            blocks[channel] = getPositions(page.getBlock(channel), positions, retained);
+        }
+        return new Page(retained, blocks);
+    }
+
+    private static Block getPositions(Block block, int[] positions, int length)
+    {
+        if (block instanceof LazyBlock && !((LazyBlock) block).isLoaded()) {
+            // don't load columns which may be still filtered out by the query itself
+            return new LazyBlock(length, lazyBlock -> lazyBlock.setBlock(block.getPositions(positions, 0, length)));
+        }
+        return block.getPositions(positions, 0, length);
+    }
+
+    /**
+     * @param keyFields field of every key in the cursor or -1 if key is not present
+     * @return whether current row of given cursor can match build side
+     */
+    public boolean contains(RecordCursor cursor, int[] keyFields)
+    {
+        checkArgument(keyFields.length == keyFilters.size(), "expected %s key fields, got %s", keyFilters.size(), keyFields.length);
+        for (int key = 0; key < keyFields.length; key++) {
+            if (keyFields[key] >= 0 && !keyFilters.get(key).contains(cursor, keyFields[key])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean contains(Page page, int[] keyChannels, int position)
+    {
+        for (int key = 0; key < keyChannels.length; key++) {
+            if (keyChannels[key] >= 0 && !keyFilters.get(key).contains(page.getBlock(keyChannels[key]), position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return filter which lets through probe rows matching this or other filter, both collected for the same join
+     */
+    public DynamicFilter union(DynamicFilter other, int maxDistinctValues)
+    {
+        checkArgument(keyFilters.size() == other.keyFilters.size(), "filters have different keys");
+        ImmutableList.Builder<KeyFilter> union = ImmutableList.builder();
+        for (int key = 0; key < keyFilters.size(); key++) {
+            union.add(keyFilters.get(key).union(other.keyFilters.get(key), maxDistinctValues));
+        }
+        return new DynamicFilter(union.build());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DynamicFilter" + keyFilters;
+    }
+
+    @Immutable
+    private static final class KeyFilter
+    {
+        private final Type type;
+        private final boolean none;
+        // null when there were too many distinct values
+        @Nullable
+        private final LongSet values;
+        // range is kept only for types from RANGE_TYPES
+        private final boolean hasRange;
+        private final long min;
+        private final long max;
+
+        private KeyFilter(Type type, boolean none, @Nullable LongSet values, boolean hasRange, long min, long max)
+        {
+            this.type = requireNonNull(type, "type is null");
+            this.none = none;
+            this.values = values;
+            this.hasRange = hasRange;
+            this.min = min;
+            this.max = max;
+        }
+
+        boolean isNone()
+        {
+            return none;
+        }
+
+        boolean isAll()
+        {
+            return !none && values == null && !hasRange;
+        }
+
+        boolean contains(Block block, int position)
+        {
+            if (none || block.isNull(position)) {
+                // null keys never match
+                return false;
+            }
+            return isAll() || contains(type.getLong(block, position));
+        }
+
+        boolean contains(RecordCursor cursor, int field)
+        {
+            if (none || cursor.isNull(field)) {
+                return false;
+            }
+            return isAll() || contains(cursor.getLong(field));
+        }
+
+        private boolean contains(long value)
+        {
+            if (values != null) {
+                return values.contains(value);
+            }
+            return !hasRange || (min <= value && value <= max);
+        }
+
+        Domain toDomain()
+        {
+            if (none) {
+                return Domain.none(type);
+            }
+            if (values != null) {
+                List<Object> domainValues = values.stream()
+                        .sorted()
+                        .map(Object.class::cast)
+                        .collect(toImmutableList());
+                return Domain.multipleValues(type, domainValues);
+            }
+            if (hasRange) {
+                return Domain.create(ValueSet.ofRanges(Range.range(type, min, true, max, true)), false);
+            }
+            return Domain.all(type);
+        }
+
+        KeyFilter union(KeyFilter other, int maxDistinctValues)
+        {
+            if (none) {
+                return other;
+            }
+            if (other.none) {
+                return this;
+            }
+            LongSet unionValues = null;
+            if (values != null && other.values != null) {
+                unionValues = new LongOpenHashSet(values);
+                unionValues.addAll(other.values);
+                if (unionValues.size() > maxDistinctValues) {
+                    unionValues = null;
+                }
+            }
+            boolean unionHasRange = hasRange && other.hasRange;
+            return new KeyFilter(
+                    type,
+                    false,
+                    unionValues,
+                    unionHasRange,
+                    unionHasRange ? Math.min(min, other.min) : 0,
+                    unionHasRange ? Math.max(max, other.max) : 0);
+        }
+
+        @Override
+        public String toString()
+        {
+            if (isNone()) {
+                return "none";
+            }
+            if (values != null) {
+                return values.size() + " values";
+            }
+            if (hasRange) {
+                return "[" + min + ", " + max + "]";
+            }
+            return "all";
+        }
+    }
+
+    /**
+     * Collects join keys of build side pages of a single {@link HashBuilderOperator}. Not thread safe.
+     */
+    public static final class Builder
+    {
+        private final List<Type> keyTypes;
+        private final int[] keyChannels;
+        private final int maxDistinctValues;
+        private final LongOpenHashSet[] values;
+        private final boolean[] hasRange;
+        private final long[] min;
+        private final long[] max;
+        private final boolean[] supported;
+        private final boolean[] hasValues;
+
+        private Builder(List<Type> keyTypes, List<Integer> keyChannels, int maxDistinctValues)
+        {
+            this.keyTypes = ImmutableList.copyOf(requireNonNull(keyTypes, "keyTypes is null"));
+            this.keyChannels = Ints.toArray(requireNonNull(keyChannels, "keyChannels is null"));
+            checkArgument(keyTypes.size() == keyChannels.size(), "keyTypes and keyChannels have different sizes");
+            checkArgument(maxDistinctValues >= 0, "maxDistinctValues is negative");
+            this.maxDistinctValues = maxDistinctValues;
+            int keyCount = keyTypes.size();
+            this.values = new LongOpenHashSet[keyCount];
+            this.hasRange = new boolean[keyCount];
+            this.min = new long[keyCount];
+            this.max = new long[keyCount];
+            this.supported = new boolean[keyCount];
+            this.hasValues = new boolean[keyCount];
+            for (int key = 0; key < keyCount; key++) {
+                supported[key] = isSupportedType(keyTypes.get(key));
+                values[key] = supported[key] ? new LongOpenHashSet() : null;
+                hasRange[key] = RANGE_TYPES.contains(keyTypes.get(key));
+                min[key] = Long.MAX_VALUE;
+                max[key] = Long.MIN_VALUE;
+            }
+        }
+
+        public void addPage(Page page)
+        {
+            for (int key = 0; key < keyChannels.length; key++) {
+                if (!supported[key] || (hasValues[key] && values[key] == null && !hasRange[key])) {
+                    // nothing more to learn about this key
+                    continue;
+                }
+                Block block = page.getBlock(keyChannels[key]);
+                Type type = keyTypes.get(key);
+                for (int position = 0; position < block.getPositionCount(); position++) {
+                    if (block.isNull(position)) {
+                        continue;
+                    }
+                    hasValues[key] = true;
+                    long value = type.getLong(block, position);
+                    if (values[key] != null) {
+                        values[key].add(value);
+                        if (values[key].size() > maxDistinctValues) {
+                            values[key] = null;
+                        }
+                    }
+                    min[key] = Math.min(min[key], value);
+                    max[key] = Math.max(max[key], value);
+                }
+            }
+        }
+
+        public DynamicFilter build()
+        {
+            ImmutableList.Builder<KeyFilter> keyFilters = ImmutableList.builder();
+            for (int key = 0; key < keyTypes.size(); key++) {
+                // a row with null in any key can't match, but it is simpler to keep its other keys
+                boolean none = supported[key] && !hasValues[key];
+                keyFilters.add(new KeyFilter(
+                        keyTypes.get(key),
+                        none,
+                        none ? null : values[key],
+                        !none && hasRange[key],
+                        min[key],
+                        max[key]));
+            }
+            return new DynamicFilter(keyFilters.build());
+        }
+    }
+}
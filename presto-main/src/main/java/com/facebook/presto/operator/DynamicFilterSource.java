@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.SettableFuture;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.concurrent.MoreFutures.tryGetFutureValue;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Dynamic filter of a single join within a task. Every build side {@link HashBuilderOperator} (one per
+ * lookup source partition) adds filter of its rows and the filter becomes available to probe side scans
+ * when all partitions did. Probe side scans never wait for it, they just start filtering once it is ready.
+ */
+@ThreadSafe
+public class DynamicFilterSource
+{
+    private final List<Type> keyTypes;
+    private final int maxDistinctValues;
+    private final SettableFuture<DynamicFilter> dynamicFilter = SettableFuture.create();
+
+    @GuardedBy("this")
+    private int pendingPartitions = -1;
+    @GuardedBy("this")
+    private Optional<DynamicFilter> collected = Optional.empty();
+
+    /**
+     * @param keyTypes types of all join keys, keys of unsupported types just don't filter anything
+     */
+    public DynamicFilterSource(List<Type> keyTypes, int maxDistinctValues)
+    {
+        this.keyTypes = ImmutableList.copyOf(requireNonNull(keyTypes, "keyTypes is null"));
+        checkArgument(maxDistinctValues >= 0, "maxDistinctValues is negative");
+        this.maxDistinctValues = maxDistinctValues;
+    }
+
+    public List<Type> getKeyTypes()
+    {
+        return keyTypes;
+    }
+
+    /**
+     * Sets number of build side partitions, set once when build side of the join is planned.
+     */
+    public synchronized void setPartitionCount(int partitionCount)
+    {
+        checkArgument(partitionCount > 0, "partitionCount must be positive");
+        checkState(pendingPartitions == -1, "partition count already set");
+        pendingPartitions = partitionCount;
+    }
+
+    /**
+     * @param buildChannels channel of every key in build side pages
+     */
+    public DynamicFilter.Builder createPartitionBuilder(List<Integer> buildChannels)
+    {
+        return DynamicFilter.builder(keyTypes, buildChannels, maxDistinctValues);
+    }
+
+    public void addPartition(DynamicFilter partition)
+    {
+        requireNonNull(partition, "partition is null");
+        DynamicFilter completed;
+        synchronized (this) {
+            checkState(pendingPartitions > 0, "unexpected partition");
+            collected = Optional.of(collected.map(filter -> filter.union(partition, maxDistinctValues)).orElse(partition));
+            pendingPartitions--;
+            if (pendingPartitions > 0) {
+                return;
+            }
+            completed = collected.get();
+            collected = Optional.empty();
+        }
+        dynamicFilter.set(completed);
+    }
+
+    /**
+     * @return filter if all build side partitions were already collected
+     */
+    public Optional<DynamicFilter> getDynamicFilterIfReady()
+    {
+        return tryGetFutureValue(dynamicFilter);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+public class HashAggregationInfo
+        extends HashCollisionsInfo
+{
+    private final long partialAggregationInputRows;
+    private final long partialAggregationGroups;
+    private final long passThroughRows;
+    private final long passThroughOperators;
+
+    @JsonCreator
+    public HashAggregationInfo(
+            @JsonProperty(WEIGHTED_HASH_COLLISIONS_PROPERTY) double weightedHashCollisions,
+            @JsonProperty(WEIGHTED_SUM_SQUARED_HASH_COLLISIONS) double weightedSumSquaredHashCollisions,
+            @JsonProperty(WEIGHTED_EXPECTED_HASH_COLLISIONS) double weightedExpectedHashCollisions,
+            @JsonProperty("partialAggregationInputRows") long partialAggregationInputRows,
+            @JsonProperty("partialAggregationGroups") long partialAggregationGroups,
+            @JsonProperty("passThroughRows") long passThroughRows,
+            @JsonProperty("passThroughOperators") long passThroughOperators)
+    {
+        super(weightedHashCollisions, weightedSumSquaredHashCollisions, weightedExpectedHashCollisions);
+        this.partialAggregationInputRows = partialAggregationInputRows;
+        this.partialAggregationGroups = partialAggregationGroups;
+        this.passThroughRows = passThroughRows;
+        this.passThroughOperators = passThroughOperators;
+    }
+
+    /** Input rows aggregated by partial aggregation before it switched to pass through */
+    @JsonProperty
+    public long getPartialAggregationInputRows()
+    {
+        return partialAggregationInputRows;
+    }
+
+    /** Groups produced from {@link #getPartialAggregationInputRows()} */
+    @JsonProperty
+    public long getPartialAggregationGroups()
+    {
+        return partialAggregationGroups;
+    }
+
+    /** Input rows of partial aggregation passed through without being aggregated */
+    @JsonProperty
+    public long getPassThroughRows()
+    {
+        return passThroughRows;
+    }
+
+    /** Number of operators which switched to pass through */
+    @JsonProperty
+    public long getPassThroughOperators()
+    {
+        return passThroughOperators;
+    }
+
+    public double getPartialAggregationUniqueRowsRatio()
+    {
+        if (partialAggregationInputRows == 0) {
+            return 0;
+        }
+        return (double) partialAggregationGroups / partialAggregationInputRows;
+    }
+
+    @Override
+    public HashAggregationInfo mergeWith(HashCollisionsInfo other)
+    {
+        HashAggregationInfo otherInfo = (HashAggregationInfo) other;
+        return new HashAggregationInfo(
+                getWeightedHashCollisions() + otherInfo.getWeightedHashCollisions(),
+                getWeightedSumSquaredHashCollisions() + otherInfo.getWeightedSumSquaredHashCollisions(),
+                getWeightedExpectedHashCollisions() + otherInfo.getWeightedExpectedHashCollisions(),
+                partialAggregationInputRows + otherInfo.getPartialAggregationInputRows(),
+                partialAggregationGroups + otherInfo.getPartialAggregationGroups(),
+                passThroughRows + otherInfo.getPassThroughRows(),
+                passThroughOperators + otherInfo.getPassThroughOperators());
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("partialAggregationInputRows", partialAggregationInputRows)
+                .add("partialAggregationGroups", partialAggregationGroups)
+                .add("passThroughRows", passThroughRows)
+                .add("passThroughOperators", passThroughOperators)
+                .toString();
+    }
+}
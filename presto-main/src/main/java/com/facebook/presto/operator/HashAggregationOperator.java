@@ -17,6 +17,7 @@ import com.facebook.presto.operator.aggregation.Accumulator;
 import com.facebook.presto.operator.aggregation.AccumulatorFactory;
 import com.facebook.presto.operator.aggregation.builder.HashAggregationBuilder;
 import com.facebook.presto.operator.aggregation.builder.InMemoryHashAggregationBuilder;
+import com.facebook.presto.operator.aggregation.builder.PassThroughAggregationBuilder;
 import com.facebook.presto.operator.aggregation.builder.SpillableHashAggregationBuilder;
 import com.facebook.presto.operator.scalar.CombineHashFunction;
 import com.facebook.presto.spi.Page;
@@ -70,6 +71,9 @@ public class HashAggregationOperator
         private final DataSize memoryLimitForMergeWithMemory;
         private final SpillerFactory spillerFactory;
         private final JoinCompiler joinCompiler;
+        private final boolean adaptivePartialAggregationEnabled;
+        private final long adaptivePartialAggregationMinRows;
+        private final double adaptivePartialAggregationUniqueRowsRatioThreshold;
 
         private boolean closed;
 
@@ -125,7 +129,10 @@ public class HashAggregationOperator
                 boolean spillEnabled,
                 DataSize unspillMemoryLimit,
                 SpillerFactory spillerFactory,
-                JoinCompiler joinCompiler)
+                JoinCompiler joinCompiler,
+                boolean adaptivePartialAggregationEnabled,
+                long adaptivePartialAggregationMinRows,
+                double adaptivePartialAggregationUniqueRowsRatioThreshold)
         {
             this(operatorId,
                     planNodeId,
@@ -143,7 +150,10 @@ public class HashAggregationOperator
                     unspillMemoryLimit,
                     DataSize.succinctBytes((long) (unspillMemoryLimit.toBytes() * MERGE_WITH_MEMORY_RATIO)),
                     spillerFactory,
-                    joinCompiler);
+                    joinCompiler,
+                    adaptivePartialAggregationEnabled,
+                    adaptivePartialAggregationMinRows,
+                    adaptivePartialAggregationUniqueRowsRatioThreshold);
         }
 
         @VisibleForTesting
@@ -165,6 +175,51 @@ public class HashAggregationOperator
                 DataSize memoryLimitForMergeWithMemory,
                 SpillerFactory spillerFactory,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId,
+                    planNodeId,
+                    groupByTypes,
+                    groupByChannels,
+                    globalAggregationGroupIds,
+                    step,
+                    produceDefaultOutput,
+                    accumulatorFactories,
+                    hashChannel,
+                    groupIdChannel,
+                    expectedGroups,
+                    maxPartialMemory,
+                    spillEnabled,
+                    memoryLimitForMerge,
+                    memoryLimitForMergeWithMemory,
+                    spillerFactory,
+                    joinCompiler,
+                    false,
+                    0,
+                    0);
+        }
+
+        @VisibleForTesting
+        HashAggregationOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> groupByTypes,
+                List<Integer> groupByChannels,
+                List<Integer> globalAggregationGroupIds,
+                Step step,
+                boolean produceDefaultOutput,
+                List<AccumulatorFactory> accumulatorFactories,
+                Optional<Integer> hashChannel,
+                Optional<Integer> groupIdChannel,
+                int expectedGroups,
+                DataSize maxPartialMemory,
+                boolean spillEnabled,
+                DataSize memoryLimitForMerge,
+                DataSize memoryLimitForMergeWithMemory,
+                SpillerFactory spillerFactory,
+                JoinCompiler joinCompiler,
+                boolean adaptivePartialAggregationEnabled,
+                long adaptivePartialAggregationMinRows,
+                double adaptivePartialAggregationUniqueRowsRatioThreshold)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -183,6 +238,9 @@ public class HashAggregationOperator
             this.memoryLimitForMergeWithMemory = requireNonNull(memoryLimitForMergeWithMemory, "memoryLimitForMergeWithMemory is null");
             this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+            this.adaptivePartialAggregationEnabled = adaptivePartialAggregationEnabled;
+            this.adaptivePartialAggregationMinRows = adaptivePartialAggregationMinRows;
+            this.adaptivePartialAggregationUniqueRowsRatioThreshold = adaptivePartialAggregationUniqueRowsRatioThreshold;
 
             this.types = toTypes(groupByTypes, step, accumulatorFactories, hashChannel);
         }
@@ -215,7 +273,10 @@ public class HashAggregationOperator
                     memoryLimitForMerge,
                     memoryLimitForMergeWithMemory,
                     spillerFactory,
-                    joinCompiler);
+                    joinCompiler,
+                    adaptivePartialAggregationEnabled,
+                    adaptivePartialAggregationMinRows,
+                    adaptivePartialAggregationUniqueRowsRatioThreshold);
             return hashAggregationOperator;
         }
 
@@ -245,7 +306,10 @@ public class HashAggregationOperator
                     memoryLimitForMerge,
                     memoryLimitForMergeWithMemory,
                     spillerFactory,
-                    joinCompiler);
+                    joinCompiler,
+                    adaptivePartialAggregationEnabled,
+                    adaptivePartialAggregationMinRows,
+                    adaptivePartialAggregationUniqueRowsRatioThreshold);
         }
     }
 
@@ -266,8 +330,12 @@ public class HashAggregationOperator
     private final SpillerFactory spillerFactory;
     private final JoinCompiler joinCompiler;
 
+    private final boolean adaptivePartialAggregationEnabled;
+    private final long adaptivePartialAggregationMinRows;
+    private final double adaptivePartialAggregationUniqueRowsRatioThreshold;
+
     private final List<Type> types;
-    private final HashCollisionsCounter hashCollisionsCounter;
+    private final HashAggregationStatisticsCounter statisticsCounter;
 
     private HashAggregationBuilder aggregationBuilder;
     private WorkProcessor<Page> outputPages;
@@ -275,6 +343,12 @@ public class HashAggregationOperator
     private boolean finishing;
     private boolean finished;
 
+    // input rows and groups of flushed partial aggregation builders, and input rows of the current one
+    private long partialAggregationInputRows;
+    private long partialAggregationGroups;
+    private long aggregationBuilderInputRows;
+    private boolean passThrough;
+
     // for yield when memory is not available
     private Work<?> unfinishedWork;
 
@@ -294,7 +368,10 @@ public class HashAggregationOperator
             DataSize memoryLimitForMerge,
             DataSize memoryLimitForMergeWithMemory,
             SpillerFactory spillerFactory,
-            JoinCompiler joinCompiler)
+            JoinCompiler joinCompiler,
+            boolean adaptivePartialAggregationEnabled,
+            long adaptivePartialAggregationMinRows,
+            double adaptivePartialAggregationUniqueRowsRatioThreshold)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         requireNonNull(step, "step is null");
@@ -317,8 +394,12 @@ public class HashAggregationOperator
         this.memoryLimitForMergeWithMemory = requireNonNull(memoryLimitForMergeWithMemory, "memoryLimitForMergeWithMemory is null");
         this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
-        this.hashCollisionsCounter = new HashCollisionsCounter(operatorContext);
-        operatorContext.setInfoSupplier(hashCollisionsCounter);
+        // ORDER BY and DISTINCT aggregations are never split into partial and final steps
+        this.adaptivePartialAggregationEnabled = adaptivePartialAggregationEnabled && step == Step.PARTIAL && !hasOrderBy() && !hasDistinct();
+        this.adaptivePartialAggregationMinRows = adaptivePartialAggregationMinRows;
+        this.adaptivePartialAggregationUniqueRowsRatioThreshold = adaptivePartialAggregationUniqueRowsRatioThreshold;
+        this.statisticsCounter = new HashAggregationStatisticsCounter(operatorContext);
+        operatorContext.setInfoSupplier(statisticsCounter);
     }
 
     @Override
@@ -351,7 +432,7 @@ public class HashAggregationOperator
         if (finishing || outputPages != null) {
             return false;
         }
-        else if (aggregationBuilder != null && aggregationBuilder.isFull()) {
+        else if (aggregationBuilder != null && shouldFlush()) {
             return false;
         }
         else {
@@ -367,7 +448,11 @@ public class HashAggregationOperator
         requireNonNull(page, "page is null");
         inputProcessed = true;
 
-        if (aggregationBuilder == null) {
+        if (aggregationBuilder == null && passThrough) {
+            aggregationBuilder = new PassThroughAggregationBuilder(accumulatorFactories, groupByChannels, hashChannel, operatorContext);
+            statisticsCounter.recordPassThrough(page.getPositionCount());
+        }
+        else if (aggregationBuilder == null) {
             // TODO: We ignore spillEnabled here if any aggregate has ORDER BY clause or DISTINCT because they are not yet implemented for spilling.
             if (step.isOutputPartial() || !spillEnabled || hasOrderBy() || hasDistinct()) {
                 aggregationBuilder = new InMemoryHashAggregationBuilder(
@@ -400,7 +485,7 @@ public class HashAggregationOperator
             // assume initial aggregationBuilder is not full
         }
         else {
-            checkState(!aggregationBuilder.isFull(), "Aggregation buffer is full");
+            checkState(!shouldFlush(), "Aggregation buffer is full");
         }
 
         // process the current page; save the unfinished work if we are waiting for memory
@@ -409,6 +494,32 @@ public class HashAggregationOperator
             unfinishedWork = null;
         }
         aggregationBuilder.updateMemory();
+
+        if (step == Step.PARTIAL && !passThrough) {
+            aggregationBuilderInputRows += page.getPositionCount();
+            if (adaptivePartialAggregationEnabled) {
+                decidePassThrough();
+            }
+        }
+    }
+
+    private void decidePassThrough()
+    {
+        long inputRows = partialAggregationInputRows + aggregationBuilderInputRows;
+        if (inputRows < adaptivePartialAggregationMinRows || unfinishedWork != null) {
+            return;
+        }
+        long groups = partialAggregationGroups + ((InMemoryHashAggregationBuilder) aggregationBuilder).getGroupCount();
+        if (groups > inputRows * adaptivePartialAggregationUniqueRowsRatioThreshold) {
+            // aggregation hardly reduces the rows, flush the current groups and pass the rest of the input through
+            passThrough = true;
+        }
+    }
+
+    private boolean shouldFlush()
+    {
+        // the pass through decision flushes the in memory aggregation builder; pass through builders are full once they hold a page
+        return aggregationBuilder.isFull() || (passThrough && aggregationBuilder instanceof InMemoryHashAggregationBuilder);
     }
 
     private boolean hasOrderBy()
@@ -470,7 +581,7 @@ public class HashAggregationOperator
             }
 
             // only flush if we are finishing or the aggregation builder is full
-            if (!finishing && (aggregationBuilder == null || !aggregationBuilder.isFull())) {
+            if (!finishing && (aggregationBuilder == null || !shouldFlush())) {
                 return null;
             }
 
@@ -505,7 +616,10 @@ public class HashAggregationOperator
     {
         outputPages = null;
         if (aggregationBuilder != null) {
-            aggregationBuilder.recordHashCollisions(hashCollisionsCounter);
+            aggregationBuilder.recordHashCollisions(statisticsCounter);
+            if (step == Step.PARTIAL && aggregationBuilder instanceof InMemoryHashAggregationBuilder) {
+                recordPartialAggregation((InMemoryHashAggregationBuilder) aggregationBuilder);
+            }
             aggregationBuilder.close();
             // aggregationBuilder.close() will release all memory reserved in memory accounting.
             // The reference must be set to null afterwards to avoid unaccounted memory.
@@ -515,6 +629,15 @@ public class HashAggregationOperator
         operatorContext.localRevocableMemoryContext().setBytes(0);
     }
 
+    private void recordPartialAggregation(InMemoryHashAggregationBuilder builder)
+    {
+        long groups = builder.getGroupCount();
+        statisticsCounter.recordPartialAggregation(aggregationBuilderInputRows, groups);
+        partialAggregationInputRows += aggregationBuilderInputRows;
+        partialAggregationGroups += groups;
+        aggregationBuilderInputRows = 0;
+    }
+
     private Page getGlobalAggregationOutput()
     {
         List<Accumulator> accumulators = accumulatorFactories.stream()
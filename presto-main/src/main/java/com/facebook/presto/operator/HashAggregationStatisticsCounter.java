@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+public class HashAggregationStatisticsCounter
+        extends HashCollisionsCounter
+{
+    private long partialAggregationInputRows;
+    private long partialAggregationGroups;
+    private long passThroughRows;
+    private boolean passThrough;
+
+    public HashAggregationStatisticsCounter(OperatorContext operatorContext)
+    {
+        super(operatorContext);
+    }
+
+    public void recordPartialAggregation(long inputRows, long groups)
+    {
+        this.partialAggregationInputRows += inputRows;
+        this.partialAggregationGroups += groups;
+    }
+
+    public void recordPassThrough(long rows)
+    {
+        passThrough = true;
+        passThroughRows += rows;
+    }
+
+    @Override
+    public HashAggregationInfo get()
+    {
+        HashCollisionsInfo hashCollisionsInfo = super.get();
+        return new HashAggregationInfo(
+                hashCollisionsInfo.getWeightedHashCollisions(),
+                hashCollisionsInfo.getWeightedSumSquaredHashCollisions(),
+                hashCollisionsInfo.getWeightedExpectedHashCollisions(),
+                partialAggregationInputRows,
+                partialAggregationGroups,
+                passThroughRows,
+                passThrough ? 1 : 0);
+    }
+}
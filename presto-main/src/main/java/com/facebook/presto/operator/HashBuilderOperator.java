@@ -70,6 +70,7 @@ public class HashBuilderOperator
         private final int expectedPositions;
         private final boolean spillEnabled;
         private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+        private final Optional<DynamicFilterSource> dynamicFilterSource;
 
         private final Map<Lifespan, Integer> partitionIndexManager = new HashMap<>();
 
@@ -90,6 +91,44 @@ public class HashBuilderOperator
                 PagesIndex.Factory pagesIndexFactory,
                 boolean spillEnabled,
                 SingleStreamSpillerFactory singleStreamSpillerFactory)
+        {
+            this(
+                    operatorId,
+                    planNodeId,
+                    types,
+                    lookupSourceFactory,
+                    outputChannels,
+                    hashChannels,
+                    preComputedHashChannel,
+                    filterFunctionFactory,
+                    sortChannel,
+                    searchFunctionFactories,
+                    expectedPositions,
+                    pagesIndexFactory,
+                    spillEnabled,
+                    singleStreamSpillerFactory,
+                    Optional.empty());
+        }
+
+        /**
+         * @param dynamicFilterSource dynamic filter of the join, collected from build side rows
+         */
+        public HashBuilderOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<Type> types,
+                LookupSourceFactoryManager lookupSourceFactory,
+                List<Integer> outputChannels,
+                List<Integer> hashChannels,
+                OptionalInt preComputedHashChannel,
+                Optional<JoinFilterFunctionFactory> filterFunctionFactory,
+                Optional<Integer> sortChannel,
+                List<JoinFilterFunctionFactory> searchFunctionFactories,
+                int expectedPositions,
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                SingleStreamSpillerFactory singleStreamSpillerFactory,
+                Optional<DynamicFilterSource> dynamicFilterSource)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -108,6 +147,7 @@ public class HashBuilderOperator
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
             this.spillEnabled = spillEnabled;
             this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+            this.dynamicFilterSource = requireNonNull(dynamicFilterSource, "dynamicFilterSource is null");
 
             this.expectedPositions = expectedPositions;
         }
@@ -140,7 +180,8 @@ public class HashBuilderOperator
                     expectedPositions,
                     pagesIndexFactory,
                     spillEnabled,
-                    singleStreamSpillerFactory);
+                    singleStreamSpillerFactory,
+                    dynamicFilterSource);
         }
 
         @Override
@@ -223,6 +264,10 @@ public class HashBuilderOperator
 
     private final HashCollisionsCounter hashCollisionsCounter;
 
+    private final Optional<DynamicFilterSource> dynamicFilterSource;
+    // cleared once dynamic filter of this partition is added to the source
+    private Optional<DynamicFilter.Builder> dynamicFilterBuilder;
+
     private State state = State.CONSUMING_INPUT;
     private Optional<ListenableFuture<?>> lookupSourceNotNeeded = Optional.empty();
     private SpilledLookupSourceHandle spilledLookupSourceHandle = new SpilledLookupSourceHandle();
@@ -248,7 +293,8 @@ public class HashBuilderOperator
             int expectedPositions,
             PagesIndex.Factory pagesIndexFactory,
             boolean spillEnabled,
-            SingleStreamSpillerFactory singleStreamSpillerFactory)
+            SingleStreamSpillerFactory singleStreamSpillerFactory,
+            Optional<DynamicFilterSource> dynamicFilterSource)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
@@ -273,6 +319,9 @@ public class HashBuilderOperator
 
         this.spillEnabled = spillEnabled;
         this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+
+        this.dynamicFilterSource = requireNonNull(dynamicFilterSource, "dynamicFilterSource is null");
+        this.dynamicFilterBuilder = dynamicFilterSource.map(source -> source.createPartitionBuilder(hashChannels));
     }
 
     @Override
@@ -340,6 +389,8 @@ public class HashBuilderOperator
             return;
         }
 
+        dynamicFilterBuilder.ifPresent(builder -> builder.addPage(page));
+
         if (state == State.SPILLING_INPUT) {
             spillInput(page);
             return;
@@ -507,10 +558,19 @@ public class HashBuilderOperator
             localUserMemoryContext.setBytes(partition.get().getInMemorySizeInBytes());
         }
         lookupSourceNotNeeded = Optional.of(lookupSourceFactory.lendPartitionLookupSource(partitionIndex, partition));
+        addDynamicFilter();
 
         state = State.LOOKUP_SOURCE_BUILT;
     }
 
+    private void addDynamicFilter()
+    {
+        if (dynamicFilterBuilder.isPresent()) {
+            dynamicFilterSource.get().addPartition(dynamicFilterBuilder.get().build());
+            dynamicFilterBuilder = Optional.empty();
+        }
+    }
+
     private void disposeLookupSourceIfRequested()
     {
         checkState(state == State.LOOKUP_SOURCE_BUILT);
@@ -534,6 +594,8 @@ public class HashBuilderOperator
             return;
         }
         checkSuccess(spillInProgress, "spilling failed");
+        // spilled lookup source is built only when probe side asks for it, but all build rows are known already
+        addDynamicFilter();
         state = State.INPUT_SPILLED;
     }
 
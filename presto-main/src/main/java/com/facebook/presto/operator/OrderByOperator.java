@@ -13,18 +13,29 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
+import static com.facebook.presto.util.MergeSortedPages.mergeSortedPages;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.concurrent.MoreFutures.checkSuccess;
 import static java.util.Objects.requireNonNull;
 
 public class OrderByOperator
@@ -43,6 +54,8 @@ public class OrderByOperator
         private final List<Type> types;
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
+        private final boolean spillEnabled;
+        private final Optional<SpillerFactory> spillerFactory;
 
         public OrderByOperatorFactory(
                 int operatorId,
@@ -53,6 +66,21 @@ public class OrderByOperator
                 List<Integer> sortChannels,
                 List<SortOrder> sortOrder,
                 PagesIndex.Factory pagesIndexFactory)
+        {
+            this(operatorId, planNodeId, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, pagesIndexFactory, false, Optional.empty());
+        }
+
+        public OrderByOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                int expectedPositions,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                Optional<SpillerFactory> spillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -64,6 +92,9 @@ public class OrderByOperator
 
             this.types = toTypes(sourceTypes, outputChannels);
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+            this.spillEnabled = spillEnabled;
+            this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+            checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
         }
 
         @Override
@@ -85,7 +116,9 @@ public class OrderByOperator
                     expectedPositions,
                     sortChannels,
                     sortOrder,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory);
         }
 
         @Override
@@ -97,7 +130,7 @@ public class OrderByOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new OrderByOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, pagesIndexFactory);
+            return new OrderByOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, pagesIndexFactory, spillEnabled, spillerFactory);
         }
     }
 
@@ -109,17 +142,27 @@ public class OrderByOperator
     }
 
     private final OperatorContext operatorContext;
+    private final List<Type> sourceTypes;
     private final List<Integer> sortChannels;
     private final List<SortOrder> sortOrder;
     private final int[] outputChannels;
     private final List<Type> types;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
 
     private final PagesIndex pageIndex;
 
     private final PageBuilder pageBuilder;
     private int currentPosition;
 
+    private final boolean spillEnabled;
+    private final Optional<SpillerFactory> spillerFactory;
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private Optional<AggregatedMemoryContext> mergeMemoryContext = Optional.empty();
+    private Optional<WorkProcessor<Page>> mergedPages = Optional.empty();
+
     private State state = State.NEEDS_INPUT;
 
     public OrderByOperator(
@@ -130,19 +173,39 @@ public class OrderByOperator
             List<Integer> sortChannels,
             List<SortOrder> sortOrder,
             PagesIndex.Factory pagesIndexFactory)
+    {
+        this(operatorContext, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, pagesIndexFactory, false, Optional.empty());
+    }
+
+    public OrderByOperator(
+            OperatorContext operatorContext,
+            List<Type> sourceTypes,
+            List<Integer> outputChannels,
+            int expectedPositions,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.sourceTypes = ImmutableList.copyOf(requireNonNull(sourceTypes, "sourceTypes is null"));
         this.outputChannels = Ints.toArray(requireNonNull(outputChannels, "outputChannels is null"));
         this.types = toTypes(sourceTypes, outputChannels);
         this.sortChannels = ImmutableList.copyOf(requireNonNull(sortChannels, "sortChannels is null"));
         this.sortOrder = ImmutableList.copyOf(requireNonNull(sortOrder, "sortOrder is null"));
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
 
         this.pageIndex = pagesIndexFactory.newPagesIndex(sourceTypes, expectedPositions);
 
         this.pageBuilder = new PageBuilder(this.types);
+
+        this.spillEnabled = spillEnabled;
+        this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+        checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
     }
 
     @Override
@@ -160,12 +223,43 @@ public class OrderByOperator
     @Override
     public void finish()
     {
-        if (state == State.NEEDS_INPUT) {
-            state = State.HAS_OUTPUT;
+        if (state != State.NEEDS_INPUT) {
+            return;
+        }
+        if (finishMemoryRevoke.isPresent() || !spillInProgress.isDone()) {
+            // Not ready to handle finish() yet, driver calls it again once revoking is finished
+            return;
+        }
+        checkSuccess(spillInProgress, "spilling failed");
+        state = State.HAS_OUTPUT;
+
+        if (spillEnabled && !spiller.isPresent()) {
+            // sorted index can't be revoked anymore, so it has to fit into user memory
+            long revocableBytes = localRevocableMemoryContext.getBytes();
+            localRevocableMemoryContext.setBytes(0);
+            if (!localUserMemoryContext.trySetBytes(localUserMemoryContext.getBytes() + revocableBytes)) {
+                localRevocableMemoryContext.setBytes(revocableBytes);
+                startSpill();
+            }
+        }
+        else if (spiller.isPresent() && pageIndex.getPositionCount() > 0) {
+            // the rest of the input is spilled too, so that merge needs just a page of every sorted run in memory
+            startSpill();
+        }
 
-            // sort the index
-            pageIndex.sort(sortChannels, sortOrder);
+        if (spiller.isPresent()) {
+            // spilled runs are merged in getOutput, once the last one is written
+            return;
         }
+
+        // sort the index
+        pageIndex.sort(sortChannels, sortOrder);
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return spillInProgress;
     }
 
     @Override
@@ -187,13 +281,85 @@ public class OrderByOperator
         requireNonNull(page, "page is null");
 
         pageIndex.addPage(page);
+        updateMemoryUsage();
+    }
 
+    private void updateMemoryUsage()
+    {
+        if (spillEnabled) {
+            // revocable memory can't be tried, the index is spilled once the pool runs low
+            localRevocableMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
+            return;
+        }
         if (!localUserMemoryContext.trySetBytes(pageIndex.getEstimatedSize().toBytes())) {
             pageIndex.compact();
             localUserMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
         }
     }
 
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(!finishMemoryRevoke.isPresent(), "Previous revoke is not finished");
+        if (state != State.NEEDS_INPUT || pageIndex.getPositionCount() == 0) {
+            // sorted index is kept in user memory, there is nothing to revoke
+            finishMemoryRevoke = Optional.of(() -> {});
+            return NOT_BLOCKED;
+        }
+
+        finishMemoryRevoke = Optional.of(() -> {
+            pageIndex.clear();
+            updateMemoryUsage();
+        });
+        return startSpill();
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private ListenableFuture<?> startSpill()
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSuccess(spillInProgress, "spilling failed");
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+
+        // every spill writes one sorted run, which is merged with the others when producing output
+        pageIndex.sort(sortChannels, sortOrder);
+        spillInProgress = spiller.get().spill(pageIndex.getSortedPages());
+        return spillInProgress;
+    }
+
+    private WorkProcessor<Page> mergeSpilledRuns()
+    {
+        checkSuccess(spillInProgress, "spilling failed");
+        pageIndex.clear();
+        localRevocableMemoryContext.setBytes(0);
+        localUserMemoryContext.setBytes(0);
+
+        mergeMemoryContext = Optional.of(operatorContext.newAggregateSystemMemoryContext());
+        return mergeSortedPages(
+                spiller.get().getSpills().stream()
+                        .map(WorkProcessor::fromIterator)
+                        .collect(toImmutableList()),
+                new SimplePageWithPositionComparator(sourceTypes, sortChannels, sortOrder),
+                ImmutableList.copyOf(Ints.asList(outputChannels)),
+                types,
+                (pageBuilder, pageWithPosition) -> pageBuilder.isFull(),
+                false,
+                mergeMemoryContext.get(),
+                operatorContext.getDriverContext().getYieldSignal());
+    }
+
     @Override
     public Page getOutput()
     {
@@ -201,6 +367,27 @@ public class OrderByOperator
             return null;
         }
 
+        if (spiller.isPresent() && !mergedPages.isPresent()) {
+            if (!spillInProgress.isDone()) {
+                // driver waits for the last sorted run in isBlocked
+                return null;
+            }
+            mergedPages = Optional.of(mergeSpilledRuns());
+        }
+
+        if (mergedPages.isPresent()) {
+            WorkProcessor<Page> pages = mergedPages.get();
+            if (!pages.process()) {
+                // merge yielded
+                return null;
+            }
+            if (pages.isFinished()) {
+                state = State.FINISHED;
+                return null;
+            }
+            return pages.getResult();
+        }
+
         if (currentPosition >= pageIndex.getPositionCount()) {
             state = State.FINISHED;
             return null;
@@ -223,7 +410,15 @@ public class OrderByOperator
     @Override
     public void close()
     {
-        pageIndex.clear();
+        try (Closer closer = Closer.create()) {
+            closer.register(pageIndex::clear);
+            spiller.ifPresent(closer::register);
+            mergeMemoryContext.ifPresent(memoryContext -> closer.register(memoryContext::close));
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private static List<Type> toTypes(List<? extends Type> sourceTypes, List<Integer> outputChannels)
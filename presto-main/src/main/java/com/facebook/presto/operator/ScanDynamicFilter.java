@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.type.Type;
+import io.airlift.slice.Slice;
+
+import javax.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Dynamic filter of a join applied by one of its probe side scans. Maps keys of the join to output channels of the scan.
+ */
+public class ScanDynamicFilter
+{
+    private final DynamicFilterSource source;
+    private final int[] keyChannels;
+    private volatile boolean disabled;
+
+    /**
+     * @param keyChannels output channel of the scan for every key of the join or -1 if the key is not produced by the scan
+     */
+    public ScanDynamicFilter(DynamicFilterSource source, int[] keyChannels)
+    {
+        this.source = requireNonNull(source, "source is null");
+        this.keyChannels = requireNonNull(keyChannels, "keyChannels is null").clone();
+        checkArgument(keyChannels.length == source.getKeyTypes().size(), "expected %s key channels, got %s", source.getKeyTypes().size(), keyChannels.length);
+    }
+
+    public DynamicFilterSource getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Called during planning when the join turns out not to publish the filter.
+     * Scan operators created afterwards don't apply it at all.
+     */
+    public void disable()
+    {
+        disabled = true;
+    }
+
+    public boolean isEnabled()
+    {
+        return !disabled;
+    }
+
+    /**
+     * @param columns output columns of the scan
+     * @return values of scan columns which can match the build side, all if the build side isn't finished yet
+     */
+    public TupleDomain<ColumnHandle> getPredicate(List<ColumnHandle> columns)
+    {
+        Optional<DynamicFilter> dynamicFilter = source.getDynamicFilterIfReady();
+        if (!dynamicFilter.isPresent()) {
+            return TupleDomain.all();
+        }
+        if (dynamicFilter.get().isNone()) {
+            return TupleDomain.none();
+        }
+        Map<ColumnHandle, Domain> domains = new HashMap<>();
+        for (int key = 0; key < keyChannels.length; key++) {
+            if (keyChannels[key] >= 0) {
+                ColumnHandle column = columns.get(keyChannels[key]);
+                // the same column may be compared with more than one key
+                dynamicFilter.get().getDomain(key).ifPresent(domain -> domains.merge(column, domain, Domain::intersect));
+            }
+        }
+        return TupleDomain.withColumnDomains(domains);
+    }
+
+    /**
+     * @return rows of given scan output page which can match the build side or null if there are none
+     */
+    @Nullable
+    public Page filter(Page page)
+    {
+        Optional<DynamicFilter> dynamicFilter = source.getDynamicFilterIfReady();
+        if (!dynamicFilter.isPresent() || dynamicFilter.get().isAll()) {
+            return page;
+        }
+        return dynamicFilter.get().filter(page, keyChannels);
+    }
+
+    /**
+     * @return cursor skipping rows of given scan output cursor which can't match the build side, once the build side is finished
+     */
+    public RecordCursor filter(RecordCursor cursor)
+    {
+        return new FilteringRecordCursor(cursor);
+    }
+
+    private class FilteringRecordCursor
+            implements RecordCursor
+    {
+        private final RecordCursor delegate;
+        private Optional<DynamicFilter> dynamicFilter = Optional.empty();
+
+        private FilteringRecordCursor(RecordCursor delegate)
+        {
+            this.delegate = requireNonNull(delegate, "delegate is null");
+        }
+
+        @Override
+        public boolean advanceNextPosition()
+        {
+            if (!dynamicFilter.isPresent()) {
+                dynamicFilter = source.getDynamicFilterIfReady();
+            }
+            while (delegate.advanceNextPosition()) {
+                if (!dynamicFilter.isPresent() || dynamicFilter.get().contains(delegate, keyChannels)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long getCompletedBytes()
+        {
+            return delegate.getCompletedBytes();
+        }
+
+        @Override
+        public long getReadTimeNanos()
+        {
+            return delegate.getReadTimeNanos();
+        }
+
+        @Override
+        public Type getType(int field)
+        {
+            return delegate.getType(field);
+        }
+
+        @Override
+        public boolean getBoolean(int field)
+        {
+            return delegate.getBoolean(field);
+        }
+
+        @Override
+        public long getLong(int field)
+        {
+            return delegate.getLong(field);
+        }
+
+        @Override
+        public double getDouble(int field)
+        {
+            return delegate.getDouble(field);
+        }
+
+        @Override
+        public Slice getSlice(int field)
+        {
+            return delegate.getSlice(field);
+        }
+
+        @Override
+        public Object getObject(int field)
+        {
+            return delegate.getObject(field);
+        }
+
+        @Override
+        public boolean isNull(int field)
+        {
+            return delegate.isNull(field);
+        }
+
+        @Override
+        public long getSystemMemoryUsage()
+        {
+            return delegate.getSystemMemoryUsage();
+        }
+
+        @Override
+        public void close()
+        {
+            delegate.close();
+        }
+    }
+}
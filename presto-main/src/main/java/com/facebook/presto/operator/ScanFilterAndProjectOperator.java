@@ -27,6 +27,7 @@ import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.spi.RecordPageSource;
 import com.facebook.presto.spi.UpdatablePageSource;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.split.EmptySplit;
 import com.facebook.presto.split.EmptySplitPageSource;
@@ -64,6 +65,7 @@ public class ScanFilterAndProjectOperator
     private final LocalMemoryContext pageBuilderMemoryContext;
     private final SettableFuture<?> blocked = SettableFuture.create();
     private final MergingPageOutput mergingOutput;
+    private final Optional<ScanDynamicFilter> dynamicFilter;
 
     private RecordCursor cursor;
     private ConnectorPageSource pageSource;
@@ -83,7 +85,8 @@ public class ScanFilterAndProjectOperator
             PageProcessor pageProcessor,
             Iterable<ColumnHandle> columns,
             Iterable<Type> types,
-            MergingPageOutput mergingOutput)
+            MergingPageOutput mergingOutput,
+            Optional<ScanDynamicFilter> dynamicFilter)
     {
         this.cursorProcessor = requireNonNull(cursorProcessor, "cursorProcessor is null");
         this.pageProcessor = requireNonNull(pageProcessor, "pageProcessor is null");
@@ -95,6 +98,7 @@ public class ScanFilterAndProjectOperator
         this.pageSourceMemoryContext = operatorContext.newLocalSystemMemoryContext();
         this.pageBuilderMemoryContext = operatorContext.newLocalSystemMemoryContext();
         this.mergingOutput = requireNonNull(mergingOutput, "mergingOutput is null");
+        this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
 
         this.pageBuilder = new PageBuilder(getTypes());
     }
@@ -221,9 +225,12 @@ public class ScanFilterAndProjectOperator
         }
 
         if (!finishing && pageSource == null && cursor == null) {
-            ConnectorPageSource source = pageSourceProvider.createPageSource(operatorContext.getSession(), split, columns);
+            ConnectorPageSource source = createPageSource();
             if (source instanceof RecordPageSource) {
                 cursor = ((RecordPageSource) source).getCursor();
+                if (dynamicFilter.isPresent()) {
+                    cursor = dynamicFilter.get().filter(cursor);
+                }
             }
             else {
                 pageSource = source;
@@ -238,6 +245,18 @@ public class ScanFilterAndProjectOperator
         }
     }
 
+    private ConnectorPageSource createPageSource()
+    {
+        if (!dynamicFilter.isPresent()) {
+            return pageSourceProvider.createPageSource(operatorContext.getSession(), split, columns);
+        }
+        TupleDomain<ColumnHandle> predicate = dynamicFilter.get().getPredicate(columns);
+        if (predicate.isNone()) {
+            return new EmptySplitPageSource();
+        }
+        return pageSourceProvider.createPageSource(operatorContext.getSession(), split, columns, predicate);
+    }
+
     private Page processColumnSource()
     {
         DriverYieldSignal yieldSignal = operatorContext.getDriverContext().getYieldSignal();
@@ -283,8 +302,13 @@ public class ScanFilterAndProjectOperator
                 completedBytes = endCompletedBytes;
                 readTimeNanos = endReadTimeNanos;
 
-                PageProcessorOutput output = pageProcessor.process(operatorContext.getSession().toConnectorSession(), yieldSignal, page);
-                mergingOutput.addInput(output);
+                if (dynamicFilter.isPresent()) {
+                    page = dynamicFilter.get().filter(page);
+                }
+                if (page != null) {
+                    PageProcessorOutput output = pageProcessor.process(operatorContext.getSession().toConnectorSession(), yieldSignal, page);
+                    mergingOutput.addInput(output);
+                }
             }
 
             if (finishing) {
@@ -310,6 +334,7 @@ public class ScanFilterAndProjectOperator
         private final List<Type> types;
         private final DataSize minOutputPageSize;
         private final int minOutputPageRowCount;
+        private final Optional<ScanDynamicFilter> dynamicFilter;
         private boolean closed;
 
         public ScanFilterAndProjectOperatorFactory(
@@ -323,6 +348,25 @@ public class ScanFilterAndProjectOperator
                 List<Type> types,
                 DataSize minOutputPageSize,
                 int minOutputPageRowCount)
+        {
+            this(operatorId, planNodeId, sourceId, pageSourceProvider, cursorProcessor, pageProcessor, columns, types, minOutputPageSize, minOutputPageRowCount, Optional.empty());
+        }
+
+        /**
+         * @param dynamicFilter dynamic filter of a join, which probe side is produced by this scan
+         */
+        public ScanFilterAndProjectOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                PlanNodeId sourceId,
+                PageSourceProvider pageSourceProvider,
+                Supplier<CursorProcessor> cursorProcessor,
+                Supplier<PageProcessor> pageProcessor,
+                Iterable<ColumnHandle> columns,
+                List<Type> types,
+                DataSize minOutputPageSize,
+                int minOutputPageRowCount,
+                Optional<ScanDynamicFilter> dynamicFilter)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -334,6 +378,7 @@ public class ScanFilterAndProjectOperator
             this.types = requireNonNull(types, "types is null");
             this.minOutputPageSize = requireNonNull(minOutputPageSize, "minOutputPageSize is null");
             this.minOutputPageRowCount = minOutputPageRowCount;
+            this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
         }
 
         @Override
@@ -361,7 +406,8 @@ public class ScanFilterAndProjectOperator
                     pageProcessor.get(),
                     columns,
                     types,
-                    new MergingPageOutput(types, minOutputPageSize.toBytes(), minOutputPageRowCount));
+                    new MergingPageOutput(types, minOutputPageSize.toBytes(), minOutputPageRowCount),
+                    dynamicFilter.filter(ScanDynamicFilter::isEnabled));
         }
 
         @Override
@@ -19,6 +19,7 @@ import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.UpdatablePageSource;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.split.EmptySplit;
 import com.facebook.presto.split.EmptySplitPageSource;
@@ -51,6 +52,7 @@ public class TableScanOperator
         private final PageSourceProvider pageSourceProvider;
         private final List<Type> types;
         private final List<ColumnHandle> columns;
+        private final Optional<ScanDynamicFilter> dynamicFilter;
         private boolean closed;
 
         public TableScanOperatorFactory(
@@ -59,12 +61,27 @@ public class TableScanOperator
                 PageSourceProvider pageSourceProvider,
                 List<Type> types,
                 Iterable<ColumnHandle> columns)
+        {
+            this(operatorId, sourceId, pageSourceProvider, types, columns, Optional.empty());
+        }
+
+        /**
+         * @param dynamicFilter dynamic filter of a join, which probe side is produced by this scan
+         */
+        public TableScanOperatorFactory(
+                int operatorId,
+                PlanNodeId sourceId,
+                PageSourceProvider pageSourceProvider,
+                List<Type> types,
+                Iterable<ColumnHandle> columns,
+                Optional<ScanDynamicFilter> dynamicFilter)
         {
             this.operatorId = operatorId;
             this.sourceId = requireNonNull(sourceId, "sourceId is null");
             this.types = requireNonNull(types, "types is null");
             this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
             this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+            this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
         }
 
         @Override
@@ -89,7 +106,8 @@ public class TableScanOperator
                     sourceId,
                     pageSourceProvider,
                     types,
-                    columns);
+                    columns,
+                    dynamicFilter.filter(ScanDynamicFilter::isEnabled));
         }
 
         @Override
@@ -105,6 +123,7 @@ public class TableScanOperator
     private final List<Type> types;
     private final List<ColumnHandle> columns;
     private final LocalMemoryContext systemMemoryContext;
+    private final Optional<ScanDynamicFilter> dynamicFilter;
     private final SettableFuture<?> blocked = SettableFuture.create();
 
     private Split split;
@@ -121,6 +140,17 @@ public class TableScanOperator
             PageSourceProvider pageSourceProvider,
             List<Type> types,
             Iterable<ColumnHandle> columns)
+    {
+        this(operatorContext, planNodeId, pageSourceProvider, types, columns, Optional.empty());
+    }
+
+    public TableScanOperator(
+            OperatorContext operatorContext,
+            PlanNodeId planNodeId,
+            PageSourceProvider pageSourceProvider,
+            List<Type> types,
+            Iterable<ColumnHandle> columns,
+            Optional<ScanDynamicFilter> dynamicFilter)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -128,6 +158,7 @@ public class TableScanOperator
         this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
         this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
         this.systemMemoryContext = operatorContext.newLocalSystemMemoryContext();
+        this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
     }
 
     @Override
@@ -256,7 +287,7 @@ public class TableScanOperator
             return null;
         }
         if (source == null) {
-            source = pageSourceProvider.createPageSource(operatorContext.getSession(), split, columns);
+            source = createPageSource();
         }
 
         Page page = source.getNextPage();
@@ -270,6 +301,10 @@ public class TableScanOperator
             operatorContext.recordGeneratedInput(endCompletedBytes - completedBytes, page.getPositionCount(), endReadTimeNanos - readTimeNanos);
             completedBytes = endCompletedBytes;
             readTimeNanos = endReadTimeNanos;
+
+            if (dynamicFilter.isPresent()) {
+                page = dynamicFilter.get().filter(page);
+            }
         }
 
         // updating system memory usage should happen after page is loaded.
@@ -277,4 +312,16 @@ public class TableScanOperator
 
         return page;
     }
+
+    private ConnectorPageSource createPageSource()
+    {
+        if (!dynamicFilter.isPresent()) {
+            return pageSourceProvider.createPageSource(operatorContext.getSession(), split, columns);
+        }
+        TupleDomain<ColumnHandle> predicate = dynamicFilter.get().getPredicate(columns);
+        if (predicate.isNone()) {
+            return new EmptySplitPageSource();
+        }
+        return pageSourceProvider.createPageSource(operatorContext.getSession(), split, columns, predicate);
+    }
 }
@@ -56,12 +56,17 @@ public class WindowInfo
         private IndexInfoBuilder currentIndexInfoBuilder;
 
         public void addIndex(PagesIndex index)
+        {
+            addIndex(index.getPositionCount(), index.getEstimatedSize().toBytes());
+        }
+
+        public void addIndex(long rowsNumber, long sizeInBytes)
         {
             if (currentIndexInfoBuilder != null) {
                 Optional<IndexInfo> indexInfo = currentIndexInfoBuilder.build();
                 indexInfo.ifPresent(indexInfosBuilder::add);
             }
-            currentIndexInfoBuilder = new IndexInfoBuilder(index.getPositionCount(), index.getEstimatedSize().toBytes());
+            currentIndexInfoBuilder = new IndexInfoBuilder(rowsNumber, sizeInBytes);
         }
 
         public void addPartition(WindowPartition partition)
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.window.FramedWindowFunction;
 import com.facebook.presto.operator.window.WindowPartition;
@@ -21,13 +22,18 @@ import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.io.Closer;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
@@ -36,11 +42,13 @@ import java.util.function.BiPredicate;
 import java.util.stream.Stream;
 
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.util.MergeSortedPages.mergeSortedPages;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.concat;
+import static io.airlift.concurrent.MoreFutures.checkSuccess;
 import static java.util.Collections.nCopies;
 import static java.util.Objects.requireNonNull;
 
@@ -64,6 +72,8 @@ public class WindowOperator
         private final List<Type> types;
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
+        private final boolean spillEnabled;
+        private final Optional<SpillerFactory> spillerFactory;
 
         public WindowOperatorFactory(
                 int operatorId,
@@ -78,6 +88,39 @@ public class WindowOperator
                 int preSortedChannelPrefix,
                 int expectedPositions,
                 PagesIndex.Factory pagesIndexFactory)
+        {
+            this(
+                    operatorId,
+                    planNodeId,
+                    sourceTypes,
+                    outputChannels,
+                    windowFunctionDefinitions,
+                    partitionChannels,
+                    preGroupedChannels,
+                    sortChannels,
+                    sortOrder,
+                    preSortedChannelPrefix,
+                    expectedPositions,
+                    pagesIndexFactory,
+                    false,
+                    Optional.empty());
+        }
+
+        public WindowOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                List<WindowFunctionDefinition> windowFunctionDefinitions,
+                List<Integer> partitionChannels,
+                List<Integer> preGroupedChannels,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                int preSortedChannelPrefix,
+                int expectedPositions,
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                Optional<SpillerFactory> spillerFactory)
         {
             requireNonNull(sourceTypes, "sourceTypes is null");
             requireNonNull(planNodeId, "planNodeId is null");
@@ -89,11 +132,15 @@ public class WindowOperator
             requireNonNull(sortChannels, "sortChannels is null");
             requireNonNull(sortOrder, "sortOrder is null");
             requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+            requireNonNull(spillerFactory, "spillerFactory is null");
             checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
             checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
             checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
+            checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
 
             this.pagesIndexFactory = pagesIndexFactory;
+            this.spillEnabled = spillEnabled;
+            this.spillerFactory = spillerFactory;
             this.operatorId = operatorId;
             this.planNodeId = planNodeId;
             this.sourceTypes = ImmutableList.copyOf(sourceTypes);
@@ -136,7 +183,9 @@ public class WindowOperator
                     sortOrder,
                     preSortedChannelPrefix,
                     expectedPositions,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory);
         }
 
         @Override
@@ -160,7 +209,9 @@ public class WindowOperator
                     sortOrder,
                     preSortedChannelPrefix,
                     expectedPositions,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory);
         }
     }
 
@@ -173,19 +224,23 @@ public class WindowOperator
     }
 
     private final OperatorContext operatorContext;
+    private final List<Type> sourceTypes;
     private final int[] outputChannels;
     private final List<FramedWindowFunction> windowFunctions;
     private final List<Integer> orderChannels;
     private final List<SortOrder> ordering;
     private final List<Type> types;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
 
     private final int[] preGroupedChannels;
+    private final int[] partitionChannels;
 
     private final PagesHashStrategy preGroupedPartitionHashStrategy;
     private final PagesHashStrategy unGroupedPartitionHashStrategy;
     private final PagesHashStrategy preSortedPartitionHashStrategy;
     private final PagesHashStrategy peerGroupHashStrategy;
+    private final PagesHashStrategy partitionHashStrategy;
 
     private final PagesIndex pagesIndex;
 
@@ -200,6 +255,24 @@ public class WindowOperator
 
     private Page pendingInput;
 
+    // rows of the current pre-grouped group are spilled as sorted runs, ordered by spillSortChannels
+    private final boolean spillEnabled;
+    private final Optional<SpillerFactory> spillerFactory;
+    private final List<Integer> spillSortChannels;
+    private final List<SortOrder> spillSortOrder;
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    // pre-grouped channels of the current group, which are no longer in pagesIndex once it was spilled
+    private Optional<Page> spilledGroupKey = Optional.empty();
+    private Optional<AggregatedMemoryContext> mergeMemoryContext = Optional.empty();
+    private Optional<WorkProcessor<Page>> spilledGroup = Optional.empty();
+    private Page pendingSpilledInput;
+    // all rows of the current group are spilled, the runs are merged once the last one is written
+    private boolean spilledGroupComplete;
+    private long spilledGroupPositions;
+    private long spilledGroupBytes;
+
     public WindowOperator(
             OperatorContext operatorContext,
             List<Type> sourceTypes,
@@ -212,6 +285,37 @@ public class WindowOperator
             int preSortedChannelPrefix,
             int expectedPositions,
             PagesIndex.Factory pagesIndexFactory)
+    {
+        this(
+                operatorContext,
+                sourceTypes,
+                outputChannels,
+                windowFunctionDefinitions,
+                partitionChannels,
+                preGroupedChannels,
+                sortChannels,
+                sortOrder,
+                preSortedChannelPrefix,
+                expectedPositions,
+                pagesIndexFactory,
+                false,
+                Optional.empty());
+    }
+
+    public WindowOperator(
+            OperatorContext operatorContext,
+            List<Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<WindowFunctionDefinition> windowFunctionDefinitions,
+            List<Integer> partitionChannels,
+            List<Integer> preGroupedChannels,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            int preSortedChannelPrefix,
+            int expectedPositions,
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory)
     {
         requireNonNull(operatorContext, "operatorContext is null");
         requireNonNull(outputChannels, "outputChannels is null");
@@ -222,12 +326,16 @@ public class WindowOperator
         requireNonNull(sortChannels, "sortChannels is null");
         requireNonNull(sortOrder, "sortOrder is null");
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+        requireNonNull(spillerFactory, "spillerFactory is null");
         checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
         checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
         checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
+        checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
 
         this.operatorContext = operatorContext;
+        this.sourceTypes = ImmutableList.copyOf(requireNonNull(sourceTypes, "sourceTypes is null"));
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
         this.outputChannels = Ints.toArray(outputChannels);
         this.windowFunctions = windowFunctionDefinitions.stream()
                 .map(functionDefinition -> new FramedWindowFunction(functionDefinition.createWindowFunction(), functionDefinition.getFrameInfo()))
@@ -252,6 +360,8 @@ public class WindowOperator
                 .collect(toImmutableList());
         this.preSortedPartitionHashStrategy = pagesIndex.createPagesHashStrategy(preSortedChannels, OptionalInt.empty());
         this.peerGroupHashStrategy = pagesIndex.createPagesHashStrategy(sortChannels, OptionalInt.empty());
+        this.partitionChannels = Ints.toArray(partitionChannels);
+        this.partitionHashStrategy = pagesIndex.createPagesHashStrategy(partitionChannels, OptionalInt.empty());
 
         this.pageBuilder = new PageBuilder(this.types);
 
@@ -266,6 +376,12 @@ public class WindowOperator
             this.ordering = ImmutableList.copyOf(concat(nCopies(unGroupedPartitionChannels.size(), ASC_NULLS_LAST), sortOrder));
         }
 
+        this.spillEnabled = spillEnabled;
+        this.spillerFactory = spillerFactory;
+        // pre-sorted channels are sorted already in the input, but spilled runs have to be merged by them too
+        this.spillSortChannels = ImmutableList.copyOf(concat(preSortedChannels, orderChannels));
+        this.spillSortOrder = ImmutableList.copyOf(concat(Iterables.limit(sortOrder, preSortedChannelPrefix), ordering));
+
         windowInfo = new WindowInfo.DriverWindowInfoBuilder();
         operatorContext.setInfoSupplier(this::getWindowInfo);
     }
@@ -294,6 +410,10 @@ public class WindowOperator
             return;
         }
         if (state == State.NEEDS_INPUT) {
+            if (finishMemoryRevoke.isPresent() || !spillInProgress.isDone()) {
+                // Not ready to handle finish() yet, driver calls it again once revoking is finished
+                return;
+            }
             // Since was waiting for more input, prepare what we have for output since we will not be getting any more input
             finishPagesIndex();
         }
@@ -306,6 +426,12 @@ public class WindowOperator
         return state == State.FINISHED;
     }
 
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return spillInProgress;
+    }
+
     @Override
     public boolean needsInput()
     {
@@ -327,7 +453,21 @@ public class WindowOperator
         if (processPendingInput()) {
             state = State.HAS_OUTPUT;
         }
-        localUserMemoryContext.setBytes(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryUsage();
+    }
+
+    private void updateMemoryUsage()
+    {
+        long bytes = pagesIndex.getEstimatedSize().toBytes();
+        if (spillEnabled && state == State.NEEDS_INPUT) {
+            // rows of an incomplete group can be spilled
+            localUserMemoryContext.setBytes(0);
+            localRevocableMemoryContext.setBytes(bytes);
+        }
+        else {
+            localRevocableMemoryContext.setBytes(0);
+            localUserMemoryContext.setBytes(bytes);
+        }
     }
 
     /**
@@ -358,7 +498,7 @@ public class WindowOperator
 
         // TODO: Fix pagesHashStrategy to allow specifying channels for comparison, it currently requires us to rearrange the right side blocks in consecutive channel order
         Page preGroupedPage = rearrangePage(page, preGroupedChannels);
-        if (pagesIndex.getPositionCount() == 0 || pagesIndex.positionEqualsRow(preGroupedPartitionHashStrategy, 0, 0, preGroupedPage)) {
+        if (isCurrentGroup(preGroupedPage)) {
             // Find the position where the pre-grouped columns change
             int groupEnd = findGroupEnd(preGroupedPage, preGroupedPartitionHashStrategy, 0);
 
@@ -380,6 +520,14 @@ public class WindowOperator
         }
     }
 
+    private boolean isCurrentGroup(Page preGroupedPage)
+    {
+        if (pagesIndex.getPositionCount() > 0) {
+            return pagesIndex.positionEqualsRow(preGroupedPartitionHashStrategy, 0, 0, preGroupedPage);
+        }
+        return !spilledGroupKey.isPresent() || preGroupedPartitionHashStrategy.rowEqualsRow(0, spilledGroupKey.get(), 0, preGroupedPage);
+    }
+
     private static Page rearrangePage(Page page, int[] channels)
     {
         Block[] newBlocks = new Block[channels.length];
@@ -397,7 +545,7 @@ public class WindowOperator
         }
 
         Page page = extractOutput();
-        localUserMemoryContext.setBytes(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryUsage();
         return page;
     }
 
@@ -410,6 +558,27 @@ public class WindowOperator
             if (partition == null || !partition.hasNext()) {
                 int partitionStart = partition == null ? 0 : partition.getPartitionEnd();
 
+                if (spilledGroupComplete) {
+                    if (!spillInProgress.isDone()) {
+                        // Last sorted run of the group is being written, driver waits for it in isBlocked
+                        return null;
+                    }
+                    startSpilledGroupMerge();
+                }
+
+                if (spilledGroup.isPresent() && (partition == null || partitionStart >= pagesIndex.getPositionCount())) {
+                    if (partition != null) {
+                        // Finished the partition loaded from the spilled group
+                        partition = null;
+                        pagesIndex.clear();
+                    }
+                    if (!loadSpilledPartition()) {
+                        // Merge of spilled runs yielded, loading continues with the next call
+                        return null;
+                    }
+                    partitionStart = 0;
+                }
+
                 if (partitionStart >= pagesIndex.getPositionCount()) {
                     // Finished all of the partitions in the current pagesIndex
                     partition = null;
@@ -417,7 +586,8 @@ public class WindowOperator
 
                     // Try to extract more partitions from the pendingInput
                     if (pendingInput != null && processPendingInput()) {
-                        partitionStart = 0;
+                        // next group may have been spilled, so it is started from the beginning
+                        continue;
                     }
                     else if (state == State.FINISHING) {
                         state = State.FINISHED;
@@ -462,10 +632,160 @@ public class WindowOperator
 
     private void finishPagesIndex()
     {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSuccess(spillInProgress, "spilling failed");
+
+        if (spillEnabled && !spiller.isPresent()) {
+            // complete group can't be revoked anymore, so it has to fit into user memory
+            long revocableBytes = localRevocableMemoryContext.getBytes();
+            localRevocableMemoryContext.setBytes(0);
+            if (!localUserMemoryContext.trySetBytes(localUserMemoryContext.getBytes() + revocableBytes)) {
+                localRevocableMemoryContext.setBytes(revocableBytes);
+                if (pagesIndex.getPositionCount() > 0) {
+                    startSpill();
+                }
+            }
+        }
+        else if (spiller.isPresent() && pagesIndex.getPositionCount() > 0) {
+            // the rest of the group is spilled too, so that merge needs just a page of every sorted run in memory
+            startSpill();
+        }
+
+        if (spiller.isPresent()) {
+            // pagesIndex is still read by the spill, it's replaced by merged runs in extractOutput
+            spilledGroupKey = Optional.empty();
+            spilledGroupComplete = true;
+            return;
+        }
+
         sortPagesIndexIfNecessary();
         windowInfo.addIndex(pagesIndex);
     }
 
+    private void startSpilledGroupMerge()
+    {
+        checkState(spillInProgress.isDone(), "Spill still in progress");
+        checkSuccess(spillInProgress, "spilling failed");
+        spilledGroupComplete = false;
+        pagesIndex.clear();
+        localRevocableMemoryContext.setBytes(0);
+        localUserMemoryContext.setBytes(0);
+
+        // partitions loaded from merged runs are reported as parts of a single index, like a group kept in memory
+        windowInfo.addIndex(spilledGroupPositions, spilledGroupBytes);
+        spilledGroupPositions = 0;
+        spilledGroupBytes = 0;
+
+        mergeMemoryContext = Optional.of(operatorContext.newAggregateSystemMemoryContext());
+        spilledGroup = Optional.of(mergeSortedPages(
+                spiller.get().getSpills().stream()
+                        .map(WorkProcessor::fromIterator)
+                        .collect(toImmutableList()),
+                new SimplePageWithPositionComparator(sourceTypes, spillSortChannels, spillSortOrder),
+                sourceTypes,
+                mergeMemoryContext.get(),
+                operatorContext.getDriverContext().getYieldSignal()));
+    }
+
+    /**
+     * Loads the next partition of the spilled group into pagesIndex. Rows of every partition are
+     * adjacent in the merged runs, as these are sorted by partition channels first.
+     *
+     * @return false if the merge yielded before the partition was loaded
+     */
+    private boolean loadSpilledPartition()
+    {
+        WorkProcessor<Page> spilledPages = spilledGroup.get();
+        while (true) {
+            if (pendingSpilledInput == null) {
+                if (!spilledPages.process()) {
+                    return false;
+                }
+                if (spilledPages.isFinished()) {
+                    break;
+                }
+                pendingSpilledInput = spilledPages.getResult();
+            }
+
+            Page partitionPage = rearrangePage(pendingSpilledInput, partitionChannels);
+            if (pagesIndex.getPositionCount() > 0 && !pagesIndex.positionEqualsRow(partitionHashStrategy, 0, 0, partitionPage)) {
+                break;
+            }
+            int partitionEnd = findGroupEnd(partitionPage, partitionHashStrategy, 0);
+            pagesIndex.addPage(pendingSpilledInput.getRegion(0, partitionEnd));
+            if (partitionEnd < pendingSpilledInput.getPositionCount()) {
+                pendingSpilledInput = pendingSpilledInput.getRegion(partitionEnd, pendingSpilledInput.getPositionCount() - partitionEnd);
+                break;
+            }
+            pendingSpilledInput = null;
+        }
+
+        if (pagesIndex.getPositionCount() == 0) {
+            // All partitions of the spilled group were processed
+            closeSpilledGroup();
+        }
+        return true;
+    }
+
+    private void closeSpilledGroup()
+    {
+        spilledGroup = Optional.empty();
+        spiller.ifPresent(Spiller::close);
+        spiller = Optional.empty();
+        mergeMemoryContext.ifPresent(AggregatedMemoryContext::close);
+        mergeMemoryContext = Optional.empty();
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(!finishMemoryRevoke.isPresent(), "Previous revoke is not finished");
+        if (state != State.NEEDS_INPUT || pagesIndex.getPositionCount() == 0) {
+            // rows of complete groups are kept in user memory, there is nothing to revoke
+            finishMemoryRevoke = Optional.of(() -> {});
+            return NOT_BLOCKED;
+        }
+
+        finishMemoryRevoke = Optional.of(() -> {
+            pagesIndex.clear();
+            updateMemoryUsage();
+        });
+        return startSpill();
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private ListenableFuture<?> startSpill()
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSuccess(spillInProgress, "spilling failed");
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+        if (!spilledGroupKey.isPresent()) {
+            Block[] blocks = new Block[preGroupedChannels.length];
+            for (int i = 0; i < preGroupedChannels.length; i++) {
+                blocks[i] = pagesIndex.getSingleValueBlock(preGroupedChannels[i], 0);
+            }
+            spilledGroupKey = Optional.of(new Page(1, blocks));
+        }
+
+        spilledGroupPositions += pagesIndex.getPositionCount();
+        spilledGroupBytes += pagesIndex.getEstimatedSize().toBytes();
+        pagesIndex.sort(spillSortChannels, spillSortOrder);
+        spillInProgress = spiller.get().spill(pagesIndex.getSortedPages());
+        return spillInProgress;
+    }
+
     // Assumes input grouped on relevant pagesHashStrategy columns
     private static int findGroupEnd(Page page, PagesHashStrategy pagesHashStrategy, int startPosition)
     {
@@ -545,5 +865,13 @@ public class WindowOperator
     public void close()
     {
         driverWindowInfo.set(Optional.of(windowInfo.build()));
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+            mergeMemoryContext.ifPresent(memoryContext -> closer.register(memoryContext::close));
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 }
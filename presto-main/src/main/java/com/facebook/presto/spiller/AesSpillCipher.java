@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.presto.spi.PrestoException;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Encrypts pages of a single spill file with AES in CTR mode. The key is generated for the file, kept only in memory
+ * and forgotten on {@link #destroy()}, so spilled data can't be read back once the spiller is closed.
+ * <p>
+ * CTR doesn't change the size of the data, so the encrypted page keeps the sizes recorded in its header. Every page is
+ * encrypted with a distinct nonce derived from its sequence number in the file, which is unique because the key is
+ * never reused by another file.
+ */
+@NotThreadSafe
+public class AesSpillCipher
+{
+    private static final String ALGORITHM = "AES";
+    private static final String TRANSFORMATION = "AES/CTR/NoPadding";
+    private static final int KEY_BITS = 256;
+    private static final int IV_BYTES = 16;
+
+    private final Cipher cipher;
+    private SecretKey key;
+
+    public AesSpillCipher()
+    {
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance(ALGORITHM);
+            keyGenerator.init(KEY_BITS);
+            this.key = keyGenerator.generateKey();
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+        }
+        catch (GeneralSecurityException e) {
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to initialize spill cipher", e);
+        }
+    }
+
+    public Slice encrypt(long pageSequence, Slice data)
+    {
+        return apply(Cipher.ENCRYPT_MODE, pageSequence, data);
+    }
+
+    public Slice decrypt(long pageSequence, Slice data)
+    {
+        return apply(Cipher.DECRYPT_MODE, pageSequence, data);
+    }
+
+    public void destroy()
+    {
+        key = null;
+    }
+
+    private Slice apply(int mode, long pageSequence, Slice data)
+    {
+        checkState(key != null, "spill cipher is destroyed");
+        // the sequence number fills the upper half of the initial counter block, the lower half counts blocks of the page
+        byte[] iv = ByteBuffer.allocate(IV_BYTES).putLong(pageSequence).array();
+        byte[] bytes = data.getBytes();
+        try {
+            cipher.init(mode, key, new IvParameterSpec(iv));
+            int length = cipher.doFinal(bytes, 0, bytes.length, bytes, 0);
+            checkState(length == bytes.length, "unexpected length of encrypted data");
+        }
+        catch (GeneralSecurityException e) {
+            throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to encrypt spilled page", e);
+        }
+        return Slices.wrappedBuffer(bytes);
+    }
+}
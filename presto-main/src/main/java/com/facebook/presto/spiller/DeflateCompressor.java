@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import io.airlift.compress.Compressor;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Deflaters are kept per thread rather than per spiller, as their native zlib buffers are released only
+ * by end() or finalization, and spilling threads come from bounded pools while spillers are created per operator.
+ */
+@ThreadSafe
+class DeflateCompressor
+        implements Compressor
+{
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION));
+
+    @Override
+    public int maxCompressedLength(int uncompressedSize)
+    {
+        // same as compressBound() of zlib
+        return uncompressedSize + (uncompressedSize >> 12) + (uncompressedSize >> 14) + (uncompressedSize >> 25) + 13;
+    }
+
+    @Override
+    public int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+    {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setInput(input, inputOffset, inputLength);
+        deflater.finish();
+        int compressedSize = 0;
+        while (!deflater.finished()) {
+            checkState(compressedSize < maxOutputLength, "output buffer is too small");
+            compressedSize += deflater.deflate(output, outputOffset + compressedSize, maxOutputLength - compressedSize);
+        }
+        return compressedSize;
+    }
+
+    @Override
+    public void compress(ByteBuffer input, ByteBuffer output)
+    {
+        checkArgument(input.hasArray() && output.hasArray(), "only heap buffers are supported");
+        int compressedSize = compress(
+                input.array(),
+                input.arrayOffset() + input.position(),
+                input.remaining(),
+                output.array(),
+                output.arrayOffset() + output.position(),
+                output.remaining());
+        input.position(input.limit());
+        output.position(output.position() + compressedSize);
+    }
+}
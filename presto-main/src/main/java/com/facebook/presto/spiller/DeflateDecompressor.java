@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.MalformedInputException;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Inflaters are kept per thread for the same reason as deflaters of {@link DeflateCompressor}.
+ */
+@ThreadSafe
+class DeflateDecompressor
+        implements Decompressor
+{
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    @Override
+    public int decompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+            throws MalformedInputException
+    {
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(input, inputOffset, inputLength);
+        int decompressedSize = 0;
+        try {
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(output, outputOffset + decompressedSize, maxOutputLength - decompressedSize);
+                if (inflated == 0 && (inflater.needsInput() || decompressedSize == maxOutputLength)) {
+                    throw new MalformedInputException(inflater.getBytesRead(), "truncated deflate stream");
+                }
+                decompressedSize += inflated;
+            }
+        }
+        catch (DataFormatException e) {
+            throw new MalformedInputException(inflater.getBytesRead(), e.getMessage());
+        }
+        return decompressedSize;
+    }
+
+    @Override
+    public void decompress(ByteBuffer input, ByteBuffer output)
+            throws MalformedInputException
+    {
+        checkArgument(input.hasArray() && output.hasArray(), "only heap buffers are supported");
+        int decompressedSize = decompress(
+                input.array(),
+                input.arrayOffset() + input.position(),
+                input.remaining(),
+                output.array(),
+                output.arrayOffset() + output.position(),
+                output.remaining());
+        input.position(input.limit());
+        output.position(output.position() + decompressedSize);
+    }
+}
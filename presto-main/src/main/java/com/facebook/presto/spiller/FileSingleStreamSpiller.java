@@ -14,7 +14,6 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.presto.execution.buffer.PagesSerde;
-import com.facebook.presto.execution.buffer.PagesSerdeUtil;
 import com.facebook.presto.execution.buffer.SerializedPage;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.SpillContext;
@@ -22,6 +21,7 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.util.PrestoIterators;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Closer;
 import com.google.common.util.concurrent.Futures;
@@ -40,7 +40,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
+import static com.facebook.presto.execution.buffer.PagesSerdeUtil.readSerializedPages;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writeSerializedPage;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
@@ -59,7 +61,9 @@ public class FileSingleStreamSpiller
     private final FileHolder targetFile;
     private final Closer closer = Closer.create();
     private final PagesSerde serde;
+    private final Optional<AesSpillCipher> spillCipher;
     private final SpillerStats spillerStats;
+    private final SpillPathStats spillPathStats;
     private final SpillContext localSpillContext;
     private final LocalMemoryContext memoryContext;
 
@@ -67,19 +71,24 @@ public class FileSingleStreamSpiller
 
     private boolean writable = true;
     private long spilledPagesInMemorySize;
+    private long spilledPagesCount;
     private ListenableFuture<?> spillInProgress = Futures.immediateFuture(null);
 
     public FileSingleStreamSpiller(
             PagesSerde serde,
+            Optional<AesSpillCipher> spillCipher,
             ListeningExecutorService executor,
             Path spillPath,
+            SpillPathStats spillPathStats,
             SpillerStats spillerStats,
             SpillContext spillContext,
             LocalMemoryContext memoryContext)
     {
         this.serde = requireNonNull(serde, "serde is null");
+        this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
         this.executor = requireNonNull(executor, "executor is null");
         this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
+        this.spillPathStats = requireNonNull(spillPathStats, "spillPathStats is null");
         this.localSpillContext = spillContext.newLocalSpillContext();
         this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
         // HACK!
@@ -95,6 +104,9 @@ public class FileSingleStreamSpiller
         this.memoryContext.setBytes(BUFFER_SIZE);
         try {
             this.targetFile = closer.register(new FileHolder(Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX)));
+            spillPathStats.spillFileCreated();
+            closer.register(spillPathStats::spillFileClosed);
+            spillCipher.ifPresent(cipher -> closer.register(cipher::destroy));
         }
         catch (IOException e) {
             throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to create spill file", e);
@@ -132,20 +144,45 @@ public class FileSingleStreamSpiller
     private void writePages(Iterator<Page> pageIterator)
     {
         checkState(writable, "Spilling no longer allowed. The spiller has been made non-writable on first read for subsequent reads to be consistent");
+        long start = System.nanoTime();
+        long writtenBytes = 0;
+        // the write speed of the spill path is measured on the output stream only, as serialization,
+        // compression and encryption cost the same whichever path the spill file is placed on
+        long outputNanos = 0;
         try (SliceOutput output = new OutputStreamSliceOutput(targetFile.newOutputStream(APPEND), BUFFER_SIZE)) {
             while (pageIterator.hasNext()) {
                 Page page = pageIterator.next();
                 spilledPagesInMemorySize += page.getSizeInBytes();
-                SerializedPage serializedPage = serde.serialize(page);
+                SerializedPage serializedPage = encrypt(serde.serialize(page));
                 long pageSize = serializedPage.getSizeInBytes();
                 localSpillContext.updateBytes(pageSize);
                 spillerStats.addToTotalSpilledBytes(pageSize);
+                writtenBytes += pageSize;
+                spillerStats.addToTotalSpilledUncompressedBytes(serializedPage.getUncompressedSizeInBytes());
+                long outputStart = System.nanoTime();
                 writeSerializedPage(output, serializedPage);
+                outputNanos += System.nanoTime() - outputStart;
             }
+            long flushStart = System.nanoTime();
+            output.flush();
+            outputNanos += System.nanoTime() - flushStart;
         }
         catch (UncheckedIOException | IOException e) {
             throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to spill pages", e);
         }
+        finally {
+            spillerStats.addToTotalSpillWriteNanos(System.nanoTime() - start);
+            spillPathStats.recordWrite(writtenBytes, outputNanos);
+        }
+    }
+
+    private SerializedPage encrypt(SerializedPage page)
+    {
+        long pageSequence = spilledPagesCount++;
+        if (!spillCipher.isPresent()) {
+            return page;
+        }
+        return new SerializedPage(spillCipher.get().encrypt(pageSequence, page.getSlice()), page.getCompression(), page.getPositionCount(), page.getUncompressedSizeInBytes());
     }
 
     private Iterator<Page> readPages()
@@ -155,7 +192,7 @@ public class FileSingleStreamSpiller
 
         try {
             InputStream input = closer.register(targetFile.newInputStream());
-            Iterator<Page> pages = PagesSerdeUtil.readPages(serde, new InputStreamSliceInput(input, BUFFER_SIZE));
+            Iterator<Page> pages = new SpilledPageReader(readSerializedPages(new InputStreamSliceInput(input, BUFFER_SIZE)));
             return PrestoIterators.closeWhenExhausted(pages, input);
         }
         catch (IOException e) {
@@ -183,4 +220,34 @@ public class FileSingleStreamSpiller
     {
         checkState(spillInProgress.isDone(), "spill in progress");
     }
+
+    private class SpilledPageReader
+            extends AbstractIterator<Page>
+    {
+        private final Iterator<SerializedPage> serializedPages;
+        private long pageSequence;
+
+        private SpilledPageReader(Iterator<SerializedPage> serializedPages)
+        {
+            this.serializedPages = requireNonNull(serializedPages, "serializedPages is null");
+        }
+
+        @Override
+        protected Page computeNext()
+        {
+            long start = System.nanoTime();
+            if (!serializedPages.hasNext()) {
+                return endOfData();
+            }
+            SerializedPage page = serializedPages.next();
+            spillerStats.addToTotalUnspilledBytes(page.getSizeInBytes());
+            if (spillCipher.isPresent()) {
+                page = new SerializedPage(spillCipher.get().decrypt(pageSequence, page.getSlice()), page.getCompression(), page.getPositionCount(), page.getUncompressedSizeInBytes());
+            }
+            pageSequence++;
+            Page result = serde.deserialize(page);
+            spillerStats.addToTotalUnspillReadNanos(System.nanoTime() - start);
+            return result;
+        }
+    }
 }
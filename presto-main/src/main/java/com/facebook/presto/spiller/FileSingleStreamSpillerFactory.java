@@ -13,7 +13,6 @@
  */
 package com.facebook.presto.spiller;
 
-import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.SpillContext;
 import com.facebook.presto.spi.PrestoException;
@@ -25,6 +24,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
 import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -34,10 +34,14 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
 
 import static com.facebook.presto.spi.StandardErrorCode.OUT_OF_SPILL_SPACE;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.lang.String.format;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.delete;
@@ -56,10 +60,15 @@ public class FileSingleStreamSpillerFactory
     @VisibleForTesting
     static final String SPILL_FILE_SUFFIX = ".bin";
     private static final String SPILL_FILE_GLOB = "spill*.bin";
+    // write rate of a path is used for balancing only once the path has written enough to measure it
+    private static final long MIN_RECENT_BYTES_FOR_WRITE_RATE = new DataSize(16, MEGABYTE).toBytes();
 
     private final ListeningExecutorService executor;
-    private final PagesSerdeFactory serdeFactory;
+    private final BlockEncodingSerde blockEncodingSerde;
+    private final SpillCompressionCodec compressionCodec;
+    private final boolean encryptionEnabled;
     private final List<Path> spillPaths;
+    private final List<SpillPathStats> spillPathStats;
     private final SpillerStats spillerStats;
     private final double maxUsedSpaceThreshold;
     private int roundRobinIndex;
@@ -74,7 +83,9 @@ public class FileSingleStreamSpillerFactory
                 blockEncodingSerde,
                 spillerStats,
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillerSpillPaths(),
-                requireNonNull(featuresConfig, "featuresConfig is null").getSpillMaxUsedSpaceThreshold());
+                requireNonNull(featuresConfig, "featuresConfig is null").getSpillMaxUsedSpaceThreshold(),
+                requireNonNull(featuresConfig, "featuresConfig is null").getSpillCompressionCodec(),
+                requireNonNull(featuresConfig, "featuresConfig is null").isSpillEncryptionEnabled());
     }
 
     @VisibleForTesting
@@ -85,11 +96,29 @@ public class FileSingleStreamSpillerFactory
             List<Path> spillPaths,
             double maxUsedSpaceThreshold)
     {
-        this.serdeFactory = new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), false);
+        this(executor, blockEncodingSerde, spillerStats, spillPaths, maxUsedSpaceThreshold, SpillCompressionCodec.NONE, false);
+    }
+
+    @VisibleForTesting
+    public FileSingleStreamSpillerFactory(
+            ListeningExecutorService executor,
+            BlockEncodingSerde blockEncodingSerde,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            SpillCompressionCodec compressionCodec,
+            boolean encryptionEnabled)
+    {
+        this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
+        this.compressionCodec = requireNonNull(compressionCodec, "compressionCodec is null");
+        this.encryptionEnabled = encryptionEnabled;
         this.executor = requireNonNull(executor, "executor is null");
         this.spillerStats = requireNonNull(spillerStats, "spillerStats can not be null");
         requireNonNull(spillPaths, "spillPaths is null");
         this.spillPaths = ImmutableList.copyOf(spillPaths);
+        this.spillPathStats = spillPaths.stream()
+                .map(spillerStats::getSpillPathStats)
+                .collect(toImmutableList());
         spillPaths.forEach(path -> {
             try {
                 createDirectories(path);
@@ -140,31 +169,65 @@ public class FileSingleStreamSpillerFactory
     @Override
     public SingleStreamSpiller create(List<Type> types, SpillContext spillContext, LocalMemoryContext memoryContext)
     {
-        return new FileSingleStreamSpiller(serdeFactory.createPagesSerde(), executor, getNextSpillPath(), spillerStats, spillContext, memoryContext);
+        int spillPathIndex = getNextSpillPathIndex();
+        return new FileSingleStreamSpiller(
+                compressionCodec.createPagesSerde(blockEncodingSerde),
+                encryptionEnabled ? Optional.of(new AesSpillCipher()) : Optional.empty(),
+                executor,
+                spillPaths.get(spillPathIndex),
+                spillPathStats.get(spillPathIndex),
+                spillerStats,
+                spillContext,
+                memoryContext);
     }
 
-    private synchronized Path getNextSpillPath()
+    /**
+     * Picks the path with the lowest expected cost of the next spill file, which grows with the number of spill files
+     * open on the path, its recent write time per byte and how full the disk is. Paths with equal cost are used
+     * round-robin.
+     */
+    private synchronized int getNextSpillPathIndex()
     {
+        if (spillPaths.isEmpty()) {
+            throw new PrestoException(OUT_OF_SPILL_SPACE, "No spill paths configured");
+        }
         int spillPathsCount = spillPaths.size();
+        // paths which haven't written enough recently are assumed to be as fast as the fastest one, so they get tried
+        double defaultWriteNanosPerByte = spillPathStats.stream()
+                .map(stats -> stats.getRecentWriteNanosPerByte(MIN_RECENT_BYTES_FOR_WRITE_RATE))
+                .filter(OptionalDouble::isPresent)
+                .mapToDouble(OptionalDouble::getAsDouble)
+                .min()
+                .orElse(1.0);
+
+        int selectedPathIndex = -1;
+        double selectedPathCost = Double.POSITIVE_INFINITY;
         for (int i = 0; i < spillPathsCount; ++i) {
             int pathIndex = (roundRobinIndex + i) % spillPathsCount;
-            Path path = spillPaths.get(pathIndex);
-            if (hasEnoughDiskSpace(path)) {
-                roundRobinIndex = (roundRobinIndex + i + 1) % spillPathsCount;
-                return path;
+            double usableSpaceRatio = getUsableSpaceRatio(spillPaths.get(pathIndex));
+            if (usableSpaceRatio <= 1.0 - maxUsedSpaceThreshold) {
+                continue;
+            }
+            SpillPathStats stats = spillPathStats.get(pathIndex);
+            double writeNanosPerByte = stats.getRecentWriteNanosPerByte(MIN_RECENT_BYTES_FOR_WRITE_RATE).orElse(defaultWriteNanosPerByte);
+            double cost = (stats.getOpenSpillFiles() + 1) * writeNanosPerByte / usableSpaceRatio;
+            if (cost < selectedPathCost) {
+                selectedPathIndex = pathIndex;
+                selectedPathCost = cost;
             }
         }
-        if (spillPaths.isEmpty()) {
-            throw new PrestoException(OUT_OF_SPILL_SPACE, "No spill paths configured");
+        if (selectedPathIndex < 0) {
+            throw new PrestoException(OUT_OF_SPILL_SPACE, "No free space available for spill");
         }
-        throw new PrestoException(OUT_OF_SPILL_SPACE, "No free space available for spill");
+        roundRobinIndex = (selectedPathIndex + 1) % spillPathsCount;
+        return selectedPathIndex;
     }
 
-    private boolean hasEnoughDiskSpace(Path path)
+    private static double getUsableSpaceRatio(Path path)
     {
         try {
             FileStore fileStore = getFileStore(path);
-            return fileStore.getUsableSpace() > fileStore.getTotalSpace() * (1.0 - maxUsedSpaceThreshold);
+            return (double) fileStore.getUsableSpace() / fileStore.getTotalSpace();
         }
         catch (IOException e) {
             throw new PrestoException(OUT_OF_SPILL_SPACE, "Cannot determine free space for spill", e);
@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.presto.execution.buffer.PagesSerde;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+
+import java.util.Optional;
+
+public enum SpillCompressionCodec
+{
+    NONE,
+    /**
+     * Fast, light compression for spill disks with enough bandwidth.
+     */
+    LZ4,
+    /**
+     * Slower, denser compression for slow or shared spill disks.
+     */
+    DEFLATE;
+
+    public PagesSerde createPagesSerde(BlockEncodingSerde blockEncodingSerde)
+    {
+        switch (this) {
+            case NONE:
+                return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty());
+            case LZ4:
+                return new PagesSerde(blockEncodingSerde, Optional.of(new Lz4Compressor()), Optional.of(new Lz4Decompressor()));
+            case DEFLATE:
+                return new PagesSerde(blockEncodingSerde, Optional.of(new DeflateCompressor()), Optional.of(new DeflateDecompressor()));
+        }
+        throw new UnsupportedOperationException("Unsupported spill compression codec: " + this);
+    }
+}
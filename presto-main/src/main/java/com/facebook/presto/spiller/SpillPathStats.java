@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import io.airlift.stats.DecayCounter;
+import io.airlift.stats.ExponentialDecay;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.OptionalDouble;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Load and write performance of a single spill path, used to balance spill files over the configured paths.
+ */
+@ThreadSafe
+public class SpillPathStats
+{
+    private final AtomicInteger openSpillFiles = new AtomicInteger();
+    private final AtomicLong spilledBytes = new AtomicLong();
+    private final AtomicLong spillWriteNanos = new AtomicLong();
+    private final DecayCounter recentSpilledBytes = new DecayCounter(ExponentialDecay.oneMinute());
+    private final DecayCounter recentSpillWriteNanos = new DecayCounter(ExponentialDecay.oneMinute());
+
+    public void spillFileCreated()
+    {
+        openSpillFiles.incrementAndGet();
+    }
+
+    public void spillFileClosed()
+    {
+        openSpillFiles.decrementAndGet();
+    }
+
+    public void recordWrite(long bytes, long nanos)
+    {
+        spilledBytes.addAndGet(bytes);
+        spillWriteNanos.addAndGet(nanos);
+        recentSpilledBytes.add(bytes);
+        recentSpillWriteNanos.add(nanos);
+    }
+
+    public int getOpenSpillFiles()
+    {
+        return openSpillFiles.get();
+    }
+
+    public long getSpilledBytes()
+    {
+        return spilledBytes.get();
+    }
+
+    public long getSpillWriteNanos()
+    {
+        return spillWriteNanos.get();
+    }
+
+    public double getRecentWriteBytesPerSecond()
+    {
+        double nanos = recentSpillWriteNanos.getCount();
+        return nanos == 0 ? 0 : recentSpilledBytes.getCount() * SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * @return recent write time per byte, empty if too little was written recently to tell
+     */
+    public OptionalDouble getRecentWriteNanosPerByte(long minRecentBytes)
+    {
+        double bytes = recentSpilledBytes.getCount();
+        if (bytes < minRecentBytes || bytes == 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(recentSpillWriteNanos.getCount() / bytes);
+    }
+}
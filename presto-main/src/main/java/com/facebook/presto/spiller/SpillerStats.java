@@ -13,14 +13,30 @@
  */
 package com.facebook.presto.spiller;
 
+import com.google.common.collect.ImmutableMap;
 import org.weakref.jmx.Managed;
 
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class SpillerStats
 {
     protected final AtomicLong totalSpilledBytes = new AtomicLong();
+    protected final AtomicLong totalSpilledUncompressedBytes = new AtomicLong();
+    protected final AtomicLong totalSpillWriteNanos = new AtomicLong();
+    protected final AtomicLong totalUnspilledBytes = new AtomicLong();
+    protected final AtomicLong totalUnspillReadNanos = new AtomicLong();
+    protected final ConcurrentMap<String, SpillPathStats> spillPathStats = new ConcurrentHashMap<>();
 
+    /**
+     * @return bytes written to spill files, after compression
+     */
     @Managed
     public long getTotalSpilledBytes()
     {
@@ -31,4 +47,111 @@ public class SpillerStats
     {
         totalSpilledBytes.addAndGet(delta);
     }
+
+    @Managed
+    public long getTotalSpilledUncompressedBytes()
+    {
+        return totalSpilledUncompressedBytes.get();
+    }
+
+    public void addToTotalSpilledUncompressedBytes(long delta)
+    {
+        totalSpilledUncompressedBytes.addAndGet(delta);
+    }
+
+    /**
+     * @return time spent serializing, compressing, encrypting and writing spilled pages
+     */
+    @Managed
+    public long getTotalSpillWriteNanos()
+    {
+        return totalSpillWriteNanos.get();
+    }
+
+    public void addToTotalSpillWriteNanos(long delta)
+    {
+        totalSpillWriteNanos.addAndGet(delta);
+    }
+
+    /**
+     * @return bytes read back from spill files, before decompression
+     */
+    @Managed
+    public long getTotalUnspilledBytes()
+    {
+        return totalUnspilledBytes.get();
+    }
+
+    public void addToTotalUnspilledBytes(long delta)
+    {
+        totalUnspilledBytes.addAndGet(delta);
+    }
+
+    /**
+     * @return time spent reading, decrypting, decompressing and deserializing spilled pages
+     */
+    @Managed
+    public long getTotalUnspillReadNanos()
+    {
+        return totalUnspillReadNanos.get();
+    }
+
+    public void addToTotalUnspillReadNanos(long delta)
+    {
+        totalUnspillReadNanos.addAndGet(delta);
+    }
+
+    @Managed
+    public double getSpillCompressionRatio()
+    {
+        long spilledBytes = totalSpilledBytes.get();
+        return spilledBytes == 0 ? 1.0 : (double) totalSpilledUncompressedBytes.get() / spilledBytes;
+    }
+
+    @Managed
+    public double getSpillWriteBytesPerSecond()
+    {
+        return bytesPerSecond(totalSpilledBytes.get(), totalSpillWriteNanos.get());
+    }
+
+    @Managed
+    public double getUnspillReadBytesPerSecond()
+    {
+        return bytesPerSecond(totalUnspilledBytes.get(), totalUnspillReadNanos.get());
+    }
+
+    public SpillPathStats getSpillPathStats(Path spillPath)
+    {
+        return spillPathStats.computeIfAbsent(spillPath.toString(), path -> new SpillPathStats());
+    }
+
+    @Managed
+    public Map<String, Long> getSpilledBytesByPath()
+    {
+        return summarizeSpillPaths(SpillPathStats::getSpilledBytes);
+    }
+
+    @Managed
+    public Map<String, Double> getRecentWriteBytesPerSecondByPath()
+    {
+        return summarizeSpillPaths(SpillPathStats::getRecentWriteBytesPerSecond);
+    }
+
+    @Managed
+    public Map<String, Integer> getOpenSpillFilesByPath()
+    {
+        return summarizeSpillPaths(SpillPathStats::getOpenSpillFiles);
+    }
+
+    private <T> Map<String, T> summarizeSpillPaths(Function<SpillPathStats, T> summary)
+    {
+        ImmutableMap.Builder<String, T> builder = ImmutableMap.builder();
+        spillPathStats.forEach((path, stats) -> builder.put(path, summary.apply(stats)));
+        return builder.build();
+    }
+
+    private static double bytesPerSecond(long bytes, long nanos)
+    {
+        return nanos == 0 ? 0 : bytes * (double) SECONDS.toNanos(1) / nanos;
+    }
 }
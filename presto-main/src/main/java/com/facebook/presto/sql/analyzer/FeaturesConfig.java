@@ -15,6 +15,7 @@ package com.facebook.presto.sql.analyzer;
 
 import com.facebook.presto.operator.aggregation.arrayagg.ArrayAggGroupImplementation;
 import com.facebook.presto.operator.aggregation.histogram.HistogramGroupImplementation;
+import com.facebook.presto.spiller.SpillCompressionCodec;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
@@ -92,10 +93,14 @@ public class FeaturesConfig
     private HistogramGroupImplementation histogramGroupImplementation = HistogramGroupImplementation.NEW;
     private ArrayAggGroupImplementation arrayAggGroupImplementation = ArrayAggGroupImplementation.NEW;
     private boolean spillEnabled;
+    private boolean spillOrderBy = true;
+    private boolean spillWindowOperator = true;
     private DataSize aggregationOperatorUnspillMemoryLimit = new DataSize(4, DataSize.Unit.MEGABYTE);
     private List<Path> spillerSpillPaths = ImmutableList.of();
     private int spillerThreads = 4;
     private double spillMaxUsedSpaceThreshold = 0.9;
+    private SpillCompressionCodec spillCompressionCodec = SpillCompressionCodec.NONE;
+    private boolean spillEncryptionEnabled;
     private boolean iterativeOptimizerEnabled = true;
     private boolean enableNewStatsCalculator;
     private boolean pushAggregationThroughJoin = true;
@@ -110,6 +115,13 @@ public class FeaturesConfig
     private DataSize filterAndProjectMinOutputPageSize = new DataSize(25, KILOBYTE);
     private int filterAndProjectMinOutputPageRowCount = 256;
 
+    private boolean dynamicFilteringEnabled;
+    private int dynamicFilteringMaxDistinctValues = 10_000;
+
+    private boolean adaptivePartialAggregationEnabled;
+    private long adaptivePartialAggregationMinRows = 100_000;
+    private double adaptivePartialAggregationUniqueRowsRatioThreshold = 0.8;
+
     public double getCpuCostWeight()
     {
         return cpuCostWeight;
@@ -503,6 +515,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSpillOrderBy()
+    {
+        return spillOrderBy;
+    }
+
+    @Config("experimental.spill-order-by")
+    @ConfigDescription("Spill in OrderBy if spill is enabled")
+    public FeaturesConfig setSpillOrderBy(boolean spillOrderBy)
+    {
+        this.spillOrderBy = spillOrderBy;
+        return this;
+    }
+
+    public boolean isSpillWindowOperator()
+    {
+        return spillWindowOperator;
+    }
+
+    @Config("experimental.spill-window-operator")
+    @ConfigDescription("Spill in WindowOperator if spill is enabled")
+    public FeaturesConfig setSpillWindowOperator(boolean spillWindowOperator)
+    {
+        this.spillWindowOperator = spillWindowOperator;
+        return this;
+    }
+
     public boolean isIterativeOptimizerEnabled()
     {
         return iterativeOptimizerEnabled;
@@ -625,6 +663,33 @@ public class FeaturesConfig
         return this;
     }
 
+    @NotNull
+    public SpillCompressionCodec getSpillCompressionCodec()
+    {
+        return spillCompressionCodec;
+    }
+
+    @Config("experimental.spill-compression-codec")
+    @ConfigDescription("Compression of spilled pages: NONE, LZ4 or DEFLATE")
+    public FeaturesConfig setSpillCompressionCodec(SpillCompressionCodec spillCompressionCodec)
+    {
+        this.spillCompressionCodec = spillCompressionCodec;
+        return this;
+    }
+
+    public boolean isSpillEncryptionEnabled()
+    {
+        return spillEncryptionEnabled;
+    }
+
+    @Config("experimental.spill-encryption-enabled")
+    @ConfigDescription("Encrypt spilled pages with a key generated for every spill file")
+    public FeaturesConfig setSpillEncryptionEnabled(boolean spillEncryptionEnabled)
+    {
+        this.spillEncryptionEnabled = spillEncryptionEnabled;
+        return this;
+    }
+
     public boolean isOptimizeMixedDistinctAggregations()
     {
         return optimizeMixedDistinctAggregations;
@@ -735,6 +800,75 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isDynamicFilteringEnabled()
+    {
+        return dynamicFilteringEnabled;
+    }
+
+    @Config("experimental.dynamic-filtering-enabled")
+    @ConfigDescription("Experimental: Skip probe side rows of joins which can't match any build side join key")
+    public FeaturesConfig setDynamicFilteringEnabled(boolean dynamicFilteringEnabled)
+    {
+        this.dynamicFilteringEnabled = dynamicFilteringEnabled;
+        return this;
+    }
+
+    @Min(0)
+    public int getDynamicFilteringMaxDistinctValues()
+    {
+        return dynamicFilteringMaxDistinctValues;
+    }
+
+    @Config("experimental.dynamic-filtering-max-distinct-values")
+    @ConfigDescription("Experimental: Maximum number of distinct build side values of a join key used by dynamic filtering")
+    public FeaturesConfig setDynamicFilteringMaxDistinctValues(int dynamicFilteringMaxDistinctValues)
+    {
+        this.dynamicFilteringMaxDistinctValues = dynamicFilteringMaxDistinctValues;
+        return this;
+    }
+
+    public boolean isAdaptivePartialAggregationEnabled()
+    {
+        return adaptivePartialAggregationEnabled;
+    }
+
+    @Config("experimental.adaptive-partial-aggregation-enabled")
+    @ConfigDescription("Experimental: Stop partial aggregation which doesn't reduce the number of rows and pass its input through")
+    public FeaturesConfig setAdaptivePartialAggregationEnabled(boolean adaptivePartialAggregationEnabled)
+    {
+        this.adaptivePartialAggregationEnabled = adaptivePartialAggregationEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public long getAdaptivePartialAggregationMinRows()
+    {
+        return adaptivePartialAggregationMinRows;
+    }
+
+    @Config("experimental.adaptive-partial-aggregation-min-rows")
+    @ConfigDescription("Experimental: Number of input rows partial aggregation processes before deciding whether to pass its input through")
+    public FeaturesConfig setAdaptivePartialAggregationMinRows(long adaptivePartialAggregationMinRows)
+    {
+        this.adaptivePartialAggregationMinRows = adaptivePartialAggregationMinRows;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getAdaptivePartialAggregationUniqueRowsRatioThreshold()
+    {
+        return adaptivePartialAggregationUniqueRowsRatioThreshold;
+    }
+
+    @Config("experimental.adaptive-partial-aggregation-unique-rows-ratio-threshold")
+    @ConfigDescription("Experimental: Ratio of groups to input rows above which partial aggregation passes its input through")
+    public FeaturesConfig setAdaptivePartialAggregationUniqueRowsRatioThreshold(double adaptivePartialAggregationUniqueRowsRatioThreshold)
+    {
+        this.adaptivePartialAggregationUniqueRowsRatioThreshold = adaptivePartialAggregationUniqueRowsRatioThreshold;
+        return this;
+    }
+
     @Config("histogram.implementation")
     public FeaturesConfig setHistogramGroupImplementation(HistogramGroupImplementation groupByMode)
     {
@@ -29,6 +29,8 @@ import com.facebook.presto.operator.AggregationOperator.AggregationOperatorFacto
 import com.facebook.presto.operator.AssignUniqueIdOperator;
 import com.facebook.presto.operator.DeleteOperator.DeleteOperatorFactory;
 import com.facebook.presto.operator.DriverFactory;
+import com.facebook.presto.operator.DynamicFilter;
+import com.facebook.presto.operator.DynamicFilterSource;
 import com.facebook.presto.operator.EnforceSingleRowOperator;
 import com.facebook.presto.operator.ExchangeClientSupplier;
 import com.facebook.presto.operator.ExchangeOperator.ExchangeOperatorFactory;
@@ -57,6 +59,7 @@ import com.facebook.presto.operator.PartitionedLookupSourceFactory;
 import com.facebook.presto.operator.PartitionedOutputOperator.PartitionedOutputFactory;
 import com.facebook.presto.operator.PipelineExecutionStrategy;
 import com.facebook.presto.operator.RowNumberOperator;
+import com.facebook.presto.operator.ScanDynamicFilter;
 import com.facebook.presto.operator.ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory;
 import com.facebook.presto.operator.SetBuilderOperator.SetBuilderOperatorFactory;
 import com.facebook.presto.operator.SetBuilderOperator.SetSupplier;
@@ -192,13 +195,20 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static com.facebook.presto.SystemSessionProperties.getAdaptivePartialAggregationMinRows;
+import static com.facebook.presto.SystemSessionProperties.getAdaptivePartialAggregationUniqueRowsRatioThreshold;
 import static com.facebook.presto.SystemSessionProperties.getAggregationOperatorUnspillMemoryLimit;
+import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringMaxDistinctValues;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageRowCount;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageSize;
 import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
 import static com.facebook.presto.SystemSessionProperties.getTaskWriterCount;
+import static com.facebook.presto.SystemSessionProperties.isAdaptivePartialAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isDynamicFilteringEnabled;
 import static com.facebook.presto.SystemSessionProperties.isExchangeCompressionEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSpillOrderBy;
+import static com.facebook.presto.SystemSessionProperties.isSpillWindowOperator;
 import static com.facebook.presto.metadata.FunctionKind.SCALAR;
 import static com.facebook.presto.operator.DistinctLimitOperator.DistinctLimitOperatorFactory;
 import static com.facebook.presto.operator.NestedLoopBuildOperator.NestedLoopBuildOperatorFactory;
@@ -223,6 +233,7 @@ import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SCALED_WR
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Scope.LOCAL;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.FULL;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.RIGHT;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.CreateHandle;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.InsertHandle;
@@ -494,6 +505,8 @@ public class LocalExecutionPlanner
         private final Map<Symbol, Type> types;
         private final List<DriverFactory> driverFactories;
         private final Optional<IndexSourceContext> indexSourceContext;
+        // dynamic filters of joins by probe side table scan id, shared with all subContexts
+        private final Map<PlanNodeId, ScanDynamicFilter> scanDynamicFilters;
 
         // this is shared with all subContexts
         private AtomicInteger nextPipelineId;
@@ -504,7 +517,7 @@ public class LocalExecutionPlanner
 
         public LocalExecutionPlanContext(TaskContext taskContext, Map<Symbol, Type> types)
         {
-            this(taskContext, types, new ArrayList<>(), Optional.empty(), new AtomicInteger(0));
+            this(taskContext, types, new ArrayList<>(), Optional.empty(), new HashMap<>(), new AtomicInteger(0));
         }
 
         private LocalExecutionPlanContext(
@@ -512,12 +525,14 @@ public class LocalExecutionPlanner
                 Map<Symbol, Type> types,
                 List<DriverFactory> driverFactories,
                 Optional<IndexSourceContext> indexSourceContext,
+                Map<PlanNodeId, ScanDynamicFilter> scanDynamicFilters,
                 AtomicInteger nextPipelineId)
         {
             this.taskContext = taskContext;
             this.types = types;
             this.driverFactories = driverFactories;
             this.indexSourceContext = indexSourceContext;
+            this.scanDynamicFilters = scanDynamicFilters;
             this.nextPipelineId = nextPipelineId;
         }
 
@@ -583,12 +598,23 @@ public class LocalExecutionPlanner
         public LocalExecutionPlanContext createSubContext()
         {
             checkState(!indexSourceContext.isPresent(), "index build plan can not have sub-contexts");
-            return new LocalExecutionPlanContext(taskContext, types, driverFactories, indexSourceContext, nextPipelineId);
+            return new LocalExecutionPlanContext(taskContext, types, driverFactories, indexSourceContext, scanDynamicFilters, nextPipelineId);
         }
 
         public LocalExecutionPlanContext createIndexSourceSubContext(IndexSourceContext indexSourceContext)
         {
-            return new LocalExecutionPlanContext(taskContext, types, driverFactories, Optional.of(indexSourceContext), nextPipelineId);
+            return new LocalExecutionPlanContext(taskContext, types, driverFactories, Optional.of(indexSourceContext), scanDynamicFilters, nextPipelineId);
+        }
+
+        public void addScanDynamicFilter(PlanNodeId tableScanId, ScanDynamicFilter dynamicFilter)
+        {
+            // a scan is filtered by the closest join only
+            scanDynamicFilters.putIfAbsent(tableScanId, dynamicFilter);
+        }
+
+        public Optional<ScanDynamicFilter> getScanDynamicFilter(PlanNodeId tableScanId)
+        {
+            return Optional.ofNullable(scanDynamicFilters.get(tableScanId));
         }
 
         public OptionalInt getDriverInstanceCount()
@@ -868,7 +894,9 @@ public class LocalExecutionPlanner
                     sortOrder,
                     node.getPreSortedOrderPrefix(),
                     10_000,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    isSpillEnabled(context.getSession()) && isSpillWindowOperator(context.getSession()),
+                    Optional.of(spillerFactory));
 
             return new PhysicalOperation(operatorFactory, outputMappings.build(), source);
         }
@@ -925,7 +953,9 @@ public class LocalExecutionPlanner
                     10_000,
                     orderByChannels,
                     sortOrder.build(),
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    isSpillEnabled(context.getSession()) && isSpillOrderBy(context.getSession()),
+                    Optional.of(spillerFactory));
 
             return new PhysicalOperation(operator, source.getLayout(), source);
         }
@@ -1020,7 +1050,7 @@ public class LocalExecutionPlanner
             boolean spillEnabled = isSpillEnabled(context.getSession());
             DataSize unspillMemoryLimit = getAggregationOperatorUnspillMemoryLimit(context.getSession());
 
-            return planGroupByAggregation(node, source, context.getNextOperatorId(), spillEnabled, unspillMemoryLimit);
+            return planGroupByAggregation(node, source, context.getNextOperatorId(), spillEnabled, unspillMemoryLimit, context.getSession());
         }
 
         @Override
@@ -1162,7 +1192,8 @@ public class LocalExecutionPlanner
                             columns,
                             getTypes(rewrittenProjections, expressionTypes),
                             getFilterAndProjectMinOutputPageSize(session),
-                            getFilterAndProjectMinOutputPageRowCount(session));
+                            getFilterAndProjectMinOutputPageRowCount(session),
+                            context.getScanDynamicFilter(sourceNode.getId()));
 
                     return new PhysicalOperation(operatorFactory, outputMappings, groupEnumerable ? GROUPED_EXECUTION : UNGROUPED_EXECUTION);
                 }
@@ -1209,7 +1240,13 @@ public class LocalExecutionPlanner
             }
 
             List<Type> types = getSourceOperatorTypes(node, context.getTypes());
-            OperatorFactory operatorFactory = new TableScanOperatorFactory(context.getNextOperatorId(), node.getId(), pageSourceProvider, types, columns);
+            OperatorFactory operatorFactory = new TableScanOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    pageSourceProvider,
+                    types,
+                    columns,
+                    context.getScanDynamicFilter(node.getId()));
             return new PhysicalOperation(operatorFactory, makeLayout(node), groupEnumerable ? GROUPED_EXECUTION : UNGROUPED_EXECUTION);
         }
 
@@ -1812,12 +1849,13 @@ public class LocalExecutionPlanner
                 Optional<Symbol> buildHashSymbol,
                 LocalExecutionPlanContext context)
         {
-            // Plan probe
+            // Plan probe, dynamic filter is registered first, so probe side scan picks it up
+            Optional<ScanDynamicFilter> dynamicFilter = createDynamicFilter(node, probeNode, probeSymbols, context);
             PhysicalOperation probeSource = probeNode.accept(this, context);
 
             // Plan build
             LookupSourceFactoryManager lookupSourceFactory =
-                    createLookupSourceFactory(node, buildNode, buildSymbols, buildHashSymbol, probeSource, context);
+                    createLookupSourceFactory(node, buildNode, buildSymbols, buildHashSymbol, probeSource, dynamicFilter, context);
 
             OperatorFactory operator = createLookupJoin(node, probeSource, probeSymbols, probeHashSymbol, lookupSourceFactory, context);
 
@@ -1837,6 +1875,7 @@ public class LocalExecutionPlanner
                 List<Symbol> buildSymbols,
                 Optional<Symbol> buildHashSymbol,
                 PhysicalOperation probeSource,
+                Optional<ScanDynamicFilter> dynamicFilter,
                 LocalExecutionPlanContext context)
         {
             LocalExecutionPlanContext buildContext = context.createSubContext();
@@ -1905,6 +1944,18 @@ public class LocalExecutionPlanner
                             buildSource.getLayout(),
                             node.getType() == RIGHT || node.getType() == FULL),
                     buildOutputTypes);
+
+            // build side of grouped execution is collected per lifespan, dynamic filter is collected only once per task,
+            // so it is never published and the probe side scan shouldn't wait for it
+            Optional<DynamicFilterSource> dynamicFilterSource = Optional.empty();
+            if (buildSource.getPipelineExecutionStrategy() == GROUPED_EXECUTION) {
+                dynamicFilter.ifPresent(ScanDynamicFilter::disable);
+            }
+            else {
+                dynamicFilterSource = dynamicFilter.map(ScanDynamicFilter::getSource);
+            }
+            dynamicFilterSource.ifPresent(source -> source.setPartitionCount(partitionCount));
+
             HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
                     buildContext.getNextOperatorId(),
                     node.getId(),
@@ -1919,7 +1970,8 @@ public class LocalExecutionPlanner
                     10_000,
                     pagesIndexFactory,
                     spillEnabled && !buildOuter && partitionCount > 1,
-                    singleStreamSpillerFactory);
+                    singleStreamSpillerFactory,
+                    dynamicFilterSource);
 
             context.addDriverFactory(
                     buildContext.isInputDriver(),
@@ -1934,6 +1986,67 @@ public class LocalExecutionPlanner
             return lookupSourceFactoryManager;
         }
 
+        /**
+         * Registers dynamic filter of the join for the probe side table scan, if the scan is planned in the same
+         * task and its rows reach the join only through filters, projections and local exchanges.
+         */
+        private Optional<ScanDynamicFilter> createDynamicFilter(JoinNode node, PlanNode probeNode, List<Symbol> probeSymbols, LocalExecutionPlanContext context)
+        {
+            // only joins which drop probe rows without a match can skip them earlier
+            if (!isDynamicFilteringEnabled(session) || (node.getType() != INNER && node.getType() != RIGHT)) {
+                return Optional.empty();
+            }
+
+            List<Type> keyTypes = probeSymbols.stream()
+                    .map(context.getTypes()::get)
+                    .collect(toImmutableList());
+            // probe symbol -> symbol of the same value in the current node
+            Map<Symbol, Symbol> sourceSymbols = new HashMap<>();
+            for (int key = 0; key < probeSymbols.size(); key++) {
+                if (DynamicFilter.isSupportedType(keyTypes.get(key))) {
+                    sourceSymbols.put(probeSymbols.get(key), probeSymbols.get(key));
+                }
+            }
+
+            PlanNode current = probeNode;
+            while (!sourceSymbols.isEmpty() && !(current instanceof TableScanNode)) {
+                if (current instanceof FilterNode) {
+                    current = ((FilterNode) current).getSource();
+                }
+                else if (current instanceof ProjectNode) {
+                    Assignments assignments = ((ProjectNode) current).getAssignments();
+                    sourceSymbols = sourceSymbols.entrySet().stream()
+                            .filter(entry -> assignments.get(entry.getValue()) instanceof SymbolReference)
+                            .collect(Collectors.toMap(Map.Entry::getKey, entry -> Symbol.from(assignments.get(entry.getValue()))));
+                    current = ((ProjectNode) current).getSource();
+                }
+                else if (current instanceof ExchangeNode && ((ExchangeNode) current).getScope() == LOCAL && current.getSources().size() == 1) {
+                    ExchangeNode exchange = (ExchangeNode) current;
+                    sourceSymbols = sourceSymbols.entrySet().stream()
+                            .collect(Collectors.toMap(Map.Entry::getKey, entry -> exchange.getInputs().get(0).get(exchange.getOutputSymbols().indexOf(entry.getValue()))));
+                    current = exchange.getSources().get(0);
+                }
+                else {
+                    return Optional.empty();
+                }
+            }
+            if (sourceSymbols.isEmpty()) {
+                return Optional.empty();
+            }
+
+            TableScanNode tableScan = (TableScanNode) current;
+            int[] keyChannels = new int[probeSymbols.size()];
+            for (int key = 0; key < probeSymbols.size(); key++) {
+                Symbol scanSymbol = sourceSymbols.get(probeSymbols.get(key));
+                keyChannels[key] = scanSymbol == null ? -1 : tableScan.getOutputSymbols().indexOf(scanSymbol);
+            }
+            ScanDynamicFilter dynamicFilter = new ScanDynamicFilter(
+                    new DynamicFilterSource(keyTypes, getDynamicFilteringMaxDistinctValues(session)),
+                    keyChannels);
+            context.addScanDynamicFilter(tableScan.getId(), dynamicFilter);
+            return Optional.of(dynamicFilter);
+        }
+
         private JoinFilterFunctionFactory compileJoinFilterFunction(
                 Expression filterExpression,
                 Map<Symbol, Integer> probeLayout,
@@ -2322,7 +2435,8 @@ public class LocalExecutionPlanner
                 PhysicalOperation source,
                 int operatorId,
                 boolean spillEnabled,
-                DataSize unspillMemoryLimit)
+                DataSize unspillMemoryLimit,
+                Session session)
         {
             List<Symbol> groupBySymbols = node.getGroupingKeys();
 
@@ -2386,7 +2500,10 @@ public class LocalExecutionPlanner
                     spillEnabled,
                     unspillMemoryLimit,
                     spillerFactory,
-                    joinCompiler);
+                    joinCompiler,
+                    isAdaptivePartialAggregationEnabled(session),
+                    getAdaptivePartialAggregationMinRows(session),
+                    getAdaptivePartialAggregationUniqueRowsRatioThreshold(session));
 
             return new PhysicalOperation(operatorFactory, mappings, source);
         }
@@ -0,0 +1,196 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.LazyBlock;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.testing.TestingMetadata.TestingColumnHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.block.BlockAssertions.toValues;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.RealType.REAL;
+import static com.facebook.presto.spi.type.TimeType.TIME;
+import static com.facebook.presto.spi.type.TimestampWithTimeZoneType.TIMESTAMP_WITH_TIME_ZONE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestDynamicFilter
+{
+    private static final ColumnHandle COLUMN = new TestingColumnHandle("key");
+
+    @Test
+    public void testSupportedTypes()
+    {
+        assertTrue(DynamicFilter.isSupportedType(BIGINT));
+        assertTrue(DynamicFilter.isSupportedType(TIME));
+        assertFalse(DynamicFilter.isSupportedType(REAL));
+        assertFalse(DynamicFilter.isSupportedType(TIMESTAMP_WITH_TIME_ZONE));
+        assertFalse(DynamicFilter.isSupportedType(DOUBLE));
+        assertFalse(DynamicFilter.isSupportedType(VARCHAR));
+    }
+
+    @Test
+    public void testDistinctValues()
+    {
+        DynamicFilter filter = collect(10, 5L, 7L, null, 5L);
+
+        assertFalse(filter.isNone());
+        assertFalse(filter.isAll());
+        assertEquals(filter.getDomain(0), Optional.of(Domain.multipleValues(BIGINT, ImmutableList.of(5L, 7L))));
+        assertEquals(toValues(BIGINT, filter.filter(probePage(4L, 5L, 6L, null, 7L), new int[] {0}).getBlock(0)), ImmutableList.of(5L, 7L));
+    }
+
+    @Test
+    public void testRangeWhenTooManyValues()
+    {
+        DynamicFilter filter = collect(2, 5L, 7L, 9L);
+
+        assertEquals(filter.getDomain(0), Optional.of(Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 5L, true, 9L, true)), false)));
+        assertEquals(toValues(BIGINT, filter.filter(probePage(4L, 6L, 10L), new int[] {0}).getBlock(0)), ImmutableList.of(6L));
+    }
+
+    @Test
+    public void testUnorderedTypeWithTooManyValues()
+    {
+        DynamicFilter.Builder builder = DynamicFilter.builder(ImmutableList.of(TIME), ImmutableList.of(0), 1);
+        builder.addPage(rowPagesBuilder(TIME).row(1L).row(2L).build().get(0));
+        DynamicFilter filter = builder.build();
+
+        assertTrue(filter.isAll());
+        assertEquals(filter.getDomain(0), Optional.empty());
+    }
+
+    @Test
+    public void testNoBuildRows()
+    {
+        DynamicFilter filter = collect(10, (Long) null);
+
+        assertTrue(filter.isNone());
+        assertNull(filter.filter(probePage(1L, 2L), new int[] {0}));
+    }
+
+    @Test
+    public void testUnsupportedKey()
+    {
+        DynamicFilter.Builder builder = DynamicFilter.builder(ImmutableList.of(VARCHAR, BIGINT), ImmutableList.of(0, 1), 10);
+        builder.addPage(rowPagesBuilder(VARCHAR, BIGINT).row("a", 1L).build().get(0));
+        DynamicFilter filter = builder.build();
+
+        assertFalse(filter.isNone());
+        assertEquals(filter.getDomain(0), Optional.empty());
+        assertEquals(filter.getDomain(1), Optional.of(Domain.singleValue(BIGINT, 1L)));
+        Page probe = rowPagesBuilder(VARCHAR, BIGINT).row("b", 1L).row("a", 2L).build().get(0);
+        assertEquals(toValues(BIGINT, filter.filter(probe, new int[] {0, 1}).getBlock(1)), ImmutableList.of(1L));
+    }
+
+    @Test
+    public void testFilterKeepsColumnsLazy()
+    {
+        DynamicFilter filter = collect(10, 1L);
+        LazyBlock lazyBlock = new LazyBlock(2, block -> block.setBlock(createLongsBlock(10L, 20L)));
+        Page filtered = filter.filter(new Page(createLongsBlock(1L, 2L), lazyBlock), new int[] {0});
+
+        assertFalse(lazyBlock.isLoaded());
+        assertEquals(toValues(BIGINT, filtered.getBlock(1)), ImmutableList.of(10L));
+    }
+
+    @Test
+    public void testFilterReturnsSamePageWhenAllRowsMatch()
+    {
+        Page probe = probePage(1L, 2L);
+        assertSame(collect(10, 1L, 2L).filter(probe, new int[] {0}), probe);
+    }
+
+    @Test
+    public void testSourceWaitsForAllPartitions()
+    {
+        DynamicFilterSource source = new DynamicFilterSource(ImmutableList.of(BIGINT), 2);
+        source.setPartitionCount(3);
+        ScanDynamicFilter scanFilter = new ScanDynamicFilter(source, new int[] {0});
+        List<ColumnHandle> columns = ImmutableList.of(COLUMN);
+
+        source.addPartition(collect(source, 1L));
+        source.addPartition(collect(source));
+        assertFalse(source.getDynamicFilterIfReady().isPresent());
+        assertEquals(scanFilter.getPredicate(columns), TupleDomain.all());
+        Page probe = probePage(1L, 2L);
+        assertSame(scanFilter.filter(probe), probe);
+
+        source.addPartition(collect(source, 3L));
+        assertEquals(
+                scanFilter.getPredicate(columns),
+                TupleDomain.withColumnDomains(ImmutableMap.of(COLUMN, Domain.multipleValues(BIGINT, ImmutableList.of(1L, 3L)))));
+        assertEquals(toValues(BIGINT, scanFilter.filter(probePage(1L, 2L, 3L)).getBlock(0)), ImmutableList.of(1L, 3L));
+    }
+
+    @Test
+    public void testSourceMergesPartitionsToRange()
+    {
+        DynamicFilterSource source = new DynamicFilterSource(ImmutableList.of(BIGINT), 2);
+        source.setPartitionCount(2);
+        source.addPartition(collect(source, 1L, 2L));
+        source.addPartition(collect(source, 8L));
+
+        assertEquals(
+                new ScanDynamicFilter(source, new int[] {0}).getPredicate(ImmutableList.of(COLUMN)),
+                TupleDomain.withColumnDomains(ImmutableMap.of(COLUMN, Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 1L, true, 8L, true)), false))));
+    }
+
+    @Test
+    public void testEmptyBuildSide()
+    {
+        DynamicFilterSource source = new DynamicFilterSource(ImmutableList.of(BIGINT), 2);
+        source.setPartitionCount(1);
+        source.addPartition(collect(source));
+
+        assertTrue(new ScanDynamicFilter(source, new int[] {0}).getPredicate(ImmutableList.of(COLUMN)).isNone());
+    }
+
+    private static DynamicFilter collect(int maxDistinctValues, Long... values)
+    {
+        DynamicFilter.Builder builder = DynamicFilter.builder(ImmutableList.of(BIGINT), ImmutableList.of(0), maxDistinctValues);
+        builder.addPage(probePage(values));
+        return builder.build();
+    }
+
+    private static DynamicFilter collect(DynamicFilterSource source, Long... values)
+    {
+        DynamicFilter.Builder builder = source.createPartitionBuilder(ImmutableList.of(0));
+        builder.addPage(probePage(values));
+        return builder.build();
+    }
+
+    private static Page probePage(Long... values)
+    {
+        return new Page(values.length, createLongsBlock(values));
+    }
+}
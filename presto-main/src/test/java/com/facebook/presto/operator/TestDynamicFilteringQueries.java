@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.testing.LocalQueryRunner;
+import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.tpch.TpchConnectorFactory;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.SystemSessionProperties.DYNAMIC_FILTERING_ENABLED;
+import static com.facebook.presto.SystemSessionProperties.DYNAMIC_FILTERING_MAX_DISTINCT_VALUES;
+import static com.facebook.presto.testing.assertions.Assert.assertEquals;
+
+public class TestDynamicFilteringQueries
+{
+    private static final Session DYNAMIC_FILTERING = Session.builder(TEST_SESSION)
+            .setSystemProperty(DYNAMIC_FILTERING_ENABLED, "true")
+            .build();
+    private static final Session DYNAMIC_FILTERING_RANGES = Session.builder(DYNAMIC_FILTERING)
+            .setSystemProperty(DYNAMIC_FILTERING_MAX_DISTINCT_VALUES, "1")
+            .build();
+
+    private LocalQueryRunner runner;
+
+    @BeforeClass
+    public void setUp()
+    {
+        runner = new LocalQueryRunner(TEST_SESSION);
+        runner.createCatalog(TEST_SESSION.getCatalog().get(), new TpchConnectorFactory(1), ImmutableMap.of());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void destroy()
+    {
+        if (runner != null) {
+            runner.close();
+            runner = null;
+        }
+    }
+
+    @Test
+    public void testInnerJoin()
+    {
+        assertSameResults("SELECT count(*), sum(l.extendedprice) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.custkey = 370");
+        assertSameResults("SELECT count(*) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.orderkey BETWEEN 100 AND 200 OR o.orderkey > 59000");
+    }
+
+    @Test
+    public void testJoinThroughProjectionAndFilter()
+    {
+        assertSameResults("SELECT count(*), sum(x) FROM (SELECT orderkey AS k, partkey + 1 AS x FROM lineitem WHERE quantity > 10) l " +
+                "JOIN orders o ON l.k = o.orderkey WHERE o.orderstatus = 'F' AND o.custkey < 100");
+    }
+
+    @Test
+    public void testMultipleKeys()
+    {
+        assertSameResults("SELECT count(*) FROM lineitem l JOIN partsupp ps ON l.partkey = ps.partkey AND l.suppkey = ps.suppkey WHERE ps.availqty < 100");
+        assertSameResults("SELECT count(*) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey AND l.shipinstruct = o.orderpriority WHERE o.custkey = 370");
+    }
+
+    @Test
+    public void testOuterJoins()
+    {
+        assertSameResults("SELECT count(*), count(o.orderkey) FROM lineitem l RIGHT JOIN orders o ON l.orderkey = o.orderkey WHERE o.custkey = 370");
+        assertSameResults("SELECT count(*), count(o.orderkey) FROM lineitem l LEFT JOIN (SELECT * FROM orders WHERE custkey = 370) o ON l.orderkey = o.orderkey");
+    }
+
+    @Test
+    public void testEmptyBuildSide()
+    {
+        assertSameResults("SELECT count(*) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.custkey < 0");
+    }
+
+    private void assertSameResults(String sql)
+    {
+        MaterializedResult expected = runner.execute(TEST_SESSION, sql);
+        assertEquals(runner.execute(DYNAMIC_FILTERING, sql), expected);
+        assertEquals(runner.execute(DYNAMIC_FILTERING_RANGES, sql), expected);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestHashAggregationInfo
+{
+    @Test
+    public void testMerge()
+    {
+        HashAggregationInfo base = new HashAggregationInfo(1, 2, 3, 1000, 900, 0, 0);
+        HashAggregationInfo other = new HashAggregationInfo(4, 5, 6, 1000, 950, 5000, 1);
+
+        HashAggregationInfo merged = base.mergeWith(other);
+        assertEquals(merged.getWeightedHashCollisions(), 5.0);
+        assertEquals(merged.getWeightedSumSquaredHashCollisions(), 7.0);
+        assertEquals(merged.getWeightedExpectedHashCollisions(), 9.0);
+        assertEquals(merged.getPartialAggregationInputRows(), 2000);
+        assertEquals(merged.getPartialAggregationGroups(), 1850);
+        assertEquals(merged.getPartialAggregationUniqueRowsRatio(), 0.925);
+        assertEquals(merged.getPassThroughRows(), 5000);
+        assertEquals(merged.getPassThroughOperators(), 1);
+    }
+
+    @Test
+    public void testJson()
+    {
+        JsonCodec<OperatorInfo> codec = JsonCodec.jsonCodec(OperatorInfo.class);
+        OperatorInfo actual = codec.fromJson(codec.toJson(new HashAggregationInfo(1, 2, 3, 1000, 900, 5000, 1)));
+
+        assertEquals(actual.getClass(), HashAggregationInfo.class);
+        HashAggregationInfo info = (HashAggregationInfo) actual;
+        assertEquals(info.getWeightedHashCollisions(), 1.0);
+        assertEquals(info.getPartialAggregationInputRows(), 1000);
+        assertEquals(info.getPartialAggregationGroups(), 900);
+        assertEquals(info.getPassThroughRows(), 5000);
+        assertEquals(info.getPassThroughOperators(), 1);
+    }
+}
@@ -73,9 +73,7 @@ import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static com.google.common.base.Strings.nullToEmpty;
-import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
-import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
 import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
@@ -565,6 +563,82 @@ public class TestHashAggregationOperator
         }
     }
 
+    @Test(dataProvider = "hashEnabled")
+    public void testAdaptivePartialAggregationPassThrough(boolean hashEnabled)
+            throws Exception
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, hashChannels, BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 500)
+                .addSequencePage(500, 1000)
+                .addSequencePage(500, 1500)
+                .build();
+
+        HashAggregationOperatorFactory operatorFactory = createAdaptivePartialAggregationOperatorFactory(hashChannels, rowPagesBuilder.getHashChannel());
+        DriverContext driverContext = createDriverContext();
+
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            List<Page> outputPages = toPages(operator, input.iterator());
+
+            // the first page is aggregated, the rest of the unique keys is passed through
+            HashAggregationInfo info = (HashAggregationInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+            assertEquals(info.getPartialAggregationInputRows(), 500);
+            assertEquals(info.getPartialAggregationGroups(), 500);
+            assertEquals(info.getPartialAggregationUniqueRowsRatio(), 1.0);
+            assertEquals(info.getPassThroughRows(), 1500);
+            assertEquals(info.getPassThroughOperators(), 1);
+
+            MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT, BIGINT);
+            for (long key = 0; key < 2000; key++) {
+                expected.row(key, key, 1L);
+            }
+
+            MaterializedResult actual;
+            if (hashEnabled) {
+                // passed through rows keep the hash of aggregated rows, so they are partitioned the same way
+                for (Page page : outputPages) {
+                    for (int position = 0; position < page.getPositionCount(); position++) {
+                        assertEquals(BIGINT.getLong(page.getBlock(1), position), BIGINT.hash(page.getBlock(0), position));
+                    }
+                }
+                List<Page> actualPages = dropChannel(outputPages, ImmutableList.of(1));
+                actual = toMaterializedResult(operator.getOperatorContext().getSession(), without(operator.getTypes(), ImmutableList.of(1)), actualPages);
+            }
+            else {
+                actual = toMaterializedResult(operator.getOperatorContext().getSession(), operator.getTypes(), outputPages);
+            }
+            assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.build().getMaterializedRows());
+        }
+    }
+
+    @Test(dataProvider = "hashEnabled")
+    public void testAdaptivePartialAggregationKeepsReducingAggregation(boolean hashEnabled)
+            throws Exception
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, hashChannels, BIGINT);
+        for (int i = 0; i < 20; i++) {
+            rowPagesBuilder.addSequencePage(100, 0);
+        }
+        List<Page> input = rowPagesBuilder.build();
+
+        HashAggregationOperatorFactory operatorFactory = createAdaptivePartialAggregationOperatorFactory(hashChannels, rowPagesBuilder.getHashChannel());
+
+        try (Operator operator = operatorFactory.createOperator(createDriverContext())) {
+            List<Page> outputPages = toPages(operator, input.iterator());
+
+            assertEquals(outputPages.stream().mapToInt(Page::getPositionCount).sum(), 100);
+            HashAggregationInfo info = (HashAggregationInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+            assertEquals(info.getPartialAggregationInputRows(), 2000);
+            assertEquals(info.getPartialAggregationGroups(), 100);
+            assertEquals(info.getPartialAggregationUniqueRowsRatio(), 0.05);
+            assertEquals(info.getPassThroughRows(), 0);
+            assertEquals(info.getPassThroughOperators(), 0);
+        }
+    }
+
     @Test
     public void testMergeWithMemorySpill()
     {
@@ -663,6 +737,32 @@ public class TestHashAggregationOperator
         }
     }
 
+    private HashAggregationOperatorFactory createAdaptivePartialAggregationOperatorFactory(List<Integer> groupByChannels, Optional<Integer> hashChannel)
+    {
+        return new HashAggregationOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                groupByChannels,
+                ImmutableList.of(),
+                Step.PARTIAL,
+                false,
+                ImmutableList.of(LONG_SUM.bind(ImmutableList.of(0), Optional.empty()),
+                        COUNT.bind(ImmutableList.of(0), Optional.empty())),
+                hashChannel,
+                Optional.empty(),
+                100_000,
+                new DataSize(16, MEGABYTE),
+                false,
+                succinctBytes(0),
+                succinctBytes(0),
+                spillerFactory,
+                joinCompiler,
+                true,
+                500,
+                0.8);
+    }
+
     private DriverContext createDriverContext()
     {
         return createDriverContext(Integer.MAX_VALUE);
@@ -688,47 +788,6 @@ public class TestHashAggregationOperator
         return ((InMemoryHashAggregationBuilder) aggregationBuilder).getCapacity();
     }
 
-    private static class DummySpillerFactory
-            implements SpillerFactory
-    {
-        private long spillsCount;
-
-        @Override
-        public Spiller create(List<Type> types, SpillContext spillContext, AggregatedMemoryContext memoryContext)
-        {
-            return new Spiller()
-            {
-                private final List<Iterable<Page>> spills = new ArrayList<>();
-
-                @Override
-                public ListenableFuture<?> spill(Iterator<Page> pageIterator)
-                {
-                    spillsCount++;
-                    spills.add(ImmutableList.copyOf(pageIterator));
-                    return immediateFuture(null);
-                }
-
-                @Override
-                public List<Iterator<Page>> getSpills()
-                {
-                    return spills.stream()
-                            .map(Iterable::iterator)
-                            .collect(toImmutableList());
-                }
-
-                @Override
-                public void close()
-                {
-                }
-            };
-        }
-
-        public long getSpillsCount()
-        {
-            return spillsCount;
-        }
-    }
-
     private static class FailingSpillerFactory
             implements SpillerFactory
     {
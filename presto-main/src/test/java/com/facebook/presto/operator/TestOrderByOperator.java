@@ -14,24 +14,30 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.RowPagesBuilder;
 import com.facebook.presto.operator.OrderByOperator.OrderByOperatorFactory;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.finishOperator;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
 import static com.facebook.presto.spi.block.SortOrder.DESC_NULLS_LAST;
@@ -40,9 +46,15 @@ import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestOrderByOperator
@@ -50,6 +62,13 @@ public class TestOrderByOperator
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
     private DriverContext driverContext;
+    private DummySpillerFactory spillerFactory;
+
+    @DataProvider
+    public static Object[][] spillEnabled()
+    {
+        return new Object[][] {{false}, {true}};
+    }
 
     @BeforeMethod
     public void setUp()
@@ -59,6 +78,7 @@ public class TestOrderByOperator
         driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
                 .addPipelineContext(0, true, true)
                 .addDriverContext();
+        spillerFactory = new DummySpillerFactory();
     }
 
     @AfterMethod
@@ -68,8 +88,8 @@ public class TestOrderByOperator
         scheduledExecutor.shutdownNow();
     }
 
-    @Test
-    public void testSingleFieldKey()
+    @Test(dataProvider = "spillEnabled")
+    public void testSingleFieldKey(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
                 .row(1L, 0.1)
@@ -87,7 +107,9 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0),
                 ImmutableList.of(ASC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory));
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), DOUBLE)
                 .row(-0.1)
@@ -99,8 +121,8 @@ public class TestOrderByOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testMultiFieldKey()
+    @Test(dataProvider = "spillEnabled")
+    public void testMultiFieldKey(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, BIGINT)
                 .row("a", 1L)
@@ -118,7 +140,9 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0, 1),
                 ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory));
 
         MaterializedResult expected = MaterializedResult.resultBuilder(driverContext.getSession(), VARCHAR, BIGINT)
                 .row("a", 4L)
@@ -130,8 +154,8 @@ public class TestOrderByOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testReverseOrder()
+    @Test(dataProvider = "spillEnabled")
+    public void testReverseOrder(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
                 .row(1L, 0.1)
@@ -149,7 +173,9 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0),
                 ImmutableList.of(DESC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory));
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT)
                 .row(4L)
@@ -188,4 +214,133 @@ public class TestOrderByOperator
 
         toPages(operatorFactory, driverContext, input);
     }
+
+    @Test
+    public void testSpillMergesSortedRuns()
+    {
+        RowPagesBuilder inputBuilder = rowPagesBuilder(BIGINT, VARCHAR);
+        for (long value = 0; value < 1_000; value++) {
+            if (value % 100 == 0) {
+                inputBuilder.pageBreak();
+            }
+            long key = (value * 7919) % 1_000;
+            inputBuilder.row(key, String.valueOf(key));
+        }
+
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT, VARCHAR),
+                ImmutableList.of(1, 0),
+                10,
+                ImmutableList.of(0),
+                ImmutableList.of(DESC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                true,
+                Optional.of(spillerFactory));
+
+        MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT);
+        for (long key = 999; key >= 0; key--) {
+            expected.row(String.valueOf(key), key);
+        }
+
+        assertOperatorEquals(operatorFactory, driverContext, inputBuilder.build(), expected.build());
+        assertEquals(spillerFactory.getSpillsCount(), 10);
+        assertEquals(driverContext.getRevocableMemoryUsage(), 0);
+    }
+
+    @Test
+    public void testFinishDoesNotWaitForSpill()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .row(3L)
+                .row(1L)
+                .pageBreak()
+                .row(2L)
+                .row(4L)
+                .build();
+
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(0),
+                10,
+                ImmutableList.of(0),
+                ImmutableList.of(ASC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                true,
+                Optional.of(spillerFactory));
+
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            operator.addInput(input.get(0));
+            getFutureValue(operator.startMemoryRevoke());
+            operator.finishMemoryRevoke();
+            operator.addInput(input.get(1));
+
+            spillerFactory.holdSpills();
+            operator.finish();
+            assertFalse(operator.isBlocked().isDone());
+            assertNull(operator.getOutput());
+
+            spillerFactory.completeSpills();
+            assertTrue(operator.isBlocked().isDone());
+            MaterializedResult actual = toMaterializedResult(driverContext.getSession(), operator.getTypes(), finishOperator(operator));
+            assertEquals(actual, resultBuilder(driverContext.getSession(), BIGINT).row(1L).row(2L).row(3L).row(4L).build());
+        }
+        catch (Exception e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testFinishWaitsForRevokeSpill()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .row(3L)
+                .row(1L)
+                .pageBreak()
+                .row(2L)
+                .row(4L)
+                .build();
+
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(0),
+                10,
+                ImmutableList.of(0),
+                ImmutableList.of(ASC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                true,
+                Optional.of(spillerFactory));
+
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            operator.addInput(input.get(0));
+            operator.addInput(input.get(1));
+
+            spillerFactory.holdSpills();
+            ListenableFuture<?> revokeFuture = operator.startMemoryRevoke();
+            // driver lets the operator know there is no more input even while it is revoking memory
+            operator.finish();
+            assertFalse(revokeFuture.isDone());
+            assertTrue(operator.needsInput());
+            assertEquals(spillerFactory.getSpillsCount(), 1);
+
+            spillerFactory.completeSpills();
+            getFutureValue(revokeFuture);
+            operator.finish();
+            assertTrue(operator.needsInput());
+
+            operator.finishMemoryRevoke();
+            MaterializedResult actual = toMaterializedResult(driverContext.getSession(), operator.getTypes(), finishOperator(operator));
+            assertEquals(actual, resultBuilder(driverContext.getSession(), BIGINT).row(1L).row(2L).row(3L).row(4L).build());
+        }
+        catch (Exception e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
 }
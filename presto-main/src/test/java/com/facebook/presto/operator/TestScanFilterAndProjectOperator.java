@@ -14,6 +14,7 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.SequencePageBuilder;
+import com.facebook.presto.Session;
 import com.facebook.presto.block.BlockAssertions;
 import com.facebook.presto.connector.ConnectorId;
 import com.facebook.presto.metadata.Metadata;
@@ -27,23 +28,30 @@ import com.facebook.presto.operator.project.PageProcessor;
 import com.facebook.presto.operator.project.TestPageProcessor.LazyPagePageProjection;
 import com.facebook.presto.operator.project.TestPageProcessor.SelectAllFilter;
 import com.facebook.presto.operator.scalar.AbstractTestFunctions;
+import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.RecordPageSource;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.LazyBlock;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.split.PageSourceProvider;
 import com.facebook.presto.sql.gen.ExpressionCompiler;
 import com.facebook.presto.sql.gen.PageFunctionCompiler;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.relational.RowExpression;
 import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.testing.TestingMetadata.TestingColumnHandle;
 import com.facebook.presto.testing.TestingSplit;
 import com.facebook.presto.testing.TestingTransactionHandle;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.units.DataSize;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
@@ -66,6 +74,7 @@ import static com.facebook.presto.sql.relational.Expressions.constant;
 import static com.facebook.presto.sql.relational.Expressions.field;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static com.facebook.presto.testing.assertions.Assert.assertEquals;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
@@ -208,6 +217,110 @@ public class TestScanFilterAndProjectOperator
         assertEquals(actual, expected);
     }
 
+    @Test
+    public void testPageSourceDynamicFilter()
+    {
+        Page input = SequencePageBuilder.createSequencePage(ImmutableList.of(BIGINT), 100, 0);
+        ColumnHandle column = new TestingColumnHandle("key");
+        DynamicFilterSource dynamicFilterSource = new DynamicFilterSource(ImmutableList.of(BIGINT), 10);
+        dynamicFilterSource.setPartitionCount(1);
+        DynamicFilter.Builder builder = dynamicFilterSource.createPartitionBuilder(ImmutableList.of(0));
+        builder.addPage(new Page(BlockAssertions.createLongsBlock(3L, 50L)));
+        dynamicFilterSource.addPartition(builder.build());
+
+        List<RowExpression> projections = ImmutableList.of(field(0, BIGINT));
+        Supplier<CursorProcessor> cursorProcessor = expressionCompiler.compileCursorProcessor(Optional.empty(), projections, "key");
+        Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(Optional.empty(), projections);
+        List<TupleDomain<ColumnHandle>> pushedPredicates = new ArrayList<>();
+        PageSourceProvider pageSourceProvider = new PageSourceProvider()
+        {
+            @Override
+            public ConnectorPageSource createPageSource(Session session, Split split, List<ColumnHandle> columns)
+            {
+                throw new AssertionError("dynamic filter should be passed to the page source");
+            }
+
+            @Override
+            public ConnectorPageSource createPageSource(Session session, Split split, List<ColumnHandle> columns, TupleDomain<ColumnHandle> dynamicFilter)
+            {
+                pushedPredicates.add(dynamicFilter);
+                return new FixedPageSource(ImmutableList.of(input));
+            }
+        };
+
+        ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory factory = new ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                new PlanNodeId("0"),
+                pageSourceProvider,
+                cursorProcessor,
+                pageProcessor,
+                ImmutableList.of(column),
+                ImmutableList.of(BIGINT),
+                new DataSize(0, BYTE),
+                0,
+                Optional.of(new ScanDynamicFilter(dynamicFilterSource, new int[] {0})));
+
+        DriverContext driverContext = newDriverContext();
+        SourceOperator operator = factory.createOperator(driverContext);
+        operator.addSplit(new Split(new ConnectorId("test"), TestingTransactionHandle.create(), TestingSplit.createLocalSplit()));
+        operator.noMoreSplits();
+
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), ImmutableList.of(BIGINT), toPages(operator));
+
+        assertEquals(actual.getMaterializedRows().stream().map(row -> row.getField(0)).collect(toImmutableList()), ImmutableList.of(3L, 50L));
+        assertEquals(pushedPredicates, ImmutableList.of(TupleDomain.withColumnDomains(ImmutableMap.of(column, Domain.multipleValues(BIGINT, ImmutableList.of(3L, 50L))))));
+    }
+
+    @Test
+    public void testDisabledDynamicFilterIsNotApplied()
+    {
+        Page input = SequencePageBuilder.createSequencePage(ImmutableList.of(BIGINT), 100, 0);
+        // never published, as build side of grouped execution doesn't collect it
+        ScanDynamicFilter dynamicFilter = new ScanDynamicFilter(new DynamicFilterSource(ImmutableList.of(BIGINT), 10), new int[] {0});
+        dynamicFilter.disable();
+
+        List<RowExpression> projections = ImmutableList.of(field(0, BIGINT));
+        Supplier<CursorProcessor> cursorProcessor = expressionCompiler.compileCursorProcessor(Optional.empty(), projections, "key");
+        Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(Optional.empty(), projections);
+        PageSourceProvider pageSourceProvider = new PageSourceProvider()
+        {
+            @Override
+            public ConnectorPageSource createPageSource(Session session, Split split, List<ColumnHandle> columns)
+            {
+                return new FixedPageSource(ImmutableList.of(input));
+            }
+
+            @Override
+            public ConnectorPageSource createPageSource(Session session, Split split, List<ColumnHandle> columns, TupleDomain<ColumnHandle> dynamicFilter)
+            {
+                throw new AssertionError("disabled dynamic filter should not be passed to the page source");
+            }
+        };
+
+        ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory factory = new ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                new PlanNodeId("0"),
+                pageSourceProvider,
+                cursorProcessor,
+                pageProcessor,
+                ImmutableList.of(new TestingColumnHandle("key")),
+                ImmutableList.of(BIGINT),
+                new DataSize(0, BYTE),
+                0,
+                Optional.of(dynamicFilter));
+
+        DriverContext driverContext = newDriverContext();
+        SourceOperator operator = factory.createOperator(driverContext);
+        operator.addSplit(new Split(new ConnectorId("test"), TestingTransactionHandle.create(), TestingSplit.createLocalSplit()));
+        operator.noMoreSplits();
+
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), ImmutableList.of(BIGINT), toPages(operator));
+
+        assertEquals(actual.getRowCount(), 100);
+    }
+
     @Test
     public void testRecordCursorSource()
     {
@@ -30,10 +30,12 @@ import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.List;
@@ -45,6 +47,8 @@ import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
+import static com.facebook.presto.operator.OperatorAssertion.finishOperator;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.operator.WindowFunctionDefinition.window;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
@@ -56,10 +60,15 @@ import static com.facebook.presto.sql.tree.FrameBound.Type.UNBOUNDED_PRECEDING;
 import static com.facebook.presto.sql.tree.WindowFrame.Type.RANGE;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestWindowOperator
@@ -87,6 +96,13 @@ public class TestWindowOperator
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
     private DriverContext driverContext;
+    private DummySpillerFactory spillerFactory;
+
+    @DataProvider
+    public static Object[][] spillEnabled()
+    {
+        return new Object[][] {{false}, {true}};
+    }
 
     @BeforeMethod
     public void setUp()
@@ -96,6 +112,7 @@ public class TestWindowOperator
         driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
                 .addPipelineContext(0, true, true)
                 .addDriverContext();
+        spillerFactory = new DummySpillerFactory();
     }
 
     @AfterMethod
@@ -105,8 +122,8 @@ public class TestWindowOperator
         scheduledExecutor.shutdownNow();
     }
 
-    @Test
-    public void testRowNumber()
+    @Test(dataProvider = "spillEnabled")
+    public void testRowNumber(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
                 .row(2L, 0.3)
@@ -118,6 +135,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(BIGINT, DOUBLE),
                 Ints.asList(1, 0),
                 ROW_NUMBER,
@@ -136,8 +154,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testRowNumberPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testRowNumberPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, BIGINT, DOUBLE, BOOLEAN)
                 .row("b", -1L, -0.1, true)
@@ -149,6 +167,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(VARCHAR, BIGINT, DOUBLE, BOOLEAN),
                 Ints.asList(0, 1, 2, 3),
                 ROW_NUMBER,
@@ -183,6 +202,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                false,
                 ImmutableList.of(BIGINT),
                 Ints.asList(0),
                 ROW_NUMBER,
@@ -220,6 +240,7 @@ public class TestWindowOperator
                 .addDriverContext();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                false,
                 ImmutableList.of(BIGINT, DOUBLE),
                 Ints.asList(1),
                 ROW_NUMBER,
@@ -230,8 +251,8 @@ public class TestWindowOperator
         toPages(operatorFactory, driverContext, input);
     }
 
-    @Test
-    public void testFirstValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFirstValuePartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, true, "")
@@ -244,6 +265,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR),
                 Ints.asList(0, 1, 2, 3),
                 FIRST_VALUE,
@@ -263,8 +285,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLastValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLastValuePartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, true, "")
@@ -277,6 +299,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR),
                 Ints.asList(0, 1, 2, 3),
                 LAST_VALUE,
@@ -295,8 +318,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testNthValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testNthValuePartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, 2L, true, "")
@@ -309,6 +332,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(VARCHAR, VARCHAR, BIGINT, BIGINT, BOOLEAN, VARCHAR),
                 Ints.asList(0, 1, 2, 4),
                 NTH_VALUE,
@@ -328,8 +352,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLagPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLagPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, 1L, "D", true, "")
@@ -342,6 +366,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR, BOOLEAN, VARCHAR),
                 Ints.asList(0, 1, 2, 5),
                 LAG,
@@ -361,8 +386,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLeadPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLeadPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR, BOOLEAN, VARCHAR)
                 .row("b", "A1", 1L, 1L, "D", true, "")
@@ -375,6 +400,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR, BOOLEAN, VARCHAR),
                 Ints.asList(0, 1, 2, 5),
                 LEAD,
@@ -394,8 +420,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testPartiallyPreGroupedPartitionWithEmptyInput()
+    @Test(dataProvider = "spillEnabled")
+    public void testPartiallyPreGroupedPartitionWithEmptyInput(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -403,6 +429,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(BIGINT, VARCHAR, BIGINT, VARCHAR),
                 Ints.asList(0, 1, 2, 3),
                 ROW_NUMBER,
@@ -418,8 +445,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testPartiallyPreGroupedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testPartiallyPreGroupedPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -435,6 +462,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(BIGINT, VARCHAR, BIGINT, VARCHAR),
                 Ints.asList(0, 1, 2, 3),
                 ROW_NUMBER,
@@ -456,8 +484,8 @@ public class TestWindowOperator
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testFullyPreGroupedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFullyPreGroupedPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -474,6 +502,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(BIGINT, VARCHAR, BIGINT, VARCHAR),
                 Ints.asList(0, 1, 2, 3),
                 ROW_NUMBER,
@@ -496,8 +525,8 @@ public class TestWindowOperator
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testFullyPreGroupedAndPartiallySortedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFullyPreGroupedAndPartiallySortedPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -515,6 +544,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                spillEnabled,
                 ImmutableList.of(BIGINT, VARCHAR, BIGINT, VARCHAR),
                 Ints.asList(0, 1, 2, 3),
                 ROW_NUMBER,
@@ -557,6 +587,7 @@ public class TestWindowOperator
                 .build();
 
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                false,
                 ImmutableList.of(BIGINT, VARCHAR, BIGINT, VARCHAR),
                 Ints.asList(0, 1, 2, 3),
                 ROW_NUMBER,
@@ -581,6 +612,51 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
+    @Test
+    public void testSpillMergesSortedRunsOfPreGroupedPartitions()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT)
+                .row(1L, "b", 14L)
+                .row(1L, "a", 13L)
+                .pageBreak()
+                .row(1L, "a", 11L)
+                .row(1L, "b", 12L)
+                .pageBreak()
+                .row(1L, "a", 10L)
+                .row(2L, "c", 22L)
+                .pageBreak()
+                .row(2L, "c", 21L)
+                .row(2L, "c", 20L)
+                .build();
+
+        WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                true,
+                ImmutableList.of(BIGINT, VARCHAR, BIGINT),
+                Ints.asList(0, 1, 2),
+                ROW_NUMBER,
+                Ints.asList(0, 1),
+                Ints.asList(0),
+                Ints.asList(2),
+                ImmutableList.of(SortOrder.ASC_NULLS_LAST),
+                0);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, BIGINT)
+                .row(1L, "a", 10L, 1L)
+                .row(1L, "a", 11L, 2L)
+                .row(1L, "a", 13L, 3L)
+                .row(1L, "b", 12L, 1L)
+                .row(1L, "b", 14L, 2L)
+                .row(2L, "c", 20L, 1L)
+                .row(2L, "c", 21L, 2L)
+                .row(2L, "c", 22L, 3L)
+                .build();
+
+        assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
+        // three runs of the first pre-grouped group and two of the second one
+        assertEquals(spillerFactory.getSpillsCount(), 5);
+        assertEquals(driverContext.getRevocableMemoryUsage(), 0);
+    }
+
     @Test
     public void testFindEndPosition()
     {
@@ -614,7 +690,107 @@ public class TestWindowOperator
         assertEquals(WindowOperator.findEndPosition(0, array.length, (first, second) -> array[first] == array[second]), expected);
     }
 
-    private static WindowOperatorFactory createFactoryUnbounded(
+    @Test
+    public void testGroupIsMergedAfterSpillCompletes()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT)
+                .row(1L, "b", 2L)
+                .row(1L, "a", 1L)
+                .pageBreak()
+                .row(1L, "a", 0L)
+                .row(2L, "c", 5L)
+                .build();
+
+        WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                true,
+                ImmutableList.of(BIGINT, VARCHAR, BIGINT),
+                Ints.asList(0, 1, 2),
+                ROW_NUMBER,
+                Ints.asList(0, 1),
+                Ints.asList(0),
+                Ints.asList(2),
+                ImmutableList.of(SortOrder.ASC_NULLS_LAST),
+                0);
+
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            operator.addInput(input.get(0));
+            getFutureValue(operator.startMemoryRevoke());
+            operator.finishMemoryRevoke();
+
+            spillerFactory.holdSpills();
+            // completes the first pre-grouped group, its rest is spilled without waiting for the write
+            operator.addInput(input.get(1));
+            assertFalse(operator.isBlocked().isDone());
+            assertNull(operator.getOutput());
+
+            spillerFactory.completeSpills();
+            assertTrue(operator.isBlocked().isDone());
+            MaterializedResult actual = toMaterializedResult(driverContext.getSession(), operator.getTypes(), finishOperator(operator));
+            MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, BIGINT)
+                    .row(1L, "a", 0L, 1L)
+                    .row(1L, "a", 1L, 2L)
+                    .row(1L, "b", 2L, 1L)
+                    .row(2L, "c", 5L, 1L)
+                    .build();
+            assertEquals(actual, expected);
+        }
+        catch (Exception e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testFinishWaitsForRevokeSpill()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT)
+                .row(1L, "b", 2L)
+                .row(1L, "a", 1L)
+                .build();
+
+        WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                true,
+                ImmutableList.of(BIGINT, VARCHAR, BIGINT),
+                Ints.asList(0, 1, 2),
+                ROW_NUMBER,
+                Ints.asList(0, 1),
+                Ints.asList(0),
+                Ints.asList(2),
+                ImmutableList.of(SortOrder.ASC_NULLS_LAST),
+                0);
+
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            operator.addInput(input.get(0));
+
+            spillerFactory.holdSpills();
+            ListenableFuture<?> revokeFuture = operator.startMemoryRevoke();
+            // driver lets the operator know there is no more input even while it is revoking memory
+            operator.finish();
+            assertFalse(revokeFuture.isDone());
+            assertTrue(operator.needsInput());
+            assertEquals(spillerFactory.getSpillsCount(), 1);
+
+            spillerFactory.completeSpills();
+            getFutureValue(revokeFuture);
+            operator.finish();
+            assertTrue(operator.needsInput());
+
+            operator.finishMemoryRevoke();
+            MaterializedResult actual = toMaterializedResult(driverContext.getSession(), operator.getTypes(), finishOperator(operator));
+            MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, BIGINT)
+                    .row(1L, "a", 1L, 1L)
+                    .row(1L, "b", 2L, 1L)
+                    .build();
+            assertEquals(actual, expected);
+        }
+        catch (Exception e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private WindowOperatorFactory createFactoryUnbounded(
+            boolean spillEnabled,
             List<? extends Type> sourceTypes,
             List<Integer> outputChannels,
             List<WindowFunctionDefinition> functions,
@@ -623,6 +799,7 @@ public class TestWindowOperator
             List<SortOrder> sortOrder)
     {
         return createFactoryUnbounded(
+                spillEnabled,
                 sourceTypes,
                 outputChannels,
                 functions,
@@ -633,7 +810,8 @@ public class TestWindowOperator
                 0);
     }
 
-    private static WindowOperatorFactory createFactoryUnbounded(
+    private WindowOperatorFactory createFactoryUnbounded(
+            boolean spillEnabled,
             List<? extends Type> sourceTypes,
             List<Integer> outputChannels,
             List<WindowFunctionDefinition> functions,
@@ -655,6 +833,8 @@ public class TestWindowOperator
                 sortOrder,
                 preSortedChannelPrefix,
                 10,
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory));
     }
 }
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+public class TestAesSpillCipher
+{
+    private static final Slice DATA = utf8Slice("data of a spilled page");
+
+    @Test
+    public void testRoundTrip()
+    {
+        AesSpillCipher cipher = new AesSpillCipher();
+        Slice encrypted = cipher.encrypt(7, DATA);
+
+        assertEquals(encrypted.length(), DATA.length());
+        assertNotEquals(encrypted, DATA);
+        assertEquals(cipher.decrypt(7, encrypted), DATA);
+        assertNotEquals(cipher.decrypt(8, encrypted), DATA);
+    }
+
+    @Test
+    public void testPagesAndFilesUseDistinctKeyStreams()
+    {
+        AesSpillCipher cipher = new AesSpillCipher();
+
+        assertNotEquals(cipher.encrypt(0, DATA), cipher.encrypt(1, DATA));
+        assertNotEquals(cipher.encrypt(0, DATA), new AesSpillCipher().encrypt(0, DATA));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "spill cipher is destroyed")
+    public void testDestroyedCipher()
+    {
+        AesSpillCipher cipher = new AesSpillCipher();
+        Slice encrypted = cipher.encrypt(0, DATA);
+        cipher.destroy();
+        cipher.decrypt(0, encrypted);
+    }
+}
@@ -15,7 +15,6 @@ package com.facebook.presto.spiller;
 
 import com.facebook.presto.block.BlockEncodingManager;
 import com.facebook.presto.execution.buffer.PagesSerde;
-import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.PageAssertions;
 import com.facebook.presto.spi.Page;
@@ -26,32 +25,58 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.io.Files;
+import com.google.common.primitives.Bytes;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import io.airlift.compress.Compressor;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.units.Duration;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.MoreFiles.listFiles;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static io.airlift.slice.Slices.wrappedBuffer;
 import static java.lang.Double.doubleToLongBits;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
+@Test(singleThreaded = true)
 public class TestFileSingleStreamSpiller
 {
     private static final List<Type> TYPES = ImmutableList.of(BIGINT, DOUBLE, VARBINARY);
+    private static final int POSITION_COUNT = 100;
+    private static final byte[] VARBINARY_VALUE = "spilled value".getBytes(UTF_8);
 
-    private final ListeningExecutorService executor = listeningDecorator(newCachedThreadPool());
-    private final File spillPath = Files.createTempDir();
+    private ListeningExecutorService executor;
+    private File spillPath;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = listeningDecorator(newCachedThreadPool());
+        spillPath = Files.createTempDir();
+    }
 
     @AfterMethod
     public void tearDown()
@@ -65,11 +90,50 @@ public class TestFileSingleStreamSpiller
     public void testSpill()
             throws Exception
     {
-        PagesSerdeFactory serdeFactory = new PagesSerdeFactory(new BlockEncodingManager(new TypeRegistry(ImmutableSet.copyOf(TYPES))), false);
-        PagesSerde serde = serdeFactory.createPagesSerde();
+        assertSpill(SpillCompressionCodec.NONE, false);
+    }
+
+    @Test
+    public void testSpillCompression()
+            throws Exception
+    {
+        assertSpill(SpillCompressionCodec.LZ4, false);
+        assertSpill(SpillCompressionCodec.DEFLATE, false);
+    }
+
+    @Test
+    public void testSpillEncryption()
+            throws Exception
+    {
+        assertSpill(SpillCompressionCodec.NONE, true);
+        assertSpill(SpillCompressionCodec.DEFLATE, true);
+    }
+
+    @Test
+    public void testSpillPathWriteTimeExcludesCompression()
+            throws Exception
+    {
+        PagesSerde serde = new PagesSerde(new BlockEncodingManager(new TypeRegistry(ImmutableSet.copyOf(TYPES))), Optional.of(new SlowCompressor()), Optional.of(new Lz4Decompressor()));
         SpillerStats spillerStats = new SpillerStats();
+        SpillPathStats spillPathStats = spillerStats.getSpillPathStats(spillPath.toPath());
         LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext();
-        FileSingleStreamSpiller spiller = new FileSingleStreamSpiller(serde, executor, spillPath.toPath(), spillerStats, bytes -> {}, memoryContext);
+        try (FileSingleStreamSpiller spiller = new FileSingleStreamSpiller(serde, Optional.empty(), executor, spillPath.toPath(), spillPathStats, spillerStats, bytes -> {}, memoryContext)) {
+            spiller.spill(buildPage()).get();
+        }
+
+        assertTrue(spillerStats.getTotalSpillWriteNanos() >= SlowCompressor.DELAY.roundTo(NANOSECONDS));
+        assertTrue(spillPathStats.getSpillWriteNanos() < SlowCompressor.DELAY.roundTo(NANOSECONDS));
+        assertEquals(spillPathStats.getSpilledBytes(), spillerStats.getTotalSpilledBytes());
+    }
+
+    private void assertSpill(SpillCompressionCodec compressionCodec, boolean encryptionEnabled)
+            throws Exception
+    {
+        PagesSerde serde = compressionCodec.createPagesSerde(new BlockEncodingManager(new TypeRegistry(ImmutableSet.copyOf(TYPES))));
+        SpillerStats spillerStats = new SpillerStats();
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext();
+        Optional<AesSpillCipher> spillCipher = encryptionEnabled ? Optional.of(new AesSpillCipher()) : Optional.empty();
+        FileSingleStreamSpiller spiller = new FileSingleStreamSpiller(serde, spillCipher, executor, spillPath.toPath(), spillerStats.getSpillPathStats(spillPath.toPath()), spillerStats, bytes -> {}, memoryContext);
 
         Page page = buildPage();
 
@@ -78,6 +142,15 @@ public class TestFileSingleStreamSpiller
         spiller.spill(page).get();
         spiller.spill(Iterators.forArray(page, page, page)).get();
         assertEquals(listFiles(spillPath.toPath()).size(), 1);
+        SpillPathStats spillPathStats = spillerStats.getSpillPathStats(spillPath.toPath());
+        assertEquals(spillPathStats.getOpenSpillFiles(), 1);
+        assertEquals(spillPathStats.getSpilledBytes(), spillerStats.getTotalSpilledBytes());
+        assertEquals(spillerStats.getTotalSpilledUncompressedBytes() > spillerStats.getTotalSpilledBytes(), compressionCodec != SpillCompressionCodec.NONE);
+        if (compressionCodec == SpillCompressionCodec.NONE) {
+            // plain text of the page can be found in the spill file only if it's not encrypted
+            byte[] spillFile = readAllBytes(getOnlyElement(listFiles(spillPath.toPath())));
+            assertEquals(Bytes.indexOf(spillFile, VARBINARY_VALUE) >= 0, !encryptionEnabled);
+        }
 
         // The spillers release their memory reservations when they are closed, therefore at this point
         // they will have non-zero memory reservation.
@@ -94,22 +167,54 @@ public class TestFileSingleStreamSpiller
         for (int i = 0; i < 4; ++i) {
             PageAssertions.assertPageEquals(TYPES, page, spilledPages.get(i));
         }
+        assertEquals(spillerStats.getTotalUnspilledBytes(), spillerStats.getTotalSpilledBytes());
 
         spiller.close();
         assertEquals(listFiles(spillPath.toPath()).size(), 0);
+        assertEquals(spillPathStats.getOpenSpillFiles(), 0);
         assertEquals(memoryContext.getBytes(), 0);
     }
 
     private Page buildPage()
     {
-        BlockBuilder col1 = BIGINT.createBlockBuilder(null, 1);
-        BlockBuilder col2 = DOUBLE.createBlockBuilder(null, 1);
-        BlockBuilder col3 = VARBINARY.createBlockBuilder(null, 1);
-
-        col1.writeLong(42).closeEntry();
-        col2.writeLong(doubleToLongBits(43.0)).closeEntry();
-        col3.writeLong(doubleToLongBits(43.0)).writeLong(1).closeEntry();
+        BlockBuilder col1 = BIGINT.createBlockBuilder(null, POSITION_COUNT);
+        BlockBuilder col2 = DOUBLE.createBlockBuilder(null, POSITION_COUNT);
+        BlockBuilder col3 = VARBINARY.createBlockBuilder(null, POSITION_COUNT);
+
+        for (int position = 0; position < POSITION_COUNT; position++) {
+            col1.writeLong(42).closeEntry();
+            col2.writeLong(doubleToLongBits(43.0)).closeEntry();
+            col3.writeBytes(wrappedBuffer(VARBINARY_VALUE), 0, VARBINARY_VALUE.length).closeEntry();
+        }
 
         return new Page(col1.build(), col2.build(), col3.build());
     }
+
+    private static class SlowCompressor
+            implements Compressor
+    {
+        private static final Duration DELAY = new Duration(500, MILLISECONDS);
+
+        private final Compressor delegate = new Lz4Compressor();
+
+        @Override
+        public int maxCompressedLength(int uncompressedSize)
+        {
+            return delegate.maxCompressedLength(uncompressedSize);
+        }
+
+        @Override
+        public int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+        {
+            sleepUninterruptibly(DELAY.toMillis(), MILLISECONDS);
+            return delegate.compress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+        }
+
+        @Override
+        public void compress(ByteBuffer input, ByteBuffer output)
+        {
+            sleepUninterruptibly(DELAY.toMillis(), MILLISECONDS);
+            delegate.compress(input, output);
+        }
+    }
 }
@@ -44,6 +44,7 @@ import static com.google.common.io.MoreFiles.listFiles;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static com.google.common.util.concurrent.Futures.getUnchecked;
 import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 
 @Test(singleThreaded = true)
@@ -104,6 +105,35 @@ public class TestFileSingleStreamSpillerFactory
         assertEquals(listFiles(spillPath2.toPath()).size(), 0);
     }
 
+    @Test
+    public void testAvoidsSlowSpillPath()
+            throws Exception
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        BlockEncodingSerde blockEncodingSerde = new BlockEncodingManager(new TypeRegistry(ImmutableSet.copyOf(types)));
+        SpillerStats spillerStats = new SpillerStats();
+        // both paths have written 32MB recently, the first one ten times slower
+        spillerStats.getSpillPathStats(spillPath1.toPath()).recordWrite(32 * 1024 * 1024, SECONDS.toNanos(10));
+        spillerStats.getSpillPathStats(spillPath2.toPath()).recordWrite(32 * 1024 * 1024, SECONDS.toNanos(1));
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                blockEncodingSerde,
+                spillerStats,
+                ImmutableList.of(spillPath1.toPath(), spillPath2.toPath()),
+                1.0);
+
+        List<SingleStreamSpiller> spillers = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            spillers.add(spillerFactory.create(types, bytes -> {}, newSimpleAggregatedMemoryContext().newLocalMemoryContext()));
+        }
+        assertEquals(listFiles(spillPath1.toPath()).size(), 0);
+        assertEquals(listFiles(spillPath2.toPath()).size(), 5);
+        assertEquals(spillerStats.getOpenSpillFilesByPath().get(spillPath2.toPath().toString()), Integer.valueOf(5));
+
+        spillers.forEach(SingleStreamSpiller::close);
+        assertEquals(spillerStats.getOpenSpillFilesByPath().get(spillPath2.toPath().toString()), Integer.valueOf(0));
+    }
+
     private Page buildPage()
     {
         BlockBuilder col1 = BIGINT.createBlockBuilder(null, 1);